@@ -42,4 +42,8 @@ class BAMFileConstants {
      * BAM index file magic number.
      */
     static final byte[] BAM_INDEX_MAGIC = "BAI\1".getBytes();
+    /**
+     * Splitting index file magic number.
+     */
+    static final byte[] SBI_MAGIC = "SBI\1".getBytes();
 }
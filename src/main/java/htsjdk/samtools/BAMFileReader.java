@@ -24,6 +24,7 @@
 package htsjdk.samtools;
 
 
+import htsjdk.samtools.seekablestream.SeekablePrefetchingStream;
 import htsjdk.samtools.seekablestream.SeekableStream;
 import htsjdk.samtools.util.*;
 import htsjdk.samtools.util.zip.InflaterFactory;
@@ -55,6 +56,9 @@ public class BAMFileReader extends SamReader.ReaderImplementation {
     private File mIndexFile = null;
     private SeekableStream mIndexStream = null;
 
+    // If the BAM stream supports it, the chunks of each indexed query are planned on it
+    private SeekablePrefetchingStream mPrefetchingStream = null;
+
     private BAMIndex mIndex = null;
     private long mFirstRecordPointer = 0;
     // If non-null, there is an unclosed iterator extant.
@@ -224,6 +228,10 @@ public class BAMFileReader extends SamReader.ReaderImplementation {
         throws IOException {
         this(useAsynchronousIO ? new AsyncBlockCompressedInputStream(strm, inflaterFactory) : new BlockCompressedInputStream(strm, inflaterFactory),
                 indexFile, eagerDecode, useAsynchronousIO, strm.getSource(), validationStringency, samRecordFactory);
+        // asynchronous decompression reads the stream on another thread, so planning would race with it
+        if (strm instanceof SeekablePrefetchingStream && !useAsynchronousIO) {
+            mPrefetchingStream = (SeekablePrefetchingStream) strm;
+        }
     }
 
     /**
@@ -267,6 +275,10 @@ public class BAMFileReader extends SamReader.ReaderImplementation {
         throws IOException {
         this(useAsynchronousIO ? new AsyncBlockCompressedInputStream(strm, inflaterFactory) : new BlockCompressedInputStream(strm, inflaterFactory),
                 indexStream, eagerDecode, useAsynchronousIO, strm.getSource(), validationStringency, samRecordFactory);
+        // asynchronous decompression reads the stream on another thread, so planning would race with it
+        if (strm instanceof SeekablePrefetchingStream && !useAsynchronousIO) {
+            mPrefetchingStream = (SeekablePrefetchingStream) strm;
+        }
     }
 
     /**
@@ -337,6 +349,39 @@ public class BAMFileReader extends SamReader.ReaderImplementation {
         return offset;
     }
 
+    /**
+     * Finds the first record that starts at or after an arbitrary virtual offset, without the help of an index.  Each
+     * position is tried as the start of a record, and accepted once the record there and the next few are consistent
+     * with the header: their reference indexes, positions, read names, CIGAR operators and lengths must all be valid.
+     * The offset should not point into the header, whose bytes are not distinguished from those of records.
+     *
+     * @param stream        the BAM file, which is left open
+     * @param header        the header of the BAM file
+     * @param virtualOffset where to start looking
+     * @return the virtual offset of the first record found, or -1 if no record starts between virtualOffset and the end of the file
+     */
+    public static long findVirtualOffsetOfNextRecord(final SeekableStream stream, final SAMFileHeader header, final long virtualOffset) throws IOException {
+        return BAMRecordBoundaryFinder.findNextRecord(stream, header, virtualOffset);
+    }
+
+    /**
+     * Finds the first record in the first BGZF block that starts at or after an arbitrary file offset, such as the start
+     * of a split of the file.  Block boundaries are found by looking for BGZF block headers followed by another block
+     * header, and record boundaries as by {@link #findVirtualOffsetOfNextRecord}.
+     *
+     * @param stream     the BAM file, which is left open
+     * @param header     the header of the BAM file
+     * @param fileOffset where to start looking, which should be past the blocks holding the header
+     * @return the virtual offset of the first record found, or -1 if no record starts between fileOffset and the end of the file
+     */
+    public static long findVirtualOffsetOfNextRecordFromFileOffset(final SeekableStream stream, final SAMFileHeader header, final long fileOffset) throws IOException {
+        final long blockAddress = BAMRecordBoundaryFinder.findNextBlock(stream, fileOffset);
+        if (blockAddress >= stream.length()) {
+            return -1;
+        }
+        return BAMRecordBoundaryFinder.findNextRecord(stream, header, BlockCompressedFilePointerUtil.makeFilePointer(blockAddress, 0));
+    }
+
     /**
      * If true, writes the source of every read into the source SAMRecords.
      * @param enabled true to write source information into each SAMRecord.
@@ -960,6 +1005,9 @@ public class BAMFileReader extends SamReader.ReaderImplementation {
         BAMFileIndexIterator(final long[] filePointers) {
             super(false);  // delay advance() until after construction
             mFilePointers = filePointers;
+            if (mPrefetchingStream != null && filePointers != null) {
+                mPrefetchingStream.plan(filePointers);
+            }
             advance();
         }
 
@@ -46,6 +46,7 @@ class BAMFileWriter extends SAMFileWriterImpl {
     private BAMRecordCodec bamRecordCodec = null;
     private final BlockCompressedOutputStream blockCompressedOutputStream;
     private BAMIndexer bamIndexer = null;
+    private SBIIndexWriter sbiIndexWriter = null;
 
     protected BAMFileWriter(final File path) {
         blockCompressedOutputStream = new BlockCompressedOutputStream(path);
@@ -123,10 +124,27 @@ class BAMFileWriter extends SAMFileWriterImpl {
         }
     }
 
+    // Allow enabling the splitting index construction
+    // only enabled by factory method before anything is written
+    void enableSplittingIndexConstruction(final long granularity) {
+        if (getFilename() == null) {
+            throw new SAMException("Not creating splitting index since we don't have an output file name");
+        }
+        try {
+            sbiIndexWriter = new SBIIndexWriter(IOUtil.getPath(getFilename() + SBIIndex.FILE_EXTENSION), granularity);
+        } catch (final IOException e) {
+            throw new SAMException("Not creating splitting index", e);
+        }
+    }
+
     @Override
     protected void writeAlignment(final SAMRecord alignment) {
         prepareToWriteAlignments();
 
+        if (sbiIndexWriter != null) {
+            sbiIndexWriter.processRecord(blockCompressedOutputStream.getFilePointer());
+        }
+
         if (bamIndexer != null) {
             try {
                 final long startOffset = blockCompressedOutputStream.getFilePointer();
@@ -151,6 +169,7 @@ class BAMFileWriter extends SAMFileWriterImpl {
 
     @Override
     protected void finish() {
+        final long finalVirtualOffset = blockCompressedOutputStream.getFilePointer();
         outputBinaryCodec.close();
             try {
                 if (bamIndexer != null) {
@@ -159,6 +178,13 @@ class BAMFileWriter extends SAMFileWriterImpl {
             } catch (Exception e) {
                 throw new SAMException("Exception writing BAM index file", e);
             }
+        if (sbiIndexWriter != null) {
+            try {
+                sbiIndexWriter.finish(finalVirtualOffset, Files.size(IOUtil.getPath(getFilename())));
+            } catch (final IOException e) {
+                throw new SAMException("Exception writing splitting index file", e);
+            }
+        }
     }
 
     /** @return absolute path in URI format, or null if this writer does not correspond to a file.
@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools;
+
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Builds the BAM index of a BAM file that was produced by concatenating the records of independently written and
+ * indexed BAM parts.  Each part's index is added along with the mapping from virtual file pointers in the part to
+ * virtual file pointers in the merged file, which for block-copied parts is a shift by the offset at which the part
+ * was placed.  Bins, chunks, linear index entries and metadata are combined without reading any records.
+ *
+ * Parts must be added in file order.  Unlike {@link htsjdk.tribble.index.tabix.TabixIndexMerger} a reference may be
+ * split across consecutive parts, as happens when a coordinate sorted file is scattered by genomic interval.
+ */
+public final class BAMIndexMerger {
+    private final ReferenceContent[] references;
+    private long noCoordinateCount = 0;
+
+    /**
+     * @param numberOfReferences the number of sequences in the dictionary shared by all parts
+     */
+    public BAMIndexMerger(final int numberOfReferences) {
+        this.references = new ReferenceContent[numberOfReferences];
+    }
+
+    /**
+     * @param index      the index of one part, with virtual file pointers relative to the start of that part
+     * @param partOffset the file offset of the first byte of the part in the merged file
+     */
+    public void processIndex(final BAMIndex index, final long partOffset) {
+        processIndex(index, vfp -> BlockCompressedFilePointerUtil.shift(vfp, partOffset));
+    }
+
+    /**
+     * @param index         the index of one part
+     * @param pointerMapper maps a virtual file pointer in the part to the one addressing the same record in the merged file
+     */
+    void processIndex(final BAMIndex index, final LongUnaryOperator pointerMapper) {
+        if (!(index instanceof AbstractBAMFileIndex)) {
+            throw new IllegalArgumentException("Only BAM file indexes can be merged, not " + index.getClass().getName());
+        }
+        final AbstractBAMFileIndex bamIndex = (AbstractBAMFileIndex) index;
+        final int partReferences = bamIndex.getNumberOfReferences();
+        if (partReferences > references.length) {
+            throw new IllegalArgumentException("Index has " + partReferences + " references but the merged file has " + references.length);
+        }
+        for (int i = 0; i < partReferences; i++) {
+            final BAMIndexContent content = bamIndex.getQueryResults(i);
+            if (content == null || content.getNumberOfNonNullBins() == 0) {
+                continue;
+            }
+            if (references[i] == null) {
+                references[i] = new ReferenceContent();
+            }
+            references[i].add(content, pointerMapper);
+        }
+        final Long partNoCoordinateCount = bamIndex.getNoCoordinateCount();
+        if (partNoCoordinateCount != null) {
+            noCoordinateCount += partNoCoordinateCount;
+        }
+    }
+
+    /**
+     * Writes the index of the merged file.
+     */
+    public void finish(final File output) {
+        final BinaryBAMIndexWriter writer = new BinaryBAMIndexWriter(references.length, output);
+        for (int i = 0; i < references.length; i++) {
+            writer.writeReference(references[i] == null ? null : references[i].toIndexContent(i));
+        }
+        writer.writeNoCoordinateRecordCount(noCoordinateCount);
+        writer.close();
+    }
+
+    /** The combined index content of one reference, accumulated over all parts that hold records on it. */
+    private static final class ReferenceContent {
+        private final Bin[] bins = new Bin[GenomicIndexUtil.MAX_BINS + 1];
+        private int numberOfBins = 0;
+        private int maxBinNumber = 0;
+        private long[] linearIndex = new long[0];
+
+        private boolean hasMetaData = false;
+        private long firstOffset = -1;
+        private long lastOffset = 0;
+        private long alignedRecords = 0;
+        private long unalignedRecords = 0;
+
+        void add(final BAMIndexContent content, final LongUnaryOperator pointerMapper) {
+            for (final Bin bin : content.getBins()) {
+                final int binNumber = bin.getBinNumber();
+                if (binNumber == GenomicIndexUtil.MAX_BINS || bin.getChunkList().isEmpty()) {
+                    continue;
+                }
+                Bin merged = bins[binNumber];
+                if (merged == null) {
+                    merged = new Bin(content.getReferenceSequence(), binNumber);
+                    merged.setChunkList(new ArrayList<>());
+                    bins[binNumber] = merged;
+                    numberOfBins++;
+                    maxBinNumber = Math.max(maxBinNumber, binNumber);
+                }
+                // parts arrive in file order, so appending keeps each bin's chunks sorted
+                final List<Chunk> chunks = merged.getChunkList();
+                for (final Chunk chunk : bin.getChunkList()) {
+                    chunks.add(new Chunk(pointerMapper.applyAsLong(chunk.getChunkStart()),
+                            pointerMapper.applyAsLong(chunk.getChunkEnd())));
+                }
+            }
+
+            // an entry of an earlier part is always the smaller offset, so only windows it left empty are taken
+            final LinearIndex partLinearIndex = content.getLinearIndex();
+            final long[] entries = partLinearIndex.getIndexEntries();
+            final int start = partLinearIndex.getIndexStart();
+            if (start + entries.length > linearIndex.length) {
+                linearIndex = Arrays.copyOf(linearIndex, start + entries.length);
+            }
+            for (int i = 0; i < entries.length; i++) {
+                if (linearIndex[start + i] == 0 && entries[i] != 0) {
+                    linearIndex[start + i] = pointerMapper.applyAsLong(entries[i]);
+                }
+            }
+
+            final BAMIndexMetaData metaData = content.getMetaData();
+            if (metaData != null && metaData.getFirstOffset() != -1) {
+                if (firstOffset == -1) {
+                    firstOffset = pointerMapper.applyAsLong(metaData.getFirstOffset());
+                }
+                lastOffset = pointerMapper.applyAsLong(metaData.getLastOffset());
+                alignedRecords += metaData.getAlignedRecordCount();
+                unalignedRecords += metaData.getUnalignedRecordCount();
+                hasMetaData = true;
+            }
+        }
+
+        BAMIndexContent toIndexContent(final int referenceSequence) {
+            // fill windows that no part covered with the preceding entry, as BinningIndexBuilder does
+            long lastNonZeroOffset = 0;
+            for (int i = 0; i < linearIndex.length; i++) {
+                if (linearIndex[i] == 0) {
+                    linearIndex[i] = lastNonZeroOffset;
+                } else {
+                    lastNonZeroOffset = linearIndex[i];
+                }
+            }
+            final BAMIndexMetaData metaData = hasMetaData
+                    ? new BAMIndexMetaData(Arrays.asList(new Chunk(firstOffset, lastOffset), new Chunk(alignedRecords, unalignedRecords)))
+                    : null;
+            return new BAMIndexContent(referenceSequence, Arrays.copyOf(bins, maxBinNumber + 1), numberOfBins, metaData,
+                    new LinearIndex(referenceSequence, 0, linearIndex));
+        }
+    }
+}
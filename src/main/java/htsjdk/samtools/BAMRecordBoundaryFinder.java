@@ -0,0 +1,253 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools;
+
+import htsjdk.samtools.seekablestream.SeekableStream;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Finds where BAM records start without the help of an index, for readers that begin at an arbitrary point of a file,
+ * such as the start of a split in distributed processing.  Every byte position after the starting point is tried as
+ * the start of a record, and a candidate is accepted once it and the records following it are consistent with the
+ * file's header.
+ *
+ * @see BAMFileReader#findVirtualOffsetOfNextRecord(SeekableStream, SAMFileHeader, long)
+ */
+final class BAMRecordBoundaryFinder {
+    /** Number of consecutive records, starting at a candidate, that must be valid for the candidate to be accepted. */
+    static final int RECORDS_TO_VERIFY = 3;
+
+    /** Larger records than this are taken to be bogus rather than read in full to find the record after them. */
+    static final int MAX_RECORD_LENGTH = 1 << 26;
+
+    /** The block_size field plus the fixed-length fields of a record. */
+    private static final int FIXED_LENGTH = 36;
+
+    private final BlockCompressedInputStream in;
+    private final SAMSequenceDictionary dictionary;
+
+    // uncompressed data read so far, and the virtual offsets at which each BGZF block's part of it starts
+    private byte[] buffer = new byte[2 * BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE];
+    private int length = 0;
+    private int[] blockStarts = new int[16];
+    private long[] blockVirtualOffsets = new long[16];
+    private int numberOfBlocks = 0;
+    private boolean eof = false;
+
+    private BAMRecordBoundaryFinder(final BlockCompressedInputStream in, final SAMSequenceDictionary dictionary) {
+        this.in = in;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return the virtual offset of the first record starting at or after {@code virtualOffset}, or -1 if there is none
+     */
+    static long findNextRecord(final SeekableStream stream, final SAMFileHeader header, final long virtualOffset) throws IOException {
+        // not closed, as that would close the caller's stream
+        final BlockCompressedInputStream in = new BlockCompressedInputStream(stream);
+        in.seek(virtualOffset);
+        return new BAMRecordBoundaryFinder(in, header.getSequenceDictionary()).find();
+    }
+
+    /**
+     * @return the file offset of the first BGZF block starting at or after {@code fileOffset}, or the length of the
+     * stream if there is none.  A candidate block is accepted if the stream ends or another block starts right after it.
+     */
+    static long findNextBlock(final SeekableStream stream, final long fileOffset) throws IOException {
+        final int maxBlockSize = BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE;
+        final long streamLength = stream.length();
+        // each window holds every candidate in its first half together with the whole block that candidate starts
+        final byte[] window = new byte[2 * maxBlockSize + BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH];
+        for (long windowStart = fileOffset; windowStart < streamLength; windowStart += maxBlockSize) {
+            stream.seek(windowStart);
+            final int windowLength = (int) Math.min(window.length, streamLength - windowStart);
+            int read = 0;
+            while (read < windowLength) {
+                final int n = stream.read(window, read, windowLength - read);
+                if (n < 0) break;
+                read += n;
+            }
+            for (int candidate = 0; candidate < Math.min(maxBlockSize, read); candidate++) {
+                if (isBlockHeader(window, read, candidate)) {
+                    final int blockLength = readUnsignedShort(window, candidate + BlockCompressedStreamConstants.BLOCK_LENGTH_OFFSET) + 1;
+                    final long next = windowStart + candidate + blockLength;
+                    if (next == streamLength || (next < streamLength && isBlockHeader(window, read, candidate + blockLength))) {
+                        return windowStart + candidate;
+                    }
+                }
+            }
+        }
+        return streamLength;
+    }
+
+    private static boolean isBlockHeader(final byte[] bytes, final int length, final int offset) {
+        if (offset + BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH > length) {
+            return false;
+        }
+        final byte[] preamble = BlockCompressedStreamConstants.GZIP_BLOCK_PREAMBLE;
+        for (int i = 0; i < preamble.length; i++) {
+            // modification time, extra flags and operating system vary between writers
+            if (i >= 4 && i < 10) continue;
+            if (bytes[offset + i] != preamble[i]) return false;
+        }
+        return true;
+    }
+
+    private long find() throws IOException {
+        for (int candidate = 0; ensure(candidate + 1); candidate++) {
+            if (isRecordChain(candidate)) {
+                return virtualOffsetOf(candidate);
+            }
+            if (numberOfBlocks > 1 && candidate >= blockStarts[1]) {
+                candidate -= discardFirstBlock();
+            }
+        }
+        return -1;
+    }
+
+    private boolean isRecordChain(final int start) throws IOException {
+        int recordStart = start;
+        for (int i = 0; i < RECORDS_TO_VERIFY; i++) {
+            if (!ensure(recordStart + 1)) {
+                // the file ends right after a valid record
+                return i > 0;
+            }
+            final int recordLength = checkRecord(recordStart);
+            if (recordLength < 0) {
+                return false;
+            }
+            recordStart += recordLength;
+        }
+        return true;
+    }
+
+    /**
+     * @return the length of the record at {@code start}, including its block_size field, or -1 if it is not a record
+     */
+    private int checkRecord(final int start) throws IOException {
+        if (!ensure(start + FIXED_LENGTH)) return -1;
+        final int blockSize = readInt(start);
+        if (blockSize < FIXED_LENGTH - 4 || blockSize > MAX_RECORD_LENGTH) return -1;
+        if (!isValidPosition(readInt(start + 4), readInt(start + 8))) return -1;
+        if (!isValidPosition(readInt(start + 24), readInt(start + 28))) return -1;
+
+        final int readNameLength = buffer[start + 12] & 0xff;
+        final int cigarLength = readUnsignedShort(buffer, start + 16);
+        final int flags = readUnsignedShort(buffer, start + 18);
+        final int readLength = readInt(start + 20);
+        if (readNameLength < 1 || readLength < 0 || (flags & ~0xfff) != 0) return -1;
+        final long requiredSize = FIXED_LENGTH - 4 + readNameLength + 4L * cigarLength + (readLength + 1L) / 2 + readLength;
+        if (requiredSize > blockSize) return -1;
+
+        final int readNameStart = start + FIXED_LENGTH;
+        final int cigarStart = readNameStart + readNameLength;
+        if (!ensure(cigarStart + 4 * cigarLength)) return -1;
+        for (int i = readNameStart; i < cigarStart - 1; i++) {
+            // [!-?A-~], as required of read names by the SAM spec
+            final byte b = buffer[i];
+            if (b < '!' || b > '~' || b == '@') return -1;
+        }
+        if (buffer[cigarStart - 1] != 0) return -1;
+        for (int i = 0; i < cigarLength; i++) {
+            if ((buffer[cigarStart + 4 * i] & 0xf) >= CigarOperator.values().length) return -1;
+        }
+
+        return ensure(start + 4 + blockSize) ? 4 + blockSize : -1;
+    }
+
+    private boolean isValidPosition(final int referenceIndex, final int position) {
+        if (referenceIndex == SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX) {
+            return position == SAMRecord.NO_ALIGNMENT_START - 1;
+        }
+        if (referenceIndex < 0 || referenceIndex >= dictionary.size() || position < 0) {
+            return false;
+        }
+        final int sequenceLength = dictionary.getSequence(referenceIndex).getSequenceLength();
+        return sequenceLength <= 0 || position < sequenceLength;
+    }
+
+    /** Reads blocks until at least {@code end} bytes are buffered, returning false if the stream ends first. */
+    private boolean ensure(final int end) throws IOException {
+        while (length < end && !eof) {
+            final long virtualOffset = in.getFilePointer();
+            final int available = in.available();
+            if (available <= 0) {
+                eof = true;
+                break;
+            }
+            if (length + available > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, length + available));
+            }
+            if (numberOfBlocks == blockStarts.length) {
+                blockStarts = Arrays.copyOf(blockStarts, 2 * numberOfBlocks);
+                blockVirtualOffsets = Arrays.copyOf(blockVirtualOffsets, 2 * numberOfBlocks);
+            }
+            blockStarts[numberOfBlocks] = length;
+            blockVirtualOffsets[numberOfBlocks] = virtualOffset;
+            numberOfBlocks++;
+            int read = 0;
+            while (read < available) {
+                read += in.read(buffer, length + read, available - read);
+            }
+            length += available;
+        }
+        return length >= end;
+    }
+
+    /** Drops the first buffered block once every candidate in it has been rejected, returning the bytes dropped. */
+    private int discardFirstBlock() {
+        final int discarded = blockStarts[1];
+        System.arraycopy(buffer, discarded, buffer, 0, length - discarded);
+        length -= discarded;
+        numberOfBlocks--;
+        for (int i = 0; i < numberOfBlocks; i++) {
+            blockStarts[i] = blockStarts[i + 1] - discarded;
+            blockVirtualOffsets[i] = blockVirtualOffsets[i + 1];
+        }
+        return discarded;
+    }
+
+    private long virtualOffsetOf(final int position) {
+        int block = numberOfBlocks - 1;
+        while (blockStarts[block] > position) {
+            block--;
+        }
+        final long blockVirtualOffset = blockVirtualOffsets[block];
+        return BlockCompressedFilePointerUtil.makeFilePointer(BlockCompressedFilePointerUtil.getBlockAddress(blockVirtualOffset),
+                BlockCompressedFilePointerUtil.getBlockOffset(blockVirtualOffset) + position - blockStarts[block]);
+    }
+
+    private int readInt(final int offset) {
+        return (buffer[offset] & 0xff) | (buffer[offset + 1] & 0xff) << 8 | (buffer[offset + 2] & 0xff) << 16 | (buffer[offset + 3] & 0xff) << 24;
+    }
+
+    private static int readUnsignedShort(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+    }
+}
@@ -26,6 +26,7 @@ package htsjdk.samtools;
 import htsjdk.samtools.util.BinaryCodec;
 import htsjdk.samtools.util.RuntimeEOFException;
 import htsjdk.samtools.util.SortingCollection;
+import htsjdk.samtools.util.ThroughputMetrics;
 
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -179,6 +180,9 @@ public class BAMRecordCodec implements SortingCollection.Codec<SAMRecord> {
                 attribute = attribute.getNext();
             }
         }
+
+        final ThroughputMetrics metrics = ThroughputMetrics.getGlobal();
+        if (metrics != null) metrics.increment(ThroughputMetrics.Counter.RECORDS_ENCODED);
     }
 
     /**
@@ -196,6 +200,9 @@ public class BAMRecordCodec implements SortingCollection.Codec<SAMRecord> {
             return null;
         }
 
+        final ThroughputMetrics metrics = ThroughputMetrics.getGlobal();
+        final long decodeStart = metrics == null ? 0 : System.nanoTime();
+
         if (recordLength < BAMFileConstants.FIXED_BLOCK_SIZE) {
             throw new SAMFormatException("Invalid record length: " + recordLength);
         }
@@ -221,6 +228,10 @@ public class BAMRecordCodec implements SortingCollection.Codec<SAMRecord> {
             // don't reset a null header as this will clobber the reference and mate reference indices
             ret.setHeader(header);
         }
+        if (metrics != null) {
+            metrics.add(ThroughputMetrics.Counter.DECODE_NANOS, System.nanoTime() - decodeStart);
+            metrics.increment(ThroughputMetrics.Counter.RECORDS_DECODED);
+        }
         return ret;
     }
 }
@@ -14,8 +14,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.LongUnaryOperator;
 
 public class BamFileIoUtils {
     private static final Log LOG = Log.getInstance(BamFileIoUtils.class);
@@ -155,6 +162,149 @@ public class BamFileIoUtils {
         }
     }
 
+    /**
+     * Gathers BAM files into one by copying their BGZF blocks with {@link FileChannel#transferTo}, so that no records are
+     * decoded or re-encoded.  Only the header is written afresh: the supplied header replaces those of the inputs, and
+     * any records sharing a block with the end of an input's header are recompressed into new blocks.  Given a single
+     * input this is a reheader that leaves the records' blocks untouched.
+     *
+     * If an index is requested and every input is indexed, the output's index is built by shifting the inputs' indexes
+     * to where their blocks were placed and merging them with {@link BAMIndexMerger}.  Otherwise the output is indexed
+     * by reading it back.
+     *
+     * @param bams        The files to gather, in the order in which their records are to appear in the output
+     * @param output      The gathered file
+     * @param header      The header of the gathered file; its sequence dictionary must be the size of each input's
+     * @param createIndex Whether or not to create an index file for the gathered file
+     * @param createMd5   Whether or not to create an MD5 file for the gathered file
+     */
+    public static void gatherWithBlockCopying(final List<File> bams, final File output, final SAMFileHeader header, final boolean createIndex, final boolean createMd5) {
+        IOUtil.assertFileIsWritable(output);
+        final List<File> indexes = new ArrayList<>(bams.size());
+        for (final File bam : bams) {
+            IOUtil.assertFileIsReadable(bam);
+            assertHeadersAreCompatible(header, bam);
+            indexes.add(createIndex ? SamFiles.findIndex(bam) : null);
+        }
+        final BAMIndexMerger indexMerger = createIndex && !indexes.contains(null) ?
+                new BAMIndexMerger(header.getSequenceDictionary().size()) : null;
+
+        try (final FileChannel out = FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BAMFileWriter.writeHeader(Channels.newOutputStream(out), header);
+            for (int i = 0; i < bams.size(); i++) {
+                LOG.info(String.format("Block copying %s ...", bams.get(i).getAbsolutePath()));
+                final LongUnaryOperator pointerMapper = transferBamRecords(bams.get(i), out);
+                if (indexMerger != null) {
+                    try (final BAMIndex index = new CachingBAMFileIndex(indexes.get(i), header.getSequenceDictionary())) {
+                        indexMerger.processIndex(index, pointerMapper);
+                    }
+                }
+            }
+            final ByteBuffer terminator = ByteBuffer.wrap(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+            while (terminator.hasRemaining()) {
+                out.write(terminator);
+            }
+        } catch (final IOException ioe) {
+            throw new RuntimeIOException(ioe);
+        }
+
+        if (createIndex) {
+            final File indexFile = new File(output.getParentFile(), IOUtil.basename(output) + BAMIndex.BAMIndexSuffix);
+            if (indexMerger != null) {
+                indexMerger.finish(indexFile);
+            } else {
+                LOG.info(String.format("Not all inputs are indexed, indexing %s ...", output.getAbsolutePath()));
+                try (final SamReader reader = SamReaderFactory.makeDefault().enable(SamReaderFactory.Option.INCLUDE_SOURCE_IN_RECORDS).open(output)) {
+                    BAMIndexer.createIndex(reader, indexFile);
+                } catch (final IOException ioe) {
+                    throw new RuntimeIOException(ioe);
+                }
+            }
+        }
+        if (createMd5) {
+            // the blocks never passed through this JVM, so the digest is computed from the finished file
+            try (final InputStream in = new FileInputStream(output);
+                 final OutputStream md5 = new Md5CalculatingOutputStream(new DiscardingOutputStream(), new File(output.getAbsolutePath() + ".md5"))) {
+                IOUtil.copyStream(in, md5);
+            } catch (final IOException ioe) {
+                throw new RuntimeIOException(ioe);
+            }
+        }
+    }
+
+    /**
+     * Appends the records of a BAM file to a channel.  The records sharing a block with the end of the header are
+     * recompressed into blocks of their own and all subsequent blocks, except a terminator block, are transferred as is.
+     *
+     * @return a function mapping virtual file pointers to records in the input to those of the same records in the output
+     */
+    private static LongUnaryOperator transferBamRecords(final File bam, final FileChannel out) throws IOException {
+        final BlockCompressedInputStream.FileTermination term = BlockCompressedInputStream.checkTermination(bam);
+        if (term == BlockCompressedInputStream.FileTermination.DEFECTIVE) {
+            throw new SAMException(bam.getAbsolutePath() + " does not have a valid GZIP block at the end of the file.");
+        }
+
+        final long firstRecordOffset = SAMUtils.findVirtualOffsetOfFirstRecordInBam(bam);
+        final long headerEndBlock = BlockCompressedFilePointerUtil.getBlockAddress(firstRecordOffset);
+        final int headerEndOffset = BlockCompressedFilePointerUtil.getBlockOffset(firstRecordOffset);
+        final int pieceSize = BlockCompressedStreamConstants.DEFAULT_UNCOMPRESSED_BLOCK_SIZE;
+        final long[] pieceAddresses;
+        final long dataStart;
+        if (headerEndOffset == 0) {
+            pieceAddresses = new long[0];
+            dataStart = headerEndBlock;
+        } else {
+            final byte[] remainder;
+            try (final BlockCompressedInputStream blockIn = new BlockCompressedInputStream(bam)) {
+                blockIn.seek(firstRecordOffset);
+                remainder = new byte[blockIn.endOfBlock() ? 0 : blockIn.available()];
+                int read = 0;
+                while (read < remainder.length) {
+                    read += blockIn.read(remainder, read, remainder.length - read);
+                }
+                dataStart = BlockCompressedFilePointerUtil.getBlockAddress(blockIn.getFilePointer());
+            }
+            pieceAddresses = new long[(remainder.length + pieceSize - 1) / pieceSize];
+            final DetachableOutputStream channelOut = new DetachableOutputStream(Channels.newOutputStream(out));
+            final BlockCompressedOutputStream blockOut = new BlockCompressedOutputStream(channelOut, (File) null);
+            for (int i = 0; i < pieceAddresses.length; i++) {
+                pieceAddresses[i] = out.position();
+                blockOut.write(remainder, i * pieceSize, Math.min(pieceSize, remainder.length - i * pieceSize));
+                blockOut.flush();
+            }
+            // closing blockOut releases its deflaters; the terminator block it writes is dropped and the channel left open
+            channelOut.detach();
+            blockOut.close();
+        }
+
+        final long dataEnd = bam.length() - (term == BlockCompressedInputStream.FileTermination.HAS_TERMINATOR_BLOCK ?
+                BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK.length : 0);
+        final long shift = out.position() - dataStart;
+        try (final FileChannel in = FileChannel.open(bam.toPath(), StandardOpenOption.READ)) {
+            long position = dataStart;
+            while (position < dataEnd) {
+                position += in.transferTo(position, dataEnd - position, out);
+            }
+        }
+
+        return virtualFilePointer -> {
+            final long blockAddress = BlockCompressedFilePointerUtil.getBlockAddress(virtualFilePointer);
+            if (blockAddress >= dataStart) {
+                return BlockCompressedFilePointerUtil.shift(virtualFilePointer, shift);
+            }
+            final int remainderOffset = BlockCompressedFilePointerUtil.getBlockOffset(virtualFilePointer) - headerEndOffset;
+            if (blockAddress != headerEndBlock || remainderOffset < 0) {
+                throw new SAMException("Virtual file pointer " + BlockCompressedFilePointerUtil.asString(virtualFilePointer) +
+                        " in " + bam.getAbsolutePath() + " does not point to a record");
+            }
+            if (pieceAddresses.length == 0) {
+                return BlockCompressedFilePointerUtil.makeFilePointer(dataStart + shift, 0);
+            }
+            final int piece = Math.min(remainderOffset / pieceSize, pieceAddresses.length - 1);
+            return BlockCompressedFilePointerUtil.makeFilePointer(pieceAddresses[piece], remainderOffset - piece * pieceSize);
+        };
+    }
+
     private static OutputStream buildOutputStream(final File outputFile, final boolean createMd5, final boolean createIndex) throws IOException {
         OutputStream outputStream = new FileOutputStream(outputFile);
         if (createMd5) {
@@ -166,6 +316,65 @@ public class BamFileIoUtils {
         return outputStream;
     }
 
+    private static void assertHeadersAreCompatible(final SAMFileHeader newHeader, final File inputFile) {
+        final SAMFileHeader origHeader = SamReaderFactory.makeDefault().getFileHeader(inputFile);
+        final SAMFileHeader.SortOrder newSortOrder = newHeader.getSortOrder();
+        if (newSortOrder != SAMFileHeader.SortOrder.unsorted && newSortOrder != origHeader.getSortOrder()) {
+            throw new SAMException("Sort order of new header does not match " + inputFile.getAbsolutePath() + ", needs to be " + origHeader.getSortOrder());
+        }
+        // records refer to sequences by index, so the new dictionary may rename sequences but must not add or remove any
+        if (newHeader.getSequenceDictionary().size() != origHeader.getSequenceDictionary().size()) {
+            throw new SAMException("Sequence dictionary of new header has " + newHeader.getSequenceDictionary().size() +
+                    " sequences but " + inputFile.getAbsolutePath() + " has " + origHeader.getSequenceDictionary().size());
+        }
+    }
+
+    /** Swallows everything written to it, for when only a wrapping stream's side effects are wanted. */
+    private static final class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    }
+
+    /**
+     * Passes writes through to an underlying stream until detached, after which writes are dropped.  Never closes the
+     * underlying stream.
+     */
+    private static final class DetachableOutputStream extends OutputStream {
+        private final OutputStream out;
+        private boolean detached = false;
+
+        DetachableOutputStream(final OutputStream out) {
+            this.out = out;
+        }
+
+        void detach() {
+            detached = true;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            if (!detached) {
+                out.write(b);
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (!detached) {
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     private static void assertSortOrdersAreEqual(final SAMFileHeader newHeader, final File inputFile) throws IOException {
         final SamReader reader = SamReaderFactory.makeDefault().open(inputFile);
         final SAMFileHeader origHeader = reader.getFileHeader();
@@ -30,6 +30,7 @@ import htsjdk.samtools.cram.structure.CramHeader;
 import htsjdk.samtools.cram.structure.Slice;
 import htsjdk.samtools.seekablestream.SeekableStream;
 import htsjdk.samtools.util.Log;
+import htsjdk.samtools.util.ThroughputMetrics;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -155,6 +156,9 @@ public class CRAMIterator implements SAMRecordIterator {
         else
             cramRecords.clear();
 
+        final ThroughputMetrics metrics = ThroughputMetrics.getGlobal();
+        final long decodeStart = metrics == null ? 0 : System.nanoTime();
+
         parser.getRecords(container, cramRecords, validationStringency);
 
         if (container.sequenceId == SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX) {
@@ -222,6 +226,12 @@ public class CRAMIterator implements SAMRecordIterator {
         }
         cramRecords.clear();
         iterator = records.iterator();
+
+        if (metrics != null) {
+            metrics.add(ThroughputMetrics.Counter.DECODE_NANOS, System.nanoTime() - decodeStart);
+            metrics.add(ThroughputMetrics.Counter.RECORDS_DECODED, records.size());
+            metrics.add(ThroughputMetrics.Counter.COMPRESSED_BYTES_READ, container.containerByteSize);
+        }
     }
 
     /**
@@ -95,6 +95,12 @@ public class Defaults {
      */
     public static final boolean DISABLE_SNAPPY_COMPRESSOR;
 
+    /**
+     * Should readers and writers record throughput metrics (records, bytes, blocks and time spent compressing and
+     * decoding) in the global {@link htsjdk.samtools.util.ThroughputMetrics}?  Default = false.
+     */
+    public static final boolean COLLECT_THROUGHPUT_METRICS;
+
     static {
         CREATE_INDEX = getBooleanProperty("create_index", false);
         CREATE_MD5 = getBooleanProperty("create_md5", false);
@@ -115,6 +121,7 @@ public class Defaults {
         SAM_FLAG_FIELD_FORMAT = SamFlagField.valueOf(getStringProperty("sam_flag_field_format", SamFlagField.DECIMAL.name()));
         SRA_LIBRARIES_DOWNLOAD = getBooleanProperty("sra_libraries_download", false);
         DISABLE_SNAPPY_COMPRESSOR = getBooleanProperty(DISABLE_SNAPPY_PROPERTY_NAME, false);
+        COLLECT_THROUGHPUT_METRICS = getBooleanProperty("collect_throughput_metrics", false);
     }
 
     /**
@@ -138,6 +145,7 @@ public class Defaults {
         result.put("CUSTOM_READER_FACTORY", CUSTOM_READER_FACTORY);
         result.put("SAM_FLAG_FIELD_FORMAT", SAM_FLAG_FIELD_FORMAT);
         result.put("DISABLE_SNAPPY_COMPRESSOR", DISABLE_SNAPPY_COMPRESSOR);
+        result.put("COLLECT_THROUGHPUT_METRICS", COLLECT_THROUGHPUT_METRICS);
         return Collections.unmodifiableSortedMap(result);
     }
 
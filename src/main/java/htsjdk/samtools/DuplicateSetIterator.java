@@ -24,12 +24,16 @@
 package htsjdk.samtools;
 
 import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.DelegatingIterator;
 import htsjdk.samtools.util.Log;
 import htsjdk.samtools.util.ProgressLogger;
 import htsjdk.samtools.util.SortingCollection;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * An iterator of sets of duplicates.  Duplicates are defined currently by the ordering in
@@ -37,12 +41,16 @@ import java.util.Collections;
  * <p/>
  * If the input records are not pre-sorted according to the duplicate ordering, the records
  * will be sorted on-the-fly.  This may require extra memory or disk to buffer records, and
- * also computational time to perform the sorting.
+ * also computational time to perform the sorting.  When the input fits within the default maximum records in RAM and
+ * the default comparator is used, the records are sorted in memory by a radix sort of primitive duplicate keys.
  *
  * @author nhomer
  */
 public class DuplicateSetIterator implements CloseableIterator<DuplicateSet> {
 
+    private static final int RADIX_BITS = 16;
+    private static final int RADIX = 1 << RADIX_BITS;
+
     private final CloseableIterator<SAMRecord> wrappedIterator;
 
     private DuplicateSet duplicateSet = null;
@@ -87,21 +95,38 @@ public class DuplicateSetIterator implements CloseableIterator<DuplicateSet> {
                 log.info("Duplicate set iterator initializing.");
             }
 
-            // Sort it!
+            // Sort it!  When the input fits in memory and the default ordering is used, the records are sorted by
+            // primitive duplicate keys, otherwise they are spilled through a SortingCollection.
             final int maxRecordsInRam = SAMFileWriterImpl.getDefaultMaxRecordsInRam();
-            final File tmpDir = new File(System.getProperty("java.io.tmpdir"));
-            final SortingCollection<SAMRecord> alignmentSorter = SortingCollection.newInstance(SAMRecord.class,
-                    new BAMRecordCodec(header), this.comparator,
-                    maxRecordsInRam, tmpDir);
-
-            while (iterator.hasNext()) {
-                final SAMRecord record = iterator.next();
-                alignmentSorter.add(record);
-                if (progressLogger != null) progressLogger.record(record);
+            final List<SAMRecord> buffer = new ArrayList<>();
+            if (this.comparator.getClass() == SAMRecordDuplicateComparator.class) {
+                while (buffer.size() < maxRecordsInRam && iterator.hasNext()) {
+                    final SAMRecord record = iterator.next();
+                    buffer.add(record);
+                    if (progressLogger != null) progressLogger.record(record);
+                }
             }
-            iterator.close();
 
-            this.wrappedIterator = alignmentSorter.iterator();
+            if (!iterator.hasNext()) {
+                iterator.close();
+                this.wrappedIterator = new DelegatingIterator<>(Arrays.asList(sortByDuplicateKey(buffer, this.comparator)).iterator());
+            } else {
+                final File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+                final SortingCollection<SAMRecord> alignmentSorter = SortingCollection.newInstance(SAMRecord.class,
+                        new BAMRecordCodec(header), this.comparator,
+                        maxRecordsInRam, tmpDir);
+
+                buffer.forEach(alignmentSorter::add);
+                buffer.clear();
+                while (iterator.hasNext()) {
+                    final SAMRecord record = iterator.next();
+                    alignmentSorter.add(record);
+                    if (progressLogger != null) progressLogger.record(record);
+                }
+                iterator.close();
+
+                this.wrappedIterator = alignmentSorter.iterator();
+            }
             if (log != null) log.info("Duplicate set iterator initialized.");
         }
 
@@ -113,6 +138,81 @@ public class DuplicateSetIterator implements CloseableIterator<DuplicateSet> {
 
     }
 
+    /**
+     * Sorts records into the order given by {@link SAMRecordDuplicateComparator#compare(SAMRecord, SAMRecord)}.  A fixed-width
+     * duplicate key is computed once per record and the record indices are radix sorted by key; only records with
+     * equal keys, which are few and typically duplicates of each other, are then ordered with the comparator.
+     */
+    static SAMRecord[] sortByDuplicateKey(final List<SAMRecord> records, final SAMRecordDuplicateComparator comparator) {
+        final int n = records.size();
+        final int width = SAMRecordDuplicateComparator.DUPLICATE_SORT_KEY_WIDTH;
+        final long[] keys = new long[n * width];
+        for (int i = 0; i < n; i++) {
+            comparator.fillDuplicateSortKey(records.get(i), keys, i * width);
+        }
+
+        final int[] order = radixSort(keys, width, n);
+        final SAMRecord[] sorted = new SAMRecord[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = records.get(order[i]);
+        }
+
+        // break ties between equal keys with the full comparison
+        int start = 0;
+        while (start < n) {
+            int end = start + 1;
+            while (end < n && keysEqual(keys, order[start] * width, order[end] * width, width)) end++;
+            if (end - start > 1) Arrays.sort(sorted, start, end, comparator);
+            start = end;
+        }
+        return sorted;
+    }
+
+    /**
+     * Least significant digit radix sort of fixed-width keys, treating each word as unsigned.
+     *
+     * @return the indices of the keys in sorted order
+     */
+    private static int[] radixSort(final long[] keys, final int width, final int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        if (n < 2) return order;
+
+        int[] scratch = new int[n];
+        final int[] counts = new int[RADIX + 1];
+        for (int word = width - 1; word >= 0; word--) {
+            for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+                Arrays.fill(counts, 0);
+                for (int i = 0; i < n; i++) {
+                    counts[digit(keys[order[i] * width + word], shift) + 1]++;
+                }
+                // most passes are skipped since the digit is the same for every record (e.g. library, high bits of coordinates)
+                if (counts[digit(keys[order[0] * width + word], shift) + 1] == n) continue;
+
+                for (int d = 0; d < RADIX; d++) counts[d + 1] += counts[d];
+                for (int i = 0; i < n; i++) {
+                    final int index = order[i];
+                    scratch[counts[digit(keys[index * width + word], shift)]++] = index;
+                }
+                final int[] tmp = order;
+                order = scratch;
+                scratch = tmp;
+            }
+        }
+        return order;
+    }
+
+    private static int digit(final long key, final int shift) {
+        return (int) (key >>> shift) & (RADIX - 1);
+    }
+
+    private static boolean keysEqual(final long[] keys, final int offset1, final int offset2, final int width) {
+        for (int i = 0; i < width; i++) {
+            if (keys[offset1 + i] != keys[offset2 + i]) return false;
+        }
+        return true;
+    }
+
     @Deprecated
     /** @deprecated Do not use this method as the first duplicate set will not be compared with this scoring strategy.
       * Instead, provide a comparator to the constructor that has the scoring strategy set. */
@@ -26,14 +26,23 @@ package htsjdk.samtools;
 import htsjdk.samtools.util.CloseableIterator;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Provides an iterator interface for merging multiple underlying iterators into a single
  * iterable stream. The underlying iterators/files must all have the same sort order unless
  * the requested output format is unsorted, in which case any combination is valid.
+ *
+ * If constructed with a read-ahead executor, each input is read and decoded in batches on that executor, one batch
+ * ahead of the merge, and the inputs are merged with a loser tree instead of a priority queue.  Records with equal
+ * sort keys are then emitted in the order of the inputs.
  */
 public class MergingSamRecordIterator implements CloseableIterator<SAMRecord> {
     private final PriorityQueue<ComparableSamRecordIterator> pq;
@@ -41,6 +50,15 @@ public class MergingSamRecordIterator implements CloseableIterator<SAMRecord> {
     private final Collection<SamReader> readers;
     private final SAMFileHeader.SortOrder sortOrder;
     private final SAMRecordComparator comparator;
+    private final ExecutorService readAheadExecutor;
+    private final int readAheadBatchSize;
+
+    // Per input header, the ids of its read groups and program groups in the merged output
+    private final Map<SAMFileHeader, Map<String, String>> readGroupIdTables = new IdentityHashMap<>();
+    private final Map<SAMFileHeader, Map<String, String>> programGroupIdTables = new IdentityHashMap<>();
+
+    // Used instead of pq when reading ahead
+    private LoserTree loserTree = null;
 
     private boolean initialized = false;
 
@@ -65,10 +83,29 @@ public class MergingSamRecordIterator implements CloseableIterator<SAMRecord> {
      * @param assumeSorted false ensures that the iterator checks the headers of the readers for appropriate sort order.
      */
     public MergingSamRecordIterator(final SamFileHeaderMerger headerMerger, Collection<SamReader> readers, final boolean assumeSorted) {
+        this(headerMerger, readers, assumeSorted, null, 0);
+    }
+
+    /**
+     * Constructs a new merging iterator that reads ahead from each of the readers on the given executor.
+     *
+     * @param headerMerger       The merged header and contents of readers.
+     * @param assumeSorted       false ensures that the iterator checks the headers of the readers for appropriate sort order.
+     * @param readAheadExecutor  executor on which the readers are read ahead, shared by all of them.  If null, records
+     *                           are read on demand on the calling thread.
+     * @param readAheadBatchSize number of records read from a reader by each task; ignored if readAheadExecutor is null
+     */
+    public MergingSamRecordIterator(final SamFileHeaderMerger headerMerger, final Collection<SamReader> readers, final boolean assumeSorted,
+                                    final ExecutorService readAheadExecutor, final int readAheadBatchSize) {
+        if (readAheadExecutor != null && readAheadBatchSize <= 0) {
+            throw new IllegalArgumentException("readAheadBatchSize must be positive: " + readAheadBatchSize);
+        }
         this.samHeaderMerger = headerMerger;
         this.sortOrder = headerMerger.getMergedHeader().getSortOrder();
         this.comparator = getComparator();
         this.readers = readers;
+        this.readAheadExecutor = readAheadExecutor;
+        this.readAheadBatchSize = readAheadBatchSize;
 
         this.pq = new PriorityQueue<ComparableSamRecordIterator>(readers.size());
 
@@ -79,6 +116,22 @@ public class MergingSamRecordIterator implements CloseableIterator<SAMRecord> {
                     reader.getFileHeader().getSortOrder() != this.sortOrder) {
                 throw new SAMException("Files are not compatible with sort order");
             }
+            // built up front, as they are used concurrently when reading ahead
+            final SAMFileHeader header = reader.getFileHeader();
+            if (headerMerger.hasReadGroupCollisions() && !readGroupIdTables.containsKey(header)) {
+                final Map<String, String> table = new HashMap<>();
+                for (final SAMReadGroupRecord readGroup : header.getReadGroups()) {
+                    table.put(readGroup.getId(), headerMerger.getReadGroupId(header, readGroup.getId()));
+                }
+                readGroupIdTables.put(header, table);
+            }
+            if (headerMerger.hasProgramGroupCollisions() && !programGroupIdTables.containsKey(header)) {
+                final Map<String, String> table = new HashMap<>();
+                for (final SAMProgramRecord program : header.getProgramRecords()) {
+                    table.put(program.getId(), headerMerger.getProgramGroupId(header, program.getId()));
+                }
+                programGroupIdTables.put(header, table);
+            }
         }
     }
 
@@ -90,17 +143,59 @@ public class MergingSamRecordIterator implements CloseableIterator<SAMRecord> {
      * @param iterators    Iterator traversing over reader contents.
      */
     public MergingSamRecordIterator(final SamFileHeaderMerger headerMerger, final Map<SamReader, CloseableIterator<SAMRecord>> iterators, final boolean assumeSorted) {
-        this(headerMerger, iterators.keySet(), assumeSorted);
-        for (final Map.Entry<SamReader, CloseableIterator<SAMRecord>> mapping : iterators.entrySet())
-            addIfNotEmpty(new ComparableSamRecordIterator(mapping.getKey(), mapping.getValue(), comparator));
-        initialized = true;
+        this(headerMerger, iterators, assumeSorted, null, 0);
+    }
+
+    /**
+     * Add a set of SAM file iterators to a merging iterator that reads ahead from each of them on the given executor.
+     *
+     * @param headerMerger       The merged header and contents of readers.
+     * @param iterators          Iterator traversing over reader contents.
+     * @param readAheadExecutor  executor on which the iterators are read ahead, shared by all of them.  If null,
+     *                           records are read on demand on the calling thread.
+     * @param readAheadBatchSize number of records read from an iterator by each task; ignored if readAheadExecutor is null
+     */
+    public MergingSamRecordIterator(final SamFileHeaderMerger headerMerger, final Map<SamReader, CloseableIterator<SAMRecord>> iterators, final boolean assumeSorted,
+                                    final ExecutorService readAheadExecutor, final int readAheadBatchSize) {
+        this(headerMerger, iterators.keySet(), assumeSorted, readAheadExecutor, readAheadBatchSize);
+        final List<SamReader> readerList = new ArrayList<>(iterators.size());
+        final List<CloseableIterator<SAMRecord>> iteratorList = new ArrayList<>(iterators.size());
+        for (final Map.Entry<SamReader, CloseableIterator<SAMRecord>> mapping : iterators.entrySet()) {
+            readerList.add(mapping.getKey());
+            iteratorList.add(mapping.getValue());
+        }
+        startIteration(readerList, iteratorList);
     }
 
     private void startIterationIfRequired() {
         if (initialized)
             return;
-        for (final SamReader reader : readers)
-            addIfNotEmpty(new ComparableSamRecordIterator(reader, reader.iterator(), comparator));
+        final List<SamReader> readerList = new ArrayList<>(readers);
+        final List<CloseableIterator<SAMRecord>> iteratorList = new ArrayList<>(readers.size());
+        for (final SamReader reader : readerList)
+            iteratorList.add(reader.iterator());
+        startIteration(readerList, iteratorList);
+    }
+
+    private void startIteration(final List<SamReader> readerList, final List<CloseableIterator<SAMRecord>> iteratorList) {
+        if (readAheadExecutor == null) {
+            for (int i = 0; i < readerList.size(); i++)
+                addIfNotEmpty(new ComparableSamRecordIterator(readerList.get(i), iteratorList.get(i), comparator));
+        } else {
+            // start reading ahead from every input before waiting for the first records of any of them
+            final List<CloseableIterator<SAMRecord>> readAheadIterators = new ArrayList<>(iteratorList.size());
+            for (int i = 0; i < readerList.size(); i++) {
+                final SAMFileHeader header = readerList.get(i).getFileHeader();
+                readAheadIterators.add(new ReadAheadSamRecordIterator(iteratorList.get(i), readAheadExecutor, readAheadBatchSize, record -> {
+                    fixGroupIds(record, header);
+                    record.eagerDecode();
+                }));
+            }
+            final List<ComparableSamRecordIterator> comparableIterators = new ArrayList<>(readerList.size());
+            for (int i = 0; i < readerList.size(); i++)
+                comparableIterators.add(new ComparableSamRecordIterator(readerList.get(i), readAheadIterators.get(i), comparator));
+            loserTree = new LoserTree(comparableIterators);
+        }
         initialized = true;
     }
 
@@ -112,13 +207,15 @@ public class MergingSamRecordIterator implements CloseableIterator<SAMRecord> {
         // Iterators not in the priority queue have already been closed; only close down the iterators that are still in the priority queue.
         for (CloseableIterator<SAMRecord> iterator : pq)
             iterator.close();
+        if (loserTree != null)
+            loserTree.close();
     }
 
     /** Returns true if any of the underlying iterators has more records, otherwise false. */
     @Override
     public boolean hasNext() {
         startIterationIfRequired();
-        return !this.pq.isEmpty();
+        return loserTree != null ? loserTree.hasNext() : !this.pq.isEmpty();
     }
 
     /** Returns the next record from the top most iterator during merging. */
@@ -126,31 +223,45 @@ public class MergingSamRecordIterator implements CloseableIterator<SAMRecord> {
     public SAMRecord next() {
         startIterationIfRequired();
 
+        if (loserTree != null) {
+            // group ids have already been fixed while reading ahead
+            final SAMRecord record = loserTree.next();
+            record.setHeader(this.samHeaderMerger.getMergedHeader());
+            return record;
+        }
+
         final ComparableSamRecordIterator iterator = this.pq.poll();
         final SAMRecord record = iterator.next();
         addIfNotEmpty(iterator);
         // this will resolve the reference indices against the new, merged header
         record.setHeader(this.samHeaderMerger.getMergedHeader());
+        fixGroupIds(record, iterator.getReader().getFileHeader());
+        return record;
+    }
 
-        // Fix the read group if needs be
+    /**
+     * Changes the read group and program group of a record from the given input to their ids in the merged header,
+     * if there were collisions between the inputs.  A read group or program group that is not declared in the input
+     * header is removed, as it has no id in the merged header.
+     */
+    private void fixGroupIds(final SAMRecord record, final SAMFileHeader header) {
         if (this.samHeaderMerger.hasReadGroupCollisions()) {
-            final String oldGroupId = (String) record.getAttribute(ReservedTagConstants.READ_GROUP_ID);
-            if (oldGroupId != null) {
-                final String newGroupId = this.samHeaderMerger.getReadGroupId(iterator.getReader().getFileHeader(), oldGroupId);
-                record.setAttribute(ReservedTagConstants.READ_GROUP_ID, newGroupId);
-            }
+            fixGroupId(record, ReservedTagConstants.READ_GROUP_ID, readGroupIdTables.get(header));
         }
-
-        // Fix the program group if needs be
         if (this.samHeaderMerger.hasProgramGroupCollisions()) {
-            final String oldGroupId = (String) record.getAttribute(ReservedTagConstants.PROGRAM_GROUP_ID);
-            if (oldGroupId != null) {
-                final String newGroupId = this.samHeaderMerger.getProgramGroupId(iterator.getReader().getFileHeader(), oldGroupId);
-                record.setAttribute(ReservedTagConstants.PROGRAM_GROUP_ID, newGroupId);
-            }
+            fixGroupId(record, ReservedTagConstants.PROGRAM_GROUP_ID, programGroupIdTables.get(header));
         }
+    }
 
-        return record;
+    private static void fixGroupId(final SAMRecord record, final String tag, final Map<String, String> table) {
+        final String oldGroupId = (String) record.getAttribute(tag);
+        if (oldGroupId != null) {
+            // ids not declared in the input header have no id in the merged header, so the tag is removed
+            final String newGroupId = table.get(oldGroupId);
+            if (!oldGroupId.equals(newGroupId)) {
+                record.setAttribute(tag, newGroupId);
+            }
+        }
     }
 
     /**
@@ -204,6 +315,90 @@ public class MergingSamRecordIterator implements CloseableIterator<SAMRecord> {
         return this.samHeaderMerger.getMergedHeader();
     }
 
+    /**
+     * Tournament tree over the inputs in which each internal node holds the loser of the match played there, so that
+     * replacing the winner costs one comparison per level.  Ties go to the input that comes first.
+     */
+    private static final class LoserTree {
+        private final ComparableSamRecordIterator[] inputs; // null once exhausted
+        private final int[] tree; // tree[0] is the overall winner, tree[1..] the losers of the internal nodes
+
+        private LoserTree(final List<ComparableSamRecordIterator> iterators) {
+            final int k = iterators.size();
+            this.inputs = new ComparableSamRecordIterator[k];
+            for (int i = 0; i < k; i++) {
+                final ComparableSamRecordIterator iterator = iterators.get(i);
+                if (iterator.hasNext()) {
+                    inputs[i] = iterator;
+                } else {
+                    iterator.close();
+                }
+            }
+            this.tree = new int[Math.max(k, 1)];
+            if (k == 0) {
+                tree[0] = -1;
+                return;
+            }
+            // nodes k..2k-1 are the inputs; play every match bottom-up
+            final int[] winners = new int[2 * k];
+            for (int i = 0; i < k; i++) {
+                winners[k + i] = i;
+            }
+            for (int node = k - 1; node >= 1; node--) {
+                final int left = winners[2 * node];
+                final int right = winners[2 * node + 1];
+                if (beats(left, right)) {
+                    winners[node] = left;
+                    tree[node] = right;
+                } else {
+                    winners[node] = right;
+                    tree[node] = left;
+                }
+            }
+            tree[0] = winners[1];
+        }
+
+        private boolean beats(final int a, final int b) {
+            if (inputs[a] == null) return false;
+            if (inputs[b] == null) return true;
+            final int cmp = inputs[a].compareTo(inputs[b]);
+            return cmp < 0 || (cmp == 0 && a < b);
+        }
+
+        private boolean hasNext() {
+            return tree[0] >= 0 && inputs[tree[0]] != null;
+        }
+
+        private SAMRecord next() {
+            int winner = tree[0];
+            final ComparableSamRecordIterator iterator = inputs[winner];
+            final SAMRecord record = iterator.next();
+            if (!iterator.hasNext()) {
+                iterator.close();
+                inputs[winner] = null;
+            }
+            // replay the matches on the path from the winner's leaf to the root
+            for (int node = (winner + inputs.length) / 2; node >= 1; node /= 2) {
+                if (beats(tree[node], winner)) {
+                    final int loser = winner;
+                    winner = tree[node];
+                    tree[node] = loser;
+                }
+            }
+            tree[0] = winner;
+            return record;
+        }
+
+        private void close() {
+            for (int i = 0; i < inputs.length; i++) {
+                if (inputs[i] != null) {
+                    inputs[i].close();
+                    inputs[i] = null;
+                }
+            }
+        }
+    }
+
     /**
      * Ugh.  Basically does a regular coordinate compare, but looks up the sequence indices in the merged
      * sequence dictionary.  I hate the fact that this extends SAMRecordCoordinateComparator, but it avoids
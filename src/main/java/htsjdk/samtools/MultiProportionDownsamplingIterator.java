@@ -0,0 +1,288 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools;
+
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.CloserUtil;
+import htsjdk.samtools.util.Murmur3;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Downsamples one stream of records to several proportions in a single pass, e.g. to write 10%, 25% and 50% subsamples
+ * of the same input at once.  Like {@link ConstantMemoryDownsamplingIterator} it runs in constant memory and keeps or
+ * discards all records of a template together, but each read name is hashed with the 128-bit variant of
+ * {@link Murmur3}, and names are hashed in batches on an optional executor while the previous batch is consumed.
+ *
+ * A record is in the subsample for a proportion p if its hash, taken as a fraction of the hash range, is less than p.
+ * Subsamples are therefore nested: every record in the 10% subsample is also in the 25% subsample.
+ *
+ * Iterating returns every record that is in at least one subsample (so the target proportion of this
+ * {@link DownsamplingIterator} is the largest of the proportions); {@link #isInSubsample(int)} tells which subsamples
+ * the record last returned belongs to.  {@link #drainTo(List)} sends each record to one consumer per subsample.
+ */
+public class MultiProportionDownsamplingIterator extends DownsamplingIterator {
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+    public static final int MAX_PROPORTIONS = Long.SIZE;
+
+    /** Batches hashed or being hashed ahead of the batch being consumed. */
+    private static final int BATCHES_IN_FLIGHT = 2;
+    /** Hashes are compared as fractions with 53 bits of precision, which is exact for any double proportion. */
+    private static final int FRACTION_BITS = 53;
+
+    private final Iterator<SAMRecord> underlyingIterator;
+    private final double[] proportions;
+    private final long[] thresholds;
+    private final Murmur3 hasher;
+    private final ExecutorService executor;
+    private final int batchSize;
+
+    private final ArrayDeque<Future<Batch>> pending = new ArrayDeque<>();
+    private final long[] acceptedCounts;
+    private Batch current = null;
+    private int currentIndex = 0;
+    private long lastMask = 0;
+
+    /** A batch of records and, once hashed, the bit mask of subsamples each record belongs to. */
+    private static final class Batch {
+        final SAMRecord[] records;
+        final long[] masks;
+
+        Batch(final SAMRecord[] records) {
+            this.records = records;
+            this.masks = new long[records.length];
+        }
+    }
+
+    /**
+     * Constructs an iterator that hashes read names on the consumer thread.
+     *
+     * @param iterator    the records to downsample
+     * @param proportions the proportions of templates to retain in each subsample, each between 0 and 1
+     * @param seed        the seed for the hash of read names; subsamples made with the same seed are nested
+     */
+    public MultiProportionDownsamplingIterator(final Iterator<SAMRecord> iterator, final double[] proportions, final int seed) {
+        this(iterator, proportions, seed, null, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param iterator    the records to downsample
+     * @param proportions the proportions of templates to retain in each subsample, each between 0 and 1
+     * @param seed        the seed for the hash of read names; subsamples made with the same seed are nested
+     * @param executor    the executor on which batches of read names are hashed, or null to hash on the consumer thread
+     * @param batchSize   the number of records read from the underlying iterator and hashed at a time
+     */
+    public MultiProportionDownsamplingIterator(final Iterator<SAMRecord> iterator, final double[] proportions, final int seed,
+                                               final ExecutorService executor, final int batchSize) {
+        super(max(proportions));
+        if (proportions.length > MAX_PROPORTIONS) {
+            throw new IllegalArgumentException("At most " + MAX_PROPORTIONS + " proportions are supported, got " + proportions.length);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.underlyingIterator = iterator;
+        this.proportions = proportions.clone();
+        this.thresholds = new long[proportions.length];
+        for (int i = 0; i < proportions.length; i++) {
+            if (proportions[i] < 0 || proportions[i] > 1) {
+                throw new IllegalArgumentException("Proportions must be between 0 and 1: " + proportions[i]);
+            }
+            this.thresholds[i] = (long) (proportions[i] * (1L << FRACTION_BITS));
+        }
+        this.acceptedCounts = new long[proportions.length];
+        this.hasher = new Murmur3(seed);
+        this.executor = executor;
+        this.batchSize = batchSize;
+    }
+
+    private static double max(final double[] proportions) {
+        if (proportions.length == 0) {
+            throw new IllegalArgumentException("At least one proportion must be given");
+        }
+        return Arrays.stream(proportions).max().getAsDouble();
+    }
+
+    /** @return the number of proportions, i.e. subsamples */
+    public int getNumberOfProportions() {
+        return proportions.length;
+    }
+
+    /** @return the proportion of the subsample with the given index */
+    public double getProportion(final int index) {
+        return proportions[index];
+    }
+
+    /** @return the number of records in the subsample with the given index returned so far */
+    public long getAcceptedCount(final int index) {
+        return acceptedCounts[index];
+    }
+
+    /** @return the fraction of records seen so far that are in the subsample with the given index */
+    public double getAcceptedFraction(final int index) {
+        return getAcceptedCount(index) / (double) getSeenCount();
+    }
+
+    /**
+     * @return true if the record last returned by {@link #next()} is in the subsample with the given index
+     */
+    public boolean isInSubsample(final int index) {
+        if (index < 0 || index >= proportions.length) {
+            throw new IndexOutOfBoundsException("No subsample " + index);
+        }
+        return (lastMask & (1L << index)) != 0;
+    }
+
+    @Override
+    public void resetStatistics() {
+        super.resetStatistics();
+        Arrays.fill(acceptedCounts, 0);
+    }
+
+    /**
+     * Consumes the rest of the input, passing each record to the consumer of every subsample it belongs to.
+     *
+     * @param outputs one consumer per proportion, in the order the proportions were given
+     */
+    public void drainTo(final List<? extends Consumer<SAMRecord>> outputs) {
+        if (outputs.size() != proportions.length) {
+            throw new IllegalArgumentException("Expected " + proportions.length + " outputs, got " + outputs.size());
+        }
+        while (hasNext()) {
+            final SAMRecord record = next();
+            for (long mask = lastMask; mask != 0; mask &= mask - 1) {
+                outputs.get(Long.numberOfTrailingZeros(mask)).accept(record);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return advanceToNextAcceptedRecord();
+    }
+
+    @Override
+    public SAMRecord next() {
+        if (!advanceToNextAcceptedRecord()) {
+            throw new NoSuchElementException();
+        }
+        final SAMRecord record = current.records[currentIndex];
+        lastMask = current.masks[currentIndex];
+        current.records[currentIndex++] = null;
+        recordAcceptedRecord();
+        for (long mask = lastMask; mask != 0; mask &= mask - 1) {
+            acceptedCounts[Long.numberOfTrailingZeros(mask)]++;
+        }
+        return record;
+    }
+
+    @Override
+    public void close() {
+        for (final Future<Batch> future : pending) {
+            future.cancel(false);
+        }
+        pending.clear();
+        current = null;
+        CloserUtil.close(underlyingIterator);
+    }
+
+    /**
+     * Skips records that are in no subsample, moving on to the next batch as necessary.
+     *
+     * @return true if the current record is one to be returned, false if there are no more records
+     */
+    private boolean advanceToNextAcceptedRecord() {
+        while (true) {
+            if (current != null) {
+                while (currentIndex < current.records.length && current.masks[currentIndex] == 0) {
+                    current.records[currentIndex++] = null;
+                    recordDiscardedRecord();
+                }
+                if (currentIndex < current.records.length) {
+                    return true;
+                }
+                current = null;
+            }
+            fillPipeline();
+            if (pending.isEmpty()) {
+                return false;
+            }
+            current = getBatch(pending.poll());
+            currentIndex = 0;
+            fillPipeline();
+        }
+    }
+
+    /** Reads batches from the underlying iterator and starts hashing them, until enough batches are in flight. */
+    private void fillPipeline() {
+        while (pending.size() < BATCHES_IN_FLIGHT && underlyingIterator.hasNext()) {
+            final SAMRecord[] records = new SAMRecord[batchSize];
+            int n = 0;
+            while (n < batchSize && underlyingIterator.hasNext()) {
+                records[n++] = underlyingIterator.next();
+            }
+            final Batch batch = new Batch(n == batchSize ? records : Arrays.copyOf(records, n));
+            if (executor == null) {
+                pending.add(CompletableFuture.completedFuture(hash(batch)));
+            } else {
+                pending.add(executor.submit(() -> hash(batch)));
+            }
+        }
+    }
+
+    private Batch hash(final Batch batch) {
+        for (int i = 0; i < batch.records.length; i++) {
+            final long fraction = hasher.hash64UnencodedChars(batch.records[i].getReadName()) >>> (Long.SIZE - FRACTION_BITS);
+            long mask = 0;
+            for (int j = 0; j < thresholds.length; j++) {
+                if (fraction < thresholds[j]) mask |= 1L << j;
+            }
+            batch.masks[i] = mask;
+        }
+        return batch;
+    }
+
+    private static Batch getBatch(final Future<Batch> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SAMException("Interrupted while hashing read names", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SAMException("Failed to hash read names", e.getCause());
+        }
+    }
+}
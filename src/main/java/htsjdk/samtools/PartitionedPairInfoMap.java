@@ -0,0 +1,397 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools;
+
+import htsjdk.samtools.util.IOUtil;
+import htsjdk.samtools.util.Murmur3;
+import htsjdk.samtools.util.PositionalOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Holds info about the first read of a mate pair until the second read is encountered, like
+ * {@link CoordinateSortedPairInfoMap}, but keyed by a 64-bit hash of the read name (see {@link #hashReadName(String)})
+ * and without any assumption about the order in which reads are processed.
+ *
+ * Records are held in open-addressing tables of primitive keys, split into partitions by key.  Each partition has its
+ * own lock, so {@link #put} and {@link #remove} may be called concurrently from several threads.  When more than
+ * maxRecordsInRam records are held, the largest partition is spilled to a temp file; only the keys of spilled records
+ * and their offsets in the file stay in RAM, and a spilled record is read back on its own when it is removed.
+ *
+ * Two read names with the same 64-bit hash cannot be told apart; with 10^9 read names the probability of a collision
+ * is about 3%, so callers that cannot tolerate that should compare the read name stored in the record.
+ *
+ * @param <REC> The type of record being stored.
+ */
+public class PartitionedPairInfoMap<REC> implements Closeable {
+    public static final int DEFAULT_NUM_PARTITIONS = 64;
+
+    private static final Murmur3 HIGH_HASH = new Murmur3(1);
+    private static final Murmur3 LOW_HASH = new Murmur3(2);
+
+    private final File workDir = IOUtil.createTempDir("PPIM.", null);
+    private final Codec<REC> codec;
+    private final long maxRecordsInRam;
+    private final Partition<REC>[] partitions;
+    private final AtomicLong recordsInRam = new AtomicLong();
+
+    /**
+     * @param numPartitions   number of independently locked and spilled partitions
+     * @param maxRecordsInRam number of records above which partitions are spilled to disk
+     * @param codec           writes records to and reads them from temp files
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PartitionedPairInfoMap(final int numPartitions, final long maxRecordsInRam, final Codec<REC> codec) {
+        if (numPartitions <= 0) {
+            throw new IllegalArgumentException("numPartitions must be positive: " + numPartitions);
+        }
+        if (maxRecordsInRam <= 0) {
+            throw new IllegalArgumentException("maxRecordsInRam must be positive: " + maxRecordsInRam);
+        }
+        this.codec = codec;
+        this.maxRecordsInRam = maxRecordsInRam;
+        this.partitions = new Partition[numPartitions];
+        for (int i = 0; i < numPartitions; i++) {
+            partitions[i] = new Partition<>(new File(workDir, i + ".tmp"));
+        }
+        workDir.deleteOnExit();
+    }
+
+    public PartitionedPairInfoMap(final long maxRecordsInRam, final Codec<REC> codec) {
+        this(DEFAULT_NUM_PARTITIONS, maxRecordsInRam, codec);
+    }
+
+    /** @return a 64-bit hash of a read name, to be used as the key of its pair */
+    public static long hashReadName(final String readName) {
+        return ((long) HIGH_HASH.hashUnencodedChars(readName) << 32) | (LOW_HASH.hashUnencodedChars(readName) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Stores the record with the given key.
+     *
+     * @throws IllegalArgumentException if a record with the same key is already stored
+     */
+    public void put(final long key, final REC record) {
+        if (record == null) {
+            throw new IllegalArgumentException("Cannot store a null record");
+        }
+        final Partition<REC> partition = partitionOf(key);
+        synchronized (partition) {
+            if (partition.inRam.get(key) != null || partition.spilledKeys.get(key) != null) {
+                throw new IllegalArgumentException("Putting value into PairInfoMap that already existed: " + key);
+            }
+            partition.inRam.put(key, record);
+        }
+        if (recordsInRam.incrementAndGet() > maxRecordsInRam) {
+            spillLargestPartition();
+        }
+    }
+
+    /**
+     * @return The record with the given key, or null if it is not present.
+     */
+    public REC remove(final long key) {
+        final Partition<REC> partition = partitionOf(key);
+        synchronized (partition) {
+            final REC record = partition.inRam.remove(key);
+            if (record != null) {
+                recordsInRam.decrementAndGet();
+                return record;
+            }
+            final Long offset = partition.spilledKeys.remove(key);
+            return offset == null ? null : readSpilled(partition, offset);
+        }
+    }
+
+    /** @return the number of records stored, in RAM or on disk */
+    public long size() {
+        long size = 0;
+        for (final Partition<REC> partition : partitions) {
+            synchronized (partition) {
+                size += partition.inRam.size() + partition.spilledKeys.size();
+            }
+        }
+        return size;
+    }
+
+    /** @return the number of records stored in RAM.  Always <= size() */
+    public long sizeInRam() {
+        return recordsInRam.get();
+    }
+
+    /**
+     * Applies an action to every stored record, in arbitrary order, without loading spilled partitions into RAM.
+     * The map must not be modified concurrently.
+     */
+    public void forEach(final Consumer<REC> action) {
+        for (final Partition<REC> partition : partitions) {
+            synchronized (partition) {
+                partition.inRam.forEach(action);
+                partition.spilledKeys.forEach(offset -> action.accept(readSpilled(partition, offset)));
+            }
+        }
+    }
+
+    /** Deletes the temp files. */
+    @Override
+    public void close() {
+        for (final Partition<REC> partition : partitions) {
+            synchronized (partition) {
+                partition.inRam.clear();
+                partition.spilledKeys.clear();
+                deleteSpillFile(partition);
+            }
+        }
+        recordsInRam.set(0);
+        if (workDir.exists()) {
+            IOUtil.deleteFiles(workDir);
+        }
+    }
+
+    private Partition<REC> partitionOf(final long key) {
+        return partitions[Math.floorMod((int) (LongTable.mix(key) >>> 32), partitions.length)];
+    }
+
+    private void spillLargestPartition() {
+        Partition<REC> largest = partitions[0];
+        for (final Partition<REC> partition : partitions) {
+            if (partition.inRam.size() > largest.inRam.size()) {
+                largest = partition;
+            }
+        }
+        synchronized (largest) {
+            recordsInRam.addAndGet(-spill(largest));
+        }
+    }
+
+    /** Appends the records of a partition in RAM to its spill file.  Must hold the partition's lock. */
+    private int spill(final Partition<REC> partition) {
+        final int count = partition.inRam.size();
+        if (count == 0) {
+            return 0;
+        }
+        final long fileLength = partition.spillFile.length();
+        try (final PositionalOutputStream position = new PositionalOutputStream(new BufferedOutputStream(new FileOutputStream(partition.spillFile, true)));
+             final DataOutputStream out = new DataOutputStream(position)) {
+            partition.inRam.forEachEntry((key, record) -> {
+                out.writeLong(key);
+                partition.spilledKeys.put(key, fileLength + position.getPosition());
+                codec.encode(record, out);
+            });
+        } catch (final IOException e) {
+            throw new SAMException("Error spilling PairInfoMap partition to " + partition.spillFile, e);
+        }
+        partition.inRam.clear();
+        return count;
+    }
+
+    /**
+     * Reads the spilled record at the given offset of a partition's spill file, which is deleted once none of its
+     * records are left.  Must hold the partition's lock.
+     */
+    private REC readSpilled(final Partition<REC> partition, final long offset) {
+        try {
+            if (partition.reader == null) {
+                partition.reader = new RandomAccessFile(partition.spillFile, "r");
+            }
+            partition.reader.seek(offset);
+            final REC record = codec.decode(new DataInputStream(new BufferedInputStream(Channels.newInputStream(partition.reader.getChannel()), 512)));
+            if (partition.spilledKeys.size() == 0) {
+                deleteSpillFile(partition);
+            }
+            return record;
+        } catch (final IOException e) {
+            throw new SAMException("Error reading PairInfoMap record from " + partition.spillFile, e);
+        }
+    }
+
+    /** Must hold the partition's lock. */
+    private static void deleteSpillFile(final Partition<?> partition) {
+        if (partition.reader != null) {
+            try {
+                partition.reader.close();
+            } catch (final IOException e) {
+                throw new SAMException("Error closing " + partition.spillFile, e);
+            }
+            partition.reader = null;
+        }
+        if (partition.spillFile.exists()) {
+            IOUtil.deleteFiles(partition.spillFile);
+        }
+    }
+
+    private static final class Partition<REC> {
+        private final File spillFile;
+        private final LongTable<REC> inRam = new LongTable<>();
+        // offsets in the spill file of the spilled records
+        private final LongTable<Long> spilledKeys = new LongTable<>();
+        private RandomAccessFile reader;
+
+        private Partition(final File spillFile) {
+            this.spillFile = spillFile;
+            spillFile.deleteOnExit();
+        }
+    }
+
+    /** Open-addressing hash table with linear probing from primitive long keys to non-null values. */
+    private static final class LongTable<V> {
+        private long[] keys = new long[16];
+        private Object[] values = new Object[16];
+        private int size = 0;
+
+        private interface EntryConsumer<V> {
+            void accept(long key, V value) throws IOException;
+        }
+
+        /** The finalizer of MurmurHash3's 64-bit variant. */
+        private static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            key *= 0xc4ceb9fe1a85ec53L;
+            key ^= key >>> 33;
+            return key;
+        }
+
+        private int slot(final long key) {
+            return (int) mix(key) & (keys.length - 1);
+        }
+
+        private int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        private V get(final long key) {
+            for (int i = slot(key); values[i] != null; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == key) {
+                    return (V) values[i];
+                }
+            }
+            return null;
+        }
+
+        private void put(final long key, final V value) {
+            if ((size + 1) * 4L > keys.length * 3L) {
+                resize(keys.length * 2);
+            }
+            int i = slot(key);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & (keys.length - 1);
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        @SuppressWarnings("unchecked")
+        private V remove(final long key) {
+            final int mask = keys.length - 1;
+            int i = slot(key);
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == null) {
+                return null;
+            }
+            final V value = (V) values[i];
+            // shift back the following entries of the probe sequence, so that no tombstones are needed
+            int gap = i;
+            for (int j = (gap + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                final int home = slot(keys[j]);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            values[gap] = null;
+            size--;
+            return value;
+        }
+
+        private void clear() {
+            keys = new long[16];
+            values = new Object[16];
+            size = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void forEach(final Consumer<V> action) {
+            for (final Object value : values) {
+                if (value != null) {
+                    action.accept((V) value);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void forEachEntry(final EntryConsumer<V> action) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    action.accept(keys[i], (V) values[i]);
+                }
+            }
+        }
+
+        private void resize(final int capacity) {
+            final long[] oldKeys = keys;
+            final Object[] oldValues = values;
+            keys = new long[capacity];
+            values = new Object[capacity];
+            size = 0;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    @SuppressWarnings("unchecked") final V value = (V) oldValues[i];
+                    put(oldKeys[i], value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Client must implement this class, which defines the way in which records are written to and
+     * read from file.  The key is written by the map.
+     */
+    public interface Codec<REC> {
+        void encode(REC record, DataOutputStream out) throws IOException;
+
+        REC decode(DataInputStream in) throws IOException;
+    }
+}
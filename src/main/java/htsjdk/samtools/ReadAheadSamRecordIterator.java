@@ -0,0 +1,132 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools;
+
+import htsjdk.samtools.util.CloseableIterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Reads batches of records from a wrapped iterator on an executor, one batch ahead of the consumer.  Each record
+ * is passed to a preprocessor on the executor thread before it is handed out, so that decoding work can be done
+ * ahead of time too.  The wrapped iterator is only ever accessed by one task at a time.
+ */
+class ReadAheadSamRecordIterator implements CloseableIterator<SAMRecord> {
+    private final CloseableIterator<SAMRecord> iterator;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final Consumer<SAMRecord> preprocessor;
+
+    private Future<List<SAMRecord>> pending;
+    private List<SAMRecord> batch = Collections.emptyList();
+    private int index = 0;
+
+    /**
+     * @param iterator     the iterator to read from
+     * @param executor     the executor on which batches are read
+     * @param batchSize    number of records read by each task
+     * @param preprocessor applied to each record on the executor thread
+     */
+    ReadAheadSamRecordIterator(final CloseableIterator<SAMRecord> iterator, final ExecutorService executor,
+                               final int batchSize, final Consumer<SAMRecord> preprocessor) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.iterator = iterator;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.preprocessor = preprocessor;
+        this.pending = executor.submit(this::readBatch);
+    }
+
+    private List<SAMRecord> readBatch() {
+        final List<SAMRecord> records = new ArrayList<>(batchSize);
+        while (records.size() < batchSize && iterator.hasNext()) {
+            final SAMRecord record = iterator.next();
+            preprocessor.accept(record);
+            records.add(record);
+        }
+        return records;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (index >= batch.size()) {
+            if (pending == null) {
+                return false;
+            }
+            batch = await(pending);
+            index = 0;
+            // a short batch means the wrapped iterator is exhausted
+            pending = batch.size() < batchSize ? null : executor.submit(this::readBatch);
+        }
+        return true;
+    }
+
+    @Override
+    public SAMRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return batch.get(index++);
+    }
+
+    /** Waits for any batch still being read, then closes the wrapped iterator. */
+    @Override
+    public void close() {
+        if (pending != null) {
+            try {
+                pending.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final ExecutionException e) {
+                // the iterator is being closed anyway
+            }
+            pending = null;
+        }
+        batch = Collections.emptyList();
+        iterator.close();
+    }
+
+    private static List<SAMRecord> await(final Future<List<SAMRecord>> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SAMException("Interrupted while reading ahead", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SAMException("Error while reading ahead", e.getCause());
+        }
+    }
+}
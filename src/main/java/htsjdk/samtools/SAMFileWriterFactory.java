@@ -56,6 +56,7 @@ public class SAMFileWriterFactory implements Cloneable {
     private SamFlagField samFlagFieldOutput = SamFlagField.NONE;
     private Integer maxRecordsInRam = null;
     private DeflaterFactory deflaterFactory = BlockCompressedOutputStream.getDefaultDeflaterFactory();
+    private long splittingIndexGranularity = 0;
 
     /** simple constructor */
     public SAMFileWriterFactory() {
@@ -72,6 +73,7 @@ public class SAMFileWriterFactory implements Cloneable {
         this.tmpDir = other.tmpDir;
         this.compressionLevel = other.compressionLevel;
         this.maxRecordsInRam = other.maxRecordsInRam;
+        this.splittingIndexGranularity = other.splittingIndexGranularity;
     }
     
     @Override
@@ -158,6 +160,21 @@ public class SAMFileWriterFactory implements Cloneable {
         return this;
     }
 
+    /**
+     * If a BAM file is created and the granularity is positive, a splitting index ({@link SBIIndex}) holding the
+     * virtual offset of every granularity-th record will be written along with the BAM file.
+     *
+     * @param granularity the number of records between indexed offsets, or 0 not to create a splitting index.
+     * @return this factory object
+     */
+    public SAMFileWriterFactory setSplittingIndexGranularity(final long granularity) {
+        if (granularity < 0) {
+            throw new IllegalArgumentException("Negative splitting index granularity " + granularity);
+        }
+        this.splittingIndexGranularity = granularity;
+        return this;
+    }
+
     /**
      * Before creating a writer that is not presorted, this method may be called in order to override
      * the default number of SAMRecords stored in RAM before spilling to disk
@@ -295,6 +312,13 @@ public class SAMFileWriterFactory implements Cloneable {
                 log.warn("Cannot create index for BAM because output file is not a regular file: " + outputPath.toUri());
             }
             initializeBAMWriter(ret, header, presorted, createIndex);
+            if (splittingIndexGranularity > 0) {
+                if (IOUtil.isRegularPath(outputPath)) {
+                    ret.enableSplittingIndexConstruction(splittingIndexGranularity);
+                } else {
+                    log.warn("Cannot create splitting index for BAM because output file is not a regular file: " + outputPath.toUri());
+                }
+            }
 
             if (this.useAsyncIo) return new AsyncSAMFileWriter(ret, this.asyncOutputBufferSize);
             else return ret;
@@ -623,7 +647,7 @@ public class SAMFileWriterFactory implements Cloneable {
         return "SAMFileWriterFactory [createIndex=" + createIndex + ", createMd5File=" + createMd5File + ", useAsyncIo="
                 + useAsyncIo + ", asyncOutputBufferSize=" + asyncOutputBufferSize + ", bufferSize=" + bufferSize
                 + ", tmpDir=" + tmpDir + ", compressionLevel=" + compressionLevel + ", maxRecordsInRam="
-                + maxRecordsInRam + "]";
+                + maxRecordsInRam + ", splittingIndexGranularity=" + splittingIndexGranularity + "]";
     }
 
 }
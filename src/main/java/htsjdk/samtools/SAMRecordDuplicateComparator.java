@@ -74,6 +74,41 @@ public class SAMRecordDuplicateComparator implements SAMRecordComparator, Serial
         this.scoringStrategy = scoringStrategy;
     }
 
+    /** The number of longs written by {@link #fillDuplicateSortKey(SAMRecord, long[], int)}. */
+    static final int DUPLICATE_SORT_KEY_WIDTH = 4;
+
+    /**
+     * Writes a fixed-width key for the record into keys[offset, offset + DUPLICATE_SORT_KEY_WIDTH) such that comparing
+     * the keys of two records word by word, with each word treated as unsigned, orders them as
+     * {@link #fileOrderCompare(SAMRecord, SAMRecord)} does.
+     *
+     * The key is laid out as: library id and reference index (unmapped last); read coordinate and orientation; mate
+     * reference index and mate coordinate (zero unless paired with both ends mapped); and finally the mapped end,
+     * pairing and unmapped end bits.  Mate fields can be left as zero for the other records since their orientation
+     * is a fragment orientation, which never equals a paired orientation.
+     */
+    void fillDuplicateSortKey(final SAMRecord rec, final long[] keys, final int offset) {
+        if (null == rec.getHeader()) {
+            throw new IllegalArgumentException("Records must have non-null SAMFileHeaders to be compared");
+        }
+        populateTransientAttributes(rec);
+
+        final int referenceIndex = rec.getReferenceIndex();
+        keys[offset] = toUnsignedOrder((Short) rec.getTransientAttribute(Attr.LibraryId)) << 32 |
+                toUnsignedOrder(referenceIndex == -1 ? Integer.MAX_VALUE : referenceIndex);
+        keys[offset + 1] = toUnsignedOrder((Integer) rec.getTransientAttribute(Attr.ReadCoordinate)) << 32 |
+                getPairedOrientation(rec);
+        keys[offset + 2] = pairedEndAndBothMapped(rec) ?
+                toUnsignedOrder(getMateReferenceIndex(rec)) << 32 | toUnsignedOrder((Integer) rec.getTransientAttribute(Attr.MateCoordinate)) :
+                0L;
+        keys[offset + 3] = (hasMappedEnd(rec) ? 0 : 4) | (rec.getReadPairedFlag() ? 0 : 2) | (hasUnmappedEnd(rec) ? 1 : 0);
+    }
+
+    /** Maps a signed int to an unsigned 32-bit value with the same ordering. */
+    private static long toUnsignedOrder(final int value) {
+        return (value ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+    }
+
     /**
      * Populates the set of transient attributes on SAMRecords if they are not already there.
      */
@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools;
+
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A splitting index for a BAM file: the virtual offsets of every {@code granularity}-th record, and of the end of
+ * the last record.  Readers of a split of the file start at the first indexed offset in the split, so that they
+ * need neither the BAI nor {@link BAMFileReader#findVirtualOffsetOfNextRecord} to find a record boundary.
+ *
+ * The file layout, all little-endian, is the magic number "SBI\1", the length of the BAM file, its MD5 and a UUID
+ * (all zero when not computed), the number of records, the granularity, the number of offsets and the offsets.
+ *
+ * @see SAMFileWriterFactory#setSplittingIndexGranularity(long)
+ */
+public final class SBIIndex {
+    public static final String FILE_EXTENSION = ".sbi";
+
+    private final long dataFileLength;
+    private final long totalNumberOfRecords;
+    private final long granularity;
+    private final long[] virtualOffsets;
+
+    SBIIndex(final long dataFileLength, final long totalNumberOfRecords, final long granularity, final long[] virtualOffsets) {
+        if (virtualOffsets.length == 0) {
+            throw new IllegalArgumentException("A splitting index must hold at least the offset of the end of the last record");
+        }
+        this.dataFileLength = dataFileLength;
+        this.totalNumberOfRecords = totalNumberOfRecords;
+        this.granularity = granularity;
+        this.virtualOffsets = virtualOffsets;
+    }
+
+    /** Reads a splitting index. */
+    public static SBIIndex load(final Path path) {
+        final BinaryCodec codec = new BinaryCodec(path, false);
+        try {
+            final byte[] magic = new byte[BAMFileConstants.SBI_MAGIC.length];
+            codec.readBytes(magic);
+            if (!Arrays.equals(magic, BAMFileConstants.SBI_MAGIC)) {
+                throw new SAMFormatException("Invalid splitting index file header in " + path.toUri() + ": " + new String(magic));
+            }
+            final long dataFileLength = codec.readLong();
+            codec.readBytes(new byte[16]); // MD5
+            codec.readBytes(new byte[16]); // UUID
+            final long totalNumberOfRecords = codec.readLong();
+            final long granularity = codec.readLong();
+            final long numberOfOffsets = codec.readLong();
+            if (numberOfOffsets < 1 || numberOfOffsets > Integer.MAX_VALUE - 8) {
+                throw new SAMFormatException("Invalid number of offsets " + numberOfOffsets + " in " + path.toUri());
+            }
+            final long[] virtualOffsets = new long[(int) numberOfOffsets];
+            for (int i = 0; i < virtualOffsets.length; i++) {
+                virtualOffsets[i] = codec.readLong();
+            }
+            return new SBIIndex(dataFileLength, totalNumberOfRecords, granularity, virtualOffsets);
+        } finally {
+            codec.close();
+        }
+    }
+
+    /** @return the length of the indexed BAM file */
+    public long getDataFileLength() {
+        return dataFileLength;
+    }
+
+    /** @return the number of records in the indexed BAM file */
+    public long getTotalNumberOfRecords() {
+        return totalNumberOfRecords;
+    }
+
+    /** @return the number of records between consecutive indexed offsets, or zero if unknown */
+    public long getGranularity() {
+        return granularity;
+    }
+
+    /** @return the indexed virtual offsets, ending with that of the end of the last record */
+    public long[] getVirtualOffsets() {
+        return virtualOffsets.clone();
+    }
+
+    /**
+     * @return the first indexed virtual offset in a BGZF block starting at or after {@code fileOffset}, or the offset of
+     * the end of the last record if there is none.  The records of a split of the file {@code [start, end)} are those
+     * from the offset returned for {@code start} up to that returned for {@code end}.
+     */
+    public long getVirtualOffsetAtOrAfter(final long fileOffset) {
+        int low = 0;
+        int high = virtualOffsets.length - 1;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (BlockCompressedFilePointerUtil.getBlockAddress(virtualOffsets[mid]) < fileOffset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return virtualOffsets[low];
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools;
+
+import htsjdk.samtools.util.BinaryCodec;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Writes a {@link SBIIndex} for a BAM file while the file is being written.
+ */
+public final class SBIIndexWriter {
+    private final Path output;
+    private final long granularity;
+    private long[] virtualOffsets = new long[64];
+    private int numberOfOffsets = 0;
+    private long numberOfRecords = 0;
+
+    /**
+     * @param output      the splitting index file
+     * @param granularity the number of records between consecutive indexed offsets
+     */
+    public SBIIndexWriter(final Path output, final long granularity) {
+        if (granularity < 1) {
+            throw new IllegalArgumentException("Granularity must be positive: " + granularity);
+        }
+        this.output = output;
+        this.granularity = granularity;
+    }
+
+    /**
+     * Call for each record, in file order, before it is written.
+     *
+     * @param virtualOffset the virtual offset at which the record starts
+     */
+    public void processRecord(final long virtualOffset) {
+        if (numberOfRecords++ % granularity == 0) {
+            addOffset(virtualOffset);
+        }
+    }
+
+    /**
+     * Writes the index.
+     *
+     * @param finalVirtualOffset the virtual offset of the end of the last record
+     * @param dataFileLength     the length of the finished BAM file
+     */
+    public void finish(final long finalVirtualOffset, final long dataFileLength) {
+        addOffset(finalVirtualOffset);
+        final BinaryCodec codec = new BinaryCodec(output, true);
+        try {
+            codec.writeBytes(BAMFileConstants.SBI_MAGIC);
+            codec.writeLong(dataFileLength);
+            codec.writeBytes(new byte[16]); // MD5, not computed
+            codec.writeBytes(new byte[16]); // UUID, not assigned
+            codec.writeLong(numberOfRecords);
+            codec.writeLong(granularity);
+            codec.writeLong(numberOfOffsets);
+            for (int i = 0; i < numberOfOffsets; i++) {
+                codec.writeLong(virtualOffsets[i]);
+            }
+        } finally {
+            codec.close();
+        }
+    }
+
+    private void addOffset(final long virtualOffset) {
+        if (numberOfOffsets == virtualOffsets.length) {
+            virtualOffsets = Arrays.copyOf(virtualOffsets, 2 * numberOfOffsets);
+        }
+        virtualOffsets[numberOfOffsets++] = virtualOffset;
+    }
+}
@@ -28,7 +28,6 @@ import htsjdk.samtools.SAMValidationError.Type;
 import htsjdk.samtools.BamIndexValidator.IndexValidationStringency;
 import htsjdk.samtools.metrics.MetricBase;
 import htsjdk.samtools.metrics.MetricsFile;
-import htsjdk.samtools.reference.ReferenceSequence;
 import htsjdk.samtools.reference.ReferenceSequenceFile;
 import htsjdk.samtools.reference.ReferenceSequenceFileWalker;
 import htsjdk.samtools.util.BlockCompressedInputStream;
@@ -53,6 +52,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
@@ -62,6 +62,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Validates SAM files as follows:
@@ -77,6 +82,10 @@ import java.util.Set;
  * </li>
  * </ul>
  *
+ * If an executor is set with {@link #setExecutor(ExecutorService, int)}, records are read on the calling thread and
+ * validated in batches on the executor, and mate tracking is split by read name into independent partitions.  The
+ * same errors are reported in the same order, except that unmatched mates are reported partition by partition.
+ *
  * @author Doug Voet
  * @see SAMRecord#isValid()
  */
@@ -105,6 +114,13 @@ public class SamFileValidator {
     private int qualityNotStoredErrorCount = 0;
     public static final int MAX_QUALITY_NOT_STORED_ERRORS = 100;
 
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+    private static final int MATE_TRACKING_PARTITIONS = 16;
+    private static final int MAX_BATCHES_IN_FLIGHT = 16;
+    private ExecutorService executor;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private PairEndInfoMap[] pairEndInfoPartitions;
+
     public SamFileValidator(final PrintWriter out, final int maxTempFiles) {
         this.out = out;
         this.maxTempFiles = maxTempFiles;
@@ -264,6 +280,16 @@ public class SamFileValidator {
      * Report on reads marked as paired, for which the mate was not found.
      */
     private void validateUnmatchedPairs() {
+        if (pairEndInfoPartitions != null) {
+            for (final PairEndInfoMap partition : pairEndInfoPartitions) {
+                validateUnmatchedPairs(partition);
+            }
+        } else {
+            validateUnmatchedPairs(pairEndInfoByName);
+        }
+    }
+
+    private void validateUnmatchedPairs(final PairEndInfoMap pairEndInfoByName) {
         final InMemoryPairEndInfoMap inMemoryPairMap;
         if (pairEndInfoByName instanceof CoordinateSortedPairEndInfoMap) {
             // For the coordinate-sorted map, need to detect mate pairs in which the mateReferenceIndex on one end
@@ -303,54 +329,27 @@ public class SamFileValidator {
         final SAMRecordIterator iter = (SAMRecordIterator) samRecords.iterator();
         final ProgressLogger progress = new ProgressLogger(log, 10000000, "Validated Read");
         final QualityEncodingDetector qualityDetector = new QualityEncodingDetector();
+        final ArrayDeque<ValidationBatch> batchesInFlight = new ArrayDeque<>();
         try {
-            while (iter.hasNext()) {
-                final SAMRecord record = iter.next();
-
-                qualityDetector.add(record);
-
-                final long recordNumber = progress.getCount() + 1;
-                final Collection<SAMValidationError> errors = record.isValid();
-                if (errors != null) {
-                    for (final SAMValidationError error : errors) {
-                        error.setRecordNumber(recordNumber);
-                        addError(error);
-                    }
-                }
+            if (executor != null) {
+                validateSamRecordsInParallel(iter, header, progress, qualityDetector, batchesInFlight);
+            } else {
+                while (iter.hasNext()) {
+                    final SAMRecord record = iter.next();
 
-                validateMateFields(record, recordNumber);
-                final boolean hasValidSortOrder = validateSortOrder(record, recordNumber);
-                validateReadGroup(record, header);
-                final boolean cigarIsValid = validateCigar(record, recordNumber);
-                if (cigarIsValid) {
-                    try {
-                        validateNmTag(record, recordNumber);
-                    } catch (SAMException e) {
-                        if (hasValidSortOrder) {
-                            // If a CRAM file has an invalid sort order, the ReferenceFileWalker will throw a
-                            // SAMException due to an out of order request when retrieving reference bases during NM
-                            // tag validation; rethrow the exception only if the sort order is valid, otherwise
-                            // swallow the exception and carry on validating
-                            throw e;
-                        }
-                    }
-                }
-                validateSecondaryBaseCalls(record, recordNumber);
-                validateTags(record, recordNumber);
-                if (sequenceDictionaryEmptyAndNoWarningEmitted && !record.getReadUnmappedFlag()) {
-                    addError(new SAMValidationError(Type.MISSING_SEQUENCE_DICTIONARY, "Sequence dictionary is empty", null));
-                    sequenceDictionaryEmptyAndNoWarningEmitted = false;
+                    qualityDetector.add(record);
 
-                }
+                    final long recordNumber = progress.getCount() + 1;
+                    validateRecord(record, recordNumber, this::addError);
+                    validateMateFields(record, recordNumber);
+                    final boolean hasValidSortOrder = validateSortOrder(record, recordNumber, this::addError);
+                    final Supplier<byte[]> referenceBases = refFileWalker == null ? null :
+                            () -> refFileWalker.get(record.getReferenceIndex()).getBases();
+                    validateRecordContents(record, recordNumber, header, hasValidSortOrder, referenceBases, this::addError);
+                    validateRecordInFileOrder(record, recordNumber, this::addError);
 
-                if ((qualityNotStoredErrorCount++ < MAX_QUALITY_NOT_STORED_ERRORS) && record.getBaseQualityString().equals("*")) {
-                    addError(new SAMValidationError(Type.QUALITY_NOT_STORED,
-                            "QUAL field is set to * (unspecified quality scores), this is allowed by the SAM" +
-                                    " specification but many tools expect reads to include qualities ",
-                            record.getReadName(), recordNumber));
+                    progress.record(record);
                 }
-
-                progress.record(record);
             }
 
             try {
@@ -364,25 +363,215 @@ public class SamFileValidator {
                 addError(new SAMValidationError(Type.INVALID_QUALITY_FORMAT, e.getMessage(), null));
             }
         } catch (SAMFormatException e) {
+            reportBatches(batchesInFlight, 0);
             // increment record number because the iterator behind the SamReader
             // reads one record ahead so we will get this failure one record ahead
             final String msg = "SAMFormatException on record " + progress.getCount() + 1;
             out.println(msg);
             throw new SAMException(msg, e);
         } catch (FileTruncatedException e) {
+            reportBatches(batchesInFlight, 0);
             addError(new SAMValidationError(Type.TRUNCATED_FILE, "File is truncated", null));
         } finally {
             iter.close();
         }
     }
 
-    private void validateReadGroup(final SAMRecord record, final SAMFileHeader header) {
+    /**
+     * Reads records on the calling thread, where the checks that depend on the order of the records are made, and
+     * validates batches of them on the executor.  Mate tracking for each batch is done by one task per partition,
+     * after the same partition has been processed for the previous batch.  Errors are reported on the calling thread.
+     */
+    private void validateSamRecordsInParallel(final SAMRecordIterator iter, final SAMFileHeader header, final ProgressLogger progress,
+                                              final QualityEncodingDetector qualityDetector, final ArrayDeque<ValidationBatch> batchesInFlight) {
+        final List<CompletableFuture<Void>> mateTracking = new ArrayList<>(MATE_TRACKING_PARTITIONS);
+        for (int i = 0; i < MATE_TRACKING_PARTITIONS; i++) {
+            mateTracking.add(CompletableFuture.completedFuture(null));
+        }
+        List<RecordValidation> records = new ArrayList<>(batchSize);
+        try {
+            while (iter.hasNext()) {
+                final SAMRecord record = iter.next();
+                // decode now, so that the record is not lazily modified while the next one is compared to it
+                record.eagerDecode();
+
+                qualityDetector.add(record);
+
+                final RecordValidation validation = new RecordValidation(record, progress.getCount() + 1);
+                validation.hasValidSortOrder = validateSortOrder(record, validation.recordNumber, validation.errors(RecordValidation.SORT_ORDER));
+                if (refFileWalker != null && !record.getReadUnmappedFlag() && record.getIntegerAttribute(ReservedTagConstants.NM) != null) {
+                    // the walker must be called in file order; errors are thrown when the bases are used, as they would be serially
+                    try {
+                        final byte[] bases = refFileWalker.get(record.getReferenceIndex()).getBases();
+                        validation.referenceBases = () -> bases;
+                    } catch (final SAMException e) {
+                        validation.referenceBases = () -> {
+                            throw e;
+                        };
+                    }
+                }
+                validateRecordInFileOrder(record, validation.recordNumber, validation.errors(RecordValidation.FILE_ORDER));
+                records.add(validation);
+
+                progress.record(record);
+
+                if (records.size() == batchSize) {
+                    batchesInFlight.add(submitBatch(records, header, mateTracking));
+                    records = new ArrayList<>(batchSize);
+                    reportBatches(batchesInFlight, MAX_BATCHES_IN_FLIGHT);
+                }
+            }
+        } finally {
+            // records read before the iterator failed, e.g. on a truncated file, must still be validated and reported
+            if (!records.isEmpty()) {
+                batchesInFlight.add(submitBatch(records, header, mateTracking));
+            }
+        }
+        reportBatches(batchesInFlight, 0);
+    }
+
+    private ValidationBatch submitBatch(final List<RecordValidation> records, final SAMFileHeader header,
+                                        final List<CompletableFuture<Void>> mateTracking) {
+        final CompletableFuture<List<List<RecordValidation>>> validated =
+                CompletableFuture.supplyAsync(() -> validateBatch(records, header), executor);
+        final List<CompletableFuture<Void>> batchMateTracking = new ArrayList<>(MATE_TRACKING_PARTITIONS);
+        for (int i = 0; i < MATE_TRACKING_PARTITIONS; i++) {
+            final PairEndInfoMap partition = pairEndInfoPartitions[i];
+            final int partitionIndex = i;
+            final CompletableFuture<Void> tracked = mateTracking.get(i).thenCombineAsync(validated, (ignored, partitioned) -> {
+                for (final RecordValidation validation : partitioned.get(partitionIndex)) {
+                    trackMate(partition, validation.record, validation.pairEndInfo, validation.errors(RecordValidation.MATES));
+                }
+                return null;
+            }, executor);
+            mateTracking.set(i, tracked);
+            batchMateTracking.add(tracked);
+        }
+        return new ValidationBatch(records, validated, batchMateTracking);
+    }
+
+    /**
+     * Makes the checks of a batch of records that do not depend on other records.
+     *
+     * @return the records that take part in mate tracking, by partition
+     */
+    private List<List<RecordValidation>> validateBatch(final List<RecordValidation> records, final SAMFileHeader header) {
+        final List<List<RecordValidation>> partitioned = new ArrayList<>(MATE_TRACKING_PARTITIONS);
+        for (int i = 0; i < MATE_TRACKING_PARTITIONS; i++) {
+            partitioned.add(new ArrayList<>());
+        }
+        for (final RecordValidation validation : records) {
+            final SAMRecord record = validation.record;
+            final Consumer<SAMValidationError> recordErrors = validation.errors(RecordValidation.RECORD);
+            validateRecord(record, validation.recordNumber, recordErrors);
+            if (record.getReadPairedFlag() && !record.isSecondaryOrSupplementary()) {
+                validateMateCigar(record, validation.recordNumber, recordErrors);
+                if (!skipMateValidation) {
+                    validation.pairEndInfo = new PairEndInfo(record, validation.recordNumber);
+                    partitioned.get(Math.floorMod(record.getReadName().hashCode(), MATE_TRACKING_PARTITIONS)).add(validation);
+                }
+            }
+            validateRecordContents(record, validation.recordNumber, header, validation.hasValidSortOrder,
+                    validation.referenceBases, validation.errors(RecordValidation.CONTENTS));
+        }
+        return partitioned;
+    }
+
+    /** Waits for the oldest batches until no more than maxBatches remain, and reports their errors in file order. */
+    private void reportBatches(final ArrayDeque<ValidationBatch> batchesInFlight, final int maxBatches) {
+        while (batchesInFlight.size() > maxBatches) {
+            final ValidationBatch batch = batchesInFlight.poll();
+            await(batch.validated);
+            for (final CompletableFuture<Void> tracked : batch.mateTracking) {
+                await(tracked);
+            }
+            for (final RecordValidation validation : batch.records) {
+                for (final List<SAMValidationError> errors : validation.errorsByStage) {
+                    if (errors != null) {
+                        for (final SAMValidationError error : errors) {
+                            addError(error);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void await(final CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new SAMException("Exception while validating records", e.getCause());
+        }
+    }
+
+    /** Reports the errors found by {@link SAMRecord#isValid()}. */
+    private static void validateRecord(final SAMRecord record, final long recordNumber, final Consumer<SAMValidationError> errors) {
+        final Collection<SAMValidationError> recordErrors = record.isValid();
+        if (recordErrors != null) {
+            for (final SAMValidationError error : recordErrors) {
+                error.setRecordNumber(recordNumber);
+                errors.accept(error);
+            }
+        }
+    }
+
+    /**
+     * Makes the checks of a record that only depend on the record itself.
+     *
+     * @param referenceBases supplies the bases of the record's reference sequence; if null, the NM tag is not checked
+     *                       against the reference
+     */
+    private void validateRecordContents(final SAMRecord record, final long recordNumber, final SAMFileHeader header,
+                                        final boolean hasValidSortOrder, final Supplier<byte[]> referenceBases,
+                                        final Consumer<SAMValidationError> errors) {
+        validateReadGroup(record, header, errors);
+        final boolean cigarIsValid = validateCigar(record, recordNumber, errors);
+        if (cigarIsValid) {
+            try {
+                validateNmTag(record, recordNumber, referenceBases, errors);
+            } catch (SAMException e) {
+                if (hasValidSortOrder) {
+                    // If a CRAM file has an invalid sort order, the ReferenceFileWalker will throw a
+                    // SAMException due to an out of order request when retrieving reference bases during NM
+                    // tag validation; rethrow the exception only if the sort order is valid, otherwise
+                    // swallow the exception and carry on validating
+                    throw e;
+                }
+            }
+        }
+        validateSecondaryBaseCalls(record, recordNumber, errors);
+        validateTags(record, recordNumber, errors);
+    }
+
+    /** Makes the checks of a record that depend on the records before it. */
+    private void validateRecordInFileOrder(final SAMRecord record, final long recordNumber, final Consumer<SAMValidationError> errors) {
+        if (sequenceDictionaryEmptyAndNoWarningEmitted && !record.getReadUnmappedFlag()) {
+            errors.accept(new SAMValidationError(Type.MISSING_SEQUENCE_DICTIONARY, "Sequence dictionary is empty", null));
+            sequenceDictionaryEmptyAndNoWarningEmitted = false;
+
+        }
+
+        if ((qualityNotStoredErrorCount++ < MAX_QUALITY_NOT_STORED_ERRORS) && record.getBaseQualityString().equals("*")) {
+            errors.accept(new SAMValidationError(Type.QUALITY_NOT_STORED,
+                    "QUAL field is set to * (unspecified quality scores), this is allowed by the SAM" +
+                            " specification but many tools expect reads to include qualities ",
+                    record.getReadName(), recordNumber));
+        }
+    }
+
+    private void validateReadGroup(final SAMRecord record, final SAMFileHeader header, final Consumer<SAMValidationError> errors) {
         final SAMReadGroupRecord rg = record.getReadGroup();
         if (rg == null) {
-            addError(new SAMValidationError(Type.RECORD_MISSING_READ_GROUP,
+            errors.accept(new SAMValidationError(Type.RECORD_MISSING_READ_GROUP,
                     "A record is missing a read group", record.getReadName()));
         } else if (header.getReadGroup(rg.getId()) == null) {
-            addError(new SAMValidationError(Type.READ_GROUP_NOT_FOUND,
+            errors.accept(new SAMValidationError(Type.READ_GROUP_NOT_FOUND,
                     "A record has a read group not found in the header: ",
                     record.getReadName() + ", " + rg.getReadGroupId()));
         }
@@ -391,21 +580,21 @@ public class SamFileValidator {
     /**
      * Report error if a tag value is a Long.
      */
-    private void validateTags(final SAMRecord record, final long recordNumber) {
+    private void validateTags(final SAMRecord record, final long recordNumber, final Consumer<SAMValidationError> errors) {
         for (final SAMRecord.SAMTagAndValue tagAndValue : record.getAttributes()) {
             if (tagAndValue.value instanceof Long) {
-                addError(new SAMValidationError(Type.TAG_VALUE_TOO_LARGE,
+                errors.accept(new SAMValidationError(Type.TAG_VALUE_TOO_LARGE,
                         "Numeric value too large for tag " + tagAndValue.tag,
                         record.getReadName(), recordNumber));
             }
         }
     }
 
-    private void validateSecondaryBaseCalls(final SAMRecord record, final long recordNumber) {
+    private void validateSecondaryBaseCalls(final SAMRecord record, final long recordNumber, final Consumer<SAMValidationError> errors) {
         final String e2 = (String) record.getAttribute(SAMTag.E2.name());
         if (e2 != null) {
             if (e2.length() != record.getReadLength()) {
-                addError(new SAMValidationError(Type.MISMATCH_READ_LENGTH_AND_E2_LENGTH,
+                errors.accept(new SAMValidationError(Type.MISMATCH_READ_LENGTH_AND_E2_LENGTH,
                         String.format("E2 tag length (%d) != read length (%d)", e2.length(), record.getReadLength()),
                         record.getReadName(), recordNumber));
             }
@@ -416,7 +605,7 @@ public class SamFileValidator {
                     continue;
                 }
                 if (SequenceUtil.basesEqual(bases[i], secondaryBases[i])) {
-                    addError(new SAMValidationError(Type.E2_BASE_EQUALS_PRIMARY_BASE,
+                    errors.accept(new SAMValidationError(Type.E2_BASE_EQUALS_PRIMARY_BASE,
                             String.format("Secondary base call  (%c) == primary base call (%c)",
                                     (char) secondaryBases[i], (char) bases[i]),
                             record.getReadName(), recordNumber));
@@ -426,41 +615,41 @@ public class SamFileValidator {
         }
         final String u2 = (String) record.getAttribute(SAMTag.U2.name());
         if (u2 != null && u2.length() != record.getReadLength()) {
-            addError(new SAMValidationError(Type.MISMATCH_READ_LENGTH_AND_U2_LENGTH,
+            errors.accept(new SAMValidationError(Type.MISMATCH_READ_LENGTH_AND_U2_LENGTH,
                     String.format("U2 tag length (%d) != read length (%d)", u2.length(), record.getReadLength()),
                     record.getReadName(), recordNumber));
         }
     }
 
-    private boolean validateCigar(final SAMRecord record, final long recordNumber) {
-        return record.getReadUnmappedFlag() || validateCigar(record, recordNumber, true);
+    private boolean validateCigar(final SAMRecord record, final long recordNumber, final Consumer<SAMValidationError> errors) {
+        return record.getReadUnmappedFlag() || validateCigar(record, recordNumber, true, errors);
     }
 
-    private boolean validateMateCigar(final SAMRecord record, final long recordNumber) {
-        return validateCigar(record, recordNumber, false);
+    private boolean validateMateCigar(final SAMRecord record, final long recordNumber, final Consumer<SAMValidationError> errors) {
+        return validateCigar(record, recordNumber, false, errors);
     }
 
-    private boolean validateCigar(final SAMRecord record, final long recordNumber, final boolean isReadCigar) {
+    private boolean validateCigar(final SAMRecord record, final long recordNumber, final boolean isReadCigar, final Consumer<SAMValidationError> errors) {
         final ValidationStringency savedStringency = record.getValidationStringency();
         record.setValidationStringency(ValidationStringency.LENIENT);
-        final List<SAMValidationError> errors = isReadCigar ? record.validateCigar(recordNumber) : SAMUtils.validateMateCigar(record, recordNumber);
+        final List<SAMValidationError> cigarErrors = isReadCigar ? record.validateCigar(recordNumber) : SAMUtils.validateMateCigar(record, recordNumber);
         record.setValidationStringency(savedStringency);
-        if (errors == null) {
+        if (cigarErrors == null) {
             return true;
         }
         boolean valid = true;
-        for (final SAMValidationError error : errors) {
-            addError(error);
+        for (final SAMValidationError error : cigarErrors) {
+            errors.accept(error);
             valid = false;
         }
         return valid;
     }
 
-    private boolean validateSortOrder(final SAMRecord record, final long recordNumber) {
+    private boolean validateSortOrder(final SAMRecord record, final long recordNumber, final Consumer<SAMValidationError> errors) {
         final SAMRecord prev = orderChecker.getPreviousRecord();
         boolean isValidSortOrder = orderChecker.isSorted(record);
         if (!isValidSortOrder) {
-            addError(new SAMValidationError(
+            errors.accept(new SAMValidationError(
                     Type.RECORD_OUT_OF_ORDER,
                     String.format(
                             "The record is out of [%s] order, prior read name [%s], prior coodinates [%d:%d]",
@@ -475,8 +664,15 @@ public class SamFileValidator {
     }
 
     private void init(final ReferenceSequenceFile reference, final SAMFileHeader header) {
-        if (header.getSortOrder() == SAMFileHeader.SortOrder.coordinate) {
-            this.pairEndInfoByName = new CoordinateSortedPairEndInfoMap();
+        if (executor != null) {
+            this.pairEndInfoPartitions = new PairEndInfoMap[MATE_TRACKING_PARTITIONS];
+            for (int i = 0; i < MATE_TRACKING_PARTITIONS; i++) {
+                this.pairEndInfoPartitions[i] = header.getSortOrder() == SAMFileHeader.SortOrder.coordinate ?
+                        new CoordinateSortedPairEndInfoMap(Math.max(1, maxTempFiles / MATE_TRACKING_PARTITIONS)) :
+                        new InMemoryPairEndInfoMap();
+            }
+        } else if (header.getSortOrder() == SAMFileHeader.SortOrder.coordinate) {
+            this.pairEndInfoByName = new CoordinateSortedPairEndInfoMap(maxTempFiles);
         } else {
             this.pairEndInfoByName = new InMemoryPairEndInfoMap();
         }
@@ -489,25 +685,26 @@ public class SamFileValidator {
     private void cleanup() {
         this.errorsByType = null;
         this.pairEndInfoByName = null;
+        this.pairEndInfoPartitions = null;
         this.refFileWalker = null;
     }
 
-    private void validateNmTag(final SAMRecord record, final long recordNumber) {
+    private void validateNmTag(final SAMRecord record, final long recordNumber, final Supplier<byte[]> referenceBases,
+                               final Consumer<SAMValidationError> errors) {
         if (!record.getReadUnmappedFlag()) {
             final Integer tagNucleotideDiffs = record.getIntegerAttribute(ReservedTagConstants.NM);
             if (tagNucleotideDiffs == null) {
-                addError(new SAMValidationError(
+                errors.accept(new SAMValidationError(
                         Type.MISSING_TAG_NM,
                         "NM tag (nucleotide differences) is missing",
                         record.getReadName(),
                         recordNumber));
-            } else if (refFileWalker != null) {
-                final ReferenceSequence refSequence = refFileWalker.get(record.getReferenceIndex());
-                final int actualNucleotideDiffs = SequenceUtil.calculateSamNmTag(record, refSequence.getBases(),
+            } else if (referenceBases != null) {
+                final int actualNucleotideDiffs = SequenceUtil.calculateSamNmTag(record, referenceBases.get(),
                         0, isBisulfiteSequenced());
 
                 if (!tagNucleotideDiffs.equals(actualNucleotideDiffs)) {
-                    addError(new SAMValidationError(
+                    errors.accept(new SAMValidationError(
                             Type.INVALID_TAG_NM,
                             "NM tag (nucleotide differences) in file [" + tagNucleotideDiffs +
                                     "] does not match reality [" + actualNucleotideDiffs + "]",
@@ -522,20 +719,24 @@ public class SamFileValidator {
         if (!record.getReadPairedFlag() || record.isSecondaryOrSupplementary()) {
             return;
         }
-        validateMateCigar(record, recordNumber);
+        validateMateCigar(record, recordNumber, this::addError);
 
         if (skipMateValidation) {
             return;
         }
 
+        trackMate(pairEndInfoByName, record, new PairEndInfo(record, recordNumber), this::addError);
+    }
+
+    /** Validates a record against its mate if the mate has been seen, otherwise remembers it until the mate is seen. */
+    private static void trackMate(final PairEndInfoMap pairEndInfoByName, final SAMRecord record, final PairEndInfo recordInfo,
+                                  final Consumer<SAMValidationError> errors) {
         final PairEndInfo pairEndInfo = pairEndInfoByName.remove(record.getReferenceIndex(), record.getReadName());
         if (pairEndInfo == null) {
-            pairEndInfoByName.put(record.getMateReferenceIndex(), record.getReadName(), new PairEndInfo(record, recordNumber));
+            pairEndInfoByName.put(record.getMateReferenceIndex(), record.getReadName(), recordInfo);
         } else {
-            final List<SAMValidationError> errors =
-                    pairEndInfo.validateMates(new PairEndInfo(record, recordNumber), record.getReadName());
-            for (final SAMValidationError error : errors) {
-                addError(error);
+            for (final SAMValidationError error : pairEndInfo.validateMates(recordInfo, record.getReadName())) {
+                errors.accept(error);
             }
         }
     }
@@ -683,6 +884,25 @@ public class SamFileValidator {
         return this;
     }
 
+    /**
+     * Validates records in parallel on the given executor.
+     *
+     * @param executor  if null, records are validated on the calling thread
+     * @param batchSize number of records validated by each task
+     */
+    public SamFileValidator setExecutor(final ExecutorService executor, final int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.executor = executor;
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public SamFileValidator setExecutor(final ExecutorService executor) {
+        return setExecutor(executor, DEFAULT_BATCH_SIZE);
+    }
+
     public static class ValidationMetrics extends MetricBase {
     }
 
@@ -802,6 +1022,52 @@ public class SamFileValidator {
         }
     }
 
+    /** The state of one record while a batch of records is validated in parallel. */
+    private static final class RecordValidation {
+        // Stages of validation, in the order in which their errors are reported
+        private static final int RECORD = 0;
+        private static final int MATES = 1;
+        private static final int SORT_ORDER = 2;
+        private static final int CONTENTS = 3;
+        private static final int FILE_ORDER = 4;
+
+        private final SAMRecord record;
+        private final long recordNumber;
+        private boolean hasValidSortOrder;
+        private Supplier<byte[]> referenceBases;
+        private PairEndInfo pairEndInfo;
+        // Each stage is written by a single thread; lists are only created when there are errors
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private final List<SAMValidationError>[] errorsByStage = new List[FILE_ORDER + 1];
+
+        private RecordValidation(final SAMRecord record, final long recordNumber) {
+            this.record = record;
+            this.recordNumber = recordNumber;
+        }
+
+        private Consumer<SAMValidationError> errors(final int stage) {
+            return error -> {
+                if (errorsByStage[stage] == null) {
+                    errorsByStage[stage] = new ArrayList<>(1);
+                }
+                errorsByStage[stage].add(error);
+            };
+        }
+    }
+
+    private static final class ValidationBatch {
+        private final List<RecordValidation> records;
+        private final CompletableFuture<?> validated;
+        private final List<CompletableFuture<Void>> mateTracking;
+
+        private ValidationBatch(final List<RecordValidation> records, final CompletableFuture<?> validated,
+                                final List<CompletableFuture<Void>> mateTracking) {
+            this.records = records;
+            this.validated = validated;
+            this.mateTracking = mateTracking;
+        }
+    }
+
     /**
      * Thrown in addError indicating that maxVerboseOutput has been exceeded and processing should stop
      */
@@ -821,8 +1087,11 @@ public class SamFileValidator {
     }
 
     private class CoordinateSortedPairEndInfoMap implements PairEndInfoMap {
-        private final CoordinateSortedPairInfoMap<String, PairEndInfo> onDiskMap =
-                new CoordinateSortedPairInfoMap<>(maxTempFiles, new Codec());
+        private final CoordinateSortedPairInfoMap<String, PairEndInfo> onDiskMap;
+
+        CoordinateSortedPairEndInfoMap(final int maxTempFiles) {
+            onDiskMap = new CoordinateSortedPairInfoMap<>(maxTempFiles, new Codec());
+        }
 
         @Override
         public void put(int mateReferenceIndex, String key, PairEndInfo value) {
@@ -25,6 +25,7 @@ package htsjdk.samtools.filter;
 
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.ImmutableIntervalIndex;
 import htsjdk.samtools.util.Interval;
 import htsjdk.samtools.util.IntervalUtil;
 
@@ -33,7 +34,8 @@ import java.util.List;
 
 /**
  * Filter SAMRecords so that only those that overlap the given list of intervals.
- * It is required that the SAMRecords are passed in coordinate order, and have non-null SAMFileHeaders.
+ * It is required that the SAMRecords are passed in coordinate order, and have non-null SAMFileHeaders,
+ * unless the intervals are given as an {@link ImmutableIntervalIndex}.
  *
  * $Id$
  *
@@ -47,6 +49,10 @@ public class IntervalFilter implements SamRecordFilter {
     private final SAMFileHeader samHeader;
     private Interval currentInterval;
     private int currentSequenceIndex;
+    /**
+     * Non-null only if the records may be in any order
+     */
+    private final ImmutableIntervalIndex<?> intervalIndex;
 
     /**
      * Prepare to filter out SAMRecords that do not overlap the given list of intervals
@@ -56,9 +62,24 @@ public class IntervalFilter implements SamRecordFilter {
         this.samHeader = samHeader;
         IntervalUtil.assertOrderedNonOverlapping(intervals.iterator(), samHeader.getSequenceDictionary());
         this.intervals = intervals.iterator();
+        this.intervalIndex = null;
         advanceInterval();
     }
 
+    /**
+     * Prepare to filter out SAMRecords that do not overlap any interval of the index.  The SAMRecords may be passed
+     * in any order.
+     * @param intervalIndex -- the intervals, which may be in any order and may overlap
+     */
+    public IntervalFilter(final ImmutableIntervalIndex<?> intervalIndex) {
+        if (intervalIndex == null) {
+            throw new IllegalArgumentException("null intervalIndex");
+        }
+        this.samHeader = null;
+        this.intervals = null;
+        this.intervalIndex = intervalIndex;
+    }
+
     /**
      * Determines whether a SAMRecord matches this filter
      *
@@ -67,6 +88,9 @@ public class IntervalFilter implements SamRecordFilter {
      */
     @Override
     public boolean filterOut(final SAMRecord record) {
+        if (intervalIndex != null) {
+            return !intervalIndex.overlapsAny(record.getContig(), record.getAlignmentStart(), record.getAlignmentEnd());
+        }
         while (currentInterval != null &&
                 (currentSequenceIndex < record.getReferenceIndex() ||
                  (currentSequenceIndex == record.getReferenceIndex() && currentInterval.getEnd() < record.getAlignmentStart()))) {
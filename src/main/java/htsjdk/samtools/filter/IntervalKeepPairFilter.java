@@ -25,10 +25,9 @@ package htsjdk.samtools.filter;
 
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMUtils;
+import htsjdk.samtools.util.ImmutableIntervalIndex;
 import htsjdk.samtools.util.Interval;
-import htsjdk.samtools.util.OverlapDetector;
 
-import java.util.Collection;
 import java.util.List;
 
 /**
@@ -40,7 +39,7 @@ import java.util.List;
  * @author kbergin@broadinstitute.org
  */
 public class IntervalKeepPairFilter implements SamRecordFilter {
-    private final OverlapDetector<Interval> intervalOverlapDetector;
+    private final ImmutableIntervalIndex<Interval> intervalIndex;
 
     /**
      * Prepare to filter out SAMRecords that do not overlap the given list of
@@ -48,14 +47,13 @@ public class IntervalKeepPairFilter implements SamRecordFilter {
      * @param intervals
      */
     public IntervalKeepPairFilter(final List<Interval> intervals) {
-        this.intervalOverlapDetector = new OverlapDetector<>(0, 0);
-        this.intervalOverlapDetector.addAll(intervals, intervals);
+        this.intervalIndex = ImmutableIntervalIndex.create(intervals);
     }
 
     /**
      * Determines whether a SAMRecord matches this filter. Takes record, finds
      * the location of its mate using the MC tag. Checks if either record
-     * overlaps the current interval using overlap detector. If yes, return
+     * overlaps the current interval using the interval index. If yes, return
      * false -> don't filter it out.
      *
      * If a read is secondary or supplementary, filter read out. Use
@@ -89,10 +87,7 @@ public class IntervalKeepPairFilter implements SamRecordFilter {
      * @return true if SAMRecord overlaps any intervals in list
      */
     private boolean hasOverlaps(final String refSequence, final int start, final int end) {
-        final Interval readInterval = new Interval(refSequence, start, end);
-        final Collection<Interval> overlapsRead = intervalOverlapDetector.getOverlaps(readInterval);
-
-        return !overlapsRead.isEmpty();
+        return intervalIndex.overlapsAny(refSequence, start, end);
     }
 
     /**
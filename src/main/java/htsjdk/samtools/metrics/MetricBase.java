@@ -24,11 +24,6 @@
 
 package htsjdk.samtools.metrics;
 
-import htsjdk.samtools.SAMException;
-import htsjdk.samtools.util.FormatUtil;
-
-import java.lang.reflect.Field;
-
 /**
  * A base class from which all Metric classes should inherit.
  *
@@ -46,40 +41,8 @@ public class MetricBase {
     public boolean equals(final Object o) {
         if (o == null) return false;
         if (o.getClass() != getClass()) return false;
-        
-        final FormatUtil formatter = new FormatUtil();
-        // Loop through all the fields and check that they are either
-        // null in both objects or equal in both objects
-        for (final Field f : getClass().getFields()) {
-            try {
-                final Object lhs = f.get(this);
-                final Object rhs = f.get(o);
-
-                if (lhs == null) {
-                    if (rhs == null) {
-                        // keep going
-                    }
-                    else {
-                        return false;
-                    }
-                }
-                else {
-                    if (formatter.format(lhs).equals(formatter.format(rhs))) //compare based on the serialized representation
-                    {
-                        // keep going
-                    }
-                    else {
-                        return false;
-                    }
-                }
-            }
-            catch (IllegalAccessException iae) {
-                throw new SAMException("Could not read field " + f.getName() + " from a " + getClass().getSimpleName());
-            }
-        }
 
-        // If we got this far all the fields are equal
-        return true;
+        return serializer().valuesEqual(this, (MetricBase) o);
     }
 
     /**
@@ -87,39 +50,16 @@ public class MetricBase {
      * and summing the hashcodes of all the fields.
      */
     public int hashCode() {
-        int result = 0;
-        FormatUtil formatter = new FormatUtil();
-        for (final Field f : getClass().getFields()) {
-            try {
-                Object value = f.get(this);
-                value = formatter.format(value); //format the value the way it will be written to disk
-                final int fieldHash = value != null ? value.hashCode() : 0;
-                result = 31 * result + fieldHash;
-            } catch (IllegalAccessException e) {
-                throw new SAMException("Could not read field " + f.getName() + " from a " + getClass().getSimpleName());
-            }
-        }
-        return result;
+        return serializer().valuesHashCode(this);
     }
 
     /** Converts the metric class to a human readable string. */
     public String toString() {
-        final StringBuilder buffer = new StringBuilder();
-        final FormatUtil formatter = new FormatUtil();
-
-        for (final Field f : getClass().getFields()) {
-            try {
-                buffer.append(f.getName());
-                buffer.append('\t');
-                buffer.append(formatter.format(f.get(this)));
-                buffer.append('\n');
-            }
-            catch (IllegalAccessException iae) {
-                throw new SAMException("Could not read field " + f.getName() + " from a " + getClass().getSimpleName());
-            }
-        }
-
-        return buffer.toString();
+        return serializer().toString(this);
     }
 
+    @SuppressWarnings("unchecked")
+    private MetricSerializer<MetricBase> serializer() {
+        return (MetricSerializer<MetricBase>) MetricSerializer.of(getClass());
+    }
 }
@@ -0,0 +1,388 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.metrics;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.util.FormatUtil;
+import htsjdk.samtools.util.StringUtil;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formats and parses the public fields of a {@link MetricBase} class as the columns of a metrics file.  The fields are
+ * looked up once per class and accessed through cached {@link MethodHandle}s, primitive fields without boxing, so
+ * writing and reading rows involves no reflection.  Values are formatted exactly as {@link FormatUtil} formats them.
+ *
+ * Serializers are obtained with {@link #of(Class)} and are thread-safe.
+ *
+ * @param <BEAN> the metric class
+ */
+public final class MetricSerializer<BEAN extends MetricBase> {
+    private static final ClassValue<MetricSerializer<?>> SERIALIZERS = new ClassValue<MetricSerializer<?>>() {
+        @Override
+        protected MetricSerializer<?> computeValue(final Class<?> type) {
+            return new MetricSerializer<>(type.asSubclass(MetricBase.class));
+        }
+    };
+
+    /** FormatUtil objects are not thread-safe and are expensive to create, so each thread keeps one. */
+    private static final ThreadLocal<FormatUtil> FORMATTERS = ThreadLocal.withInitial(FormatUtil::new);
+
+    /** True if FormatUtil formats integers as Long.toString does, as it does in all but a few locales. */
+    private static final boolean PLAIN_INTEGERS = new FormatUtil().format(-1234567890123L).equals("-1234567890123");
+
+    private final Class<BEAN> type;
+    private final MethodHandle constructor;
+    private final Column[] columns;
+    private final Map<String, Column> columnsByName = new HashMap<>();
+    private final List<String> columnNames;
+
+    /**
+     * @return the serializer of the given metric class, created on first use
+     */
+    @SuppressWarnings("unchecked")
+    public static <B extends MetricBase> MetricSerializer<B> of(final Class<B> type) {
+        return (MetricSerializer<B>) SERIALIZERS.get(type);
+    }
+
+    private MetricSerializer(final Class<BEAN> type) {
+        this.type = type;
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle constructor = null;
+        try {
+            constructor = lookup.unreflectConstructor(accessible(type.getDeclaredConstructor()))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (final NoSuchMethodException | IllegalAccessException e) {
+            // not instantiable; only formatting is possible
+        }
+        this.constructor = constructor;
+
+        final Field[] fields = type.getFields();
+        this.columns = new Column[fields.length];
+        final List<String> names = new ArrayList<>(fields.length);
+        for (int i = 0; i < fields.length; i++) {
+            try {
+                columns[i] = new Column(fields[i], lookup);
+            } catch (final IllegalAccessException e) {
+                throw new SAMException("Could not access field " + fields[i].getName() + " of class " + type.getName(), e);
+            }
+            columnsByName.put(fields[i].getName(), columns[i]);
+            names.add(fields[i].getName());
+        }
+        this.columnNames = Collections.unmodifiableList(names);
+    }
+
+    private static <T extends java.lang.reflect.AccessibleObject> T accessible(final T member) {
+        try {
+            member.setAccessible(true);
+        } catch (final SecurityException e) {
+            // fall back to normal access checks
+        }
+        return member;
+    }
+
+    /** @return the metric class */
+    public Class<BEAN> getType() {
+        return type;
+    }
+
+    /** @return the names of the columns, i.e. the public fields of the metric class, in the order they are written */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /** @return a new instance of the metric class, created with its no-argument constructor */
+    @SuppressWarnings("unchecked")
+    public BEAN newInstance() {
+        if (constructor == null) {
+            throw new SAMException("Error instantiating a " + type.getName() + ": no accessible no-argument constructor");
+        }
+        try {
+            return (BEAN) (Object) constructor.invokeExact();
+        } catch (final Throwable t) {
+            throw new SAMException("Error instantiating a " + type.getName(), t);
+        }
+    }
+
+    /** Appends the tab-separated column headers, without a line separator. */
+    public void appendHeader(final StringBuilder out) {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) out.append(MetricsFile.SEPARATOR);
+            out.append(columns[i].name);
+        }
+    }
+
+    /**
+     * Appends the tab-separated values of the bean, without a line separator.
+     *
+     * @throws IllegalArgumentException if a value contains a tab or newline
+     */
+    public void appendRow(final BEAN bean, final StringBuilder out) {
+        final FormatUtil formatter = FORMATTERS.get();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) out.append(MetricsFile.SEPARATOR);
+            columns[i].append(bean, out, formatter);
+        }
+    }
+
+    /**
+     * @param fileColumnNames the column headers of a metrics file, which may be in any order and may omit fields
+     * @return a parser for rows with those columns
+     * @throws SAMException if a column does not match a field of the metric class
+     */
+    public RowParser<BEAN> newRowParser(final String[] fileColumnNames) {
+        final Column[] fileColumns = new Column[fileColumnNames.length];
+        for (int i = 0; i < fileColumnNames.length; i++) {
+            fileColumns[i] = columnsByName.get(fileColumnNames[i]);
+            if (fileColumns[i] == null) {
+                throw new SAMException("Could not get field with name " + fileColumnNames[i] + " from class " + type.getName());
+            }
+        }
+        return new RowParser<>(this, fileColumns);
+    }
+
+    /** Parses rows of a metrics file into beans. */
+    public static final class RowParser<BEAN extends MetricBase> {
+        private final MetricSerializer<BEAN> serializer;
+        private final Column[] columns;
+
+        private RowParser(final MetricSerializer<BEAN> serializer, final Column[] columns) {
+            this.serializer = serializer;
+            this.columns = columns;
+        }
+
+        /** @return a new bean holding the tab-separated values of the line; empty values leave fields null */
+        public BEAN parse(final String line) {
+            final String[] values = line.split(MetricsFile.SEPARATOR, -1);
+            final BEAN bean = serializer.newInstance();
+            final FormatUtil formatter = FORMATTERS.get();
+            for (int i = 0; i < columns.length; i++) {
+                final String value = i < values.length ? values[i] : null;
+                columns[i].set(bean, value == null || value.isEmpty() ? null : value, formatter, serializer.type);
+            }
+            return bean;
+        }
+    }
+
+    /** Implements {@link MetricBase#equals(Object)}: all fields are null in both or format the same. */
+    boolean valuesEqual(final BEAN lhs, final BEAN rhs) {
+        final FormatUtil formatter = FORMATTERS.get();
+        for (final Column column : columns) {
+            if (!column.valuesEqual(lhs, rhs, formatter)) return false;
+        }
+        return true;
+    }
+
+    /** Implements {@link MetricBase#hashCode()} from the formatted values of the fields. */
+    int valuesHashCode(final BEAN bean) {
+        final FormatUtil formatter = FORMATTERS.get();
+        int result = 0;
+        for (final Column column : columns) {
+            result = 31 * result + column.format(bean, formatter).hashCode();
+        }
+        return result;
+    }
+
+    /** Implements {@link MetricBase#toString()}. */
+    String toString(final BEAN bean) {
+        final FormatUtil formatter = FORMATTERS.get();
+        final StringBuilder buffer = new StringBuilder();
+        for (final Column column : columns) {
+            buffer.append(column.name).append('\t').append(column.format(bean, formatter)).append('\n');
+        }
+        return buffer.toString();
+    }
+
+    /** How a column is accessed: primitives are read and written without boxing. */
+    private enum Kind { INTEGRAL, FLOATING, BOOLEAN, OBJECT }
+
+    private static final class Column {
+        final String name;
+        final Class<?> fieldType;
+        final Kind kind;
+        final MethodHandle getter;
+        final MethodHandle setter;
+
+        Column(final Field field, final MethodHandles.Lookup lookup) throws IllegalAccessException {
+            this.name = field.getName();
+            this.fieldType = field.getType();
+            if (fieldType == long.class || fieldType == int.class || fieldType == short.class || fieldType == byte.class) {
+                kind = Kind.INTEGRAL;
+            } else if (fieldType == double.class || fieldType == float.class) {
+                kind = Kind.FLOATING;
+            } else if (fieldType == boolean.class) {
+                kind = Kind.BOOLEAN;
+            } else {
+                kind = Kind.OBJECT;
+            }
+            final Class<?> accessType = kind == Kind.INTEGRAL ? long.class : kind == Kind.FLOATING ? double.class :
+                    kind == Kind.BOOLEAN ? boolean.class : Object.class;
+
+            accessible(field);
+            this.getter = MethodHandles.explicitCastArguments(lookup.unreflectGetter(field),
+                    MethodType.methodType(accessType, Object.class));
+            this.setter = java.lang.reflect.Modifier.isFinal(field.getModifiers()) ? null :
+                    MethodHandles.explicitCastArguments(lookup.unreflectSetter(field),
+                            MethodType.methodType(void.class, Object.class, accessType));
+        }
+
+        void append(final Object bean, final StringBuilder out, final FormatUtil formatter) {
+            try {
+                switch (kind) {
+                    case INTEGRAL: {
+                        final long value = (long) getter.invokeExact(bean);
+                        if (PLAIN_INTEGERS) out.append(value);
+                        else out.append(formatter.format(value));
+                        return;
+                    }
+                    case FLOATING:
+                        out.append(formatter.format((double) getter.invokeExact(bean)));
+                        return;
+                    case BOOLEAN:
+                        out.append(formatter.format((boolean) getter.invokeExact(bean)));
+                        return;
+                    default: {
+                        final Object value = (Object) getter.invokeExact(bean);
+                        out.append(StringUtil.assertCharactersNotInString(formatObject(value, formatter), '\t', '\n'));
+                    }
+                }
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Throwable t) {
+                throw new SAMException("Could not read property " + name + " from class of type " + bean.getClass(), t);
+            }
+        }
+
+        String format(final Object bean, final FormatUtil formatter) {
+            final StringBuilder out = new StringBuilder();
+            try {
+                switch (kind) {
+                    case OBJECT:
+                        return formatObject((Object) getter.invokeExact(bean), formatter);
+                    default:
+                        append(bean, out, formatter);
+                        return out.toString();
+                }
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Throwable t) {
+                throw new SAMException("Could not read field " + name + " from a " + bean.getClass().getSimpleName(), t);
+            }
+        }
+
+        boolean valuesEqual(final Object lhs, final Object rhs, final FormatUtil formatter) {
+            try {
+                switch (kind) {
+                    case INTEGRAL:
+                        // integer formatting is one-to-one, so values format the same exactly when they are equal
+                        return (long) getter.invokeExact(lhs) == (long) getter.invokeExact(rhs);
+                    case BOOLEAN:
+                        return (boolean) getter.invokeExact(lhs) == (boolean) getter.invokeExact(rhs);
+                    case FLOATING:
+                        return format(lhs, formatter).equals(format(rhs, formatter));
+                    default: {
+                        final Object lhsValue = (Object) getter.invokeExact(lhs);
+                        final Object rhsValue = (Object) getter.invokeExact(rhs);
+                        if (lhsValue == null) return rhsValue == null;
+                        return formatObject(lhsValue, formatter).equals(formatObject(rhsValue, formatter));
+                    }
+                }
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Throwable t) {
+                throw new SAMException("Could not read field " + name + " from a " + lhs.getClass().getSimpleName(), t);
+            }
+        }
+
+        void set(final Object bean, final String value, final FormatUtil formatter, final Class<?> beanType) {
+            if (setter == null) {
+                throw new SAMException("Error setting field " + name + " on class of type " + beanType.getName() + ": field is final");
+            }
+            // parse errors propagate as they are, as they did when metrics files were read through reflection
+            try {
+                switch (kind) {
+                    case INTEGRAL: {
+                        final long parsed = parseIntegral(nonNull(value, beanType));
+                        setter.invokeExact(bean, parsed);
+                        return;
+                    }
+                    case FLOATING: {
+                        final double parsed = fieldType == float.class ? formatter.parseFloat(nonNull(value, beanType)) :
+                                formatter.parseDouble(nonNull(value, beanType));
+                        setter.invokeExact(bean, parsed);
+                        return;
+                    }
+                    case BOOLEAN: {
+                        final boolean parsed = formatter.parseBoolean(nonNull(value, beanType));
+                        setter.invokeExact(bean, parsed);
+                        return;
+                    }
+                    default: {
+                        final Object parsed = value == null ? null : parseObject(value, formatter);
+                        setter.invokeExact(bean, parsed);
+                    }
+                }
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Throwable t) {
+                throw new SAMException("Error setting field " + name + " on class of type " + beanType.getName(), t);
+            }
+        }
+
+        private String nonNull(final String value, final Class<?> beanType) {
+            if (value == null) {
+                throw new SAMException("Error setting field " + name + " on class of type " + beanType.getName() +
+                        ": no value for a primitive field");
+            }
+            return value;
+        }
+
+        private long parseIntegral(final String value) {
+            if (fieldType == long.class) return Long.parseLong(value);
+            if (fieldType == int.class) return Integer.parseInt(value);
+            if (fieldType == short.class) return Short.parseShort(value);
+            return Byte.parseByte(value);
+        }
+
+        private Object parseObject(final String value, final FormatUtil formatter) {
+            if (fieldType == Byte.class) return Byte.parseByte(value);
+            if (fieldType == String.class) return value;
+            return formatter.parseObject(value, fieldType);
+        }
+
+        private static String formatObject(final Object value, final FormatUtil formatter) {
+            if (value instanceof String) return (String) value;
+            if (PLAIN_INTEGERS && (value instanceof Long || value instanceof Integer)) return value.toString();
+            return formatter.format(value);
+        }
+    }
+}
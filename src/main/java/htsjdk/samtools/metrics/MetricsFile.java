@@ -32,7 +32,6 @@ import htsjdk.samtools.util.IOUtil;
 import htsjdk.samtools.util.StringUtil;
 
 import java.io.*;
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -177,7 +176,12 @@ public class MetricsFile<BEAN extends MetricBase, HKEY extends Comparable> imple
 
     /** Prints the headers into the provided PrintWriter. */
     private void printHeaders(final BufferedWriter out) throws IOException {
-        for (final Header h : this.headers) {
+        printHeaders(out, this.headers);
+    }
+
+    /** Prints the headers into the provided writer. */
+    static void printHeaders(final BufferedWriter out, final List<Header> headers) throws IOException {
+        for (final Header h : headers) {
             out.append(MAJOR_HEADER_PREFIX);
             out.append(h.getClass().getName());
             out.newLine();
@@ -193,53 +197,45 @@ public class MetricsFile<BEAN extends MetricBase, HKEY extends Comparable> imple
             return;
         }
 
-        // Write out a header row with the type of the metric class
-        out.append(METRIC_HEADER + getBeanType().getName());
-        out.newLine();
-
-        // Write out the column headers
-        final Field[] fields = getBeanType().getFields();
-        final int fieldCount = fields.length;
-
-        // Write out the column headers
-        for (int i=0; i<fieldCount; ++i) {
-            out.append(fields[i].getName());
-            if (i < fieldCount - 1) {
-                out.append(MetricsFile.SEPARATOR);
-            }
-            else {
-                out.newLine();
-            }
-        }
+        @SuppressWarnings("unchecked")
+        final MetricSerializer<BEAN> serializer = MetricSerializer.of((Class<BEAN>) getBeanType());
+        printMetricsHeader(out, serializer);
 
         // Write out each of the data rows
+        final StringBuilder row = new StringBuilder();
         for (final BEAN bean : this.metrics) {
-            for (int i=0; i<fieldCount; ++i) {
-                try {
-                    final Object value = fields[i].get(bean);
-                    out.append(StringUtil.assertCharactersNotInString(formatter.format(value), '\t', '\n'));
-
-                    if (i < fieldCount - 1) {
-                        out.append(MetricsFile.SEPARATOR);
-                    }
-                    else {
-                        out.newLine();
-                    }
-                }
-                catch (IllegalAccessException iae) {
-                    throw new SAMException("Could not read property " + fields[i].getName()
-                            + " from class of type " + bean.getClass());
-                }
-            }
+            row.setLength(0);
+            serializer.appendRow(bean, row);
+            out.append(row);
+            out.newLine();
         }
 
         out.flush();
     }
 
+    /** Prints the line giving the type of the metric class, followed by the column headers. */
+    static void printMetricsHeader(final BufferedWriter out, final MetricSerializer<?> serializer) throws IOException {
+        // Write out a header row with the type of the metric class
+        out.append(METRIC_HEADER + serializer.getType().getName());
+        out.newLine();
+
+        // Write out the column headers
+        final StringBuilder columnHeaders = new StringBuilder();
+        serializer.appendHeader(columnHeaders);
+        out.append(columnHeaders);
+        out.newLine();
+    }
+
     /** Prints the histogram if one is present. */
     private void printHistogram(final BufferedWriter out, final FormatUtil formatter) throws IOException {
+        printHistograms(out, this.histograms, formatter);
+    }
+
+    /** Prints the non-empty histograms, if any, as one table with a column per histogram. */
+    static <HKEY extends Comparable> void printHistograms(final BufferedWriter out, final List<Histogram<HKEY>> histograms,
+                                                          final FormatUtil formatter) throws IOException {
         final List<Histogram<HKEY>> nonEmptyHistograms = new ArrayList<Histogram<HKEY>>();
-        for (final Histogram<HKEY> histo : this.histograms) {
+        for (final Histogram<HKEY> histo : histograms) {
             if (!histo.isEmpty()) nonEmptyHistograms.add(histo);
         }
 
@@ -291,162 +287,18 @@ public class MetricsFile<BEAN extends MetricBase, HKEY extends Comparable> imple
 
     /** Reads the Metrics in from the given reader. */
     public void read(final Reader r) {
-        final BufferedReader in = new BufferedReader(r);
-        final FormatUtil formatter = new FormatUtil();
-        String line = null;
-
-        try {
-            // First read the headers
-            Header header = null;
-            while ((line = in.readLine()) != null) {
-                line = line.trim();
-                if ("".equals(line)) {
-                    // Do nothing! Nothing to be done!
-                }
-                else if (line.startsWith(METRIC_HEADER) || line.startsWith(HISTO_HEADER)) {
-                    // A line that starts with "## METRICS CLASS" heralds the start of the actual
-                    // data. Bounce our butts out of header parsing without reading the next line.
-                    // This isn't in the while loop's conditional because we want to trim() first.
-                    break;
-                }
-                else if (line.startsWith(MAJOR_HEADER_PREFIX)) {
-                    if (header != null) {
-                        throw new IllegalStateException("Consecutive header class lines encountered.");
-                    }
-                    
-                    final String className = line.substring(MAJOR_HEADER_PREFIX.length()).trim();
-                    try {
-                        header = (Header) loadClass(className, true).newInstance();
-                    }
-                    catch (final Exception e) {
-                        throw new SAMException("Error load and/or instantiating an instance of " + className, e);
-                    }
-                }
-                else if (line.startsWith(MINOR_HEADER_PREFIX)) {
-                    if (header == null) {
-                        throw new IllegalStateException("Header class must precede header value:" + line);
-                    }
-                    header.parse(line.substring(MINOR_HEADER_PREFIX.length()));
-                    this.headers.add(header);
-                    header = null;
-                }
-                else {
-                    throw new SAMException("Illegal state. Found following string in metrics file header: " + line);
-                }
-            }
-
-            // Read space between headers and metrics, if any
-            while (line != null && ! line.trim().startsWith(MAJOR_HEADER_PREFIX)) {
-                line = in.readLine();
+        try (final MetricsFileReader<BEAN, HKEY> reader = new MetricsFileReader<>(r)) {
+            this.headers.addAll(reader.getHeaders());
+            this.columnLabels.addAll(reader.getColumnLabels());
+            while (reader.hasNext()) {
+                this.metrics.add(reader.next());
             }
-
-
-            if (line != null) {
-                line = line.trim();
-            
-                // Then read the metrics if there are any
-                if (line.startsWith(METRIC_HEADER)) {
-                    // Get the metric class from the header
-                    final String className = line.split(SEPARATOR)[1];
-                    Class<?> type = null;
-                    try {
-                        type = loadClass(className, true);
-                    }
-                    catch (final ClassNotFoundException cnfe) {
-                        throw new SAMException("Could not locate class with name " + className, cnfe);
-                    }
-
-                    // Read the next line with the column headers
-                    final String[] fieldNames = in.readLine().split(SEPARATOR);
-                    Collections.addAll(columnLabels, fieldNames);
-                    final Field[] fields = new Field[fieldNames.length];
-                    for (int i=0; i<fieldNames.length; ++i) {
-                        try {
-                            fields[i] = type.getField(fieldNames[i]);
-                        }
-                        catch (final Exception e) {
-                            throw new SAMException("Could not get field with name " + fieldNames[i] +
-                                " from class " + type.getName());
-                        }
-                    }
-
-                    // Now read the values
-                    while ((line = in.readLine()) != null) {
-                        if ("".equals(line.trim())) {
-                            break;
-                        }
-                        else {
-                            final String[] values = line.split(SEPARATOR, -1);
-                            BEAN bean = null;
-
-                            try { bean = (BEAN) type.newInstance(); }
-                            catch (final Exception e) { throw new SAMException("Error instantiating a " + type.getName(), e); }
-
-                            for (int i=0; i<fields.length; ++i) {
-                                Object value = null;
-                                if (values[i] != null && !values[i].isEmpty()) {
-                                    value = formatter.parseObject(values[i], fields[i].getType());
-                                }
-
-                                try { fields[i].set(bean, value); }
-                                catch (final Exception e) {
-                                    throw new SAMException("Error setting field " + fields[i].getName() +
-                                            " on class of type " + type.getName(), e);
-                                }
-                            }
-
-                            this.metrics.add(bean);
-                        }
-                    }
-                }
-            }
-
-            // Read away any blank lines between metrics and histograms
-            while (line != null && ! line.trim().startsWith(MAJOR_HEADER_PREFIX)) {
-                line = in.readLine();
-            }
-
-            // Then read the histograms if any are present
-            if (line != null) {
-                line = line.trim();
-
-                if (line.startsWith(HISTO_HEADER)) {
-                    // Get the key type of the histogram
-                    final String keyClassName = line.split(SEPARATOR)[1].trim();
-                    Class<?> keyClass = null;
-
-                    try { keyClass = loadClass(keyClassName, true); }
-                    catch (final ClassNotFoundException cnfe) { throw new SAMException("Could not load class with name " + keyClassName); }
-
-                    // Read the next line with the bin and value labels
-                    final String[] labels = in.readLine().split(SEPARATOR);
-                    for (int i=1; i<labels.length; ++i) {
-                        this.histograms.add(new Histogram<HKEY>(labels[0], labels[i]));
-                    }
-
-                    // Read the entries in the histograms
-                    while ((line = in.readLine()) != null && !"".equals(line)) {
-                        final String[] fields = line.trim().split(SEPARATOR);
-                        final HKEY key = (HKEY) formatter.parseObject(fields[0], keyClass);
-
-                        for (int i=1; i<fields.length; ++i) {
-                            final double value = formatter.parseDouble(fields[i]);
-                            this.histograms.get(i-1).increment(key, value);
-                        }
-                    }
-                }
-            }
-        }
-        catch (final IOException ioe) {
-            throw new SAMException("Could not read metrics from reader.", ioe);
-        }
-        finally{
-            CloserUtil.close(in);
+            this.histograms.addAll(reader.getHistograms());
         }
     }
 
     /** Attempts to load a class, taking into account that some classes have "migrated" from the broad to sf. */
-    private Class<?> loadClass(final String className, final boolean tryOtherPackages) throws ClassNotFoundException {
+    static Class<?> loadClass(final String className, final boolean tryOtherPackages) throws ClassNotFoundException {
         // List of alternative packages to check in case classes moved around
         final String[] packages = new String[] {
                 "edu.mit.broad.picard.genotype.concordance",
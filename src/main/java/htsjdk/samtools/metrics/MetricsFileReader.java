@@ -0,0 +1,278 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.metrics;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.CloserUtil;
+import htsjdk.samtools.util.FormatUtil;
+import htsjdk.samtools.util.Histogram;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads a metrics file written by {@link MetricsFile} or {@link MetricsFileWriter} one metric at a time, so that
+ * files with millions of rows can be processed without holding them all in memory.  The headers are read when the
+ * reader is created, metrics are returned by iteration, and the histograms are read by {@link #getHistograms()}.
+ *
+ * @param <BEAN> the metric class
+ * @param <HKEY> the histogram key type
+ */
+public class MetricsFileReader<BEAN extends MetricBase, HKEY extends Comparable> implements CloseableIterator<BEAN> {
+    private final BufferedReader in;
+    private final FormatUtil formatter = new FormatUtil();
+    private final List<Header> headers = new ArrayList<>();
+    private final Set<String> columnLabels = new LinkedHashSet<>();
+    private MetricSerializer.RowParser<BEAN> parser = null;
+    private boolean inMetrics = false;
+    private BEAN nextBean = null;
+    private List<Histogram<HKEY>> histograms = null;
+    /** The last line read, which the next stage of parsing starts from. */
+    private String line = null;
+
+    /**
+     * Reads a metrics file, which may be gzip or BGZF compressed.
+     */
+    public MetricsFileReader(final File file) {
+        this(openForReading(file));
+    }
+
+    public MetricsFileReader(final Reader reader) {
+        this.in = new BufferedReader(reader);
+        try {
+            readHeaders();
+        } catch (final IOException ioe) {
+            CloserUtil.close(in);
+            throw new SAMException("Could not read metrics from reader.", ioe);
+        } catch (final RuntimeException e) {
+            CloserUtil.close(in);
+            throw e;
+        }
+    }
+
+    private static Reader openForReading(final File file) {
+        try {
+            final InputStream stream = new BufferedInputStream(new FileInputStream(file));
+            stream.mark(2);
+            final boolean gzipped = stream.read() == 0x1f && stream.read() == 0x8b;
+            stream.reset();
+            return new InputStreamReader(gzipped ? new GZIPInputStream(stream) : stream);
+        } catch (final IOException ioe) {
+            throw new SAMException("Could not read metrics from file: " + file.getAbsolutePath(), ioe);
+        }
+    }
+
+    /** Reads the headers and, if there are metrics, the metric class and column headers. */
+    private void readHeaders() throws IOException {
+        Header header = null;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if ("".equals(line)) {
+                // Do nothing! Nothing to be done!
+            }
+            else if (line.startsWith(MetricsFile.METRIC_HEADER) || line.startsWith(MetricsFile.HISTO_HEADER)) {
+                // A line that starts with "## METRICS CLASS" heralds the start of the actual
+                // data. Bounce our butts out of header parsing without reading the next line.
+                // This isn't in the while loop's conditional because we want to trim() first.
+                break;
+            }
+            else if (line.startsWith(MetricsFile.MAJOR_HEADER_PREFIX)) {
+                if (header != null) {
+                    throw new IllegalStateException("Consecutive header class lines encountered.");
+                }
+
+                final String className = line.substring(MetricsFile.MAJOR_HEADER_PREFIX.length()).trim();
+                try {
+                    header = (Header) MetricsFile.loadClass(className, true).newInstance();
+                }
+                catch (final Exception e) {
+                    throw new SAMException("Error load and/or instantiating an instance of " + className, e);
+                }
+            }
+            else if (line.startsWith(MetricsFile.MINOR_HEADER_PREFIX)) {
+                if (header == null) {
+                    throw new IllegalStateException("Header class must precede header value:" + line);
+                }
+                header.parse(line.substring(MetricsFile.MINOR_HEADER_PREFIX.length()));
+                this.headers.add(header);
+                header = null;
+            }
+            else {
+                throw new SAMException("Illegal state. Found following string in metrics file header: " + line);
+            }
+        }
+
+        // Read space between headers and metrics, if any
+        skipToMajorHeader();
+
+        if (line != null) {
+            line = line.trim();
+
+            if (line.startsWith(MetricsFile.METRIC_HEADER)) {
+                // Get the metric class from the header
+                final String className = line.split(MetricsFile.SEPARATOR)[1];
+                final Class<?> type;
+                try {
+                    type = MetricsFile.loadClass(className, true);
+                }
+                catch (final ClassNotFoundException cnfe) {
+                    throw new SAMException("Could not locate class with name " + className, cnfe);
+                }
+                if (!MetricBase.class.isAssignableFrom(type)) {
+                    throw new SAMException("Metrics class " + className + " does not extend " + MetricBase.class.getName());
+                }
+
+                // Read the next line with the column headers
+                final String[] fieldNames = in.readLine().split(MetricsFile.SEPARATOR);
+                Collections.addAll(columnLabels, fieldNames);
+                @SuppressWarnings("unchecked")
+                final MetricSerializer<BEAN> serializer = MetricSerializer.of((Class<BEAN>) type.asSubclass(MetricBase.class));
+                this.parser = serializer.newRowParser(fieldNames);
+                this.inMetrics = true;
+            }
+        }
+    }
+
+    private void skipToMajorHeader() throws IOException {
+        while (line != null && !line.trim().startsWith(MetricsFile.MAJOR_HEADER_PREFIX)) {
+            line = in.readLine();
+        }
+    }
+
+    /** @return the headers of the file */
+    public List<Header> getHeaders() {
+        return Collections.unmodifiableList(headers);
+    }
+
+    /** @return the column headers of the metrics, in file order, or an empty set if the file has no metrics */
+    public Set<String> getColumnLabels() {
+        return Collections.unmodifiableSet(columnLabels);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextBean != null) {
+            return true;
+        }
+        if (!inMetrics) {
+            return false;
+        }
+        try {
+            line = in.readLine();
+        } catch (final IOException ioe) {
+            throw new SAMException("Could not read metrics from reader.", ioe);
+        }
+        if (line == null || "".equals(line.trim())) {
+            inMetrics = false;
+            return false;
+        }
+        nextBean = parser.parse(line);
+        return true;
+    }
+
+    @Override
+    public BEAN next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final BEAN bean = nextBean;
+        nextBean = null;
+        return bean;
+    }
+
+    /**
+     * Reads the histograms that follow the metrics, skipping any metrics that have not been read yet.
+     *
+     * @return the histograms, which is empty if the file has none
+     */
+    @SuppressWarnings("unchecked")
+    public List<Histogram<HKEY>> getHistograms() {
+        if (histograms != null) {
+            return histograms;
+        }
+        while (hasNext()) {
+            next();
+        }
+        histograms = new ArrayList<>();
+        try {
+            // Read away any blank lines between metrics and histograms
+            skipToMajorHeader();
+
+            // Then read the histograms if any are present
+            if (line != null) {
+                line = line.trim();
+
+                if (line.startsWith(MetricsFile.HISTO_HEADER)) {
+                    // Get the key type of the histogram
+                    final String keyClassName = line.split(MetricsFile.SEPARATOR)[1].trim();
+                    Class<?> keyClass = null;
+
+                    try { keyClass = MetricsFile.loadClass(keyClassName, true); }
+                    catch (final ClassNotFoundException cnfe) { throw new SAMException("Could not load class with name " + keyClassName); }
+
+                    // Read the next line with the bin and value labels
+                    final String[] labels = in.readLine().split(MetricsFile.SEPARATOR);
+                    for (int i=1; i<labels.length; ++i) {
+                        histograms.add(new Histogram<HKEY>(labels[0], labels[i]));
+                    }
+
+                    // Read the entries in the histograms
+                    while ((line = in.readLine()) != null && !"".equals(line)) {
+                        final String[] fields = line.trim().split(MetricsFile.SEPARATOR);
+                        final HKEY key = (HKEY) formatter.parseObject(fields[0], keyClass);
+
+                        for (int i=1; i<fields.length; ++i) {
+                            final double value = formatter.parseDouble(fields[i]);
+                            histograms.get(i-1).increment(key, value);
+                        }
+                    }
+                }
+            }
+        }
+        catch (final IOException ioe) {
+            throw new SAMException("Could not read metrics from reader.", ioe);
+        }
+        histograms = Collections.unmodifiableList(histograms);
+        return histograms;
+    }
+
+    @Override
+    public void close() {
+        CloserUtil.close(in);
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.metrics;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.FormatUtil;
+import htsjdk.samtools.util.Histogram;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a metrics file one metric at a time, producing the same output as {@link MetricsFile#write(Writer)} without
+ * holding all the metrics in memory.  Headers must be added before the first metric; histograms may be added at any
+ * time and are written when the writer is closed.
+ *
+ * If an executor is given, metrics are formatted in batches on the executor while the caller adds more, and are
+ * written in the order they were added.  In that case metrics must not be modified after they are added.
+ *
+ * @param <BEAN> the metric class
+ * @param <HKEY> the histogram key type
+ */
+public class MetricsFileWriter<BEAN extends MetricBase, HKEY extends Comparable> implements Closeable {
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    /** Batches formatted or being formatted ahead of the writing thread. */
+    private static final int MAX_BATCHES_IN_FLIGHT = 4;
+
+    /** Compression of a metrics file. */
+    public enum Compression {
+        NONE,
+        GZIP,
+        /** Block compressed (BGZF), which can be read as gzip */
+        BGZF
+    }
+
+    private final BufferedWriter out;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final List<Header> headers = new ArrayList<>();
+    private final List<Histogram<HKEY>> histograms = new ArrayList<>();
+    private final ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+    private final StringBuilder row = new StringBuilder();
+    private MetricSerializer<BEAN> serializer = null;
+    private boolean headersWritten = false;
+    private List<BEAN> batch = null;
+    private boolean closed = false;
+
+    /** Writes metrics to the writer, formatting them on the calling thread. */
+    public MetricsFileWriter(final Writer writer) {
+        this(writer, null, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param writer    the writer to write to, which is closed when this is closed
+     * @param executor  the executor on which to format batches of metrics, or null to format them on the calling thread
+     * @param batchSize the number of metrics formatted per task when an executor is given
+     */
+    public MetricsFileWriter(final Writer writer, final ExecutorService executor, final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.out = writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer);
+        this.executor = executor;
+        this.batchSize = batchSize;
+    }
+
+    /** Writes metrics to the file with the given compression, formatting them on the calling thread. */
+    public MetricsFileWriter(final File file, final Compression compression) {
+        this(file, compression, null, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param file        the file to write
+     * @param compression the compression of the file
+     * @param executor    the executor on which to format batches of metrics, or null to format them on the calling thread
+     * @param batchSize   the number of metrics formatted per task when an executor is given
+     */
+    public MetricsFileWriter(final File file, final Compression compression, final ExecutorService executor, final int batchSize) {
+        this(new OutputStreamWriter(openForWriting(file, compression)), executor, batchSize);
+    }
+
+    private static OutputStream openForWriting(final File file, final Compression compression) {
+        try {
+            switch (compression) {
+                case GZIP:
+                    return new GZIPOutputStream(new FileOutputStream(file), 64 * 1024);
+                case BGZF:
+                    return new BlockCompressedOutputStream(file);
+                default:
+                    return new BufferedOutputStream(new FileOutputStream(file));
+            }
+        } catch (final IOException ioe) {
+            throw new SAMException("Could not write metrics to file: " + file.getAbsolutePath(), ioe);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if a metric has already been added
+     */
+    public void addHeader(final Header header) {
+        if (headersWritten) {
+            throw new IllegalStateException("Headers must be added before metrics");
+        }
+        headers.add(header);
+    }
+
+    /** Adds a histogram, which is written when the writer is closed. */
+    public void addHistogram(final Histogram<HKEY> histogram) {
+        histograms.add(histogram);
+    }
+
+    /**
+     * Adds a metric.  All metrics must be instances of the class of the first.
+     */
+    @SuppressWarnings("unchecked")
+    public void addMetric(final BEAN bean) {
+        try {
+            if (serializer == null) {
+                writeHeaders();
+                serializer = MetricSerializer.of((Class<BEAN>) bean.getClass());
+                MetricsFile.printMetricsHeader(out, serializer);
+            }
+            if (executor == null) {
+                row.setLength(0);
+                serializer.appendRow(bean, row);
+                out.append(row);
+                out.newLine();
+            } else {
+                if (batch == null) {
+                    batch = new ArrayList<>(batchSize);
+                }
+                batch.add(bean);
+                if (batch.size() == batchSize) {
+                    submitBatch();
+                }
+            }
+        } catch (final IOException ioe) {
+            throw new SAMException("Could not write metrics file.", ioe);
+        }
+    }
+
+    /** Adds several metrics. */
+    public void addAllMetrics(final Iterable<BEAN> beans) {
+        for (final BEAN bean : beans) {
+            addMetric(bean);
+        }
+    }
+
+    private void writeHeaders() throws IOException {
+        if (!headersWritten) {
+            headersWritten = true;
+            MetricsFile.printHeaders(out, headers);
+            out.newLine();
+        }
+    }
+
+    private void submitBatch() throws IOException {
+        final List<BEAN> toFormat = batch;
+        batch = null;
+        final MetricSerializer<BEAN> serializer = this.serializer;
+        final String lineSeparator = System.lineSeparator();
+        pending.add(executor.submit(() -> {
+            final StringBuilder text = new StringBuilder();
+            for (final BEAN bean : toFormat) {
+                serializer.appendRow(bean, text);
+                text.append(lineSeparator);
+            }
+            return text.toString();
+        }));
+        while (pending.size() > MAX_BATCHES_IN_FLIGHT) {
+            writeBatch(pending.poll());
+        }
+    }
+
+    private void writeBatch(final Future<String> future) throws IOException {
+        try {
+            out.write(future.get());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SAMException("Interrupted while formatting metrics", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SAMException("Failed to format metrics", e.getCause());
+        }
+    }
+
+    /**
+     * Writes any remaining metrics and the histograms, and closes the underlying writer.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            try {
+                writeHeaders();
+                if (batch != null) {
+                    submitBatch();
+                }
+                while (!pending.isEmpty()) {
+                    writeBatch(pending.poll());
+                }
+                out.newLine();
+
+                MetricsFile.printHistograms(out, histograms, new FormatUtil());
+                out.newLine();
+            } finally {
+                for (final Future<String> future : pending) {
+                    future.cancel(false);
+                }
+                out.close();
+            }
+        } catch (final IOException ioe) {
+            throw new SAMException("Could not write metrics file.", ioe);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.seekablestream;
+
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.samtools.util.ThroughputMetrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link SeekableStream} decorator for index-driven random access.  Unlike {@link SeekableBufferedStream}, which
+ * drops its buffer on every seek outside of it, this stream keeps a small LRU cache of byte ranges read from the
+ * wrapped stream, so that seeking back and forth between nearby offsets does not touch the wrapped stream again.
+ *
+ * When the ranges a query will touch are known in advance (e.g. the chunks of a {@link htsjdk.samtools.BAMFileSpan}
+ * or the blocks of a tabix query), they can be handed to {@link #plan(long[])}.  Nearby ranges are then coalesced
+ * into a few large reads, and if an {@link ExecutorService} was supplied the next planned ranges are read in the
+ * background while the current one is being consumed.  Reads outside the planned ranges fall back to reads of
+ * {@link SeekableBufferedStream#DEFAULT_BUFFER_SIZE} bytes, which are cached in the same way.
+ *
+ * {@link htsjdk.samtools.BAMFileReader} plans the chunks of each indexed query automatically when it is given a
+ * stream of this type and asynchronous I/O is disabled.  This class is not thread-safe, but the wrapped stream is only ever accessed while holding
+ * its monitor, so the background reads do not interfere with each other.
+ */
+public class SeekablePrefetchingStream extends SeekableStream {
+    /** Planned ranges separated by at most this many bytes are read together. */
+    public static final int DEFAULT_MAX_GAP = 64 * 1024;
+    /** Coalesced ranges are split so that no single read exceeds this many bytes. */
+    public static final int DEFAULT_MAX_RANGE_SIZE = 4 * 1024 * 1024;
+    /** Number of byte ranges kept in memory. */
+    public static final int DEFAULT_CACHE_SIZE = 8;
+
+    private static final class Range {
+        private final long start;
+        private final long end;
+        private final boolean planned;
+        private Future<byte[]> data;
+
+        private Range(final long start, final long end, final boolean planned) {
+            this.start = start;
+            this.end = end;
+            this.planned = planned;
+        }
+    }
+
+    private final SeekableStream wrappedStream;
+    private final int maxGap;
+    private final int maxRangeSize;
+    private final int cacheSize;
+    private final int prefetchDepth;
+    private final ExecutorService executor;
+
+    /** All known ranges, keyed by start.  Ranges never overlap. */
+    private final TreeMap<Long, Range> ranges = new TreeMap<>();
+    /** Ranges whose data has been requested, in access order. */
+    private final LinkedHashMap<Long, Range> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private long position = 0;
+
+    /**
+     * @param stream       the stream to read from
+     * @param maxGap       planned ranges separated by at most this many bytes are read together
+     * @param maxRangeSize upper bound on the size of a single read from {@code stream}
+     * @param cacheSize    number of byte ranges kept in memory, at least 2
+     * @param executor     if non-null, planned ranges are read ahead on this executor
+     */
+    public SeekablePrefetchingStream(final SeekableStream stream, final int maxGap, final int maxRangeSize,
+                                     final int cacheSize, final ExecutorService executor) {
+        if (maxGap < 0) {
+            throw new IllegalArgumentException("maxGap must be non-negative: " + maxGap);
+        }
+        if (maxRangeSize <= 0) {
+            throw new IllegalArgumentException("maxRangeSize must be positive: " + maxRangeSize);
+        }
+        if (cacheSize < 2) {
+            throw new IllegalArgumentException("cacheSize must be at least 2: " + cacheSize);
+        }
+        this.wrappedStream = stream;
+        this.maxGap = maxGap;
+        this.maxRangeSize = maxRangeSize;
+        this.cacheSize = cacheSize;
+        this.prefetchDepth = Math.max(1, (cacheSize - 1) / 2);
+        this.executor = executor;
+    }
+
+    public SeekablePrefetchingStream(final SeekableStream stream, final ExecutorService executor) {
+        this(stream, DEFAULT_MAX_GAP, DEFAULT_MAX_RANGE_SIZE, DEFAULT_CACHE_SIZE, executor);
+    }
+
+    public SeekablePrefetchingStream(final SeekableStream stream) {
+        this(stream, null);
+    }
+
+    /**
+     * Plans the ranges of BGZF data that are about to be read, replacing any previous plan.
+     *
+     * @param filePointers pairs of virtual file pointers delimiting chunks of BGZF data, in the form returned by
+     *                     {@link htsjdk.samtools.BAMFileSpan#toCoordinateArray()}.  May be unsorted.
+     */
+    public void plan(final long[] filePointers) {
+        final long[] byteRanges = new long[filePointers.length];
+        for (int i = 0; i < filePointers.length; i += 2) {
+            byteRanges[i] = BlockCompressedFilePointerUtil.getBlockAddress(filePointers[i]);
+            // the chunk may end anywhere inside its last block, so the whole block is needed
+            byteRanges[i + 1] = BlockCompressedFilePointerUtil.getBlockAddress(filePointers[i + 1])
+                    + BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE;
+        }
+        planByteRanges(byteRanges);
+    }
+
+    /**
+     * Plans the ranges of bytes that are about to be read, replacing any previous plan.
+     *
+     * @param byteRanges pairs of (inclusive start, exclusive end) byte offsets.  May be unsorted or overlapping.
+     */
+    public void planByteRanges(final long[] byteRanges) {
+        if (byteRanges.length % 2 != 0) {
+            throw new IllegalArgumentException("byteRanges must contain start/end pairs");
+        }
+        discardAll();
+
+        final long length = wrappedStream.length();
+        final List<long[]> pairs = new ArrayList<>(byteRanges.length / 2);
+        for (int i = 0; i < byteRanges.length; i += 2) {
+            final long end = length > 0 ? Math.min(byteRanges[i + 1], length) : byteRanges[i + 1];
+            if (byteRanges[i] < 0 || byteRanges[i] > byteRanges[i + 1]) {
+                throw new IllegalArgumentException("Invalid byte range " + byteRanges[i] + "-" + byteRanges[i + 1]);
+            }
+            if (byteRanges[i] < end) {
+                pairs.add(new long[]{byteRanges[i], end});
+            }
+        }
+        pairs.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        long start = -1;
+        long end = -1;
+        for (final long[] pair : pairs) {
+            if (start >= 0 && pair[0] <= end + maxGap) {
+                end = Math.max(end, pair[1]);
+            } else {
+                addPlannedRanges(start, end);
+                start = pair[0];
+                end = pair[1];
+            }
+        }
+        addPlannedRanges(start, end);
+    }
+
+    /** Adds [start, end) as planned ranges of at most maxRangeSize bytes each. */
+    private void addPlannedRanges(final long start, final long end) {
+        for (long rangeStart = start; rangeStart < end; rangeStart += maxRangeSize) {
+            ranges.put(rangeStart, new Range(rangeStart, Math.min(end, rangeStart + maxRangeSize), true));
+        }
+    }
+
+    @Override
+    public long length() {
+        return wrappedStream.length();
+    }
+
+    @Override
+    public long position() throws IOException {
+        return position;
+    }
+
+    /** Seeking only moves the position; the wrapped stream is not accessed until the next read. */
+    @Override
+    public void seek(final long position) throws IOException {
+        if (position < 0) {
+            throw new IOException("Cannot seek to negative position " + position);
+        }
+        this.position = position;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        return read(b, 0, 1) == 1 ? b[0] & 0xff : -1;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int total = 0;
+        while (total < length) {
+            final Range range = getRangeContaining(position);
+            if (range == null) {
+                break;
+            }
+            final byte[] data = getData(range);
+            final int offsetInRange = (int) (position - range.start);
+            if (offsetInRange >= data.length) {
+                // the wrapped stream ended before the end of the range
+                break;
+            }
+            final int n = Math.min(length - total, data.length - offsetInRange);
+            System.arraycopy(data, offsetInRange, buffer, offset + total, n);
+            total += n;
+            position += n;
+        }
+        return total == 0 ? -1 : total;
+    }
+
+    /** @return the range containing {@code pos}, creating an unplanned one if necessary, or null at the end of the stream */
+    private Range getRangeContaining(final long pos) {
+        final Map.Entry<Long, Range> floor = ranges.floorEntry(pos);
+        if (floor != null && pos < floor.getValue().end) {
+            return floor.getValue();
+        }
+        final long length = wrappedStream.length();
+        if (length > 0 && pos >= length) {
+            return null;
+        }
+        long end = pos + SeekableBufferedStream.DEFAULT_BUFFER_SIZE;
+        final Long next = ranges.higherKey(pos);
+        if (next != null) {
+            end = Math.min(end, next);
+        }
+        if (length > 0) {
+            end = Math.min(end, length);
+        }
+        final Range range = new Range(pos, end, false);
+        ranges.put(pos, range);
+        return range;
+    }
+
+    private byte[] getData(final Range range) throws IOException {
+        final ThroughputMetrics metrics = ThroughputMetrics.getGlobal();
+        if (metrics != null) {
+            metrics.increment(range.data != null ? ThroughputMetrics.Counter.CACHE_HITS : ThroughputMetrics.Counter.CACHE_MISSES);
+        }
+        request(range);
+        // make the range being read the most recently used one, so that read-ahead cannot evict it
+        resident.get(range.start);
+        if (range.planned && executor != null) {
+            // read ahead the next planned ranges
+            Map.Entry<Long, Range> next = ranges.higherEntry(range.start);
+            for (int i = 0; i < prefetchDepth && next != null; next = ranges.higherEntry(next.getKey())) {
+                if (next.getValue().planned) {
+                    request(next.getValue());
+                    i++;
+                }
+            }
+        }
+        try {
+            return range.data.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + getSource());
+        } catch (final ExecutionException e) {
+            discard(range);
+            resident.remove(range.start);
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /** Starts reading the data of {@code range} if it is not already resident, evicting the least recently used ranges. */
+    private void request(final Range range) throws IOException {
+        if (range.data != null) {
+            return;
+        }
+        if (executor != null) {
+            range.data = executor.submit(() -> readRange(range.start, range.end));
+        } else {
+            range.data = CompletableFuture.completedFuture(readRange(range.start, range.end));
+        }
+        resident.put(range.start, range);
+        final Iterator<Range> it = resident.values().iterator();
+        while (resident.size() > cacheSize) {
+            discard(it.next());
+            it.remove();
+        }
+    }
+
+    private void discard(final Range range) {
+        if (range.data != null) {
+            range.data.cancel(false);
+            range.data = null;
+        }
+        if (!range.planned) {
+            ranges.remove(range.start);
+        }
+    }
+
+    private void discardAll() {
+        for (final Range range : resident.values()) {
+            if (range.data != null) {
+                range.data.cancel(false);
+            }
+        }
+        resident.clear();
+        ranges.clear();
+    }
+
+    /** Reads [start, end) from the wrapped stream, returning fewer bytes if it ends first. */
+    private byte[] readRange(final long start, final long end) throws IOException {
+        final byte[] bytes = new byte[(int) (end - start)];
+        int n = 0;
+        synchronized (wrappedStream) {
+            wrappedStream.seek(start);
+            while (n < bytes.length) {
+                final int count = wrappedStream.read(bytes, n, bytes.length - n);
+                if (count < 0) {
+                    break;
+                }
+                n += count;
+            }
+        }
+        if (n < bytes.length) {
+            final byte[] truncated = new byte[n];
+            System.arraycopy(bytes, 0, truncated, 0, n);
+            return truncated;
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        discardAll();
+        synchronized (wrappedStream) {
+            wrappedStream.close();
+        }
+    }
+
+    @Override
+    public boolean eof() throws IOException {
+        return position >= wrappedStream.length();
+    }
+
+    @Override
+    public String getSource() {
+        return wrappedStream.getSource();
+    }
+}
@@ -56,9 +56,9 @@ public class AbstractLocusInfo<E extends AbstractRecordAndOffset> implements Loc
     private final static int INITIAL_LIST_SIZE = 100;
 
     /**
-     * List of aligned to current position reads
+     * List of aligned to current position reads, created when the first one is added
      **/
-    private final List<E> recordAndOffsets = new ArrayList<>(INITIAL_LIST_SIZE);
+    private List<E> recordAndOffsets = null;
 
     /**
      * @param referenceSequence reference sequence to which the reads are aligned
@@ -77,6 +77,9 @@ public class AbstractLocusInfo<E extends AbstractRecordAndOffset> implements Loc
      * @param recordAndOffset object to add to current locus
      */
     public void add(E recordAndOffset) {
+        if (recordAndOffsets == null) {
+            recordAndOffsets = new ArrayList<>(INITIAL_LIST_SIZE);
+        }
         recordAndOffsets.add(recordAndOffset);
     }
 
@@ -103,14 +106,14 @@ public class AbstractLocusInfo<E extends AbstractRecordAndOffset> implements Loc
      */
     @Deprecated
     public List<E> getRecordAndPositions() {
-        return Collections.unmodifiableList(recordAndOffsets);
+        return getRecordAndOffsets();
     }
 
     /**
      * @return unmodifiable list of aligned to the reference position <code>recordsAndOffsets</code>
      */
     public List<E> getRecordAndOffsets() {
-        return Collections.unmodifiableList(recordAndOffsets);
+        return (recordAndOffsets == null) ? Collections.emptyList() : Collections.unmodifiableList(recordAndOffsets);
     }
 
     /**
@@ -136,7 +139,7 @@ public class AbstractLocusInfo<E extends AbstractRecordAndOffset> implements Loc
      * @return the number of records overlapping the position
      */
     public int size() { 
-        return this.recordAndOffsets.size(); 
+        return (this.recordAndOffsets == null) ? 0 : this.recordAndOffsets.size(); 
     }
 
     /**
@@ -350,7 +350,7 @@ public abstract class AbstractLocusIterator<T extends AbstractRecordAndOffset, K
      */
 
     private boolean surpassedAccumulationThreshold() {
-        final boolean surpassesThreshold = !accumulator.isEmpty() && accumulator.get(0).getRecordAndOffsets().size() >= maxReadsToAccumulatePerLocus;
+        final boolean surpassesThreshold = !accumulator.isEmpty() && getAccumulatedReadCount(accumulator.get(0)) >= maxReadsToAccumulatePerLocus;
         if (surpassesThreshold && !enforcedAccumulationLimit) {
             LOG.warn("We have encountered greater than " + maxReadsToAccumulatePerLocus + " reads at position " + accumulator.get(0).toString() + " and will ignore the remaining reads at this position.  Note that further warnings will be suppressed.");
             enforcedAccumulationLimit = true;
@@ -358,6 +358,13 @@ public abstract class AbstractLocusIterator<T extends AbstractRecordAndOffset, K
         return surpassesThreshold;
     }
 
+    /**
+     * @return the number of reads accumulated at the locus, as compared with <code>maxReadsToAccumulatePerLocus</code>
+     */
+    int getAccumulatedReadCount(final K locusInfo) {
+        return locusInfo.getRecordAndOffsets().size();
+    }
+
     /**
      * Capture the loci covered by the given SAMRecord in the LocusInfos in the accumulator,
      * creating new LocusInfos as needed.
@@ -4,6 +4,7 @@ import htsjdk.samtools.SAMRecord;
 
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Abstract implementation of a Little progress logging class to facilitate consistent output of useful information when progressing
@@ -18,9 +19,10 @@ abstract public class AbstractProgressLogger implements ProgressLoggerInterface
     private final long startTime = System.currentTimeMillis();
     private final NumberFormat fmt = new DecimalFormat("#,###");
     private final NumberFormat timeFmt = new DecimalFormat("00");
-    private long processed = 0;
+    private final AtomicLong processed = new AtomicLong();
     // Set to -1 until the first record is added
-    private long lastStartTime = -1;
+    private final AtomicLong lastStartTime = new AtomicLong(-1);
+    // Only used by log(); written without synchronization so may lag slightly when recording from several threads
     private String lastChrom = null;
     private int lastPos = 0;
 
@@ -46,23 +48,27 @@ abstract public class AbstractProgressLogger implements ProgressLoggerInterface
      */
     abstract protected void log(String ... message);
 
-    private synchronized void record() {
+    /**
+     * Logs progress.  Only called once every n records, so the formatting and the lock stay off the path taken by
+     * every record.
+     */
+    private synchronized void record(final long processed, final String chrom, final int pos) {
         final long now = System.currentTimeMillis();
-        final long lastPeriodSeconds = (now - this.lastStartTime) / 1000;
-        this.lastStartTime = now;
+        final long periodStart = this.lastStartTime.getAndSet(now);
+        final long lastPeriodSeconds = (now - (periodStart == -1 ? now : periodStart)) / 1000;
 
         final long seconds = (now - startTime) / 1000;
         final String elapsed   = formatElapseTime(seconds);
         final String period    = pad(fmt.format(lastPeriodSeconds), 4);
-        final String processed = pad(fmt.format(this.processed), 13);
+        final String processedString = pad(fmt.format(processed), 13);
 
         final String readInfo;
-        if (this.lastChrom == null) readInfo = "*/*";
-        else readInfo = this.lastChrom + ":" + fmt.format(this.lastPos);
+        if (chrom == null) readInfo = "*/*";
+        else readInfo = chrom + ":" + fmt.format(pos);
 
-        final long n = (this.processed % this.n == 0) ? this.n : this.processed % this.n;
+        final long n = (processed % this.n == 0) ? this.n : processed % this.n;
 
-        log(this.verb, " ", processed, " " + noun + ".  Elapsed time: ", elapsed, "s.  Time for last ", fmt.format(n),
+        log(this.verb, " ", processedString, " " + noun + ".  Elapsed time: ", elapsed, "s.  Time for last ", fmt.format(n),
                 ": ", period, "s.  Last read position: ", readInfo);
     }
 
@@ -71,8 +77,9 @@ abstract public class AbstractProgressLogger implements ProgressLoggerInterface
      * @return boolean true if logging was triggered, false otherwise
      */
     public synchronized boolean log() {
-        if (this.processed % this.n != 0) {
-            record();
+        final long processed = this.processed.get();
+        if (processed % this.n != 0) {
+            record(processed, this.lastChrom, this.lastPos);
             return true;
         }
         else {
@@ -80,15 +87,20 @@ abstract public class AbstractProgressLogger implements ProgressLoggerInterface
         }
     }
 
+    /**
+     * Records that a record at the given position has been processed and triggers logging if necessary.  This does not
+     * lock, so it may be called from several threads.
+     */
     @Override
-    public synchronized boolean record(final String chrom, final int pos) {
+    public boolean record(final String chrom, final int pos) {
         this.lastChrom = chrom;
         this.lastPos = pos;
-        if (this.lastStartTime == -1) {
-            this.lastStartTime = System.currentTimeMillis();
+        final long processed = this.processed.incrementAndGet();
+        if (processed == 1) {
+            this.lastStartTime.compareAndSet(-1, System.currentTimeMillis());
         }
-        if (++this.processed % this.n == 0) {
-            record();
+        if (processed % this.n == 0) {
+            record(processed, chrom, pos);
             return true;
         }
         else {
@@ -101,7 +113,7 @@ abstract public class AbstractProgressLogger implements ProgressLoggerInterface
      * @return boolean true if logging was triggered, false otherwise
      */
     @Override
-    public synchronized boolean record(final SAMRecord rec) {
+    public boolean record(final SAMRecord rec) {
         if (SAMRecord.NO_ALIGNMENT_REFERENCE_NAME.equals(rec.getReferenceName())) {
             return record(null, 0);
         }
@@ -119,7 +131,7 @@ abstract public class AbstractProgressLogger implements ProgressLoggerInterface
     }
 
     /** Returns the count of records processed. */
-    public synchronized long getCount() { return this.processed; }
+    public long getCount() { return this.processed.get(); }
 
     /** Returns the number of seconds since progress tracking began. */
     public long getElapsedSeconds() { return (System.currentTimeMillis() - this.startTime) / 1000; }
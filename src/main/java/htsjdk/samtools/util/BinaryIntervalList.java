@@ -0,0 +1,377 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMTextHeaderCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A binary form of an {@link IntervalList} that is memory-mapped and queried in place, so that loading it costs
+ * little more than parsing its header.  Intervals are stored in coordinate order as little-endian primitive columns:
+ *
+ * <pre>
+ *    magic                  "BIL\1"
+ *    int                    length of the SAM text header in bytes, followed by the header padded to a multiple of 4
+ *    int n                  number of intervals
+ *    int                    total length of the names in bytes
+ *    int[dictionarySize+1]  index of the first interval of each contig, and n
+ *    int[n]                 starts
+ *    int[n]                 ends
+ *    int[n]                 largest end of the intervals on the same contig up to and including this one
+ *    int[n+1]               offset of each name in the name bytes, and the total length
+ *    byte[n]                flags: 1 for the negative strand, 2 for a null name
+ *    byte[]                 UTF-8 names, followed by padding to a multiple of 8
+ *    long                   CRC32 of all the preceding bytes
+ * </pre>
+ *
+ * The checksum is not verified when the file is opened; use {@link #verifyChecksum()} or compare
+ * {@link #getChecksum()} against a known value to validate a cached file.
+ */
+public final class BinaryIntervalList {
+    public static final String FILE_EXTENSION = ".interval_list.bin";
+
+    private static final byte[] MAGIC = {'B', 'I', 'L', 1};
+    private static final byte NEGATIVE_STRAND = 1;
+    private static final byte NULL_NAME = 2;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final SAMFileHeader header;
+    private final int size;
+    private final IntBuffer contigOffsets;
+    private final IntBuffer starts;
+    private final IntBuffer ends;
+    private final IntBuffer maxEnds;
+    private final IntBuffer nameOffsets;
+    private final int flagsPosition;
+    private final int namesPosition;
+    private final int checksumPosition;
+
+    private BinaryIntervalList(final Path path, final ByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < MAGIC.length + 4) throw notBinary(path);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) throw notBinary(path);
+        }
+
+        try {
+            final int headerLength = buffer.getInt(4);
+            final byte[] headerBytes = new byte[headerLength];
+            ((ByteBuffer) buffer.duplicate().position(8)).get(headerBytes);
+            header = new SAMTextHeaderCodec().decode(
+                    BufferedLineReader.fromString(new String(headerBytes, StandardCharsets.UTF_8)), path.toUri().toString());
+
+            int position = 8 + pad(headerLength, 4);
+            size = buffer.getInt(position);
+            final int namesLength = buffer.getInt(position + 4);
+            position += 8;
+            contigOffsets = intColumn(position, header.getSequenceDictionary().size() + 1);
+            position += 4 * contigOffsets.capacity();
+            starts = intColumn(position, size);
+            position += 4 * size;
+            ends = intColumn(position, size);
+            position += 4 * size;
+            maxEnds = intColumn(position, size);
+            position += 4 * size;
+            nameOffsets = intColumn(position, size + 1);
+            position += 4 * (size + 1);
+            flagsPosition = position;
+            namesPosition = flagsPosition + size;
+            checksumPosition = pad(namesPosition + namesLength, 8);
+            if (checksumPosition + 8 != buffer.limit()) {
+                throw new SAMException("Binary interval list " + path.toUri() + " is truncated or corrupt");
+            }
+        } catch (final IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new SAMException("Binary interval list " + path.toUri() + " is truncated or corrupt", e);
+        }
+    }
+
+    /** Maps a binary interval list file.  Only the header is parsed; intervals are read from the mapping as they are queried. */
+    public static BinaryIntervalList open(final Path path) {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new SAMException("Binary interval list " + path.toUri() + " is too large to map");
+            }
+            return new BinaryIntervalList(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (final IOException e) {
+            throw new SAMException("Error opening binary interval list " + path.toUri(), e);
+        }
+    }
+
+    /** @return true if the file starts with the binary interval list magic number */
+    public static boolean isBinaryIntervalList(final Path path) {
+        try (final InputStream in = Files.newInputStream(path)) {
+            final byte[] magic = new byte[MAGIC.length];
+            int read = 0;
+            for (int count; read < magic.length && (count = in.read(magic, read, magic.length - read)) >= 0; ) {
+                read += count;
+            }
+            return read == magic.length && Arrays.equals(magic, MAGIC);
+        } catch (final IOException e) {
+            throw new SAMException("Error reading " + path.toUri(), e);
+        }
+    }
+
+    /**
+     * Writes the intervals of the list in coordinate order, together with its header, as a binary interval list.
+     * @return the checksum stored in the file
+     */
+    public static long write(final IntervalList list, final Path path) {
+        final IntervalList sorted = list.sorted();
+        final List<Interval> intervals = sorted.getIntervals();
+        final SAMSequenceDictionary dictionary = sorted.getHeader().getSequenceDictionary();
+        final int n = intervals.size();
+
+        final StringWriter headerText = new StringWriter();
+        new SAMTextHeaderCodec().encode(headerText, sorted.getHeader());
+        final byte[] headerBytes = headerText.toString().getBytes(StandardCharsets.UTF_8);
+
+        final int[] nameOffsets = new int[n + 1];
+        final byte[] flags = new byte[n];
+        final ByteArrayOutputStream names = new ByteArrayOutputStream();
+        for (int i = 0; i < n; i++) {
+            final Interval interval = intervals.get(i);
+            if (interval.isNegativeStrand()) flags[i] |= NEGATIVE_STRAND;
+            if (interval.getName() == null) {
+                flags[i] |= NULL_NAME;
+            } else {
+                final byte[] name = interval.getName().getBytes(StandardCharsets.UTF_8);
+                names.write(name, 0, name.length);
+            }
+            nameOffsets[i + 1] = names.size();
+        }
+
+        final long flagsPosition = 8L + pad(headerBytes.length, 4) + 8 + 4L * (dictionary.size() + 1) + 4L * 3 * n + 4L * (n + 1);
+        final long length = (flagsPosition + n + names.size() + 7) / 8 * 8 + 8;
+        if (length > Integer.MAX_VALUE) {
+            throw new SAMException("Interval list is too large to write as a binary interval list: " + n + " intervals");
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC).putInt(headerBytes.length).put(headerBytes);
+        buffer.position(8 + pad(headerBytes.length, 4));
+        buffer.putInt(n).putInt(names.size());
+
+        // contig offsets
+        int i = 0;
+        for (int contig = 0; contig <= dictionary.size(); contig++) {
+            while (i < n && dictionary.getSequenceIndex(intervals.get(i).getContig()) < contig) i++;
+            buffer.putInt(i);
+        }
+        for (final Interval interval : intervals) buffer.putInt(interval.getStart());
+        for (final Interval interval : intervals) buffer.putInt(interval.getEnd());
+        String contig = null;
+        int maxEnd = 0;
+        for (final Interval interval : intervals) {
+            if (!interval.getContig().equals(contig)) {
+                contig = interval.getContig();
+                maxEnd = interval.getEnd();
+            }
+            maxEnd = Math.max(maxEnd, interval.getEnd());
+            buffer.putInt(maxEnd);
+        }
+        for (final int offset : nameOffsets) buffer.putInt(offset);
+        buffer.put(flags);
+        buffer.put(names.toByteArray());
+
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.capacity() - 8);
+        final long checksum = crc.getValue();
+        buffer.putLong(buffer.capacity() - 8, checksum);
+
+        buffer.rewind();
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } catch (final IOException e) {
+            throw new SAMException("Error writing binary interval list " + path.toUri(), e);
+        }
+        return checksum;
+    }
+
+    /** Converts a text interval list to the binary format. */
+    public static long convertFromText(final Path textIntervalList, final Path binaryIntervalList) {
+        return write(IntervalList.fromPath(textIntervalList), binaryIntervalList);
+    }
+
+    /** Converts a binary interval list to the text format. */
+    public static void convertToText(final Path binaryIntervalList, final Path textIntervalList) {
+        open(binaryIntervalList).toIntervalList().write(textIntervalList.toFile());
+    }
+
+    public SAMFileHeader getHeader() {
+        return header;
+    }
+
+    /** @return the number of intervals */
+    public int size() {
+        return size;
+    }
+
+    /** @return the checksum stored in the file */
+    public long getChecksum() {
+        return buffer.getLong(checksumPosition);
+    }
+
+    /** @throws SAMException if the stored checksum does not match the contents of the file */
+    public void verifyChecksum() {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer contents = buffer.duplicate();
+        contents.limit(checksumPosition);
+        crc.update(contents);
+        if (crc.getValue() != getChecksum()) {
+            throw new SAMException("Checksum mismatch in binary interval list " + path.toUri());
+        }
+    }
+
+    public int getStart(final int i) {
+        return starts.get(i);
+    }
+
+    public int getEnd(final int i) {
+        return ends.get(i);
+    }
+
+    public boolean isNegativeStrand(final int i) {
+        return (buffer.get(flagsPosition + i) & NEGATIVE_STRAND) != 0;
+    }
+
+    public String getName(final int i) {
+        if ((buffer.get(flagsPosition + i) & NULL_NAME) != 0) return null;
+        final byte[] name = new byte[nameOffsets.get(i + 1) - nameOffsets.get(i)];
+        ((ByteBuffer) buffer.duplicate().position(namesPosition + nameOffsets.get(i))).get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /** @return the index in the sequence dictionary of the contig of the i'th interval */
+    public int getContigIndex(final int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Interval " + i + " of " + size);
+        // the last contig whose first interval is at or before i
+        int lo = 0;
+        int hi = contigOffsets.capacity() - 1;
+        while (lo < hi) {
+            final int mid = (lo + hi + 1) >>> 1;
+            if (contigOffsets.get(mid) <= i) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    public Interval getInterval(final int i) {
+        return new Interval(header.getSequence(getContigIndex(i)).getSequenceName(), getStart(i), getEnd(i),
+                isNegativeStrand(i), getName(i));
+    }
+
+    /** @return true if any interval overlaps the given locus */
+    public boolean overlapsAny(final Locatable locus) {
+        final int[] range = candidates(locus);
+        for (int i = range[0]; i < range[1]; i++) {
+            if (ends.get(i) >= locus.getStart()) return true;
+        }
+        return false;
+    }
+
+    /** @return the intervals that overlap the given locus, in coordinate order */
+    public List<Interval> getOverlaps(final Locatable locus) {
+        final int[] range = candidates(locus);
+        final List<Interval> overlaps = new ArrayList<>();
+        for (int i = range[0]; i < range[1]; i++) {
+            if (ends.get(i) >= locus.getStart()) overlaps.add(getInterval(i));
+        }
+        return overlaps;
+    }
+
+    /** @return all the intervals as an IntervalList */
+    public IntervalList toIntervalList() {
+        final IntervalList list = new IntervalList(header.clone());
+        for (int i = 0; i < size; i++) {
+            list.add(getInterval(i));
+        }
+        return list;
+    }
+
+    /**
+     * @return the range [from, to) of intervals that start at or before the end of the locus and are not preceded on
+     * their contig only by intervals that end before it.  Every overlapping interval lies in this range.
+     */
+    private int[] candidates(final Locatable locus) {
+        final int contig = header.getSequenceIndex(locus.getContig());
+        if (contig < 0) return new int[]{0, 0};
+        final int first = contigOffsets.get(contig);
+        final int last = contigOffsets.get(contig + 1);
+
+        // first interval whose running maximum end reaches the start of the locus
+        int lo = first;
+        int hi = last;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (maxEnds.get(mid) < locus.getStart()) lo = mid + 1;
+            else hi = mid;
+        }
+        final int from = lo;
+
+        // first interval that starts after the end of the locus
+        hi = last;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (starts.get(mid) <= locus.getEnd()) lo = mid + 1;
+            else hi = mid;
+        }
+        return new int[]{from, lo};
+    }
+
+    private IntBuffer intColumn(final int position, final int length) {
+        final ByteBuffer column = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        column.position(position);
+        column.limit(position + 4 * length);
+        return column.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static int pad(final int length, final int alignment) {
+        return (length + alignment - 1) / alignment * alignment;
+    }
+
+    private static SAMException notBinary(final Path path) {
+        return new SAMException(path.toUri() + " is not a binary interval list");
+    }
+}
@@ -63,7 +63,7 @@ public class BlockCompressedFilePointerUtil {
      * @param blockOffset Offset into uncompressed block.
      * @return Virtual file pointer that embodies the input parameters.
      */
-    static long makeFilePointer(final long blockAddress, final int blockOffset) {
+    public static long makeFilePointer(final long blockAddress, final int blockOffset) {
         if (blockOffset < 0) {
             throw new IllegalArgumentException("Negative blockOffset " + blockOffset + " not allowed.");
         }
@@ -95,6 +95,15 @@ public class BlockCompressedFilePointerUtil {
         return (int) (virtualFilePointer & OFFSET_MASK);
     }
 
+    /**
+     * @param virtualFilePointer a virtual file pointer into a run of BGZF blocks
+     * @param blockAddressOffset the file offset at which that run of blocks has been placed in another file
+     * @return The virtual file pointer that addresses the same data in the other file.
+     */
+    public static long shift(final long virtualFilePointer, final long blockAddressOffset) {
+        return makeFilePointer(getBlockAddress(virtualFilePointer) + blockAddressOffset, getBlockOffset(virtualFilePointer));
+    }
+
     public static String asString(final long vfp) {
         return String.format("%d(0x%x): (block address: %d, offset: %d)", vfp, vfp, getBlockAddress(vfp), getBlockOffset(vfp));
     }
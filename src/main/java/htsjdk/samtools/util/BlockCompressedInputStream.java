@@ -529,7 +529,15 @@ public class BlockCompressedInputStream extends InputStream implements LocationA
                 return new DecompressedBlock(blockAddress, blockLength,
                         new FileTruncatedException(PREMATURE_END_MSG + getSource()));
             }
+            final ThroughputMetrics metrics = ThroughputMetrics.getGlobal();
+            final long inflateStart = metrics == null ? 0 : System.nanoTime();
             final byte[] decompressed = inflateBlock(mFileBuffer, blockLength, bufferAvailableForReuse);
+            if (metrics != null) {
+                metrics.add(ThroughputMetrics.Counter.INFLATE_NANOS, System.nanoTime() - inflateStart);
+                metrics.increment(ThroughputMetrics.Counter.BLOCKS_READ);
+                metrics.add(ThroughputMetrics.Counter.COMPRESSED_BYTES_READ, blockLength);
+                metrics.add(ThroughputMetrics.Counter.UNCOMPRESSED_BYTES_READ, decompressed.length);
+            }
             return new DecompressedBlock(blockAddress, decompressed, blockLength);
         } catch (IOException e) {
             return new DecompressedBlock(blockAddress, 0, e);
@@ -282,6 +282,9 @@ public class BlockCompressedOutputStream
         // }
         codec.writeBytes(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
         codec.close();
+        // release the native memory of the deflaters rather than waiting for them to be finalized
+        deflater.end();
+        noCompressionDeflater.end();
         // Can't re-open something that is not a regular file, e.g. a named pipe or an output stream
         if (this.file == null || !this.file.isFile() || !Files.isRegularFile(this.file.toPath())) return;
         if (BlockCompressedInputStream.checkTermination(this.file) !=
@@ -328,6 +331,8 @@ public class BlockCompressedOutputStream
             return 0;
         }
         final int bytesToCompress = numUncompressedBytes;
+        final ThroughputMetrics metrics = ThroughputMetrics.getGlobal();
+        final long deflateStart = metrics == null ? 0 : System.nanoTime();
         // Compress the input
         deflater.reset();
         deflater.setInput(uncompressedBuffer, 0, bytesToCompress);
@@ -349,7 +354,16 @@ public class BlockCompressedOutputStream
         crc32.reset();
         crc32.update(uncompressedBuffer, 0, bytesToCompress);
 
+        if (metrics != null) {
+            metrics.add(ThroughputMetrics.Counter.DEFLATE_NANOS, System.nanoTime() - deflateStart);
+        }
+
         final int totalBlockSize = writeGzipBlock(compressedSize, bytesToCompress, crc32.getValue());
+        if (metrics != null) {
+            metrics.increment(ThroughputMetrics.Counter.BLOCKS_WRITTEN);
+            metrics.add(ThroughputMetrics.Counter.COMPRESSED_BYTES_WRITTEN, totalBlockSize);
+            metrics.add(ThroughputMetrics.Counter.UNCOMPRESSED_BYTES_WRITTEN, bytesToCompress);
+        }
         assert(bytesToCompress <= numUncompressedBytes);
 
         // Clear out from uncompressedBuffer the data that was written
@@ -0,0 +1,341 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.samtools.AlignmentBlock;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamReader;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Locus iterator that accumulates each pileup into primitive columns (base, base quality, read offset, read index and
+ * strand) instead of creating a <code>RecordAndOffset</code> for every aligned base as {@link SamLocusIterator} does.
+ * The entries of a pileup are read through the indexed accessors of {@link LocusPileup}.
+ * <p>
+ * Every pileup also keeps per-strand base counts and a base quality histogram.  If {@link #setCountsOnly(boolean)}
+ * is set, only these counts are kept, so no reference to any read is held once it has been accumulated.
+ * <p>
+ * The columns are recycled: a {@link LocusPileup} returned by {@link #next()} is only valid until the following call
+ * to {@link #next()}.  Indels are not accumulated.
+ */
+public class ColumnarLocusIterator extends AbstractLocusIterator<AbstractRecordAndOffset, ColumnarLocusIterator.LocusPileup> {
+
+    /** The highest base quality with its own bin in the quality histogram; higher qualities are counted in this bin. */
+    public static final int MAX_HISTOGRAM_QUALITY = 93;
+
+    private static final int INITIAL_COLUMN_SIZE = 64;
+    private static final int BASE_CATEGORIES = 5;
+
+    private boolean countsOnly = false;
+    private int readIndex = -1;
+    private boolean inHasNext = false;
+    private LocusPileup lastReturned = null;
+    private final Deque<Columns> pool = new ArrayDeque<>();
+
+    /**
+     * Prepare to iterate through the given SAM records, skipping non-primary alignments.  Do not use
+     * BAM index even if available.
+     *
+     * @param samReader must be coordinate sorted
+     */
+    public ColumnarLocusIterator(final SamReader samReader) {
+        this(samReader, null);
+    }
+
+    /**
+     * Prepare to iterate through the given SAM records, skipping non-primary alignments.
+     *
+     * @param samReader    must be coordinate sorted
+     * @param intervalList Either the list of desired intervals, or null.
+     */
+    public ColumnarLocusIterator(final SamReader samReader, final IntervalList intervalList) {
+        this(samReader, intervalList, samReader.hasIndex());
+    }
+
+    /**
+     * Prepare to iterate through the given SAM records, skipping non-primary alignments
+     *
+     * @param samReader    must be coordinate sorted
+     * @param intervalList Either the list of desired intervals, or null.
+     * @param useIndex     If true, do indexed lookup to improve performance.  Not relevant if intervalList == null.
+     */
+    public ColumnarLocusIterator(final SamReader samReader, final IntervalList intervalList, final boolean useIndex) {
+        super(samReader, intervalList, useIndex);
+    }
+
+    public boolean isCountsOnly() {
+        return countsOnly;
+    }
+
+    /**
+     * @param countsOnly if true, pileups only hold base counts and the quality histogram, and their per-read
+     *                   accessors may not be used.
+     */
+    public void setCountsOnly(final boolean countsOnly) {
+        this.countsOnly = countsOnly;
+    }
+
+    @Override
+    public boolean hasNext() {
+        // hasNext() may call next() to fill the queue of completed loci, which must not recycle the current pileup
+        inHasNext = true;
+        try {
+            return super.hasNext();
+        } finally {
+            inHasNext = false;
+        }
+    }
+
+    @Override
+    public LocusPileup next() {
+        if (inHasNext) return super.next();
+
+        if (lastReturned != null) {
+            pool.push(lastReturned.columns);
+            lastReturned.columns = null;
+        }
+        lastReturned = super.next();
+        return lastReturned;
+    }
+
+    /**
+     * Capture the aligned bases of the given SAMRecord in the LocusPileups in the accumulator,
+     * creating new LocusPileups as needed.
+     *
+     * @param rec SAMRecord to process and add to <code>LocusPileup</code>
+     */
+    @Override
+    void accumulateSamRecord(final SAMRecord rec) {
+        final int alignmentStart = rec.getAlignmentStart();
+        final SAMSequenceRecord ref = getReferenceSequence(rec.getReferenceIndex());
+        // Ensure there are LocusPileups up to and including the last aligned position
+        for (int i = accumulator.size(); i <= rec.getAlignmentEnd() - alignmentStart; ++i) {
+            accumulator.add(createLocusInfo(ref, alignmentStart + i));
+        }
+
+        final int minQuality = getQualityScoreCutoff();
+        final byte[] bases = rec.getReadBases();
+        final byte[] baseQualities = rec.getBaseQualities();
+        final boolean negativeStrand = rec.getReadNegativeStrandFlag();
+        readIndex++;
+
+        for (final AlignmentBlock alignmentBlock : rec.getAlignmentBlocks()) {
+            final int readStart = alignmentBlock.getReadStart() - 1;
+            final int refOffset = alignmentBlock.getReferenceStart() - alignmentStart;
+            for (int i = 0; i < alignmentBlock.getLength(); ++i) {
+                final int readOffset = readStart + i;
+                final int quality = baseQualities.length == 0 ? -1 : baseQualities[readOffset];
+                // as in SamLocusIterator, a cutoff of 0 or a missing quality string accepts every base
+                if (minQuality == 0 || quality == -1 || quality >= minQuality) {
+                    accumulator.get(refOffset + i).columns.add(rec, bases[readOffset], quality, readOffset, readIndex,
+                            negativeStrand);
+                }
+            }
+        }
+    }
+
+    @Override
+    void accumulateIndels(final SAMRecord rec) {
+        throw new UnsupportedOperationException("Indels accumulation is not supported for " + getClass().getSimpleName() + ".");
+    }
+
+    @Override
+    AbstractRecordAndOffset createRecordAndOffset(final SAMRecord rec, final int readOffset, final int length, final int refPosition) {
+        return new AbstractRecordAndOffset(rec, readOffset);
+    }
+
+    @Override
+    LocusPileup createLocusInfo(final SAMSequenceRecord referenceSequence, final int lastPosition) {
+        final Columns columns = pool.isEmpty() ? new Columns() : pool.pop();
+        columns.clear(countsOnly);
+        return new LocusPileup(referenceSequence, lastPosition, columns);
+    }
+
+    @Override
+    int getAccumulatedReadCount(final LocusPileup locusInfo) {
+        return locusInfo.columns.depth;
+    }
+
+    @Override
+    public void setIncludeIndels(final boolean includeIndels) {
+        if (includeIndels) {
+            throw new UnsupportedOperationException("Indels accumulation is not supported for " + getClass().getSimpleName() + ".");
+        }
+    }
+
+    /**
+     * @return index of the base in the base counts of a pileup: A, C, G, T, then anything else
+     */
+    private static int baseCategory(final byte base) {
+        switch (base) {
+            case 'A': case 'a': return 0;
+            case 'C': case 'c': return 1;
+            case 'G': case 'g': return 2;
+            case 'T': case 't': return 3;
+            default: return 4;
+        }
+    }
+
+    /** The primitive columns of one pileup.  Instances are reused for later loci once their pileup has been consumed. */
+    private static final class Columns {
+        private int depth;
+        private boolean countsOnly;
+        private byte[] bases = new byte[INITIAL_COLUMN_SIZE];
+        private byte[] qualities = new byte[INITIAL_COLUMN_SIZE];
+        private int[] offsets = new int[INITIAL_COLUMN_SIZE];
+        private int[] readIndexes = new int[INITIAL_COLUMN_SIZE];
+        private boolean[] negativeStrands = new boolean[INITIAL_COLUMN_SIZE];
+        private SAMRecord[] records = new SAMRecord[INITIAL_COLUMN_SIZE];
+        private final int[] baseCounts = new int[2 * BASE_CATEGORIES];
+        private final int[] qualityHistogram = new int[MAX_HISTOGRAM_QUALITY + 1];
+
+        private void clear(final boolean countsOnly) {
+            Arrays.fill(records, 0, Math.min(depth, records.length), null);
+            depth = 0;
+            this.countsOnly = countsOnly;
+            Arrays.fill(baseCounts, 0);
+            Arrays.fill(qualityHistogram, 0);
+        }
+
+        private void add(final SAMRecord record, final byte base, final int quality, final int offset, final int readIndex,
+                         final boolean negativeStrand) {
+            baseCounts[(negativeStrand ? BASE_CATEGORIES : 0) + baseCategory(base)]++;
+            if (quality >= 0) qualityHistogram[Math.min(quality, MAX_HISTOGRAM_QUALITY)]++;
+
+            if (!countsOnly) {
+                if (depth == bases.length) {
+                    final int size = depth * 2;
+                    bases = Arrays.copyOf(bases, size);
+                    qualities = Arrays.copyOf(qualities, size);
+                    offsets = Arrays.copyOf(offsets, size);
+                    readIndexes = Arrays.copyOf(readIndexes, size);
+                    negativeStrands = Arrays.copyOf(negativeStrands, size);
+                    records = Arrays.copyOf(records, size);
+                }
+                bases[depth] = base;
+                qualities[depth] = (byte) quality;
+                offsets[depth] = offset;
+                readIndexes[depth] = readIndex;
+                negativeStrands[depth] = negativeStrand;
+                records[depth] = record;
+            }
+            depth++;
+        }
+    }
+
+    /**
+     * The unit of iteration.  Holds the locus and its pileup, whose entries are addressed by an index from 0 to
+     * {@link #size()} - 1 in the order the reads were accumulated.  {@link #getRecordAndOffsets()} is always empty.
+     */
+    public static final class LocusPileup extends AbstractLocusInfo<AbstractRecordAndOffset> {
+        private Columns columns;
+
+        private LocusPileup(final SAMSequenceRecord referenceSequence, final int position, final Columns columns) {
+            super(referenceSequence, position);
+            this.columns = columns;
+        }
+
+        private Columns columns() {
+            if (columns == null) throw new IllegalStateException("Pileup at " + this + " has been recycled");
+            return columns;
+        }
+
+        private Columns perReadColumns(final int i) {
+            final Columns columns = columns();
+            if (i < 0 || i >= columns.depth) throw new IndexOutOfBoundsException("Entry " + i + " of " + columns.depth);
+            if (columns.countsOnly) {
+                throw new IllegalStateException("Per-read entries are not kept when only counting");
+            }
+            return columns;
+        }
+
+        /**
+         * @return the number of aligned bases accumulated at the locus
+         */
+        @Override
+        public int size() {
+            return columns().depth;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        public byte getBase(final int i) {
+            return perReadColumns(i).bases[i];
+        }
+
+        /** @return the base quality, or -1 if the read has no base qualities */
+        public byte getBaseQuality(final int i) {
+            return perReadColumns(i).qualities[i];
+        }
+
+        /** @return the 0-based offset of the base in the read */
+        public int getOffset(final int i) {
+            return perReadColumns(i).offsets[i];
+        }
+
+        /** @return the ordinal of the read among all the reads accumulated by the iterator */
+        public int getReadIndex(final int i) {
+            return perReadColumns(i).readIndexes[i];
+        }
+
+        public boolean isNegativeStrand(final int i) {
+            return perReadColumns(i).negativeStrands[i];
+        }
+
+        public SAMRecord getRecord(final int i) {
+            return perReadColumns(i).records[i];
+        }
+
+        /**
+         * @param base           one of A, C, G, T (in either case); any other value counts all the other bases
+         * @param negativeStrand the strand of the reads to count
+         * @return the number of reads on the strand with that base at the locus
+         */
+        public int getBaseCount(final byte base, final boolean negativeStrand) {
+            return columns().baseCounts[(negativeStrand ? BASE_CATEGORIES : 0) + baseCategory(base)];
+        }
+
+        /**
+         * @return the number of reads with the base at the locus, on either strand
+         */
+        public int getBaseCount(final byte base) {
+            return getBaseCount(base, false) + getBaseCount(base, true);
+        }
+
+        /**
+         * @return the number of reads whose base quality at the locus is the given quality, where qualities above
+         * {@link #MAX_HISTOGRAM_QUALITY} are counted as that
+         */
+        public int getQualityCount(final int quality) {
+            return columns().qualityHistogram[quality];
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A {@link LongHistogram} that may be incremented from many threads at once.  Each thread increments a shard of
+ * its own, without locking or atomic operations, and the shards are merged when the result is requested.
+ *
+ * The combining methods read every shard without synchronization, so they must only be called once the threads
+ * that increment this histogram have finished, e.g. after {@link java.util.concurrent.Future#get()} or
+ * {@link java.util.concurrent.ExecutorService#awaitTermination}, both of which make the shards' contents visible.
+ */
+public final class ConcurrentLongHistogram {
+    private final LongHistogram prototype;
+    private final Queue<LongHistogram> shards = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<LongHistogram> localShard = ThreadLocal.withInitial(this::newShard);
+
+    /** Constructs a histogram whose shards keep all keys in their sparse tables. */
+    public ConcurrentLongHistogram() {
+        this.prototype = new LongHistogram();
+    }
+
+    /** Constructs a histogram whose shards count keys in {@code [minDenseKey, maxDenseKey]} densely. */
+    public ConcurrentLongHistogram(final long minDenseKey, final long maxDenseKey) {
+        this.prototype = new LongHistogram(minDenseKey, maxDenseKey);
+    }
+
+    /** Increments the count of the given key by one. */
+    public void increment(final long key) {
+        localShard.get().increment(key);
+    }
+
+    /** Increments the count of the given key by the supplied amount. */
+    public void increment(final long key, final long count) {
+        localShard.get().increment(key, count);
+    }
+
+    /**
+     * Returns the calling thread's shard, so that tight loops can increment it directly rather than looking it up
+     * on each increment.
+     */
+    public LongHistogram getLocalShard() {
+        return localShard.get();
+    }
+
+    /** Returns a new histogram holding the merged counts of all shards. */
+    public LongHistogram combine() {
+        final LongHistogram combined = new LongHistogram(prototype);
+        for (final LongHistogram shard : shards) {
+            combined.merge(shard);
+        }
+        return combined;
+    }
+
+    /** Merges all shards and converts the result into a {@link Histogram}. */
+    public Histogram<Long> toHistogram(final String binLabel, final String valueLabel) {
+        return combine().toHistogram(binLabel, valueLabel);
+    }
+
+    /** Merges all shards and converts the result into a {@link Histogram} keyed by {@link Integer}s. */
+    public Histogram<Integer> toIntegerHistogram(final String binLabel, final String valueLabel) {
+        return combine().toIntegerHistogram(binLabel, valueLabel);
+    }
+
+    private LongHistogram newShard() {
+        final LongHistogram shard = new LongHistogram(prototype);
+        shards.add(shard);
+        return shard;
+    }
+}
@@ -27,6 +27,7 @@ package htsjdk.samtools.util;
 import htsjdk.samtools.Defaults;
 import htsjdk.samtools.SAMException;
 import htsjdk.samtools.seekablestream.SeekableBufferedStream;
+import htsjdk.samtools.seekablestream.SeekablePrefetchingStream;
 import htsjdk.samtools.seekablestream.SeekableFileStream;
 import htsjdk.samtools.seekablestream.SeekableHTTPStream;
 import htsjdk.samtools.seekablestream.SeekableStream;
@@ -171,7 +172,11 @@ public class IOUtil {
     }
 
     public static SeekableStream maybeBufferedSeekableStream(final SeekableStream stream, final int bufferSize) {
-        return bufferSize > 0 ? new SeekableBufferedStream(stream, bufferSize) : stream; 
+        // a prefetching stream does its own buffering, and wrapping it would hide it from query planning
+        if (stream instanceof SeekablePrefetchingStream) {
+            return stream;
+        }
+        return bufferSize > 0 ? new SeekableBufferedStream(stream, bufferSize) : stream;
     }
     
     public static SeekableStream maybeBufferedSeekableStream(final SeekableStream stream) {
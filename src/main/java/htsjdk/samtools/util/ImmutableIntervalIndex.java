@@ -0,0 +1,330 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * An immutable set of intervals, each with a value, built once for fast overlap queries.  Intended for large static
+ * sets of intervals, such as the targets of an exome, that are queried very many times.
+ *
+ * Unlike {@link IntervalTree}, which allocates a node per interval and an iterator per query, the intervals of each
+ * contig are held in flat arrays sorted by start, laid out as an implicit augmented interval tree (as in cgranges):
+ * the node at index i is at the level given by the number of trailing 1 bits of i, and holds the largest end of its
+ * subtree.  Queries allocate nothing beyond what the caller's {@link Consumer} does, and visit overlapping intervals
+ * in order of start, then of addition.
+ *
+ * Coordinates are 1-based and closed, as for {@link Locatable}.  Intervals with an end before their start have no
+ * overlappable bases and are dropped.  Instances are thread-safe.
+ *
+ * @param <T> the type of the values of the intervals
+ */
+public final class ImmutableIntervalIndex<T> {
+    private final Map<String, ContigIntervals<T>> contigs;
+    private final int size;
+
+    private ImmutableIntervalIndex(final Map<String, ContigIntervals<T>> contigs) {
+        this.contigs = contigs;
+        int size = 0;
+        for (final ContigIntervals<T> intervals : contigs.values()) {
+            size += intervals.size();
+        }
+        this.size = size;
+    }
+
+    /**
+     * @return an index of the locatables, with each locatable as its own value
+     */
+    public static <T extends Locatable> ImmutableIntervalIndex<T> create(final Collection<? extends T> locatables) {
+        final Builder<T> builder = new Builder<>();
+        for (final T locatable : locatables) {
+            builder.add(locatable, locatable);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the number of intervals in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the contigs that have intervals, in the order in which they were first added
+     */
+    public Set<String> getContigs() {
+        return Collections.unmodifiableSet(contigs.keySet());
+    }
+
+    /**
+     * @return true if any interval overlaps query
+     */
+    public boolean overlapsAny(final Locatable query) {
+        return overlapsAny(query.getContig(), query.getStart(), query.getEnd());
+    }
+
+    /**
+     * @return true if any interval overlaps the 1-based closed interval [start, end] of contig
+     */
+    public boolean overlapsAny(final String contig, final int start, final int end) {
+        final ContigIntervals<T> intervals = contigs.get(contig);
+        return intervals != null && start <= end && intervals.query(start, end, null, true) > 0;
+    }
+
+    /**
+     * @return the number of intervals that overlap the 1-based closed interval [start, end] of contig
+     */
+    public int countOverlaps(final String contig, final int start, final int end) {
+        final ContigIntervals<T> intervals = contigs.get(contig);
+        return intervals == null || start > end ? 0 : intervals.query(start, end, null, false);
+    }
+
+    /**
+     * Calls action with the value of each interval that overlaps query, in order of start.
+     */
+    public void forEachOverlap(final Locatable query, final Consumer<? super T> action) {
+        forEachOverlap(query.getContig(), query.getStart(), query.getEnd(), action);
+    }
+
+    /**
+     * Calls action with the value of each interval that overlaps the 1-based closed interval [start, end] of contig,
+     * in order of start.
+     */
+    public void forEachOverlap(final String contig, final int start, final int end, final Consumer<? super T> action) {
+        if (action == null) {
+            throw new IllegalArgumentException("null action");
+        }
+        final ContigIntervals<T> intervals = contigs.get(contig);
+        if (intervals != null && start <= end) {
+            intervals.query(start, end, action, false);
+        }
+    }
+
+    /**
+     * @return the values of the intervals that overlap query, in order of start
+     */
+    public List<T> getOverlaps(final Locatable query) {
+        final List<T> overlaps = new ArrayList<>();
+        forEachOverlap(query, overlaps::add);
+        return overlaps;
+    }
+
+    /**
+     * Collects intervals and their values, and builds an {@link ImmutableIntervalIndex} of them.
+     */
+    public static final class Builder<T> {
+        private final Map<String, ContigBuilder> contigs = new LinkedHashMap<>();
+
+        /**
+         * Adds the interval of locatable with the given value.
+         */
+        public Builder<T> add(final Locatable locatable, final T value) {
+            return add(locatable.getContig(), locatable.getStart(), locatable.getEnd(), value);
+        }
+
+        /**
+         * Adds the 1-based closed interval [start, end] of contig with the given value.
+         */
+        public Builder<T> add(final String contig, final int start, final int end, final T value) {
+            if (contig == null) {
+                throw new IllegalArgumentException("null contig");
+            }
+            if (start <= end) {
+                contigs.computeIfAbsent(contig, c -> new ContigBuilder()).add(start, end, value);
+            }
+            return this;
+        }
+
+        public ImmutableIntervalIndex<T> build() {
+            final Map<String, ContigIntervals<T>> built = new LinkedHashMap<>();
+            for (final Map.Entry<String, ContigBuilder> entry : contigs.entrySet()) {
+                built.put(entry.getKey(), entry.getValue().build());
+            }
+            return new ImmutableIntervalIndex<>(built);
+        }
+    }
+
+    private static final class ContigBuilder {
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private Object[] values = new Object[16];
+        private int size = 0;
+
+        private void add(final int start, final int end, final Object value) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            values[size] = value;
+            size++;
+        }
+
+        private <T> ContigIntervals<T> build() {
+            // sort by start, then by order of addition, without boxing
+            final long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) starts[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            final int[] sortedStarts = new int[size];
+            final int[] sortedEnds = new int[size];
+            final Object[] sortedValues = new Object[size];
+            for (int i = 0; i < size; i++) {
+                final int j = (int) keys[i];
+                sortedStarts[i] = starts[j];
+                sortedEnds[i] = ends[j];
+                sortedValues[i] = values[j];
+            }
+            return new ContigIntervals<>(sortedStarts, sortedEnds, sortedValues);
+        }
+    }
+
+    /**
+     * The intervals of one contig, sorted by start, with the largest end of the subtree of each node of the
+     * implicit interval tree.
+     */
+    private static final class ContigIntervals<T> {
+        // subtrees of nodes at this level or lower, and contigs with fewer intervals than fit in such a subtree,
+        // are scanned rather than descended
+        private static final int SCAN_LEVEL = 3;
+
+        private final int[] starts;
+        private final int[] ends;
+        private final Object[] values;
+        private final int[] maxEnds;
+        private final int rootLevel;
+
+        private ContigIntervals(final int[] starts, final int[] ends, final Object[] values) {
+            this.starts = starts;
+            this.ends = ends;
+            this.values = values;
+            this.maxEnds = new int[starts.length];
+
+            final int n = starts.length;
+            // the leaves are the even indices; last and lastEnd track the rightmost node of the level below and its
+            // largest end, which stands in for the right child of nodes whose right child is past the end of the arrays
+            int last = 0;
+            int lastEnd = 0;
+            for (int i = 0; i < n; i += 2) {
+                last = i;
+                lastEnd = maxEnds[i] = ends[i];
+            }
+            int level = 1;
+            for (; 1L << level <= n; level++) {
+                final int half = 1 << (level - 1);
+                for (int i = (half << 1) - 1; i < n; i += half << 2) {
+                    final int rightEnd = i + half < n ? maxEnds[i + half] : lastEnd;
+                    maxEnds[i] = Math.max(ends[i], Math.max(maxEnds[i - half], rightEnd));
+                }
+                last = ((last >> level) & 1) != 0 ? last - half : last + half;
+                if (last < n && maxEnds[last] > lastEnd) {
+                    lastEnd = maxEnds[last];
+                }
+            }
+            this.rootLevel = level - 1;
+        }
+
+        private int size() {
+            return starts.length;
+        }
+
+        /**
+         * @param action called with the value of each overlapping interval, may be null
+         * @param stopAtFirst whether to stop at the first overlapping interval
+         * @return the number of overlapping intervals visited
+         */
+        private int query(final int start, final int end, final Consumer<? super T> action, final boolean stopAtFirst) {
+            if (starts.length < 1 << (SCAN_LEVEL + 1)) {
+                return scan(0, starts.length, start, end, action, stopAtFirst);
+            }
+            return query((1 << rootLevel) - 1, rootLevel, start, end, action, stopAtFirst);
+        }
+
+        private int query(final int node, final int level, final int start, final int end,
+                          final Consumer<? super T> action, final boolean stopAtFirst) {
+            final int n = starts.length;
+            if (level <= SCAN_LEVEL) {
+                final int first = node >> level << level;
+                return scan(first, Math.min(first + (1 << (level + 1)) - 1, n), start, end, action, stopAtFirst);
+            }
+            final int half = 1 << (level - 1);
+            int count = 0;
+            // the left child may be past the end of the arrays, with parts of its subtree before the end
+            final int left = node - half;
+            if (left >= n || maxEnds[left] >= start) {
+                count += query(left, level - 1, start, end, action, stopAtFirst);
+                if (stopAtFirst && count > 0) {
+                    return count;
+                }
+            }
+            if (node < n && starts[node] <= end) {
+                if (ends[node] >= start) {
+                    count++;
+                    if (action != null) {
+                        action.accept(value(node));
+                    }
+                    if (stopAtFirst) {
+                        return count;
+                    }
+                }
+                count += query(node + half, level - 1, start, end, action, stopAtFirst);
+            }
+            return count;
+        }
+
+        private int scan(final int from, final int to, final int start, final int end,
+                         final Consumer<? super T> action, final boolean stopAtFirst) {
+            int count = 0;
+            for (int i = from; i < to && starts[i] <= end; i++) {
+                if (ends[i] >= start) {
+                    count++;
+                    if (action != null) {
+                        action.accept(value(i));
+                    }
+                    if (stopAtFirst) {
+                        return count;
+                    }
+                }
+            }
+            return count;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T value(final int i) {
+            return (T) values[i];
+        }
+    }
+}
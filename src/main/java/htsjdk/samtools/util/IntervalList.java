@@ -34,6 +34,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -371,7 +372,7 @@ public class IntervalList implements Iterable<Interval> {
 
     /** Gets the count of unique bases represented by the intervals in the list. */
     public long getUniqueBaseCount() {
-        return uniqued().getBaseCount();
+        return PackedIntervals.of(this).getBaseCount();
     }
 
     /** Returns the count of intervals in the list. */
@@ -400,11 +401,14 @@ public class IntervalList implements Iterable<Interval> {
     }
 
     /**
-     * Parses an interval list from a path.
+     * Parses an interval list from a path.  The path may also hold a {@link BinaryIntervalList}.
      * @param path the path containing the intervals
      * @return an IntervalList object that contains the headers and intervals from the path
      */
     public static IntervalList fromPath(final Path path) {
+        if (Files.isRegularFile(path) && BinaryIntervalList.isBinaryIntervalList(path)) {
+            return BinaryIntervalList.open(path).toIntervalList();
+        }
         final BufferedReader reader = IOUtil.openFileForBufferedReading(path);
         final IntervalList list = fromReader(reader);
         try {
@@ -575,17 +579,10 @@ public class IntervalList implements Iterable<Interval> {
 
         result = new IntervalList(list1.getHeader().clone());
 
-        final OverlapDetector<Interval> detector = new OverlapDetector<Interval>(0, 0);
-
-        detector.addAll(list1.getIntervals(), list1.getIntervals());
+        final ImmutableIntervalIndex<Interval> index = ImmutableIntervalIndex.create(list1.getIntervals());
 
         for (final Interval i : list2.getIntervals()) {
-            final Collection<Interval> as = detector.getOverlaps(i);
-            for (final Interval j : as) {
-                final Interval tmp = i.intersect(j);
-
-                result.add(tmp);
-            }
+            index.forEachOverlap(i, j -> result.add(i.intersect(j)));
         }
         return result.uniqued();
 
@@ -666,34 +663,10 @@ public class IntervalList implements Iterable<Interval> {
     public static IntervalList invert(final IntervalList list) {
         final IntervalList inverse = new IntervalList(list.header.clone());
 
-        final ListMap<Integer,Interval> map = new ListMap<Integer,Interval>();
-
-        //add all the intervals (uniqued and therefore also sorted) to a ListMap from sequenceIndex to a list of Intervals
-        for(final Interval i : list.uniqued().getIntervals()){
-            map.add(list.getHeader().getSequenceIndex(i.getContig()),i);
-        }
-
         // a counter to supply newly-created intervals with a name
         int intervals = 0;
-
-        //iterate over the contigs in the dictionary
-        for (final SAMSequenceRecord samSequenceRecord : list.getHeader().getSequenceDictionary().getSequences()) {
-            final Integer sequenceIndex = samSequenceRecord.getSequenceIndex();
-            final String sequenceName   = samSequenceRecord.getSequenceName();
-            final int sequenceLength    = samSequenceRecord.getSequenceLength();
-
-            Integer lastCoveredPosition = 0; //start at beginning of sequence
-            //iterate over list of intervals that are in sequence
-            if (map.containsKey(sequenceIndex)) // if there are intervals in the ListMap on this contig, iterate over them (in order)
-                for (final Interval i : map.get(sequenceIndex)) {
-                    if (i.getStart() > lastCoveredPosition + 1) //if there's space between the last interval and the current one, add an interval between them
-                        inverse.add(new Interval(sequenceName, lastCoveredPosition + 1, i.getStart() - 1, false, "interval-" + (++intervals)));
-                    lastCoveredPosition = i.getEnd(); //update the last covered position
-                }
-            //finally, if there's room between the last covered position and the end of the sequence, add an interval
-            if (sequenceLength > lastCoveredPosition) //if there's space between the last interval and the next
-                // one, add an interval. This also covers the case that there are no intervals in the ListMap for a contig.
-                inverse.add(new Interval(sequenceName, lastCoveredPosition + 1, sequenceLength, false, "interval-" + (++intervals)));
+        for (final Interval i : PackedIntervals.of(list).invert()) {
+            inverse.intervals.add(new Interval(i.getContig(), i.getStart(), i.getEnd(), false, "interval-" + (++intervals)));
         }
 
         return inverse;
@@ -776,11 +749,7 @@ public class IntervalList implements Iterable<Interval> {
                     list.getHeader().getSequenceDictionary());
             overlapIntervals.addall(list.getIntervals());
         }
-        final OverlapDetector<Integer> detector = new OverlapDetector<>(0, 0);
-        final int dummy = -1; // NB: since we don't actually use the returned objects, we can use a dummy value
-        for (final Interval interval : overlapIntervals.sorted().uniqued()) {
-            detector.addLhs(dummy, interval);
-        }
+        final ImmutableIntervalIndex<Interval> index = ImmutableIntervalIndex.create(overlapIntervals.sorted().uniqued().getIntervals());
 
         // Go through each input interval in in lists1 and see if overlaps any interval in lists2
         final IntervalList merged = new IntervalList(header);
@@ -788,7 +757,7 @@ public class IntervalList implements Iterable<Interval> {
             SequenceUtil.assertSequenceDictionariesEqual(header.getSequenceDictionary(),
                     list.getHeader().getSequenceDictionary());
             for (final Interval interval : list.getIntervals()) {
-                if (detector.overlapsAny(interval)) {
+                if (index.overlapsAny(interval)) {
                     merged.add(interval);
                 }
             }
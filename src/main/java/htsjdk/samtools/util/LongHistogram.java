@@ -0,0 +1,310 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of integral counts keyed by primitive {@code long}s (and hence {@code int}s), for histograms that are
+ * updated far too often to pay for boxing keys and allocating {@link Histogram.Bin}s on every increment.
+ *
+ * Keys in an optional dense window {@code [minDenseKey, maxDenseKey]} are counted in a flat array; all other keys
+ * go into an open-addressing hash table.  A window covering the expected bulk of the keys (e.g. insert sizes up to
+ * a few thousand, or base qualities) together with a sparse table for the tail keeps memory bounded regardless of
+ * outliers.
+ *
+ * Instances are not thread-safe.  Threads should each accumulate into their own instance and {@link #merge} them
+ * when done; see {@link ConcurrentLongHistogram}.  Bins whose count is zero are not reported.
+ */
+public final class LongHistogram {
+    /** Receives the non-empty bins of a histogram. */
+    @FunctionalInterface
+    public interface BinConsumer {
+        void accept(long key, long count);
+    }
+
+    private static final int INITIAL_SPARSE_CAPACITY = 16;
+
+    private final long minDenseKey;
+    private final long[] denseCounts;
+
+    private long[] sparseKeys;
+    private long[] sparseCounts;
+    private boolean[] sparseUsed;
+    private int sparseSize = 0;
+
+    /** Constructs a histogram that keeps all keys in its sparse table. */
+    public LongHistogram() {
+        this.minDenseKey = 0;
+        this.denseCounts = new long[0];
+        clearSparse();
+    }
+
+    /**
+     * Constructs a histogram that counts keys in {@code [minDenseKey, maxDenseKey]} in a dense array and all other
+     * keys in its sparse table.
+     */
+    public LongHistogram(final long minDenseKey, final long maxDenseKey) {
+        if (maxDenseKey < minDenseKey) {
+            throw new IllegalArgumentException("maxDenseKey " + maxDenseKey + " is less than minDenseKey " + minDenseKey);
+        }
+        final long span = maxDenseKey - minDenseKey + 1;
+        if (span <= 0 || span > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Dense key range [" + minDenseKey + ", " + maxDenseKey + "] is too large");
+        }
+        this.minDenseKey = minDenseKey;
+        this.denseCounts = new long[(int) span];
+        clearSparse();
+    }
+
+    /** Constructs an empty histogram with the same dense window as {@code other}. */
+    public LongHistogram(final LongHistogram other) {
+        this.minDenseKey = other.minDenseKey;
+        this.denseCounts = new long[other.denseCounts.length];
+        clearSparse();
+    }
+
+    /** Increments the count of the given key by one. */
+    public void increment(final long key) {
+        increment(key, 1L);
+    }
+
+    /** Increments the count of the given key by the supplied amount. */
+    public void increment(final long key, final long count) {
+        final long denseIndex = key - minDenseKey;
+        if (denseIndex >= 0 && denseIndex < denseCounts.length) {
+            denseCounts[(int) denseIndex] += count;
+        } else if (count != 0) {
+            sparseIncrement(key, count);
+        }
+    }
+
+    /** Returns the count of the given key, zero if it has never been incremented. */
+    public long get(final long key) {
+        final long denseIndex = key - minDenseKey;
+        if (denseIndex >= 0 && denseIndex < denseCounts.length) {
+            return denseCounts[(int) denseIndex];
+        }
+        final int slot = findSlot(key);
+        return sparseUsed[slot] ? sparseCounts[slot] : 0L;
+    }
+
+    /**
+     * Adds all the counts of {@code other} into this histogram.  Histograms sharing a dense window are merged with
+     * a single pass over the window plus one insertion per sparse key of {@code other}.
+     */
+    public void merge(final LongHistogram other) {
+        if (other.minDenseKey == minDenseKey && other.denseCounts.length == denseCounts.length) {
+            final long[] theirs = other.denseCounts;
+            for (int i = 0; i < theirs.length; i++) {
+                denseCounts[i] += theirs[i];
+            }
+        } else {
+            final long[] theirs = other.denseCounts;
+            for (int i = 0; i < theirs.length; i++) {
+                if (theirs[i] != 0) {
+                    increment(other.minDenseKey + i, theirs[i]);
+                }
+            }
+        }
+        for (int slot = 0; slot < other.sparseKeys.length; slot++) {
+            if (other.sparseUsed[slot]) {
+                increment(other.sparseKeys[slot], other.sparseCounts[slot]);
+            }
+        }
+    }
+
+    /** Returns the sum of the counts of all bins. */
+    public long getCount() {
+        long total = 0;
+        for (final long count : denseCounts) {
+            total += count;
+        }
+        for (int slot = 0; slot < sparseKeys.length; slot++) {
+            if (sparseUsed[slot]) {
+                total += sparseCounts[slot];
+            }
+        }
+        return total;
+    }
+
+    /** Returns the number of bins with a non-zero count. */
+    public int size() {
+        int size = 0;
+        for (final long count : denseCounts) {
+            if (count != 0) size++;
+        }
+        for (int slot = 0; slot < sparseKeys.length; slot++) {
+            if (sparseUsed[slot] && sparseCounts[slot] != 0) size++;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** Removes all counts, keeping the dense window. */
+    public void clear() {
+        Arrays.fill(denseCounts, 0L);
+        clearSparse();
+    }
+
+    /** Passes every non-empty bin to {@code consumer} in ascending key order. */
+    public void forEach(final BinConsumer consumer) {
+        final long[] sortedSparseKeys = new long[sparseSize];
+        int n = 0;
+        for (int slot = 0; slot < sparseKeys.length; slot++) {
+            if (sparseUsed[slot]) {
+                sortedSparseKeys[n++] = sparseKeys[slot];
+            }
+        }
+        Arrays.sort(sortedSparseKeys);
+
+        int i = 0;
+        // sparse keys lie entirely outside the dense window, so they split into those below and those above it
+        while (i < n && sortedSparseKeys[i] < minDenseKey) {
+            acceptSparse(sortedSparseKeys[i++], consumer);
+        }
+        for (int d = 0; d < denseCounts.length; d++) {
+            if (denseCounts[d] != 0) {
+                consumer.accept(minDenseKey + d, denseCounts[d]);
+            }
+        }
+        while (i < n) {
+            acceptSparse(sortedSparseKeys[i++], consumer);
+        }
+    }
+
+    /** Converts this histogram into a {@link Histogram}, e.g. for writing to a {@link htsjdk.samtools.metrics.MetricsFile}. */
+    public Histogram<Long> toHistogram(final String binLabel, final String valueLabel) {
+        final Histogram<Long> histogram = new Histogram<>(binLabel, valueLabel);
+        forEach((key, count) -> histogram.increment(key, count));
+        return histogram;
+    }
+
+    /**
+     * Converts this histogram into a {@link Histogram} keyed by {@link Integer}s, the usual key type of histograms
+     * written to metrics files.
+     * @throws IllegalStateException if any key is outside the range of an int
+     */
+    public Histogram<Integer> toIntegerHistogram(final String binLabel, final String valueLabel) {
+        final Histogram<Integer> histogram = new Histogram<>(binLabel, valueLabel);
+        forEach((key, count) -> {
+            if (key != (int) key) {
+                throw new IllegalStateException("Key " + key + " cannot be represented as an int");
+            }
+            histogram.increment((int) key, count);
+        });
+        return histogram;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LongHistogram)) return false;
+        final LongHistogram that = (LongHistogram) o;
+        if (size() != that.size()) return false;
+        final boolean[] equal = {true};
+        forEach((key, count) -> equal[0] &= that.get(key) == count);
+        return equal[0];
+    }
+
+    @Override
+    public int hashCode() {
+        final int[] hash = {0};
+        forEach((key, count) -> hash[0] += Long.hashCode(key) ^ Long.hashCode(count));
+        return hash[0];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        forEach((key, count) -> builder.append(builder.length() == 1 ? "" : ", ").append(key).append('=').append(count));
+        return builder.append('}').toString();
+    }
+
+    private void acceptSparse(final long key, final BinConsumer consumer) {
+        final long count = sparseCounts[findSlot(key)];
+        if (count != 0) {
+            consumer.accept(key, count);
+        }
+    }
+
+    private void sparseIncrement(final long key, final long count) {
+        int slot = findSlot(key);
+        if (!sparseUsed[slot]) {
+            if ((sparseSize + 1) * 2 > sparseKeys.length) {
+                growSparse();
+                slot = findSlot(key);
+            }
+            sparseUsed[slot] = true;
+            sparseKeys[slot] = key;
+            sparseSize++;
+        }
+        sparseCounts[slot] += count;
+    }
+
+    /** Returns the slot holding {@code key}, or the empty slot at which it would be inserted. */
+    private int findSlot(final long key) {
+        final int mask = sparseKeys.length - 1;
+        int slot = mix(key) & mask;
+        while (sparseUsed[slot] && sparseKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growSparse() {
+        final long[] oldKeys = sparseKeys;
+        final long[] oldCounts = sparseCounts;
+        final boolean[] oldUsed = sparseUsed;
+        allocateSparse(oldKeys.length * 2);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldUsed[slot]) {
+                final int newSlot = findSlot(oldKeys[slot]);
+                sparseUsed[newSlot] = true;
+                sparseKeys[newSlot] = oldKeys[slot];
+                sparseCounts[newSlot] = oldCounts[slot];
+            }
+        }
+    }
+
+    private void clearSparse() {
+        allocateSparse(INITIAL_SPARSE_CAPACITY);
+        sparseSize = 0;
+    }
+
+    private void allocateSparse(final int capacity) {
+        sparseKeys = new long[capacity];
+        sparseCounts = new long[capacity];
+        sparseUsed = new boolean[capacity];
+    }
+
+    /** Spreads neighbouring keys, which are the common case, across the table. */
+    private static int mix(final long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -35,10 +35,14 @@ import java.io.Serializable;
 /**
  * Provides an implementation of the Murmur3_32 hash algorithm that has desirable properties in terms of randomness
  * and uniformity of the distribution of output values that make it a useful hashing algorithm for downsampling.
+ * The x64 Murmur3_128 variant is also provided for callers that need more than 32 bits.
  */
 public final class Murmur3 implements Serializable{
     private static final long serialVersionUID = 1L;
 
+    private static final long C1_64 = 0x87c37b91114253d5L;
+    private static final long C2_64 = 0x4cf5ad432745937fL;
+
     private final int seed ;
 
     /** Constructs a Murmur3 hash with the given seed. */
@@ -68,6 +72,106 @@ public final class Murmur3 implements Serializable{
         return fmix(h1, 2 * length);
     }
 
+    /**
+     * Hashes a character stream to 128 bits using the x64 variant of Murmur3_128, treating each char as two
+     * little-endian bytes.  The first 64 bits are also returned by {@link #hash64UnencodedChars(CharSequence)}.
+     *
+     * @return the two 64-bit halves of the hash
+     */
+    public long[] hash128UnencodedChars(final CharSequence input) {
+        final long[] hash = new long[2];
+        hash128UnencodedChars(input, hash);
+        return hash;
+    }
+
+    /**
+     * Hashes a character stream to the first 64 bits of {@link #hash128UnencodedChars(CharSequence)}, without
+     * allocating.  Better distributed than {@link #hashUnencodedChars(CharSequence)} when more than 32 bits are needed.
+     */
+    public long hash64UnencodedChars(final CharSequence input) {
+        return hash128UnencodedChars(input, null);
+    }
+
+    /** Computes the 128-bit hash, storing both halves in hash if it is non-null, and returns the first half. */
+    private long hash128UnencodedChars(final CharSequence input, final long[] hash) {
+        long h1 = this.seed & 0xFFFFFFFFL;
+        long h2 = h1;
+
+        // step through the CharSequence 8 chars (16 bytes) at a time
+        final int length = input.length();
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            final long k1 = packChars(input, i, 4);
+            final long k2 = packChars(input, i + 4, 4);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        // deal with any remaining characters
+        final int remaining = length - i;
+        if (remaining > 4) {
+            h2 ^= mixK2(packChars(input, i + 4, remaining - 4));
+        }
+        if (remaining > 0) {
+            h1 ^= mixK1(packChars(input, i, Math.min(remaining, 4)));
+        }
+
+        h1 ^= 2 * length;
+        h2 ^= 2 * length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+
+        if (hash != null) {
+            hash[0] = h1;
+            hash[1] = h2;
+        }
+        return h1;
+    }
+
+    /** Packs count (at most 4) chars starting at offset into a long, little-endian. */
+    private static long packChars(final CharSequence input, final int offset, final int count) {
+        long k = 0;
+        for (int i = 0; i < count; i++) {
+            k |= (long) input.charAt(offset + i) << (16 * i);
+        }
+        return k;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1_64;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2_64;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2_64;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1_64;
+        return k2;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
     private int hashInt(int input){
         if(input == 0) return 0;
         int k1 = mixK1(input);
@@ -42,6 +42,13 @@ public class OverlapDetector<T> {
     private final int lhsBuffer;
     private final int rhsBuffer;
 
+    // flat-array copy of the trees, which is faster to query.  It is built once there have been as many queries as
+    // there are intervals since the last addition, so that detectors that are added to between queries do not pay
+    // for rebuilding it, and is dropped on addition.
+    private ImmutableIntervalIndex<Set<T>> index = null;
+    private long queriesSinceAddition = 0;
+    private long intervalCount = 0;
+
     /**
      * Constructs an overlap detector.
      * @param lhsBuffer the amount by which to "trim" coordinates of mappings on the left
@@ -85,10 +92,14 @@ public class OverlapDetector<T> {
         final Set<T> objects = new HashSet<>(1);
         objects.add(object);
         if (start <= end) {  // Don't put in sequences that have no overlappable bases
+            index = null;
+            queriesSinceAddition = 0;
             final Set<T> alreadyThere = tree.put(start, end, objects);
             if (alreadyThere != null) {
                 alreadyThere.add(object);
                 tree.put(start, end, alreadyThere);
+            } else {
+                intervalCount++;
             }
         }
     }
@@ -152,6 +163,10 @@ public class OverlapDetector<T> {
             return false;
         }
 
+        final ImmutableIntervalIndex<Set<T>> index = getIndex();
+        if (index != null) {
+            return index.overlapsAny(seqId, start, end);
+        }
         final Iterator<IntervalTree.Node<Set<T>>> it = tree.overlappers(start, end);
         while (it.hasNext()) {
             final IntervalTree.Node<Set<T>> node = it.next();
@@ -183,6 +198,11 @@ public class OverlapDetector<T> {
         }
 
         final Set<T> matches = new HashSet<>();
+        final ImmutableIntervalIndex<Set<T>> index = getIndex();
+        if (index != null) {
+            index.forEachOverlap(seqId, start, end, matches::addAll);
+            return matches;
+        }
         final Iterator<IntervalTree.Node<Set<T>>> it = tree.overlappers(start, end);
         while (it.hasNext()) {
             final IntervalTree.Node<Set<T>> node = it.next();
@@ -190,4 +210,20 @@ public class OverlapDetector<T> {
         }
         return matches;
     }
+
+    /**
+     * @return the flat-array index of the trees, or null if it has not been built yet
+     */
+    private ImmutableIntervalIndex<Set<T>> getIndex() {
+        if (index == null && ++queriesSinceAddition >= intervalCount) {
+            final ImmutableIntervalIndex.Builder<Set<T>> builder = new ImmutableIntervalIndex.Builder<>();
+            for (final Map.Entry<Object, IntervalTree<Set<T>>> entry : this.cache.entrySet()) {
+                for (final IntervalTree.Node<Set<T>> node : entry.getValue()) {
+                    builder.add((String) entry.getKey(), node.getStart(), node.getEnd(), node.getValue());
+                }
+            }
+            index = builder.build();
+        }
+        return index;
+    }
 }
@@ -0,0 +1,334 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * An immutable set of loci over a sequence dictionary, stored per contig as sorted, disjoint and non-abutting
+ * (start, end) pairs packed into primitive arrays.  Set operations are linear merge sweeps over two such arrays and
+ * may be run per contig in parallel by supplying an {@link ExecutorService}; {@link Interval} objects are only created
+ * as the result is iterated.
+ *
+ * Only the loci are kept: names and strands are dropped, and intervals that overlap or abut are merged as in
+ * {@link IntervalList#uniqued()}.  Empty intervals (end &lt; start) cover no loci and are ignored.
+ */
+public final class PackedIntervals implements Iterable<Interval> {
+    private static final int[] EMPTY = new int[0];
+
+    private final SAMSequenceDictionary dictionary;
+    /** For each contig index, the intervals on that contig as consecutive (start, end) pairs in coordinate order. */
+    private final int[][] bounds;
+
+    private PackedIntervals(final SAMSequenceDictionary dictionary, final int[][] bounds) {
+        this.dictionary = dictionary;
+        this.bounds = bounds;
+    }
+
+    /** Packs the loci covered by the given list. */
+    public static PackedIntervals of(final IntervalList list) {
+        return of(list, null);
+    }
+
+    /**
+     * Packs the loci covered by the given list.
+     * @param executor if non-null, the intervals of each contig are sorted and merged as a separate task on this executor
+     */
+    public static PackedIntervals of(final IntervalList list, final ExecutorService executor) {
+        final SAMSequenceDictionary dictionary = list.getHeader().getSequenceDictionary();
+        final List<Interval> intervals = list.getIntervals();
+        final int[] contigIndexes = new int[intervals.size()];
+        final int[] counts = new int[dictionary.size()];
+
+        String lastContig = null;
+        int lastContigIndex = -1;
+        for (int i = 0; i < contigIndexes.length; i++) {
+            final Interval interval = intervals.get(i);
+            if (!interval.getContig().equals(lastContig)) {
+                lastContig = interval.getContig();
+                lastContigIndex = dictionary.getSequenceIndex(lastContig);
+            }
+            contigIndexes[i] = lastContigIndex;
+            if (interval.getEnd() >= interval.getStart()) counts[lastContigIndex]++;
+        }
+
+        // Each interval becomes a single long sorting first by start, so a contig is sorted without any comparator
+        final long[][] keys = new long[counts.length][];
+        for (int c = 0; c < counts.length; c++) {
+            keys[c] = new long[counts[c]];
+            counts[c] = 0;
+        }
+        for (int i = 0; i < contigIndexes.length; i++) {
+            final Interval interval = intervals.get(i);
+            if (interval.getEnd() >= interval.getStart()) {
+                final int c = contigIndexes[i];
+                keys[c][counts[c]++] = ((long) interval.getStart() << 32) | (interval.getEnd() & 0xFFFFFFFFL);
+            }
+        }
+
+        return new PackedIntervals(dictionary, perContig(keys.length, executor, c -> sortAndMerge(keys[c])));
+    }
+
+    /** @return the loci in either this set or the other */
+    public PackedIntervals union(final PackedIntervals other) {
+        return union(other, null);
+    }
+
+    /** @return the loci in either this set or the other, computed per contig on the executor if it is non-null */
+    public PackedIntervals union(final PackedIntervals other, final ExecutorService executor) {
+        return combine(other, Operation.UNION, executor);
+    }
+
+    /** @return the loci in both this set and the other */
+    public PackedIntervals intersect(final PackedIntervals other) {
+        return intersect(other, null);
+    }
+
+    /** @return the loci in both this set and the other, computed per contig on the executor if it is non-null */
+    public PackedIntervals intersect(final PackedIntervals other, final ExecutorService executor) {
+        return combine(other, Operation.INTERSECT, executor);
+    }
+
+    /** @return the loci in this set but not in the other */
+    public PackedIntervals subtract(final PackedIntervals other) {
+        return subtract(other, null);
+    }
+
+    /** @return the loci in this set but not in the other, computed per contig on the executor if it is non-null */
+    public PackedIntervals subtract(final PackedIntervals other, final ExecutorService executor) {
+        return combine(other, Operation.SUBTRACT, executor);
+    }
+
+    /** @return the loci in exactly one of this set and the other */
+    public PackedIntervals difference(final PackedIntervals other) {
+        return difference(other, null);
+    }
+
+    /** @return the loci in exactly one of this set and the other, computed per contig on the executor if it is non-null */
+    public PackedIntervals difference(final PackedIntervals other, final ExecutorService executor) {
+        return combine(other, Operation.DIFFERENCE, executor);
+    }
+
+    /** @return the loci of the sequence dictionary that are not in this set */
+    public PackedIntervals invert() {
+        return invert(null);
+    }
+
+    /** @return the loci of the sequence dictionary that are not in this set, computed per contig on the executor if it is non-null */
+    public PackedIntervals invert(final ExecutorService executor) {
+        return new PackedIntervals(dictionary, perContig(bounds.length, executor, c -> {
+            final int length = dictionary.getSequence(c).getSequenceLength();
+            return sweep(length < 1 ? EMPTY : new int[]{1, length}, bounds[c], Operation.SUBTRACT);
+        }));
+    }
+
+    /** @return the number of disjoint intervals in the set */
+    public int size() {
+        int size = 0;
+        for (final int[] contigBounds : bounds) {
+            size += contigBounds.length / 2;
+        }
+        return size;
+    }
+
+    /** @return the number of loci in the set */
+    public long getBaseCount() {
+        long count = 0;
+        for (final int[] contigBounds : bounds) {
+            for (int i = 0; i < contigBounds.length; i += 2) {
+                count += contigBounds[i + 1] - contigBounds[i] + 1;
+            }
+        }
+        return count;
+    }
+
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return dictionary;
+    }
+
+    /** @return a new coordinate sorted IntervalList holding the intervals of this set, without names and on the positive strand */
+    public IntervalList toIntervalList() {
+        final SAMFileHeader header = new SAMFileHeader(dictionary);
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        final IntervalList list = new IntervalList(header);
+        for (final Interval interval : this) {
+            list.add(interval);
+        }
+        return list;
+    }
+
+    /** Iterates over the intervals of the set in coordinate order, creating each {@link Interval} as it is reached. */
+    @Override
+    public Iterator<Interval> iterator() {
+        return new Iterator<Interval>() {
+            private int contig = 0;
+            private int offset = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (contig < bounds.length && offset == bounds[contig].length) {
+                    contig++;
+                    offset = 0;
+                }
+                return contig < bounds.length;
+            }
+
+            @Override
+            public Interval next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                final int[] contigBounds = bounds[contig];
+                final Interval interval = new Interval(dictionary.getSequence(contig).getSequenceName(),
+                        contigBounds[offset], contigBounds[offset + 1]);
+                offset += 2;
+                return interval;
+            }
+        };
+    }
+
+    private PackedIntervals combine(final PackedIntervals other, final Operation operation, final ExecutorService executor) {
+        SequenceUtil.assertSequenceDictionariesEqual(dictionary, other.dictionary);
+        return new PackedIntervals(dictionary, perContig(bounds.length, executor, c -> sweep(bounds[c], other.bounds[c], operation)));
+    }
+
+    /** Sorts the packed intervals of one contig and merges those that overlap or abut into (start, end) pairs. */
+    private static int[] sortAndMerge(final long[] keys) {
+        if (keys.length == 0) return EMPTY;
+        Arrays.sort(keys);
+
+        final int[] merged = new int[keys.length * 2];
+        int n = 0;
+        int start = (int) (keys[0] >> 32);
+        int end = (int) keys[0];
+        for (int i = 1; i < keys.length; i++) {
+            final int nextStart = (int) (keys[i] >> 32);
+            final int nextEnd = (int) keys[i];
+            if (nextStart <= (long) end + 1) {
+                end = Math.max(end, nextEnd);
+            } else {
+                merged[n++] = start;
+                merged[n++] = end;
+                start = nextStart;
+                end = nextEnd;
+            }
+        }
+        merged[n++] = start;
+        merged[n++] = end;
+        return n == merged.length ? merged : Arrays.copyOf(merged, n);
+    }
+
+    /**
+     * Walks the boundaries of two packed interval arrays in order.  A locus is inside an array when an odd number of
+     * its half-open boundaries (start, end + 1) are at or before it, and the result gains a boundary wherever the
+     * operation's value changes, so adjacent result intervals come out already merged.
+     */
+    private static int[] sweep(final int[] a, final int[] b, final Operation operation) {
+        final int[] result = new int[a.length + b.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        boolean inside = false;
+        while (i < a.length || j < b.length) {
+            final long nextA = i < a.length ? boundary(a, i) : Long.MAX_VALUE;
+            final long nextB = j < b.length ? boundary(b, j) : Long.MAX_VALUE;
+            final long position = Math.min(nextA, nextB);
+            if (nextA == position) i++;
+            if (nextB == position) j++;
+
+            final boolean nowInside = operation.apply((i & 1) == 1, (j & 1) == 1);
+            if (nowInside != inside) {
+                result[n++] = (int) (nowInside ? position : position - 1);
+                inside = nowInside;
+            }
+        }
+        return n == 0 ? EMPTY : n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    /** @return the i'th half-open boundary of a packed interval array */
+    private static long boundary(final int[] packed, final int i) {
+        return (i & 1) == 0 ? packed[i] : (long) packed[i] + 1;
+    }
+
+    private static int[][] perContig(final int contigs, final ExecutorService executor, final IntFunction<int[]> task) {
+        final int[][] result = new int[contigs][];
+        if (executor == null) {
+            for (int c = 0; c < contigs; c++) {
+                result[c] = task.apply(c);
+            }
+            return result;
+        }
+
+        final List<Future<int[]>> futures = new ArrayList<>(contigs);
+        for (int c = 0; c < contigs; c++) {
+            final int contig = c;
+            futures.add(executor.submit(() -> task.apply(contig)));
+        }
+        try {
+            for (int c = 0; c < contigs; c++) {
+                result[c] = futures.get(c).get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SAMException("Interrupted while combining intervals", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SAMException("Unable to combine intervals", e.getCause());
+        }
+        return result;
+    }
+
+    private enum Operation {
+        UNION {
+            @Override
+            boolean apply(final boolean inA, final boolean inB) { return inA || inB; }
+        },
+        INTERSECT {
+            @Override
+            boolean apply(final boolean inA, final boolean inB) { return inA && inB; }
+        },
+        SUBTRACT {
+            @Override
+            boolean apply(final boolean inA, final boolean inB) { return inA && !inB; }
+        },
+        DIFFERENCE {
+            @Override
+            boolean apply(final boolean inA, final boolean inB) { return inA != inB; }
+        };
+
+        abstract boolean apply(boolean inA, boolean inB);
+    }
+}
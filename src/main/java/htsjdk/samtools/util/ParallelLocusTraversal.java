@@ -0,0 +1,201 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Reduces the loci of a set of intervals in parallel.  The intervals are split into shards of about
+ * {@link #getShardSize()} bases that share no locus; each shard is traversed by its own locus iterator over its own
+ * (indexed) reader, so a read that spans a shard boundary contributes each of its bases to exactly one shard.  The
+ * loci of a shard are folded into a per-shard result, and the per-shard results are then combined in coordinate order.
+ *
+ * @param <K> the type of locus returned by the locus iterators
+ */
+public class ParallelLocusTraversal<K extends AbstractLocusInfo<?>> {
+    public static final int DEFAULT_SHARD_SIZE = 1_000_000;
+
+    private final Supplier<SamReader> readerSupplier;
+    private final BiFunction<SamReader, IntervalList, ? extends AbstractLocusIterator<?, K>> iteratorFactory;
+    private final int shardSize;
+    private final List<IntervalList> shards;
+
+    /**
+     * @param readerSupplier  opens a new reader over the coordinate sorted and indexed input each time it is called.
+     *                        Readers are closed after their shard has been traversed.
+     * @param intervals       the loci to traverse, or null for every locus of the sequence dictionary of the input
+     * @param iteratorFactory creates and configures the locus iterator of a shard, e.g.
+     *                        <code>(reader, shard) -&gt; new SamLocusIterator(reader, shard, true)</code>
+     */
+    public ParallelLocusTraversal(final Supplier<SamReader> readerSupplier, final IntervalList intervals,
+                                  final BiFunction<SamReader, IntervalList, ? extends AbstractLocusIterator<?, K>> iteratorFactory) {
+        this(readerSupplier, intervals, iteratorFactory, DEFAULT_SHARD_SIZE);
+    }
+
+    /**
+     * @param shardSize the number of loci in each shard but the last
+     */
+    public ParallelLocusTraversal(final Supplier<SamReader> readerSupplier, final IntervalList intervals,
+                                  final BiFunction<SamReader, IntervalList, ? extends AbstractLocusIterator<?, K>> iteratorFactory,
+                                  final int shardSize) {
+        if (shardSize <= 0) throw new IllegalArgumentException("Shard size must be positive: " + shardSize);
+        this.readerSupplier = readerSupplier;
+        this.iteratorFactory = iteratorFactory;
+        this.shardSize = shardSize;
+        this.shards = Collections.unmodifiableList(makeShards(intervals == null ? wholeGenome() : intervals, shardSize));
+    }
+
+    public int getShardSize() {
+        return shardSize;
+    }
+
+    /**
+     * @return the shards in coordinate order
+     */
+    public List<IntervalList> getShards() {
+        return shards;
+    }
+
+    /**
+     * Folds the loci of each shard into a result, and combines the results of the shards.
+     *
+     * @param initial  creates the empty result of a shard
+     * @param reducer  folds one locus into the result of its shard, returning the updated result.  Locus objects may be
+     *                 reused by the iterator once the reducer returns, so must not be retained.
+     * @param combiner combines the result of the shards seen so far with that of the next shard, in coordinate order
+     * @param executor if non-null, the shards are traversed as tasks on this executor; otherwise one after the other
+     * @return the combined result of all the shards, or the initial value if there are none
+     */
+    public <R> R reduce(final Supplier<R> initial, final BiFunction<R, ? super K, R> reducer, final BinaryOperator<R> combiner,
+                        final ExecutorService executor) {
+        final List<R> results = new ArrayList<>(shards.size());
+        if (executor == null) {
+            for (final IntervalList shard : shards) {
+                results.add(traverse(shard, initial, reducer));
+            }
+        } else {
+            final List<Future<R>> futures = new ArrayList<>(shards.size());
+            for (final IntervalList shard : shards) {
+                futures.add(executor.submit(() -> traverse(shard, initial, reducer)));
+            }
+            try {
+                for (final Future<R> future : futures) {
+                    results.add(future.get());
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SAMException("Interrupted while traversing loci", e);
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new SAMException("Unable to traverse loci", e.getCause());
+            } finally {
+                for (final Future<R> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        if (results.isEmpty()) return initial.get();
+        R combined = results.get(0);
+        for (int i = 1; i < results.size(); i++) {
+            combined = combiner.apply(combined, results.get(i));
+        }
+        return combined;
+    }
+
+    private <R> R traverse(final IntervalList shard, final Supplier<R> initial, final BiFunction<R, ? super K, R> reducer) {
+        R result = initial.get();
+        try (final SamReader reader = readerSupplier.get()) {
+            final AbstractLocusIterator<?, K> iterator = iteratorFactory.apply(reader, shard);
+            try {
+                for (final K locus : iterator) {
+                    result = reducer.apply(result, locus);
+                }
+            } finally {
+                iterator.close();
+            }
+        } catch (final IOException e) {
+            throw new RuntimeIOException("Error closing reader", e);
+        }
+        return result;
+    }
+
+    private IntervalList wholeGenome() {
+        final SAMFileHeader header;
+        try (final SamReader reader = readerSupplier.get()) {
+            header = reader.getFileHeader();
+        } catch (final IOException e) {
+            throw new RuntimeIOException("Error closing reader", e);
+        }
+        final IntervalList intervals = new IntervalList(header.clone());
+        for (final SAMSequenceRecord sequence : header.getSequenceDictionary().getSequences()) {
+            intervals.add(new Interval(sequence.getSequenceName(), 1, sequence.getSequenceLength()));
+        }
+        return intervals;
+    }
+
+    /**
+     * Splits the unique loci of the intervals into consecutive shards of shardSize loci, cutting intervals where needed.
+     */
+    static List<IntervalList> makeShards(final IntervalList intervals, final int shardSize) {
+        final List<IntervalList> shards = new ArrayList<>();
+        final SAMFileHeader header = intervals.getHeader().clone();
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+
+        IntervalList shard = new IntervalList(header);
+        long shardBases = 0;
+        for (final Interval interval : intervals.uniqued().getIntervals()) {
+            int start = interval.getStart();
+            while (start <= interval.getEnd()) {
+                final int end = (int) Math.min(interval.getEnd(), start + (shardSize - shardBases) - 1);
+                shard.add(new Interval(interval.getContig(), start, end, interval.isNegativeStrand(), interval.getName()));
+                shardBases += end - start + 1;
+                start = end + 1;
+                if (shardBases == shardSize) {
+                    shards.add(shard);
+                    shard = new IntervalList(header);
+                    shardBases = 0;
+                }
+            }
+        }
+        if (shard.size() > 0) shards.add(shard);
+        return shards;
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Finds the intervals overlapping each of a stream of coordinate-sorted SAMRecords by sweeping through the intervals,
+ * which must also be sorted, in step with the records.  Unlike an {@link OverlapDetector}, no tree is queried: each
+ * interval is read once, and is kept in a small set of active intervals from the first record that could overlap it
+ * until the records have passed its end, so the work per record is proportional to the number of intervals active
+ * at its position.
+ *
+ * Records must be passed in coordinate order.  Intervals must be in the order of their contigs in the sequence
+ * dictionary and then of start, but may overlap.  Records on contigs without intervals, unmapped records and
+ * intervals without bases overlap nothing.
+ *
+ * @param <T> the type of the intervals
+ */
+public final class SortedIntervalJoin<T extends Locatable> {
+    private final PeekableIterator<? extends T> intervals;
+    private final SAMSequenceDictionary dictionary;
+
+    // intervals on the current contig that may overlap the current or a later record
+    private final List<T> active = new ArrayList<>();
+    private final List<T> overlaps = new ArrayList<>();
+    private int currentContig = -1;
+
+    private int lastRecordContig = -1;
+    private int lastRecordStart = 0;
+    private int lastIntervalContig = -1;
+    private int lastIntervalStart = 0;
+
+    /**
+     * @param intervals  sorted by the index of their contig in dictionary and then by start
+     * @param dictionary the sequence dictionary of the records
+     */
+    public SortedIntervalJoin(final Iterator<? extends T> intervals, final SAMSequenceDictionary dictionary) {
+        if (intervals == null) {
+            throw new IllegalArgumentException("null intervals");
+        }
+        if (dictionary == null) {
+            throw new IllegalArgumentException("null dictionary");
+        }
+        this.intervals = new PeekableIterator<>(intervals);
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Keeps only the records that overlap any of the intervals.
+     *
+     * @param records    in coordinate order
+     * @param intervals  sorted by the index of their contig in dictionary and then by start
+     * @param dictionary the sequence dictionary of the records
+     */
+    public static CloseableIterator<SAMRecord> keepOverlapping(final Iterator<SAMRecord> records,
+                                                               final Iterator<? extends Locatable> intervals,
+                                                               final SAMSequenceDictionary dictionary) {
+        final SortedIntervalJoin<Locatable> join = new SortedIntervalJoin<>(intervals, dictionary);
+        return new JoinIterator<SAMRecord>(records) {
+            @Override
+            protected SAMRecord join(final SAMRecord record) {
+                return join.overlapsAny(record) ? record : null;
+            }
+        };
+    }
+
+    /**
+     * Pairs each record with the intervals that it overlaps.
+     *
+     * @param records    in coordinate order
+     * @param intervals  sorted by the index of their contig in dictionary and then by start
+     * @param dictionary the sequence dictionary of the records
+     * @return every record, with the intervals it overlaps in order of start, or with none
+     */
+    public static <T extends Locatable> CloseableIterator<AnnotatedRecord<T>> annotate(final Iterator<SAMRecord> records,
+                                                                                     final Iterator<? extends T> intervals,
+                                                                                     final SAMSequenceDictionary dictionary) {
+        final SortedIntervalJoin<T> join = new SortedIntervalJoin<>(intervals, dictionary);
+        return new JoinIterator<AnnotatedRecord<T>>(records) {
+            @Override
+            protected AnnotatedRecord<T> join(final SAMRecord record) {
+                final List<T> overlaps = join.getOverlaps(record);
+                return new AnnotatedRecord<>(record, overlaps.isEmpty() ? Collections.emptyList() : new ArrayList<>(overlaps));
+            }
+        };
+    }
+
+    /**
+     * @param record the next record, at or after the previous one in coordinate order
+     * @return true if record overlaps any of the intervals
+     */
+    public boolean overlapsAny(final SAMRecord record) {
+        return !getOverlaps(record).isEmpty();
+    }
+
+    /**
+     * @param record the next record, at or after the previous one in coordinate order
+     * @return the intervals that record overlaps, in order of start.  The list is reused by the next call.
+     */
+    public List<T> getOverlaps(final SAMRecord record) {
+        return getOverlaps(record.getReferenceIndex(), record.getAlignmentStart(), record.getAlignmentEnd());
+    }
+
+    /**
+     * @param contigIndex the index of the contig in the sequence dictionary, or -1 for unplaced records
+     * @param start       the 1-based start, at or after the previous start if on the same contig
+     * @param end         the 1-based closed end
+     * @return the intervals that [start, end] overlaps, in order of start.  The list is reused by the next call.
+     */
+    public List<T> getOverlaps(final int contigIndex, final int start, final int end) {
+        overlaps.clear();
+        if (contigIndex == SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX) {
+            // unplaced records come last, so no interval can overlap this or any later record
+            lastRecordContig = Integer.MAX_VALUE;
+            active.clear();
+            return overlaps;
+        }
+        if (contigIndex < lastRecordContig || (contigIndex == lastRecordContig && start < lastRecordStart)) {
+            throw new SAMException("Records are not in coordinate order: " + dictionary.getSequence(contigIndex).getSequenceName() +
+                    ":" + start + " is after a record at " + (lastRecordContig == Integer.MAX_VALUE ? "an unplaced position" :
+                    dictionary.getSequence(lastRecordContig).getSequenceName() + ":" + lastRecordStart));
+        }
+        lastRecordContig = contigIndex;
+        lastRecordStart = start;
+
+        if (contigIndex != currentContig) {
+            active.clear();
+            currentContig = contigIndex;
+        }
+
+        // drop the intervals that end before this record, and so before any later record on this contig
+        int kept = 0;
+        for (int i = 0; i < active.size(); i++) {
+            final T interval = active.get(i);
+            if (interval.getEnd() >= start) {
+                active.set(kept++, interval);
+            }
+        }
+        active.subList(kept, active.size()).clear();
+
+        // activate the intervals that start before the end of this record
+        while (intervals.hasNext()) {
+            final T interval = intervals.peek();
+            final int intervalContig = getContigIndex(interval);
+            if (intervalContig > contigIndex || (intervalContig == contigIndex && interval.getStart() > end)) {
+                break;
+            }
+            intervals.next();
+            if (intervalContig == contigIndex && interval.getEnd() >= start && interval.getEnd() >= interval.getStart()) {
+                active.add(interval);
+            }
+        }
+
+        for (final T interval : active) {
+            if (interval.getStart() <= end) {
+                overlaps.add(interval);
+            }
+        }
+        return overlaps;
+    }
+
+    private int getContigIndex(final T interval) {
+        final int contigIndex = dictionary.getSequenceIndex(interval.getContig());
+        if (contigIndex == -1) {
+            throw new SAMException("Interval " + interval + " is on a contig that is not in the sequence dictionary");
+        }
+        if (contigIndex < lastIntervalContig || (contigIndex == lastIntervalContig && interval.getStart() < lastIntervalStart)) {
+            throw new SAMException("Intervals not in order: " + interval + " is after an interval starting at " +
+                    dictionary.getSequence(lastIntervalContig).getSequenceName() + ":" + lastIntervalStart);
+        }
+        lastIntervalContig = contigIndex;
+        lastIntervalStart = interval.getStart();
+        return contigIndex;
+    }
+
+    /**
+     * A record and the intervals that it overlaps.
+     */
+    public static final class AnnotatedRecord<T> {
+        private final SAMRecord record;
+        private final List<T> intervals;
+
+        private AnnotatedRecord(final SAMRecord record, final List<T> intervals) {
+            this.record = record;
+            this.intervals = Collections.unmodifiableList(intervals);
+        }
+
+        public SAMRecord getRecord() {
+            return record;
+        }
+
+        /** @return the intervals that the record overlaps, in order of start, empty if none */
+        public List<T> getIntervals() {
+            return intervals;
+        }
+    }
+
+    /**
+     * Iterates over the non-null results of joining each record.
+     */
+    private abstract static class JoinIterator<R> implements CloseableIterator<R> {
+        private final Iterator<SAMRecord> records;
+        private R next = null;
+
+        private JoinIterator(final Iterator<SAMRecord> records) {
+            this.records = records;
+        }
+
+        /** @return the result for record, or null to skip it */
+        protected abstract R join(SAMRecord record);
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && records.hasNext()) {
+                next = join(records.next());
+            }
+            return next != null;
+        }
+
+        @Override
+        public R next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final R result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void close() {
+            CloserUtil.close(records);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.samtools.Defaults;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done by readers and writers: records, compressed and uncompressed bytes, BGZF blocks, cache hits
+ * and the time spent inflating, deflating and decoding.  Counters are {@link LongAdder}s, so many decoding threads can
+ * add to them without contending, and {@link #snapshot()} reads them without stopping the writers.
+ *
+ * {@link htsjdk.samtools.util.BlockCompressedInputStream}, {@link htsjdk.samtools.util.BlockCompressedOutputStream},
+ * {@link htsjdk.samtools.BAMRecordCodec}, {@link htsjdk.samtools.CRAMIterator} and
+ * {@link htsjdk.samtools.seekablestream.SeekablePrefetchingStream} add to the global instance, which is null (and so
+ * costs nothing) unless {@link Defaults#COLLECT_THROUGHPUT_METRICS} is set or {@link #setGlobal(ThroughputMetrics)}
+ * is called.  Snapshots can be reported periodically with a {@link ThroughputMetricsReporter}.
+ */
+public final class ThroughputMetrics {
+
+    public enum Counter {
+        RECORDS_DECODED,
+        RECORDS_ENCODED,
+        COMPRESSED_BYTES_READ,
+        UNCOMPRESSED_BYTES_READ,
+        COMPRESSED_BYTES_WRITTEN,
+        UNCOMPRESSED_BYTES_WRITTEN,
+        BLOCKS_READ,
+        BLOCKS_WRITTEN,
+        CACHE_HITS,
+        CACHE_MISSES,
+        INFLATE_NANOS,
+        DEFLATE_NANOS,
+        DECODE_NANOS
+    }
+
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private static volatile ThroughputMetrics global = Defaults.COLLECT_THROUGHPUT_METRICS ? new ThroughputMetrics() : null;
+
+    private final LongAdder[] adders = new LongAdder[COUNTERS.length];
+
+    public ThroughputMetrics() {
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return the instance that htsjdk readers and writers add to, or null if metrics are not being collected
+     */
+    public static ThroughputMetrics getGlobal() {
+        return global;
+    }
+
+    /**
+     * @param metrics the instance htsjdk readers and writers should add to, or null to stop collecting metrics
+     */
+    public static void setGlobal(final ThroughputMetrics metrics) {
+        global = metrics;
+    }
+
+    public void increment(final Counter counter) {
+        adders[counter.ordinal()].increment();
+    }
+
+    public void add(final Counter counter, final long value) {
+        adders[counter.ordinal()].add(value);
+    }
+
+    public long get(final Counter counter) {
+        return adders[counter.ordinal()].sum();
+    }
+
+    /** Resets all counters to zero.  Counts added concurrently with the reset may be lost. */
+    public void reset() {
+        for (final LongAdder adder : adders) {
+            adder.reset();
+        }
+    }
+
+    /**
+     * @return the current value of every counter.  Each counter is read without locking, so a snapshot taken while
+     * counts are being added is not an atomic view across counters.
+     */
+    public Snapshot snapshot() {
+        final long[] values = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            values[i] = adders[i].sum();
+        }
+        return new Snapshot(System.nanoTime(), values);
+    }
+
+    /** The values of all counters at one point in time. */
+    public static final class Snapshot {
+        private final long nanoTime;
+        private final long[] values;
+
+        private Snapshot(final long nanoTime, final long[] values) {
+            this.nanoTime = nanoTime;
+            this.values = values;
+        }
+
+        /** @return the {@link System#nanoTime()} at which the snapshot was taken */
+        public long getNanoTime() {
+            return nanoTime;
+        }
+
+        public long get(final Counter counter) {
+            return values[counter.ordinal()];
+        }
+
+        /**
+         * @return the counts added between previous and this snapshot, taken at this snapshot's time
+         */
+        public Snapshot minus(final Snapshot previous) {
+            final long[] difference = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                difference[i] = values[i] - previous.values[i];
+            }
+            return new Snapshot(nanoTime, difference);
+        }
+
+        /**
+         * @return the counter's value per second over the given number of nanoseconds, e.g. the time between two snapshots
+         */
+        public double perSecond(final Counter counter, final long elapsedNanos) {
+            return elapsedNanos <= 0 ? 0 : get(counter) * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder();
+            for (final Counter counter : COUNTERS) {
+                if (builder.length() > 0) builder.append(", ");
+                builder.append(counter.name()).append('=').append(values[counter.ordinal()]);
+            }
+            return builder.toString();
+        }
+    }
+}
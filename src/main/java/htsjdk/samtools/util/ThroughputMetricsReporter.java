@@ -0,0 +1,305 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.samtools.util.ThroughputMetrics.Counter;
+import htsjdk.samtools.util.ThroughputMetrics.Snapshot;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically takes snapshots of a {@link ThroughputMetrics} on a background thread and reports them.  Reading a
+ * snapshot does not block the threads adding to the metrics.
+ *
+ * Implementations for a {@link Log}, a CSV {@link Writer} and JMX are provided as nested classes.  Call
+ * {@link #start(long, TimeUnit)} to report periodically, and {@link #close()} to stop and make a final report.
+ */
+public abstract class ThroughputMetricsReporter implements Closeable {
+    private static final Log log = Log.getInstance(ThroughputMetricsReporter.class);
+
+    private final ThroughputMetrics metrics;
+    private Snapshot previous;
+    private ScheduledExecutorService scheduler = null;
+    private boolean closed = false;
+
+    protected ThroughputMetricsReporter(final ThroughputMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("metrics must not be null");
+        }
+        this.metrics = metrics;
+        this.previous = metrics.snapshot();
+    }
+
+    /**
+     * Starts reporting every period on a daemon thread owned by this reporter.
+     */
+    public synchronized void start(final long period, final TimeUnit unit) {
+        if (closed) {
+            throw new IllegalStateException("Reporter has been closed");
+        }
+        if (scheduler != null) {
+            throw new IllegalStateException("Reporter has already been started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "ThroughputMetricsReporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                report();
+            } catch (final RuntimeException e) {
+                log.warn(e, "Failed to report throughput metrics");
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Takes a snapshot and reports it along with the counts since the previous report.
+     */
+    public synchronized void report() {
+        final Snapshot current = metrics.snapshot();
+        final Snapshot interval = current.minus(previous);
+        report(current, interval, current.getNanoTime() - previous.getNanoTime());
+        previous = current;
+    }
+
+    /**
+     * @param total         the counters since the metrics were created or last reset
+     * @param interval      the counts added since the previous report
+     * @param intervalNanos the time since the previous report
+     */
+    protected abstract void report(Snapshot total, Snapshot interval, long intervalNanos);
+
+    /** Releases anything held by the reporter.  Called once, after the final report. */
+    protected void closeReporter() throws IOException {}
+
+    /**
+     * Stops periodic reporting, makes a final report and releases the reporter's resources.
+     */
+    @Override
+    public void close() throws IOException {
+        final ScheduledExecutorService toStop;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            toStop = scheduler;
+        }
+        if (toStop != null) {
+            toStop.shutdown();
+            try {
+                toStop.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        report();
+        closeReporter();
+    }
+
+    /** Reports throughput since the previous report and totals to a {@link Log} at INFO level. */
+    public static class LogReporter extends ThroughputMetricsReporter {
+        private static final double MB = 1024 * 1024;
+
+        private final Log log;
+        private final NumberFormat fmt = new DecimalFormat("#,##0.0");
+
+        public LogReporter(final ThroughputMetrics metrics, final Log log) {
+            super(metrics);
+            this.log = log;
+        }
+
+        @Override
+        protected void report(final Snapshot total, final Snapshot interval, final long intervalNanos) {
+            log.info("Decoded ", fmt.format(interval.perSecond(Counter.RECORDS_DECODED, intervalNanos)), " records/s, encoded ",
+                    fmt.format(interval.perSecond(Counter.RECORDS_ENCODED, intervalNanos)), " records/s, read ",
+                    fmt.format(interval.perSecond(Counter.COMPRESSED_BYTES_READ, intervalNanos) / MB), " MB/s compressed, wrote ",
+                    fmt.format(interval.perSecond(Counter.COMPRESSED_BYTES_WRITTEN, intervalNanos) / MB), " MB/s compressed.  Totals: ",
+                    total);
+        }
+    }
+
+    /**
+     * Writes a row of totals per report to a CSV {@link Writer}, preceded by a header row.  The writer is closed when
+     * the reporter is closed.
+     */
+    public static class CsvReporter extends ThroughputMetricsReporter {
+        private final Writer writer;
+        private final long startNanos;
+
+        public CsvReporter(final ThroughputMetrics metrics, final Writer writer) {
+            super(metrics);
+            this.writer = writer;
+            this.startNanos = System.nanoTime();
+            final StringBuilder header = new StringBuilder("elapsed_seconds");
+            for (final Counter counter : Counter.values()) {
+                header.append(',').append(counter.name().toLowerCase(Locale.ROOT));
+            }
+            write(header);
+        }
+
+        @Override
+        protected void report(final Snapshot total, final Snapshot interval, final long intervalNanos) {
+            final StringBuilder row = new StringBuilder(String.format(Locale.ROOT, "%.3f", (total.getNanoTime() - startNanos) / 1e9));
+            for (final Counter counter : Counter.values()) {
+                row.append(',').append(total.get(counter));
+            }
+            write(row);
+        }
+
+        private void write(final CharSequence line) {
+            try {
+                writer.append(line).append('\n');
+                writer.flush();
+            } catch (final IOException e) {
+                throw new RuntimeIOException(e);
+            }
+        }
+
+        @Override
+        protected void closeReporter() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Exposes the totals and per-second rates as of the latest report as attributes of an MBean, named after each
+     * {@link Counter} and, for rates, suffixed with "_PER_SECOND".  The MBean is unregistered when the reporter is closed.
+     */
+    public static class JmxReporter extends ThroughputMetricsReporter {
+        private static final String RATE_SUFFIX = "_PER_SECOND";
+
+        private final MBeanServer server;
+        private final ObjectName name;
+        private volatile Snapshot total;
+        private volatile Snapshot interval;
+        private volatile long intervalNanos;
+
+        public JmxReporter(final ThroughputMetrics metrics, final ObjectName name) {
+            this(metrics, ManagementFactory.getPlatformMBeanServer(), name);
+        }
+
+        public JmxReporter(final ThroughputMetrics metrics, final MBeanServer server, final ObjectName name) {
+            super(metrics);
+            this.server = server;
+            this.name = name;
+            report();
+            try {
+                server.registerMBean(new MetricsMBean(), name);
+            } catch (final JMException e) {
+                throw new IllegalArgumentException("Could not register throughput metrics MBean " + name, e);
+            }
+        }
+
+        @Override
+        protected void report(final Snapshot total, final Snapshot interval, final long intervalNanos) {
+            this.total = total;
+            this.interval = interval;
+            this.intervalNanos = intervalNanos;
+        }
+
+        @Override
+        protected void closeReporter() throws IOException {
+            try {
+                server.unregisterMBean(name);
+            } catch (final JMException e) {
+                throw new IOException("Could not unregister throughput metrics MBean " + name, e);
+            }
+        }
+
+        private class MetricsMBean implements DynamicMBean {
+            @Override
+            public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+                try {
+                    if (attribute.endsWith(RATE_SUFFIX)) {
+                        final Counter counter = Counter.valueOf(attribute.substring(0, attribute.length() - RATE_SUFFIX.length()));
+                        return interval.perSecond(counter, intervalNanos);
+                    }
+                    return total.get(Counter.valueOf(attribute));
+                } catch (final IllegalArgumentException e) {
+                    throw new AttributeNotFoundException(attribute);
+                }
+            }
+
+            @Override
+            public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+                throw new AttributeNotFoundException("Throughput metrics are read-only");
+            }
+
+            @Override
+            public AttributeList getAttributes(final String[] attributes) {
+                final AttributeList list = new AttributeList();
+                for (final String attribute : attributes) {
+                    try {
+                        list.add(new Attribute(attribute, getAttribute(attribute)));
+                    } catch (final AttributeNotFoundException e) {
+                        // skipped, as specified by DynamicMBean
+                    }
+                }
+                return list;
+            }
+
+            @Override
+            public AttributeList setAttributes(final AttributeList attributes) {
+                return new AttributeList();
+            }
+
+            @Override
+            public Object invoke(final String actionName, final Object[] params, final String[] signature) {
+                throw new UnsupportedOperationException("Throughput metrics have no operations");
+            }
+
+            @Override
+            public MBeanInfo getMBeanInfo() {
+                final Counter[] counters = Counter.values();
+                final MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[counters.length * 2];
+                for (int i = 0; i < counters.length; i++) {
+                    final String counterName = counters[i].name();
+                    attributes[2 * i] = new MBeanAttributeInfo(counterName, "long", counterName, true, false, false);
+                    attributes[2 * i + 1] = new MBeanAttributeInfo(counterName + RATE_SUFFIX, "double",
+                            counterName + " per second over the latest report interval", true, false, false);
+                }
+                return new MBeanInfo(ThroughputMetrics.class.getName(), "htsjdk throughput metrics", attributes, null, null, null);
+            }
+        }
+    }
+}
@@ -73,6 +73,27 @@ public abstract class AsciiFeatureCodec<T extends Feature> extends AbstractFeatu
     /** @see AsciiFeatureCodec#decode(htsjdk.tribble.readers.LineIterator) */
     public abstract T decode(String s);
 
+    /**
+     * Convenience method, as for {@link #decode(LineIterator)}: presents the next line to {@link #decodeLoc(String)}.
+     */
+    @Override
+    public Feature decodeLoc(final LineIterator lineIterator) {
+        return decodeLoc(lineIterator.next());
+    }
+
+    /**
+     * Decode only the location of the feature on a line, which is all that is needed for indexing.  The default
+     * decodes the whole feature; codecs that can find the contig, start and end without decoding the rest of the
+     * line should override this.
+     *
+     * @param line the line of text for the record
+     * @return a feature, not guaranteed complete, that has the correct contig, start and end, or null if the line
+     * has no feature
+     */
+    public Feature decodeLoc(final String line) {
+        return decode(line);
+    }
+
     @Override
     public FeatureCodecHeader readHeader(final LineIterator lineIterator) throws IOException {
         // TODO: Track header end here, rather than assuming there isn't one.
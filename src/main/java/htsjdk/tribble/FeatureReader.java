@@ -53,6 +53,25 @@ public interface FeatureReader<T extends Feature> extends Closeable {
         return query(locus.getContig(), locus.getStart(), locus.getEnd());
     }
 
+    /**
+     * Query the reader for many intervals at once, e.g. the intervals of an
+     * {@link htsjdk.samtools.util.IntervalList#getIntervals() IntervalList}.
+     *
+     * Overlapping and abutting intervals are merged, and each feature overlapping any of the intervals is returned
+     * exactly once.  Features are returned in file order: contigs in the order of {@link #getSequenceNames()} (or of
+     * their first appearance in intervals if the sequence names are unknown) and by start within each contig.
+     *
+     * The default implementation issues one {@link #query(String, int, int)} per merged interval.  Indexed readers
+     * override it to read each part of the file only once.
+     *
+     * @param intervals the 1-based closed intervals to query, in any order
+     * @return an iterator over the features that overlap any of the intervals
+     * @throws IOException If there's a problem reading or if the reader is not queryable, e.g. if it doesn't have an index.
+     */
+    default CloseableTribbleIterator<T> query(final List<? extends Locatable> intervals) throws IOException {
+        return new SequentialQueryIterator<>(this, intervals);
+    }
+
     /**
      * Provides access to all the features in the reader
      *
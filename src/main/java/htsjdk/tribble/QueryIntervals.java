@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.tribble;
+
+import htsjdk.samtools.util.Locatable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The intervals of a multi-interval query, grouped by contig, sorted by start and with overlapping
+ * and abutting intervals merged.  Used by the {@link FeatureReader#query(List)} implementations
+ * to read each part of the file once and to return every overlapping feature exactly once, in order.
+ */
+final class QueryIntervals {
+
+    private QueryIntervals() {}
+
+    /**
+     * @param intervals the intervals to query, in any order, 1-based closed
+     * @param sequenceNames the contigs of the file in file order.  If empty the contigs are returned in the order in
+     *                      which they first appear in intervals, otherwise contigs not in sequenceNames are dropped
+     * @return the merged intervals for each contig, in file order
+     */
+    static List<ContigIntervals> merge(final List<? extends Locatable> intervals, final List<String> sequenceNames) {
+        final Map<String, List<Locatable>> byContig = new LinkedHashMap<>();
+        for (final Locatable interval : intervals) {
+            byContig.computeIfAbsent(interval.getContig(), c -> new ArrayList<>()).add(interval);
+        }
+
+        final List<String> contigs = new ArrayList<>(byContig.keySet());
+        if (sequenceNames != null && !sequenceNames.isEmpty()) {
+            final Map<String, Integer> order = new HashMap<>();
+            for (int i = 0; i < sequenceNames.size(); i++) {
+                order.put(sequenceNames.get(i), i);
+            }
+            contigs.retainAll(order.keySet());
+            contigs.sort(Comparator.comparing(order::get));
+        }
+
+        final List<ContigIntervals> result = new ArrayList<>(contigs.size());
+        for (final String contig : contigs) {
+            final List<Locatable> sorted = byContig.get(contig);
+            sorted.sort(Comparator.comparingInt(Locatable::getStart));
+
+            final int[] starts = new int[sorted.size()];
+            final int[] ends = new int[sorted.size()];
+            int n = 0;
+            for (final Locatable interval : sorted) {
+                if (n > 0 && interval.getStart() <= ends[n - 1] + 1) {
+                    ends[n - 1] = Math.max(ends[n - 1], interval.getEnd());
+                } else {
+                    starts[n] = interval.getStart();
+                    ends[n] = interval.getEnd();
+                    n++;
+                }
+            }
+            result.add(new ContigIntervals(contig, Arrays.copyOf(starts, n), Arrays.copyOf(ends, n)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Sorted, disjoint and non-abutting 1-based closed intervals on a single contig.
+     */
+    static final class ContigIntervals {
+        final String contig;
+        final int[] starts;
+        final int[] ends;
+
+        ContigIntervals(final String contig, final int[] starts, final int[] ends) {
+            this.contig = contig;
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        int size() {
+            return starts.length;
+        }
+
+        /** @return a new cursor positioned before the first interval */
+        Cursor cursor() {
+            return new Cursor();
+        }
+
+        /**
+         * A forward-only overlap test for features visited in order of non-decreasing start, costing
+         * amortized O(1) per feature.
+         */
+        final class Cursor {
+            private int i = 0;
+
+            /** @return true if [start, end] overlaps any of the intervals */
+            boolean overlaps(final int start, final int end) {
+                while (i < starts.length && ends[i] < start) {
+                    i++;
+                }
+                return i < starts.length && starts[i] <= end;
+            }
+
+            /** @return true if no feature starting at start or later can overlap any of the intervals */
+            boolean isPastEnd(final int start) {
+                return starts.length == 0 || start > ends[ends.length - 1];
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.tribble;
+
+import htsjdk.samtools.util.Locatable;
+import htsjdk.samtools.util.RuntimeIOException;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Default implementation of {@link FeatureReader#query(List)} that issues one single-interval query per merged
+ * interval, one at a time, dropping features that were already returned for the previous interval.
+ *
+ * @param <T> the feature type
+ */
+class SequentialQueryIterator<T extends Feature> implements CloseableTribbleIterator<T> {
+    private final FeatureReader<T> reader;
+    private final Iterator<QueryIntervals.ContigIntervals> contigs;
+    private QueryIntervals.ContigIntervals contig = null;
+    private int intervalIndex = 0;
+    private CloseableTribbleIterator<T> current = null;
+    private T next = null;
+
+    SequentialQueryIterator(final FeatureReader<T> reader, final List<? extends Locatable> intervals) {
+        this.reader = reader;
+        this.contigs = QueryIntervals.merge(intervals, reader.getSequenceNames()).iterator();
+        advance();
+    }
+
+    private void advance() {
+        next = null;
+        try {
+            while (true) {
+                if (current != null) {
+                    while (current.hasNext()) {
+                        final T f = current.next();
+                        // a feature starting before the end of the previous interval overlaps it, and so was already returned
+                        if (intervalIndex > 1 && f.getStart() <= contig.ends[intervalIndex - 2]) {
+                            continue;
+                        }
+                        next = f;
+                        return;
+                    }
+                    current.close();
+                    current = null;
+                }
+
+                if (contig == null || intervalIndex == contig.size()) {
+                    if (!contigs.hasNext()) {
+                        return;
+                    }
+                    contig = contigs.next();
+                    intervalIndex = 0;
+                }
+                current = reader.query(contig.contig, contig.starts[intervalIndex], contig.ends[intervalIndex]);
+                intervalIndex++;
+            }
+        } catch (final IOException e) {
+            throw new RuntimeIOException("Unable to query " + contig.contig, e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        final T ret = next;
+        advance();
+        return ret;
+    }
+
+    @Override
+    public void close() {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        next = null;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return this;
+    }
+}
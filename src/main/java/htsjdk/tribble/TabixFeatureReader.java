@@ -25,6 +25,7 @@ package htsjdk.tribble;
 
 import htsjdk.samtools.seekablestream.SeekableStreamFactory;
 import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.Locatable;
 import htsjdk.samtools.util.RuntimeIOException;
 import htsjdk.tribble.readers.*;
 
@@ -32,9 +33,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.channels.SeekableByteChannel;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * @author Jim Robinson
@@ -133,6 +136,24 @@ public class TabixFeatureReader<T extends Feature, SOURCE> extends AbstractFeatu
         return new FeatureIterator<T>(lineReader, start - 1, end);
     }
 
+    /**
+     * Return iterator over all features overlapping any of the intervals.  The tabix chunks of all of the
+     * intervals on each contig are merged, so that each BGZF block is decompressed and read only once.
+     *
+     * @param intervals the 1-based closed intervals to query, in any order
+     * @return an iterator over the features overlapping any of the intervals, in file order and without duplicates
+     * @throws IOException
+     */
+    @Override
+    public CloseableTribbleIterator<T> query(final List<? extends Locatable> intervals) throws IOException {
+        // order the contigs as in the file, which is the order of their ids in the index
+        final List<String> fileOrder = getSequenceNames().stream()
+                .sorted(Comparator.comparingInt(tabixReader::chr2tid))
+                .collect(Collectors.toList());
+        final List<QueryIntervals.ContigIntervals> contigs = QueryIntervals.merge(intervals, fileOrder);
+        return contigs.isEmpty() ? new EmptyIterator<T>() : new MultiIntervalFeatureIterator(contigs.iterator());
+    }
+
     @Override
     public CloseableTribbleIterator<T> iterator() throws IOException {
         final InputStream is = new BlockCompressedInputStream(SeekableStreamFactory.getInstance().getStreamFor(path, wrapper));
@@ -146,6 +167,107 @@ public class TabixFeatureReader<T extends Feature, SOURCE> extends AbstractFeatu
         tabixReader.close();
     }
 
+    /**
+     * Iterator over the features of a multi-interval query, one contig at a time
+     */
+    class MultiIntervalFeatureIterator implements CloseableTribbleIterator<T> {
+        private final Iterator<QueryIntervals.ContigIntervals> contigs;
+        private QueryIntervals.ContigIntervals.Cursor cursor = null;
+        private LineReader lineReader = null;
+        private T currentRecord;
+
+        MultiIntervalFeatureIterator(final Iterator<QueryIntervals.ContigIntervals> contigs) throws IOException {
+            this.contigs = contigs;
+            readNextRecord();
+        }
+
+        private boolean advanceContig() {
+            if (lineReader != null) {
+                lineReader.close();
+                lineReader = null;
+            }
+            if (!contigs.hasNext()) {
+                return false;
+            }
+            final QueryIntervals.ContigIntervals contig = contigs.next();
+            final int[] begs = new int[contig.size()];
+            for (int i = 0; i < begs.length; i++) {
+                begs[i] = contig.starts[i] - 1;
+            }
+            cursor = contig.cursor();
+            lineReader = new TabixIteratorLineReader(tabixReader.query(tabixReader.chr2tid(contig.contig), begs, contig.ends));
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void readNextRecord() throws IOException {
+            currentRecord = null;
+            while (lineReader != null || advanceContig()) {
+                String nextLine;
+                while ((nextLine = lineReader.readLine()) != null) {
+                    final Feature f;
+                    try {
+                        f = ((AsciiFeatureCodec) codec).decode(nextLine);
+                    } catch (TribbleException e) {
+                        e.setSource(path);
+                        throw e;
+                    } catch (NumberFormatException e) {
+                        String error = "Error parsing line: " + nextLine;
+                        throw new TribbleException.MalformedFeatureFile(error, path, e);
+                    }
+                    if (f == null) {
+                        continue;   // Skip
+                    }
+                    if (cursor.isPastEnd(f.getStart())) {
+                        break;    // Done with this contig
+                    }
+                    if (cursor.overlaps(f.getStart(), f.getEnd())) {
+                        currentRecord = (T) f;
+                        return;
+                    }
+                }
+                if (!advanceContig()) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return currentRecord != null;
+        }
+
+        @Override
+        public T next() {
+            T ret = currentRecord;
+            try {
+                readNextRecord();
+            } catch (IOException e) {
+                throw new RuntimeIOException("Unable to read the next record, the last record was at " +
+                        ret.getContig() + ":" + ret.getStart() + "-" + ret.getEnd(), e);
+            }
+            return ret;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Remove is not supported in Iterators");
+        }
+
+        @Override
+        public void close() {
+            if (lineReader != null) {
+                lineReader.close();
+                lineReader = null;
+            }
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return this;
+        }
+    }
+
     class FeatureIterator<T extends Feature> implements CloseableTribbleIterator<T> {
         private T currentRecord;
         private LineReader lineReader;
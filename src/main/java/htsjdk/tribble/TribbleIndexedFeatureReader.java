@@ -25,6 +25,7 @@ package htsjdk.tribble;
 
 import htsjdk.samtools.seekablestream.SeekableStream;
 import htsjdk.samtools.seekablestream.SeekableStreamFactory;
+import htsjdk.samtools.util.Locatable;
 import htsjdk.samtools.util.RuntimeIOException;
 import htsjdk.tribble.index.Block;
 import htsjdk.tribble.index.Index;
@@ -33,14 +34,21 @@ import htsjdk.tribble.readers.PositionalBufferedStream;
 import htsjdk.tribble.util.ParsingUtils;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.zip.GZIPInputStream;
 
@@ -55,6 +63,16 @@ import java.util.zip.GZIPInputStream;
  */
 public class TribbleIndexedFeatureReader<T extends Feature, SOURCE> extends AbstractFeatureReader<T, SOURCE> {
 
+    /**
+     * The number of block groups a multi-interval query reads ahead when given an executor
+     */
+    private static final int PREFETCH_GROUPS = 4;
+
+    /**
+     * Block groups larger than this are never read ahead, but streamed from the file on the calling thread
+     */
+    private static final long MAX_PREFETCH_GROUP_SIZE = 16 * 1024 * 1024;
+
     private Index index;
 
     /**
@@ -299,28 +317,106 @@ public class TribbleIndexedFeatureReader<T extends Feature, SOURCE> extends Abst
         }
     }
 
+    /**
+     * Return an iterator over the features overlapping any of the intervals.  The index blocks of all of the
+     * intervals on each contig are merged, so that each part of the file is read and decoded only once.
+     * <p/>
+     * The same single query restriction as for {@link #query(String, int, int)} applies.
+     *
+     * @param intervals the 1-based closed intervals to query, in any order
+     * @return an iterator over the features overlapping any of the intervals, in file order and without duplicates
+     * @throws IOException
+     */
+    @Override
+    public CloseableTribbleIterator<T> query(final List<? extends Locatable> intervals) throws IOException {
+        return query(intervals, null);
+    }
+
+    /**
+     * As {@link #query(List)}, but if executor is not null the bytes of the next few merged block groups are read
+     * ahead on the executor while the features of the current group are being decoded.
+     *
+     * @param intervals the 1-based closed intervals to query, in any order
+     * @param executor the executor on which to read ahead, or null to read on the calling thread only
+     * @return an iterator over the features overlapping any of the intervals, in file order and without duplicates
+     * @throws IOException
+     */
+    public CloseableTribbleIterator<T> query(final List<? extends Locatable> intervals, final ExecutorService executor) throws IOException {
+        if (!this.hasIndex()) {
+            throw new TribbleException("Index not found for: " + path);
+        }
+
+        final List<BlockGroup> groups = new ArrayList<>();
+        for (final QueryIntervals.ContigIntervals contig : QueryIntervals.merge(intervals, index.getSequenceNames())) {
+            final List<Block> blocks = new ArrayList<>();
+            for (int i = 0; i < contig.size(); i++) {
+                for (final Block block : index.getBlocks(contig.contig, contig.starts[i] - 1, contig.ends[i])) {
+                    if (block.getSize() > 0) {
+                        blocks.add(block);
+                    }
+                }
+            }
+            blocks.sort(Comparator.comparingLong(Block::getStartPosition));
+
+            // merge overlapping and adjacent blocks so that no byte is read twice
+            BlockGroup last = null;
+            for (final Block block : blocks) {
+                if (last != null && block.getStartPosition() <= last.end) {
+                    last.end = Math.max(last.end, block.getEndPosition());
+                } else {
+                    last = new BlockGroup(contig, block.getStartPosition(), block.getEndPosition());
+                    groups.add(last);
+                }
+            }
+        }
+
+        return groups.isEmpty() ? new EmptyIterator<>() : new MultiIntervalQueryIterator(groups, executor);
+    }
+
     /**
      * @return Return an iterator to iterate over the entire file
      * @throws IOException
      */
     @Override
     public CloseableTribbleIterator<T> iterator() throws IOException {
-        return new WFIterator();
+        return new WFIterator<>(codec::decode);
+    }
+
+    /**
+     * Return an iterator over the locations of the features of the entire file, decoded with
+     * {@link FeatureCodec#decodeLoc}.  This is cheaper than {@link #iterator()} when only the contig, start and end of
+     * each feature are needed, since codecs may find these without decoding the whole record.
+     *
+     * @return an iterator over features that are not guaranteed to be complete, but have the correct location
+     * @throws IOException
+     */
+    public CloseableTribbleIterator<Feature> locationIterator() throws IOException {
+        return new WFIterator<>(codec::decodeLoc);
+    }
+
+    /**
+     * Decodes the next record of a source.
+     */
+    private interface RecordDecoder<F, SOURCE> {
+        F decode(SOURCE source) throws IOException;
     }
 
     /**
      * Class to iterator over an entire file.
      */
-    class WFIterator implements CloseableTribbleIterator<T> {
-        private T currentRecord;
+    class WFIterator<F extends Feature> implements CloseableTribbleIterator<F> {
+        private final RecordDecoder<? extends F, SOURCE> decoder;
+        private F currentRecord;
         private SOURCE source;
 
         /**
          * Constructor for iterating over the entire file (seekableStream).
          *
+         * @param decoder decodes each record of the file
          * @throws IOException
          */
-        public WFIterator() throws IOException {
+        WFIterator(final RecordDecoder<? extends F, SOURCE> decoder) throws IOException {
+            this.decoder = decoder;
             final InputStream inputStream = ParsingUtils.openInputStream(path, wrapper);
 
             final PositionalBufferedStream pbs;
@@ -347,8 +443,8 @@ public class TribbleIndexedFeatureReader<T extends Feature, SOURCE> extends Abst
         }
 
         @Override
-        public T next() {
-            final T ret = currentRecord;
+        public F next() {
+            final F ret = currentRecord;
             try {
                 readNextRecord();
             } catch (IOException e) {
@@ -367,9 +463,9 @@ public class TribbleIndexedFeatureReader<T extends Feature, SOURCE> extends Abst
             currentRecord = null;
 
             while (!codec.isDone(source)) {
-                final T f;
+                final F f;
                 try {
-                    f = codec.decode(source);
+                    f = decoder.decode(source);
 
                     if (f == null) {
                         continue;
@@ -399,7 +495,7 @@ public class TribbleIndexedFeatureReader<T extends Feature, SOURCE> extends Abst
         }
 
         @Override
-        public WFIterator iterator() {
+        public WFIterator<F> iterator() {
             return this;
         }
     }
@@ -542,6 +638,197 @@ public class TribbleIndexedFeatureReader<T extends Feature, SOURCE> extends Abst
         }
     }
 
+    /**
+     * A contiguous range of bytes covering the merged index blocks of one or more query intervals on a contig
+     */
+    private static final class BlockGroup {
+        final QueryIntervals.ContigIntervals contig;
+        final long start;
+        long end;
+
+        BlockGroup(final QueryIntervals.ContigIntervals contig, final long start, final long end) {
+            this.contig = contig;
+            this.start = start;
+            this.end = end;
+        }
+
+        long size() {
+            return end - start;
+        }
+    }
+
+    /**
+     * Iterator over the merged block groups of a multi-interval query
+     */
+    class MultiIntervalQueryIterator implements CloseableTribbleIterator<T> {
+        private final Iterator<BlockGroup> groups;
+        private final ExecutorService executor;
+        private final Deque<Prefetch> prefetched = new ArrayDeque<>();
+        private final SeekableStream mySeekableStream;
+        private QueryIntervals.ContigIntervals contig = null;
+        private QueryIntervals.ContigIntervals.Cursor cursor = null;
+        private String chrAlias = null;
+        private SOURCE source = null;
+        private T currentRecord = null;
+
+        MultiIntervalQueryIterator(final List<BlockGroup> groups, final ExecutorService executor) throws IOException {
+            this.groups = groups.iterator();
+            this.executor = executor;
+            this.mySeekableStream = getSeekableStream();
+            fillPrefetchQueue();
+            readNextRecord();
+        }
+
+        /**
+         * Make sure the next PREFETCH_GROUPS groups are queued, submitting reads of the small enough ones to the executor
+         */
+        private void fillPrefetchQueue() {
+            while (prefetched.size() < PREFETCH_GROUPS && groups.hasNext()) {
+                final BlockGroup group = groups.next();
+                final Future<byte[]> bytes = (executor != null && group.size() <= MAX_PREFETCH_GROUP_SIZE) ?
+                        executor.submit(() -> readGroup(group)) : null;
+                prefetched.add(new Prefetch(group, bytes));
+            }
+        }
+
+        private byte[] readGroup(final BlockGroup group) throws IOException {
+            try (final SeekableStream stream = SeekableStreamFactory.getInstance().getStreamFor(path, wrapper)) {
+                final byte[] bytes = new byte[(int) group.size()];
+                stream.seek(group.start);
+                stream.readFully(bytes);
+                return bytes;
+            }
+        }
+
+        /**
+         * Open the source for the next group, returning false if there are no more groups
+         */
+        private boolean advanceGroup() throws IOException {
+            final Prefetch next = prefetched.poll();
+            if (next == null) {
+                return false;
+            }
+            fillPrefetchQueue();
+
+            if (next.group.contig != contig) {
+                contig = next.group.contig;
+                cursor = contig.cursor();
+                chrAlias = null;
+            }
+
+            final InputStream is;
+            if (next.bytes != null) {
+                try {
+                    is = new ByteArrayInputStream(next.bytes.get());
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TribbleException("Interrupted while reading " + path, e);
+                } catch (final ExecutionException e) {
+                    if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                    throw new TribbleException("Failed to read " + path, e.getCause());
+                }
+            } else {
+                is = new BlockStreamWrapper(mySeekableStream, new Block(next.group.start, next.group.size()));
+            }
+            final int bufferSize = (int) Math.min(2000000, Math.max(1, next.group.size()));
+            source = codec.makeSourceFromStream(new PositionalBufferedStream(is, bufferSize));
+            return true;
+        }
+
+        private void readNextRecord() throws IOException {
+            currentRecord = null;
+            while (true) {
+                if (source == null && !advanceGroup()) {
+                    return;
+                }
+                while (!codec.isDone(source)) {
+                    final T f;
+                    try {
+                        f = codec.decode(source);
+                    } catch (TribbleException e) {
+                        e.setSource(path);
+                        throw e;
+                    } catch (NumberFormatException e) {
+                        final String error = "Error parsing line: " + source;
+                        throw new TribbleException.MalformedFeatureFile(error, path, e);
+                    }
+                    if (f == null) {
+                        continue;   // Skip
+                    }
+                    // As in QueryIterator, the first record of a contig tells us the name used for it in the file
+                    if (chrAlias == null) {
+                        chrAlias = f.getContig();
+                    }
+                    if (!f.getContig().equals(chrAlias) || cursor.isPastEnd(f.getStart())) {
+                        break;  // nothing further in this group can overlap
+                    }
+                    if (cursor.overlaps(f.getStart(), f.getEnd())) {
+                        currentRecord = f;
+                        return;
+                    }
+                }
+                codec.close(source);
+                source = null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return currentRecord != null;
+        }
+
+        @Override
+        public T next() {
+            final T ret = currentRecord;
+            try {
+                readNextRecord();
+            } catch (IOException e) {
+                throw new RuntimeIOException("Unable to read the next record, the last record was at " +
+                        ret.getContig() + ":" + ret.getStart() + "-" + ret.getEnd(), e);
+            }
+            return ret;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Remove is not supported.");
+        }
+
+        @Override
+        public void close() {
+            for (final Prefetch p : prefetched) {
+                if (p.bytes != null) p.bytes.cancel(true);
+            }
+            prefetched.clear();
+            if (source != null) {
+                codec.close(source);
+                source = null;
+            }
+            if (!reuseStreamInQuery()) {
+                try {
+                    mySeekableStream.close();
+                } catch (IOException e) {
+                    throw new TribbleException("Couldn't close seekable stream", e);
+                }
+            }
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return this;
+        }
+    }
+
+    private static final class Prefetch {
+        final BlockGroup group;
+        final Future<byte[]> bytes;
+
+        Prefetch(final BlockGroup group, final Future<byte[]> bytes) {
+            this.group = group;
+            this.bytes = bytes;
+        }
+    }
+
     /**
      * Wrapper around a SeekableStream that limits reading to the specified "block" of bytes.  Attempts to
      * read beyond the end of the block should return -1  (EOF).
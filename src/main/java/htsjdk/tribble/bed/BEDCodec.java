@@ -66,8 +66,58 @@ public class BEDCodec extends AsciiFeatureCodec<BEDFeature> {
     }
 
 
+    /**
+     * Decode only the chromosome, start and end columns of the line, split in the same way as by {@link #decode(String)}
+     */
+    @Override
     public BEDFeature decodeLoc(String line) {
-        return decode(line);
+
+        if (line.trim().isEmpty()) {
+            return null;
+        }
+        // discard header lines in case the caller hasn't called readHeader
+        if (isBEDHeaderLine(line)) {
+            this.readHeaderLine(line);
+            return null;
+        }
+
+        final int chrEnd = nextSeparator(line, 0);
+        if (chrEnd == line.length()) {
+            return null;
+        }
+        final int startStart = skipSeparator(line, chrEnd);
+        final int startEnd = nextSeparator(line, startStart);
+        final int start = Integer.parseInt(line.substring(startStart, startEnd)) + startOffsetValue;
+
+        int end = start;
+        if (startEnd < line.length()) {
+            final int endStart = skipSeparator(line, startEnd);
+            end = Integer.parseInt(line.substring(endStart, nextSeparator(line, endStart)));
+        }
+        return new SimpleBEDFeature(start, end, line.substring(0, chrEnd));
+    }
+
+    /** @return the index of the first separator at or after from, or the length of the line if there is none */
+    private static int nextSeparator(final String line, final int from) {
+        for (int i = from; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c == '\t' || c == ' ') {
+                return i;
+            }
+        }
+        return line.length();
+    }
+
+    /** @return the index after the separator at separatorStart, which is a single tab or a run of spaces */
+    private static int skipSeparator(final String line, final int separatorStart) {
+        if (line.charAt(separatorStart) == '\t') {
+            return separatorStart + 1;
+        }
+        int i = separatorStart;
+        while (i < line.length() && line.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
     }
 
     @Override
@@ -27,12 +27,19 @@ import htsjdk.tribble.util.LittleEndianInputStream;
 import htsjdk.tribble.util.LittleEndianOutputStream;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -93,10 +100,18 @@ public abstract class AbstractIndex implements MutableIndex {
     private LinkedHashMap<String, String> properties;
 
     /**
-     * the map of our chromosome bins
+     * the map of our chromosome bins.  When the index has been read from a stream, chromosomes that have not been
+     * queried yet map to null; subclasses call {@link #findChrIndex(String)} or {@link #loadAllChrIndices()} before
+     * using the values.
      */
     protected LinkedHashMap<String, ChrIndex> chrIndices;
 
+    /**
+     * the serialized chromosome indices of a read index, and the offset in them of each chromosome not yet loaded
+     */
+    private byte[] serializedChrIndices;
+    private Map<String, Integer> unloadedChrIndexOffsets;
+
     /**
      * Any flags we're using
      */
@@ -115,6 +130,8 @@ public abstract class AbstractIndex implements MutableIndex {
         }
 
         final AbstractIndex other = (AbstractIndex) obj;
+        loadAllChrIndices();
+        other.loadAllChrIndices();
 
         if (version != other.version) {
             System.err.printf("equals version: this %d != other %d%n", version, other.version);
@@ -357,7 +374,7 @@ public abstract class AbstractIndex implements MutableIndex {
      * @throws IllegalArgumentException if {@code chr} not found
      */
     private final ChrIndex getChrIndex(final String chr) {
-        final ChrIndex chrIdx = chrIndices.get(chr);
+        final ChrIndex chrIdx = findChrIndex(chr);
         if (chrIdx == null) {
             throw new IllegalArgumentException("getBlocks() called with of unknown contig " + chr);
         } else {
@@ -365,8 +382,71 @@ public abstract class AbstractIndex implements MutableIndex {
         }
     }
 
+    /**
+     * @param chr the chromosome name
+     * @return the ChrIndex associated with chr, reading it from the serialized index on first use, or null if the
+     * index has no entry for chr
+     */
+    protected synchronized ChrIndex findChrIndex(final String chr) {
+        ChrIndex chrIdx = chrIndices.get(chr);
+        if (chrIdx == null && unloadedChrIndexOffsets != null) {
+            final Integer offset = unloadedChrIndexOffsets.remove(chr);
+            if (offset != null) {
+                chrIdx = readChrIndex(offset);
+                chrIndices.put(chr, chrIdx);
+                if (unloadedChrIndexOffsets.isEmpty()) {
+                    unloadedChrIndexOffsets = null;
+                    serializedChrIndices = null;
+                }
+            }
+        }
+        return chrIdx;
+    }
+
+    /**
+     * Reads every ChrIndex that has not been queried yet, so that all the values of {@link #chrIndices} are set.
+     */
+    protected synchronized void loadAllChrIndices() {
+        while (unloadedChrIndexOffsets != null) {
+            findChrIndex(unloadedChrIndexOffsets.keySet().iterator().next());
+        }
+    }
+
+    private ChrIndex readChrIndex(final int offset) {
+        final LittleEndianInputStream dis = new LittleEndianInputStream(
+                new ByteArrayInputStream(serializedChrIndices, offset, serializedChrIndices.length - offset));
+        try {
+            final ChrIndex chrIdx = newChrIndex();
+            chrIdx.read(dis);
+            return chrIdx;
+        } catch (final IOException e) {
+            throw new TribbleException("Unable to read the index of a chromosome of " + indexedPath, e);
+        }
+    }
+
+    private ChrIndex newChrIndex() {
+        try {
+            return (ChrIndex) getChrIndexClass().newInstance();
+        } catch (final InstantiationException | IllegalAccessException e) {
+            throw new TribbleException.UnableToCreateCorrectIndexType("Unable to create class " + getChrIndexClass(), e);
+        }
+    }
+
+    /**
+     * Advances the buffer past the rest of a serialized ChrIndex whose name has just been read, so that chromosomes
+     * can be located in an index without being parsed until they are queried.
+     *
+     * @param buffer little-endian buffer positioned after the name of the ChrIndex
+     * @return false if the size of a ChrIndex cannot be determined without parsing it, in which case all chromosomes
+     * are read when the index is read
+     */
+    protected boolean skipChrIndex(final ByteBuffer buffer) {
+        return false;
+    }
+
     @Override
     public void write(final LittleEndianOutputStream stream) throws IOException {
+        loadAllChrIndices();
         writeHeader(stream);
 
         //# of chromosomes
@@ -392,23 +472,34 @@ public abstract class AbstractIndex implements MutableIndex {
     }
 
 
+    /**
+     * Reads the index.  The chromosome directory is read now; the bins of a chromosome are only parsed when it is
+     * first queried, if the subclass supports {@link #skipChrIndex(ByteBuffer)}.
+     */
     public void read(final LittleEndianInputStream dis) throws IOException {
         try {
             readHeader(dis);
 
-            int nChromosomes = dis.readInt();
+            final int nChromosomes = dis.readInt();
             chrIndices = new LinkedHashMap<String, ChrIndex>(nChromosomes);
-
-            while (nChromosomes-- > 0) {
-                final ChrIndex chrIdx = (ChrIndex) getChrIndexClass().newInstance();
-                chrIdx.read(dis);
-                chrIndices.put(chrIdx.getName(), chrIdx);
+            serializedChrIndices = readRemaining(dis);
+
+            final ByteBuffer buffer = ByteBuffer.wrap(serializedChrIndices).order(ByteOrder.LITTLE_ENDIAN);
+            final Map<String, Integer> offsets = new HashMap<>(nChromosomes * 2);
+            for (int i = 0; i < nChromosomes; i++) {
+                final int offset = buffer.position();
+                final String name = readString(buffer);
+                if (!skipChrIndex(buffer)) {
+                    readEagerly(nChromosomes);
+                    return;
+                }
+                chrIndices.put(name, null);
+                offsets.put(name, offset);
             }
-
-        } catch (final InstantiationException e) {
-            throw new TribbleException.UnableToCreateCorrectIndexType("Unable to create class " + getChrIndexClass(), e);
-        } catch (final IllegalAccessException e) {
-            throw new TribbleException.UnableToCreateCorrectIndexType("Unable to create class " + getChrIndexClass(), e);
+            if (!offsets.isEmpty()) unloadedChrIndexOffsets = offsets;
+            else serializedChrIndices = null;
+        } catch (final BufferUnderflowException | IllegalArgumentException e) {
+            throw new EOFException("Index truncated while reading the chromosome directory");
         } finally {
             dis.close();
         }
@@ -416,6 +507,37 @@ public abstract class AbstractIndex implements MutableIndex {
         //printIndexInfo();
     }
 
+    private void readEagerly(int nChromosomes) throws IOException {
+        chrIndices.clear();
+        final LittleEndianInputStream dis = new LittleEndianInputStream(new ByteArrayInputStream(serializedChrIndices));
+        serializedChrIndices = null;
+        while (nChromosomes-- > 0) {
+            final ChrIndex chrIdx = newChrIndex();
+            chrIdx.read(dis);
+            chrIndices.put(chrIdx.getName(), chrIdx);
+        }
+    }
+
+    private static byte[] readRemaining(final LittleEndianInputStream dis) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = dis.read(buffer)) > 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Reads a null-terminated string as {@link LittleEndianInputStream#readString()} does. */
+    private static String readString(final ByteBuffer buffer) throws EOFException {
+        final int start = buffer.position();
+        byte b;
+        while ((b = buffer.get()) != 0) {
+            if (b < 0) throw new EOFException();
+        }
+        return new String(buffer.array(), start, buffer.position() - start - 1);
+    }
+
     protected void printIndexInfo() {
         System.out.println(String.format("Index for %s with %d indices", indexedPath, chrIndices.size()));
         final BlockStats stats = getBlockStats(true);
@@ -428,6 +550,7 @@ public abstract class AbstractIndex implements MutableIndex {
     }
 
     protected BlockStats getBlockStats(final boolean logDetails) {
+        loadAllChrIndices();
         final BlockStats stats = new BlockStats();
         for (final Map.Entry<String, ChrIndex> elt : chrIndices.entrySet()) {
             final List<Block> blocks = elt.getValue().getBlocks();
@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.tribble.index;
+
+import htsjdk.samtools.util.IOUtil;
+import htsjdk.samtools.util.ResourceLimitedMap;
+import htsjdk.samtools.util.ResourceLimitedMapFunctor;
+import htsjdk.tribble.AbstractFeatureReader;
+import htsjdk.tribble.Feature;
+import htsjdk.tribble.FeatureCodec;
+import htsjdk.tribble.Tribble;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A thread-safe cache of loaded tribble indexes that can be shared by many {@link htsjdk.tribble.FeatureReader}s over
+ * the same files.  At most a fixed number of indexes are kept, evicting the least recently used.  An index of a local
+ * file is reloaded if the file has been modified since it was cached.
+ * <p>
+ * Since {@link AbstractIndex} only reads the bins of a chromosome when it is first queried, sharing an index also shares
+ * the chromosomes loaded by each reader.
+ */
+public final class IndexCache {
+    private static final long NOT_A_LOCAL_FILE = -1L;
+
+    private final ResourceLimitedMap<String, CachedIndex> cache;
+
+    /**
+     * @param maxIndexes the number of indexes to keep
+     */
+    public IndexCache(final int maxIndexes) {
+        if (maxIndexes <= 0) throw new IllegalArgumentException("maxIndexes must be positive: " + maxIndexes);
+        cache = new ResourceLimitedMap<>(maxIndexes, new ResourceLimitedMapFunctor<String, CachedIndex>() {
+            @Override
+            public CachedIndex makeValue(final String indexFile) {
+                return new CachedIndex(lastModified(indexFile), IndexFactory.loadIndex(indexFile));
+            }
+
+            @Override
+            public void finalizeValue(final String indexFile, final CachedIndex value) {
+                // nothing to release
+            }
+        });
+    }
+
+    /**
+     * @param indexFile path or URI of a tribble index
+     * @return the cached index, loading it if it is not cached or its file has changed
+     */
+    public synchronized Index getIndex(final String indexFile) {
+        CachedIndex cached = cache.get(indexFile);
+        if (cached.lastModified != lastModified(indexFile)) {
+            cache.remove(indexFile);
+            cached = cache.get(indexFile);
+        }
+        return cached.index;
+    }
+
+    /**
+     * @return a reader over the feature file that uses the cached tribble index at the default location for the file
+     */
+    public <FEATURE extends Feature, SOURCE> AbstractFeatureReader<FEATURE, SOURCE> getFeatureReader(final String featureFile,
+                                                                                                   final FeatureCodec<FEATURE, SOURCE> codec) {
+        return AbstractFeatureReader.getFeatureReader(featureFile, codec, getIndex(Tribble.indexFile(featureFile)));
+    }
+
+    /** Removes all the cached indexes. */
+    public synchronized void clear() {
+        cache.finalizeAll();
+    }
+
+    private static long lastModified(final String indexFile) {
+        try {
+            final Path path = IOUtil.getPath(indexFile);
+            return Files.isRegularFile(path) ? Files.getLastModifiedTime(path).toMillis() : NOT_A_LOCAL_FILE;
+        } catch (final IOException | RuntimeException e) {
+            // not a path on any installed file system, e.g. an http URL
+            return NOT_A_LOCAL_FILE;
+        }
+    }
+
+    private static final class CachedIndex {
+        private final long lastModified;
+        private final Index index;
+
+        private CachedIndex(final long lastModified, final Index index) {
+            this.lastModified = lastModified;
+            this.index = index;
+        }
+    }
+}
@@ -55,7 +55,9 @@ import java.nio.channels.SeekableByteChannel;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -354,7 +356,77 @@ public class IndexFactory {
         return createTabixIndex(inputFile, codec, codec.getTabixFormat(), sequenceDictionary);
     }
 
-    private static Index createIndex(final File inputFile, final FeatureIterator iterator, final IndexCreator creator) {
+    /**
+     * Create an index of the specified type with default binning parameters, decoding the features of inputFile on
+     * the threads of executor.  The index is identical to the one created from a single codec.
+     *
+     * @param inputFile the input file to load features from
+     * @param codecSupplier creates a new codec for each part of the file decoded in parallel
+     * @param type      the type of index to create
+     * @param sequenceDictionary May be null, but if present may reduce memory footprint for tabix index creation
+     * @param executor  the executor on which to decode inputFile, or null to decode it on the calling thread
+     */
+    public static <FEATURE_TYPE extends Feature> Index createIndex(final File inputFile,
+                                                                   final Supplier<? extends AsciiFeatureCodec<FEATURE_TYPE>> codecSupplier,
+                                                                   final IndexType type,
+                                                                   final SAMSequenceDictionary sequenceDictionary,
+                                                                   final ExecutorService executor) {
+        switch (type) {
+            case INTERVAL_TREE:
+                return createIndex(inputFile, makeIndexableIterator(inputFile, codecSupplier, executor),
+                        new IntervalIndexCreator(inputFile, IntervalIndexCreator.DEFAULT_FEATURE_COUNT));
+            case LINEAR:
+                return createIndex(inputFile, makeIndexableIterator(inputFile, codecSupplier, executor),
+                        new LinearIndexCreator(inputFile, LinearIndexCreator.DEFAULT_BIN_WIDTH));
+            case TABIX:
+                return createTabixIndex(inputFile, codecSupplier, codecSupplier.get().getTabixFormat(), sequenceDictionary, executor);
+        }
+        throw new IllegalArgumentException("Unrecognized IndexType " + type);
+    }
+
+    /**
+     * create a dynamic index, decoding the features of inputFile on the threads of executor
+     *
+     * @param inputFile the input file to load features from
+     * @param codecSupplier creates a new codec for each part of the file decoded in parallel
+     * @param iba       the index balancing approach
+     * @param executor  the executor on which to decode inputFile, or null to decode it on the calling thread
+     */
+    public static <FEATURE_TYPE extends Feature> Index createDynamicIndex(final File inputFile,
+                                                                          final Supplier<? extends AsciiFeatureCodec<FEATURE_TYPE>> codecSupplier,
+                                                                          final IndexBalanceApproach iba,
+                                                                          final ExecutorService executor) {
+        final DynamicIndexCreator indexCreator = new DynamicIndexCreator(inputFile, iba);
+        return createIndex(inputFile, makeIndexableIterator(inputFile, codecSupplier, executor), indexCreator);
+    }
+
+    /**
+     * @param inputFile The file to be indexed.
+     * @param codecSupplier creates a new codec for each part of the file decoded in parallel
+     * @param tabixFormat Header fields for TabixIndex to be produced.
+     * @param sequenceDictionary May be null, but if present may reduce memory footprint for index creation.  Features
+     *                           in inputFile must be in the order defined by sequenceDictionary, if it is present.
+     * @param executor the executor on which to decode inputFile, or null to decode it on the calling thread
+     */
+    public static <FEATURE_TYPE extends Feature> TabixIndex createTabixIndex(final File inputFile,
+                                                                             final Supplier<? extends AsciiFeatureCodec<FEATURE_TYPE>> codecSupplier,
+                                                                             final TabixFormat tabixFormat,
+                                                                             final SAMSequenceDictionary sequenceDictionary,
+                                                                             final ExecutorService executor) {
+        final TabixIndexCreator indexCreator = new TabixIndexCreator(sequenceDictionary, tabixFormat);
+        return (TabixIndex)createIndex(inputFile, makeIndexableIterator(inputFile, codecSupplier, executor), indexCreator);
+    }
+
+    private static <FEATURE_TYPE extends Feature> IndexableFeatureIterator makeIndexableIterator(final File inputFile,
+                                                                                                 final Supplier<? extends AsciiFeatureCodec<FEATURE_TYPE>> codecSupplier,
+                                                                                                 final ExecutorService executor) {
+        if (executor == null) {
+            return new FeatureIterator<>(inputFile, codecSupplier.get());
+        }
+        return new ParallelFeatureIterator(inputFile, codecSupplier, executor);
+    }
+
+    private static Index createIndex(final File inputFile, final IndexableFeatureIterator iterator, final IndexCreator creator) {
         Feature lastFeature = null;
         Feature currentFeature;
         final Map<String, Feature> visitedChromos = new HashMap<String, Feature>(40);
@@ -402,10 +474,20 @@ public class IndexFactory {
     }
 
 
+    /**
+     * Iterator over the features of a file that also reports the file position of the next feature.
+     */
+    interface IndexableFeatureIterator extends CloseableTribbleIterator<Feature> {
+        /**
+         * @return the file position of the next feature, or of the end of the file if there are no more features
+         */
+        long getPosition();
+    }
+
     /**
      * Iterator for reading features from a file, given a {@code FeatureCodec}.
      */
-    static class FeatureIterator<FEATURE_TYPE extends Feature, SOURCE> implements CloseableTribbleIterator<Feature> {
+    static class FeatureIterator<FEATURE_TYPE extends Feature, SOURCE> implements IndexableFeatureIterator {
         // the stream we use to get features
         private final SOURCE source;
         // the next feature
@@ -497,6 +579,7 @@ public class IndexFactory {
         /**
          * @return the file position from the underlying reader
          */
+        @Override
         public long getPosition() {
             return (hasNext()) ? cachedPosition : ((LocationAware) source).getPosition();
         }
@@ -0,0 +1,422 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.tribble.index;
+
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.samtools.util.LocationAware;
+import htsjdk.tribble.AbstractFeatureReader;
+import htsjdk.tribble.AsciiFeatureCodec;
+import htsjdk.tribble.Feature;
+import htsjdk.tribble.SimpleFeature;
+import htsjdk.tribble.TribbleException;
+import htsjdk.tribble.readers.LineIterator;
+import htsjdk.tribble.readers.PositionalBufferedStream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Iterates over the locations of the features of a text file, with the same file positions as
+ * {@link IndexFactory.FeatureIterator}, while decoding the file on multiple threads.
+ *
+ * The file is split into shards of about {@link #DEFAULT_SHARD_SIZE} bytes, at BGZF block boundaries if the file is block
+ * compressed and at arbitrary bytes otherwise.  Each shard is decompressed and its features decoded with
+ * {@link AsciiFeatureCodec#decodeLoc} by a task on the executor, which keeps only their contig, start, end and
+ * position.  A feature belongs to the shard in which its line starts.  The shards are consumed in file order, so that
+ * index creation sees exactly the same sequence of features and positions as when decoding on one thread.
+ */
+final class ParallelFeatureIterator implements IndexFactory.IndexableFeatureIterator {
+
+    /** Default size of the part of the file, compressed if block compressed, decoded by each task */
+    static final long DEFAULT_SHARD_SIZE = 8 * 1024 * 1024;
+
+    /** Number of shards decoded ahead of the consumer, which bounds the memory used */
+    private static final int MAX_SHARDS_IN_FLIGHT = 2 * Runtime.getRuntime().availableProcessors();
+
+    private final File inputFile;
+    private final Supplier<? extends AsciiFeatureCodec<?>> codecSupplier;
+    private final ExecutorService executor;
+    private final long shardSize;
+    private final boolean blockCompressed;
+
+    // shards that have not been submitted yet, and those submitted but not consumed, in file order
+    private final Deque<Shard> pendingShards = new ArrayDeque<>();
+    private final Deque<Future<ShardFeatures>> runningShards = new ArrayDeque<>();
+
+    private ShardFeatures current = null;
+    private int next = 0;
+    // start of a run of lines without features at the end of the shards consumed so far, which serial decoding
+    // reports as the position of the next feature
+    private long carriedPosition = -1;
+    private long finalPosition = 0;
+
+    /**
+     * @param codecSupplier creates a codec for each shard, since codecs are not thread safe
+     */
+    ParallelFeatureIterator(final File inputFile, final Supplier<? extends AsciiFeatureCodec<?>> codecSupplier, final ExecutorService executor) {
+        this(inputFile, codecSupplier, executor, DEFAULT_SHARD_SIZE);
+    }
+
+    ParallelFeatureIterator(final File inputFile, final Supplier<? extends AsciiFeatureCodec<?>> codecSupplier,
+                            final ExecutorService executor, final long shardSize) {
+        if (inputFile == null) {
+            throw new IllegalArgumentException("ParallelFeatureIterator input file cannot be null");
+        }
+        if (shardSize <= 0) {
+            throw new IllegalArgumentException("Shard size must be positive: " + shardSize);
+        }
+        this.inputFile = inputFile;
+        this.codecSupplier = codecSupplier;
+        this.executor = executor;
+        this.shardSize = shardSize;
+        this.blockCompressed = AbstractFeatureReader.hasBlockCompressedExtension(inputFile);
+        try {
+            final long dataStart = findDataStart();
+            pendingShards.addAll(blockCompressed ? splitAtBlocks(dataStart) : splitAtBytes(dataStart));
+        } catch (final IOException e) {
+            throw new TribbleException.MalformedFeatureFile("Unable to split file into shards", inputFile.getAbsolutePath(), e);
+        }
+        submitShards();
+        advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return current != null;
+    }
+
+    @Override
+    public Feature next() {
+        if (current == null) {
+            throw new NoSuchElementException();
+        }
+        final Feature feature = new SimpleFeature(current.contigs[next], current.starts[next], current.ends[next]);
+        if (++next == current.size) {
+            advance();
+        }
+        return feature;
+    }
+
+    /**
+     * @return the position of the next feature, or of the end of the file if there are no more features
+     */
+    @Override
+    public long getPosition() {
+        return current == null ? finalPosition : current.positions[next];
+    }
+
+    @Override
+    public void close() {
+        for (final Future<ShardFeatures> future : runningShards) {
+            future.cancel(true);
+        }
+        runningShards.clear();
+        pendingShards.clear();
+        current = null;
+    }
+
+    @Override
+    public Iterator<Feature> iterator() {
+        return this;
+    }
+
+    /** Move on to the next shard that has features */
+    private void advance() {
+        current = null;
+        next = 0;
+        while (current == null && !runningShards.isEmpty()) {
+            final ShardFeatures shard = getResult(runningShards.removeFirst());
+            submitShards();
+            finalPosition = shard.endPosition;
+            if (shard.size > 0) {
+                if (carriedPosition >= 0) {
+                    shard.positions[0] = carriedPosition;
+                }
+                carriedPosition = shard.trailingPosition;
+                current = shard;
+            } else if (carriedPosition < 0) {
+                carriedPosition = shard.trailingPosition;
+            }
+        }
+    }
+
+    private ShardFeatures getResult(final Future<ShardFeatures> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TribbleException("Interrupted while indexing " + inputFile.getAbsolutePath(), e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new TribbleException("Unable to index " + inputFile.getAbsolutePath(), e.getCause());
+        }
+    }
+
+    private void submitShards() {
+        while (!pendingShards.isEmpty() && runningShards.size() < MAX_SHARDS_IN_FLIGHT) {
+            final Shard shard = pendingShards.removeFirst();
+            runningShards.add(executor.submit(() -> decodeShard(shard)));
+        }
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////
+    // Splitting
+    // ////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A part of the file.  Positions are virtual file pointers if the file is block compressed.
+     */
+    private static final class Shard {
+        // position of the first byte of the shard
+        private final long start;
+        // position of the first byte of the following shard
+        private final long end;
+        // position of the last byte of the previous shard, or -1 for the first shard
+        private final long preceding;
+
+        private Shard(final long start, final long end, final long preceding) {
+            this.start = start;
+            this.end = end;
+            this.preceding = preceding;
+        }
+    }
+
+    /** @return the position of the first line after the header */
+    private long findDataStart() throws IOException {
+        final AsciiFeatureCodec<?> codec = codecSupplier.get();
+        if (blockCompressed) {
+            try (final BlockCompressedInputStream stream = new BlockCompressedInputStream(inputFile)) {
+                final LineIterator source = (LineIterator) codec.makeIndexableSourceFromStream(stream);
+                codec.readHeader(source);
+                return ((LocationAware) source).getPosition();
+            }
+        } else {
+            try (final PositionalBufferedStream stream = new PositionalBufferedStream(new FileInputStream(inputFile))) {
+                final LineIterator source = (LineIterator) codec.makeIndexableSourceFromStream(stream);
+                codec.readHeader(source);
+                return ((LocationAware) source).getPosition();
+            }
+        }
+    }
+
+    private List<Shard> splitAtBytes(final long dataStart) {
+        final long length = inputFile.length();
+        final List<Long> starts = new ArrayList<>();
+        starts.add(0L);
+        for (long start = Math.max(shardSize, dataStart + 1); start < length; start += shardSize) {
+            starts.add(start);
+        }
+        final List<Shard> shards = new ArrayList<>(starts.size());
+        for (int i = 0; i < starts.size(); i++) {
+            final long start = starts.get(i);
+            final long end = i + 1 < starts.size() ? starts.get(i + 1) : Long.MAX_VALUE;
+            shards.add(new Shard(start, end, i == 0 ? -1 : start - 1));
+        }
+        return shards;
+    }
+
+    /**
+     * Reads the header of every BGZF block to split the file at the first non-empty block at least
+     * shardSize bytes after the start of the previous shard, and after the header of the file.
+     */
+    private List<Shard> splitAtBlocks(final long dataStart) throws IOException {
+        final long dataBlock = BlockCompressedFilePointerUtil.getBlockAddress(dataStart);
+        final List<long[]> starts = new ArrayList<>();
+        starts.add(new long[]{0, -1});
+
+        final ByteBuffer header = ByteBuffer.allocate(BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer footer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        try (final FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            final long length = channel.size();
+            long nextSplit = shardSize;
+            long previousAddress = -1;
+            int previousUncompressedSize = 0;
+            for (long address = 0; address < length; ) {
+                readFully(channel, header, address);
+                if (header.get(0) != BlockCompressedStreamConstants.GZIP_ID1 ||
+                        (header.get(1) & 0xFF) != BlockCompressedStreamConstants.GZIP_ID2 ||
+                        header.get(12) != BlockCompressedStreamConstants.BGZF_ID1 ||
+                        header.get(13) != BlockCompressedStreamConstants.BGZF_ID2) {
+                    throw new TribbleException.MalformedFeatureFile("Invalid BGZF block header at offset " + address,
+                            inputFile.getAbsolutePath());
+                }
+                final int blockSize = (header.getShort(BlockCompressedStreamConstants.BLOCK_LENGTH_OFFSET) & 0xFFFF) + 1;
+                readFully(channel, footer, address + blockSize - footer.capacity());
+                final int uncompressedSize = footer.getInt(0);
+
+                if (address >= nextSplit && address > dataBlock && previousUncompressedSize > 0 && uncompressedSize > 0) {
+                    starts.add(new long[]{
+                            BlockCompressedFilePointerUtil.makeFilePointer(address, 0),
+                            BlockCompressedFilePointerUtil.makeFilePointer(previousAddress, previousUncompressedSize - 1)});
+                    nextSplit = address + shardSize;
+                }
+                previousAddress = address;
+                previousUncompressedSize = uncompressedSize;
+                address += blockSize;
+            }
+        }
+
+        final List<Shard> shards = new ArrayList<>(starts.size());
+        for (int i = 0; i < starts.size(); i++) {
+            final long end = i + 1 < starts.size() ? starts.get(i + 1)[0] : Long.MAX_VALUE;
+            shards.add(new Shard(starts.get(i)[0], end, starts.get(i)[1]));
+        }
+        return shards;
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file at offset " + (position + buffer.position()));
+            }
+        }
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////
+    // Decoding
+    // ////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The locations of the features of one shard, in file order.
+     */
+    private static final class ShardFeatures {
+        private String[] contigs = new String[1024];
+        private int[] starts = new int[1024];
+        private int[] ends = new int[1024];
+        private long[] positions = new long[1024];
+        private int size = 0;
+        // start of the lines without features at the end of the shard, or -1 if the last line has a feature
+        private long trailingPosition = -1;
+        // position after the last line read
+        private long endPosition;
+
+        private void add(final Feature feature, final long position) {
+            if (size == starts.length) {
+                final int capacity = size * 2;
+                contigs = Arrays.copyOf(contigs, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                positions = Arrays.copyOf(positions, capacity);
+            }
+            // share the name between features on the same contig
+            final String contig = feature.getContig();
+            contigs[size] = size > 0 && contig.equals(contigs[size - 1]) ? contigs[size - 1] : contig;
+            starts[size] = feature.getStart();
+            ends[size] = feature.getEnd();
+            positions[size] = position;
+            size++;
+        }
+    }
+
+    private ShardFeatures decodeShard(final Shard shard) throws IOException {
+        final AsciiFeatureCodec<?> codec = codecSupplier.get();
+        if (blockCompressed) {
+            try (final BlockCompressedInputStream stream = new BlockCompressedInputStream(inputFile)) {
+                LineIterator source = (LineIterator) codec.makeIndexableSourceFromStream(stream);
+                codec.readHeader(source);
+                if (shard.preceding < 0) {
+                    return decodeLines(codec, source, shard.end, 0);
+                }
+                stream.seek(shard.preceding);
+                final boolean startsWithLine = stream.read() == '\n';
+                stream.seek(shard.start);
+                source = (LineIterator) codec.makeIndexableSourceFromStream(stream);
+                return decodeLines(codec, skipPartialLine(source, startsWithLine), shard.end, 0);
+            }
+        } else {
+            if (shard.preceding < 0) {
+                try (final PositionalBufferedStream stream = new PositionalBufferedStream(new FileInputStream(inputFile))) {
+                    final LineIterator source = (LineIterator) codec.makeIndexableSourceFromStream(stream);
+                    codec.readHeader(source);
+                    return decodeLines(codec, source, shard.end, 0);
+                }
+            }
+            try (final PositionalBufferedStream stream = new PositionalBufferedStream(new FileInputStream(inputFile))) {
+                codec.readHeader((LineIterator) codec.makeIndexableSourceFromStream(stream));
+            }
+            try (final FileInputStream fileStream = new FileInputStream(inputFile)) {
+                final ByteBuffer preceding = ByteBuffer.allocate(1);
+                readFully(fileStream.getChannel(), preceding, shard.preceding);
+                fileStream.getChannel().position(shard.start);
+                final PositionalBufferedStream stream = new PositionalBufferedStream(fileStream);
+                final LineIterator source = (LineIterator) codec.makeIndexableSourceFromStream(stream);
+                return decodeLines(codec, skipPartialLine(source, preceding.get(0) == '\n'), shard.end - shard.start, shard.start);
+            }
+        }
+    }
+
+    /** The first line of a shard belongs to the previous shard unless the previous shard ends with a line terminator */
+    private static LineIterator skipPartialLine(final LineIterator source, final boolean startsWithLine) {
+        if (!startsWithLine && source.hasNext()) {
+            source.next();
+        }
+        return source;
+    }
+
+    /**
+     * Decodes the features that start before end, in the same way as {@link IndexFactory.FeatureIterator}.
+     *
+     * @param positionOffset added to the positions of source to get positions in the file
+     */
+    private <T extends Feature> ShardFeatures decodeLines(final AsciiFeatureCodec<T> codec, final LineIterator source,
+                                                         final long end, final long positionOffset) {
+        final LocationAware location = (LocationAware) source;
+        final ShardFeatures features = new ShardFeatures();
+        long featurePosition = -1;
+        while (!codec.isDone(source) && location.getPosition() < end) {
+            if (featurePosition < 0) {
+                featurePosition = location.getPosition() + positionOffset;
+            }
+            final Feature feature = codec.decodeLoc(source);
+            if (feature != null) {
+                features.add(feature, featurePosition);
+                featurePosition = -1;
+            }
+        }
+        features.trailingPosition = featurePosition;
+        features.endPosition = location.getPosition() + positionOffset;
+        return features;
+    }
+}
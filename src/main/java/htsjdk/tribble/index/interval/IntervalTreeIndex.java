@@ -25,6 +25,7 @@ import htsjdk.tribble.util.LittleEndianOutputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -88,7 +89,7 @@ public class IntervalTreeIndex extends AbstractIndex {
      * @param interval
      */
     public void insert(final String chr, final Interval interval) {
-        ChrIndex chrIdx = (ChrIndex) chrIndices.get(chr);
+        ChrIndex chrIdx = (ChrIndex) findChrIndex(chr);
         if (chrIdx == null) {
             chrIdx = new ChrIndex(chr);
             chrIndices.put(chr, chrIdx);
@@ -102,7 +103,18 @@ public class IntervalTreeIndex extends AbstractIndex {
         }
     }
 
+    /**
+     * Skips a serialized {@link ChrIndex}: the number of intervals followed by 20 bytes per interval.
+     */
+    @Override
+    protected boolean skipChrIndex(final ByteBuffer buffer) {
+        final int nIntervals = buffer.getInt();
+        buffer.position(buffer.position() + 20 * nIntervals);
+        return true;
+    }
+
     public void printTree() {
+        loadAllChrIndices();
 
         for (final String chr : chrIndices.keySet()) {
             System.out.println(chr + ":");
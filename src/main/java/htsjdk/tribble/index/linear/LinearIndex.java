@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -67,6 +68,11 @@ public class LinearIndex extends AbstractIndex {
 
     public static boolean enableAdaptiveIndexing = true;
 
+    /**
+     * true if a chromosome that has not been loaded yet is an old style V3 index
+     */
+    private boolean hasOldV3ChrIndex;
+
     /**
      * Initialize using the specified {@code indices}
      * @param indices
@@ -124,13 +130,28 @@ public class LinearIndex extends AbstractIndex {
         if (!super.isCurrentVersion()) return false;
 
         // todo fixme nasty hack to determine if this is an old style V3 linear index (without nFeaturesPerBin)
+        if (hasOldV3ChrIndex) return false;
         for (final htsjdk.tribble.index.ChrIndex chrIndex : chrIndices.values())
-            if (((ChrIndex) chrIndex).OLD_V3_INDEX)
+            if (chrIndex != null && ((ChrIndex) chrIndex).OLD_V3_INDEX)
                 return false;
 
         return true;
     }
 
+    /**
+     * Skips a serialized {@link ChrIndex}: five ints followed by one more long than there are bins.
+     */
+    @Override
+    protected boolean skipChrIndex(final ByteBuffer buffer) {
+        buffer.getInt(); // binWidth
+        final int nBins = buffer.getInt();
+        buffer.getInt(); // longestFeature
+        if (buffer.getInt() > 0) hasOldV3ChrIndex = true;
+        buffer.getInt(); // nFeatures
+        buffer.position(buffer.position() + 8 * (nBins + 1));
+        return true;
+    }
+
     @Override
     protected int getType() {
         return INDEX_TYPE;
@@ -417,6 +438,7 @@ public class LinearIndex extends AbstractIndex {
      */
     public Index optimize(final double threshold) {
         if (enableAdaptiveIndexing) {
+            loadAllChrIndices();
 
             final List<ChrIndex> newIndices = new ArrayList<ChrIndex>(this.chrIndices.size());
             for (final String name : chrIndices.keySet()) {
@@ -440,6 +462,7 @@ public class LinearIndex extends AbstractIndex {
      */
     public void writeTable(final PrintStream out) {
         out.printf("chr binWidth avg.feature.size nFeatures.total block.id start.pos size nFeatures%n");
+        loadAllChrIndices();
         for (final String name : chrIndices.keySet()) {
             final LinearIndex.ChrIndex chrIdx = (LinearIndex.ChrIndex) chrIndices.get(name);
             int blockCount = 0;
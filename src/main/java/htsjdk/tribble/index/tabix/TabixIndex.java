@@ -208,6 +208,13 @@ public class TabixIndex implements Index {
         return formatSpec;
     }
 
+    /**
+     * @return the bins and linear index for the i-th element of {@link #getSequenceNames()}, or null if it has no features
+     */
+    BinningIndexContent getIndexContent(final int referenceSequenceIndex) {
+        return indices[referenceSequenceIndex];
+    }
+
     /**
      * Writes the index with BGZF.
      *
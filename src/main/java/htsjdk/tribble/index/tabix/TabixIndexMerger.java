@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.tribble.index.tabix;
+
+import htsjdk.samtools.Bin;
+import htsjdk.samtools.BinningIndexContent;
+import htsjdk.samtools.Chunk;
+import htsjdk.samtools.LinearIndex;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds the tabix index of a BGZF file that was produced by concatenating independently written and indexed
+ * BGZF parts (minus their EOF blocks).  Each part's index is added with the file offset at which the part was
+ * placed, and its chunks and linear index entries are shifted by that offset.
+ *
+ * Parts must be added in file order and a sequence may not be split across parts.
+ */
+public final class TabixIndexMerger {
+    private final TabixFormat formatSpec;
+    private final List<String> sequenceNames = new ArrayList<>();
+    private final Set<String> sequenceNamesSeen = new HashSet<>();
+    private final List<BinningIndexContent> indexContents = new ArrayList<>();
+
+    public TabixIndexMerger(final TabixFormat formatSpec) {
+        this.formatSpec = formatSpec.clone();
+    }
+
+    /**
+     * @param index      the index of one part, with virtual file pointers relative to the start of that part
+     * @param partOffset the file offset of the first byte of the part in the merged file
+     */
+    public void processIndex(final TabixIndex index, final long partOffset) {
+        final List<String> partSequenceNames = index.getSequenceNames();
+        for (int i = 0; i < partSequenceNames.size(); i++) {
+            final String sequenceName = partSequenceNames.get(i);
+            if (!sequenceNamesSeen.add(sequenceName)) {
+                throw new IllegalArgumentException("Sequence " + sequenceName + " appears in more than one part");
+            }
+            final int referenceIndex = sequenceNames.size();
+            sequenceNames.add(sequenceName);
+            final BinningIndexContent content = index.getIndexContent(i);
+            indexContents.add(content == null ? null : shift(content, referenceIndex, partOffset));
+        }
+    }
+
+    /**
+     * @return the index of the merged file
+     */
+    public TabixIndex finish() {
+        return new TabixIndex(formatSpec, sequenceNames, indexContents.toArray(new BinningIndexContent[indexContents.size()]));
+    }
+
+    private static BinningIndexContent shift(final BinningIndexContent content, final int referenceIndex, final long partOffset) {
+        final BinningIndexContent.BinList binList = content.getBins();
+        final Bin[] bins = new Bin[binList.maxBinNumber + 1];
+        for (final Bin bin : binList) {
+            final Bin shifted = new Bin(referenceIndex, bin.getBinNumber());
+            final List<Chunk> chunks = new ArrayList<>(bin.getChunkList().size());
+            for (final Chunk chunk : bin.getChunkList()) {
+                chunks.add(new Chunk(BlockCompressedFilePointerUtil.shift(chunk.getChunkStart(), partOffset),
+                        BlockCompressedFilePointerUtil.shift(chunk.getChunkEnd(), partOffset)));
+            }
+            shifted.setChunkList(chunks);
+            bins[bin.getBinNumber()] = shifted;
+        }
+
+        final LinearIndex linearIndex = content.getLinearIndex();
+        final long[] entries = linearIndex.getIndexEntries().clone();
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = BlockCompressedFilePointerUtil.shift(entries[i], partOffset);
+        }
+        return new BinningIndexContent(referenceIndex, new BinningIndexContent.BinList(bins, binList.numberOfNonNullBins),
+                new LinearIndex(referenceIndex, linearIndex.getIndexStart(), entries));
+    }
+}
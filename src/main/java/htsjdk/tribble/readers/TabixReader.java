@@ -400,20 +400,24 @@ public class TabixReader {
     private class IteratorImpl implements Iterator {
         private int i;
         //private int n_seeks;
-        private int tid, beg, end;
+        private int tid;
+        // sorted, disjoint query intervals, and the index of the first one that may overlap the next line
+        private int[] begs, ends;
+        private int j;
         private TPair64[] off;
         private long curr_off;
         private boolean iseof;
 
-        private IteratorImpl(final int _tid, final int _beg, final int _end, final TPair64[] _off) {
+        private IteratorImpl(final int _tid, final int[] _begs, final int[] _ends, final TPair64[] _off) {
             i = -1;
             //n_seeks = 0;
             curr_off = 0;
             iseof = false;
             off = _off;
             tid = _tid;
-            beg = _beg;
-            end = _end;
+            begs = _begs;
+            ends = _ends;
+            j = 0;
         }
 
         @Override
@@ -436,8 +440,9 @@ public class TabixReader {
                     curr_off = mFp.getFilePointer();
                     if (s.isEmpty() || s.charAt(0) == mMeta) continue;
                     intv = getIntv(s);
-                    if (intv.tid != tid || intv.beg >= end) break; // no need to proceed
-                    else if (intv.end > beg && intv.beg < end) return s; // overlap; return
+                    if (intv.tid != tid || intv.beg >= ends[ends.length - 1]) break; // no need to proceed
+                    while (ends[j] <= intv.beg) ++j; // lines are sorted by beg, so earlier intervals can't overlap any more lines
+                    if (intv.end > begs[j] && intv.beg < ends[j]) return s; // overlap; return
                 } else break; // end of file
             }
             iseof = true;
@@ -453,26 +458,49 @@ public class TabixReader {
      * @return an iterator over the lines within the specified interval
      */
     public Iterator query(final int tid, final int beg, final int end) {
+        return query(tid, new int[]{beg}, new int[]{end});
+    }
+
+    /**
+     * Query many intervals on the same sequence at once.  The chunks of all of the intervals are merged, so that
+     * each part of the file is decompressed and read only once and each line is returned at most once.
+     *
+     * @param tid Sequence id
+     * @param begs beginnings of the intervals, genomic coords, sorted in increasing order
+     * @param ends ends of the intervals, genomic coords, such that the intervals are disjoint
+     * @return an iterator over the lines overlapping any of the specified intervals, in file order
+     */
+    public Iterator query(final int tid, final int[] begs, final int[] ends) {
         TPair64[] off, chunks;
         long min_off;
         if(tid< 0 || tid>=this.mIndex.length) return EOF_ITERATOR;
+        if (begs.length == 0 || begs.length != ends.length) return EOF_ITERATOR;
         TIndex idx = mIndex[tid];
         int[] bins = new int[MAX_BIN];
-        int i, l, n_off, n_bins = reg2bins(beg, end, bins);
-        if (idx.l.length > 0)
-            min_off = (beg >> TAD_LIDX_SHIFT >= idx.l.length) ? idx.l[idx.l.length - 1] : idx.l[beg >> TAD_LIDX_SHIFT];
-        else min_off = 0;
-        for (i = n_off = 0; i < n_bins; ++i) {
-            if ((chunks = idx.b.get(bins[i])) != null)
-                n_off += chunks.length;
+        int i, l, n_off = 0, n_bins;
+        for (int k = 0; k < begs.length; ++k) {
+            n_bins = reg2bins(begs[k], ends[k], bins);
+            for (i = 0; i < n_bins; ++i) {
+                if ((chunks = idx.b.get(bins[i])) != null)
+                    n_off += chunks.length;
+            }
         }
         if (n_off == 0) return EOF_ITERATOR;
         off = new TPair64[n_off];
-        for (i = n_off = 0; i < n_bins; ++i)
-            if ((chunks = idx.b.get(bins[i])) != null)
-                for (int j = 0; j < chunks.length; ++j)
-                    if (less64(min_off, chunks[j].v))
-                        off[n_off++] = new TPair64(chunks[j]);
+        n_off = 0;
+        for (int k = 0; k < begs.length; ++k) {
+            final int beg = begs[k];
+            if (idx.l.length > 0)
+                min_off = (beg >> TAD_LIDX_SHIFT >= idx.l.length) ? idx.l[idx.l.length - 1] : idx.l[beg >> TAD_LIDX_SHIFT];
+            else min_off = 0;
+            n_bins = reg2bins(beg, ends[k], bins);
+            for (i = 0; i < n_bins; ++i)
+                if ((chunks = idx.b.get(bins[i])) != null)
+                    for (int j = 0; j < chunks.length; ++j)
+                        if (less64(min_off, chunks[j].v))
+                            off[n_off++] = new TPair64(chunks[j]);
+        }
+        if (n_off == 0) return EOF_ITERATOR;
         Arrays.sort(off, 0, n_off);
         // resolve completely contained adjacent blocks
         for (i = 1, l = 0; i < n_off; ++i) {
@@ -503,7 +531,7 @@ public class TabixReader {
         }
         if (ret.length == 0 || (ret.length == 1 && ret[0] == null))
             return EOF_ITERATOR;
-        return new TabixReader.IteratorImpl(tid, beg, end, ret);
+        return new TabixReader.IteratorImpl(tid, begs, ends, ret);
     }
 
     /**
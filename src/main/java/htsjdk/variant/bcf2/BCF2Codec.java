@@ -33,6 +33,7 @@ import htsjdk.tribble.TribbleException;
 import htsjdk.tribble.readers.*;
 import htsjdk.variant.utils.GeneralUtils;
 import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.AlleleCache;
 import htsjdk.variant.variantcontext.GenotypeBuilder;
 import htsjdk.variant.variantcontext.LazyGenotypesContext;
 import htsjdk.variant.variantcontext.VariantContext;
@@ -51,6 +52,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Decode BCF2 files
@@ -98,6 +100,11 @@ public final class BCF2Codec extends BinaryFeatureCodec<VariantContext> {
      */
     private GenotypeBuilder[] builders = null;
 
+    /**
+     * If not null, genotype blocks of records with many samples are decoded in parallel on this executor
+     */
+    private ExecutorService genotypeDecodingExecutor = null;
+
     // for error handling
     private int recordNo = 0;
     private int pos = 0;
@@ -323,25 +330,30 @@ public final class BCF2Codec extends BinaryFeatureCodec<VariantContext> {
      * @return the alleles
      */
     private List<Allele> decodeAlleles( final VariantContextBuilder builder, final int pos, final int nAlleles ) throws IOException {
-        // TODO -- probably need inline decoder for efficiency here (no sense in going bytes -> string -> vector -> bytes
         List<Allele> alleles = new ArrayList<Allele>(nAlleles);
-        String ref = null;
+        final AlleleCache alleleCache = AlleleCache.getSharedCache();
 
         for ( int i = 0; i < nAlleles; i++ ) {
-            final String alleleBases = (String)decoder.decodeTypedValue();
+            // look the allele up directly from the record bytes, rather than going bytes -> string -> bytes
+            final byte typeDescriptor = decoder.readTypeDescriptor();
+            final int size = decoder.decodeNumberOfElements(typeDescriptor);
+            if ( size == 0 || BCF2Utils.decodeType(typeDescriptor) != BCF2Type.CHAR )
+                error("Expected a non-empty string for allele " + i);
+
+            final byte[] bytes = decoder.getRecordBytes();
+            final int offset = decoder.getPosition();
+            decoder.skipBytes(size);
+            int length = 0;
+            while ( length < size && bytes[offset + length] != 0 ) length++;
+            if ( length == 0 )
+                error("Expected a non-empty string for allele " + i);
 
             final boolean isRef = i == 0;
-            final Allele allele = Allele.create(alleleBases, isRef);
-            if ( isRef ) ref = alleleBases;
-
-            alleles.add(allele);
+            alleles.add(alleleCache.get(bytes, offset, length, isRef));
         }
-        assert ref != null;
 
         builder.alleles(alleles);
 
-        assert !ref.isEmpty();
-
         return alleles;
     }
 
@@ -350,20 +362,23 @@ public final class BCF2Codec extends BinaryFeatureCodec<VariantContext> {
      * @param builder
      */
     private void decodeFilter( final VariantContextBuilder builder ) throws IOException {
-        final Object value = decoder.decodeTypedValue();
+        // decode the offsets directly into an int[] rather than boxing them through decodeTypedValue
+        final byte typeDescriptor = decoder.readTypeDescriptor();
+        final int size = decoder.decodeNumberOfElements(typeDescriptor);
+        final int[] offsets = decoder.decodeIntArray(typeDescriptor, size);
 
-        if ( value == null )
+        if ( offsets == null )
             builder.unfiltered();
         else {
-            if ( value instanceof Integer ) {
+            if ( offsets.length == 1 ) {
                 // fast path for single integer result
-                final String filterString = getDictionaryString((Integer)value);
+                final String filterString = getDictionaryString(offsets[0]);
                 if ( VCFConstants.PASSES_FILTERS_v4.equals(filterString))
                     builder.passFilters();
                 else
                     builder.filter(filterString);
             } else {
-                for ( final int offset : (List<Integer>)value )
+                for ( final int offset : offsets )
                     builder.filter(getDictionaryString(offset));
             }
         }
@@ -409,7 +424,7 @@ public final class BCF2Codec extends BinaryFeatureCodec<VariantContext> {
                                              final VariantContextBuilder builder ) {
         if (siteInfo.nSamples > 0) {
             final LazyGenotypesContext.LazyParser lazyParser =
-                    new BCF2LazyGenotypesDecoder(this, siteInfo.alleles, siteInfo.nSamples, siteInfo.nFormatFields, builders);
+                    new BCF2LazyGenotypesDecoder(this, siteInfo.alleles, siteInfo.nSamples, siteInfo.nFormatFields, builders, genotypeDecodingExecutor);
 
             final LazyData lazyData = new LazyData(header, siteInfo.nFormatFields, decoder.getRecordBytes());
             final LazyGenotypesContext lazy = new LazyGenotypesContext(lazyParser, lazyData, header.getNGenotypeSamples());
@@ -435,7 +450,7 @@ public final class BCF2Codec extends BinaryFeatureCodec<VariantContext> {
     }
 
     private final String getDictionaryString() throws IOException {
-        return getDictionaryString((Integer) decoder.decodeTypedValue());
+        return getDictionaryString(decoder.decodeInt(decoder.readTypeDescriptor(), -1));
     }
 
     protected final String getDictionaryString(final int offset) {
@@ -470,6 +485,16 @@ public final class BCF2Codec extends BinaryFeatureCodec<VariantContext> {
         return header;
     }
 
+    /**
+     * Decode the genotypes of records with at least {@link BCF2LazyGenotypesDecoder#MIN_SAMPLES_FOR_PARALLEL_DECODE}
+     * samples in parallel, splitting the samples into contiguous ranges that are decoded on executor.
+     *
+     * @param executor the executor to use, or null (the default) to decode all genotypes on the calling thread
+     */
+    public void setGenotypeDecodingExecutor(final ExecutorService executor) {
+        this.genotypeDecodingExecutor = executor;
+    }
+
     protected BCF2GenotypeFieldDecoders.Decoder getGenotypeFieldDecoder(final String field) {
         return gtFieldDecoders.getDecoder(field);
     }
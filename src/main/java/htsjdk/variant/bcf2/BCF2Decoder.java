@@ -28,7 +28,6 @@ package htsjdk.variant.bcf2;
 import htsjdk.tribble.TribbleException;
 import htsjdk.variant.utils.GeneralUtils;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -36,7 +35,14 @@ import java.util.Arrays;
 
 public final class BCF2Decoder {
     byte[] recordBytes = null;
-    ByteArrayInputStream recordStream = null;
+
+    /**
+     * Offset in recordBytes of the next byte to decode, and one past the last byte we are allowed to decode.
+     * Values are read directly from recordBytes rather than through an InputStream, so that decoding
+     * primitive values neither allocates nor goes through virtual stream calls.
+     */
+    int position = 0;
+    int limit = 0;
 
     public BCF2Decoder() {
         // nothing to do
@@ -51,6 +57,22 @@ public final class BCF2Decoder {
         setRecordBytes(recordBytes);
     }
 
+    /**
+     * Create a new decoder ready to read BCF2 data from the slice of recordBytes starting at offset.
+     * Multiple such decoders can read independent slices of the same byte[] concurrently.
+     *
+     * @param recordBytes the underlying record data, not copied
+     * @param offset the offset of the first byte to decode
+     * @param length the number of bytes available to this decoder
+     */
+    BCF2Decoder(final byte[] recordBytes, final int offset, final int length) {
+        if ( offset < 0 || length < 0 || offset + length > recordBytes.length )
+            throw new TribbleException("Invalid slice [" + offset + ", " + (offset + length) + ") of BCF2 block of size " + recordBytes.length);
+        this.recordBytes = recordBytes;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
     // ----------------------------------------------------------------------
     //
     // Routines to load, set, skip blocks of underlying data we are decoding
@@ -80,7 +102,8 @@ public final class BCF2Decoder {
             throw new TribbleException("I/O error while reading BCF2 file", e);
         }
         this.recordBytes = null;
-        this.recordStream = null;
+        this.position = 0;
+        this.limit = 0;
     }
 
     /**
@@ -101,7 +124,25 @@ public final class BCF2Decoder {
     }
 
     public boolean blockIsFullyDecoded() {
-        return recordStream.available() == 0;
+        return position >= limit;
+    }
+
+    /**
+     * @return the offset in {@link #getRecordBytes()} of the next byte to be decoded
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Skips over nBytes bytes of the current block without decoding them
+     *
+     * @param nBytes the number of bytes to skip, must be &gt;= 0
+     */
+    public void skipBytes(final int nBytes) {
+        if ( nBytes < 0 || position + nBytes > limit )
+            throw new TribbleException("Cannot skip " + nBytes + " bytes with only " + (limit - position) + " remaining in BCF2 block");
+        position += nBytes;
     }
 
     /**
@@ -111,7 +152,8 @@ public final class BCF2Decoder {
      */
     public void setRecordBytes(final byte[] recordBytes) {
         this.recordBytes = recordBytes;
-        this.recordStream = new ByteArrayInputStream(recordBytes);
+        this.position = 0;
+        this.limit = recordBytes.length;
     }
 
     // ----------------------------------------------------------------------
@@ -179,23 +221,19 @@ public final class BCF2Decoder {
     private final Object decodeLiteralString(final int size) {
         assert size > 0;
 
-        // TODO -- assumes size > 0
-        final byte[] bytes = new byte[size]; // TODO -- in principle should just grab bytes from underlying array
-        try {
-            recordStream.read(bytes);
+        final int start = position;
+        final int available = Math.min(size, limit - position);
+        position += available;
 
-            int goodLength = 0;
-            for ( ; goodLength < bytes.length ; goodLength++ )
-                if ( bytes[goodLength] == 0 ) break;
+        int goodLength = 0;
+        for ( ; goodLength < available ; goodLength++ )
+            if ( recordBytes[start + goodLength] == 0 ) break;
 
-            if ( goodLength == 0 )
-                return null;
-            else {
-                final String s = new String(bytes, 0, goodLength);
-                return BCF2Utils.isCollapsedString(s) ? BCF2Utils.explodeStringList(s) : s;
-            }
-        } catch ( IOException e ) {
-            throw new TribbleException("readByte failure", e);
+        if ( goodLength == 0 )
+            return null;
+        else {
+            final String s = new String(recordBytes, start, goodLength);
+            return BCF2Utils.isCollapsedString(s) ? BCF2Utils.explodeStringList(s) : s;
         }
     }
 
@@ -223,7 +261,34 @@ public final class BCF2Decoder {
     }
 
     public final int decodeInt(final BCF2Type type) throws IOException {
-        return type.read(recordStream);
+        switch ( type ) {
+            case INT8:
+            case CHAR:
+                return readByte();
+            case INT16: {
+                final int b2 = readByte() & 0xFF;
+                final int b1 = readByte() & 0xFF;
+                return (short)((b1 << 8) | b2);
+            }
+            case INT32:
+            case FLOAT: {
+                final int b4 = readByte() & 0xFF;
+                final int b3 = readByte() & 0xFF;
+                final int b2 = readByte() & 0xFF;
+                final int b1 = readByte() & 0xFF;
+                return b1 << 24 | b2 << 16 | b3 << 8 | b4;
+            }
+            default:
+                return type.read(null);
+        }
+    }
+
+    /**
+     * Returns the next byte in the block, or -1 (as a byte) once the block is exhausted, which mirrors
+     * the behavior of {@link BCF2Utils#readByte(InputStream)} at the end of a stream
+     */
+    private byte readByte() {
+        return position < limit ? recordBytes[position++] : (byte)-1;
     }
 
     /**
@@ -281,6 +346,76 @@ public final class BCF2Decoder {
         return decodeIntArray(size, type, null);
     }
 
+    /**
+     * Low-level reader for float[], with the same missing value and auto-pruning
+     * semantics as {@link #decodeIntArray(int, BCF2Type, int[])}
+     *
+     * @param size the number of elements encoded in the stream
+     * @param type the type of the encoded elements, must be FLOAT
+     * @param maybeDest if not null and large enough, used to store the decoded values instead of a fresh allocation
+     * @return null if size == 0 or the first element is missing, otherwise a float[] of the leading non-missing values
+     */
+    public final float[] decodeFloatArray(final int size, final BCF2Type type, float[] maybeDest) throws IOException {
+        if ( type != BCF2Type.FLOAT )
+            throw new TribbleException("BCF2 codec cannot decode type " + type + " as a float array");
+        if ( size == 0 ) return null;
+        if ( maybeDest != null && maybeDest.length < size )
+            maybeDest = null;
+
+        final float[] floats = maybeDest == null ? new float[size] : maybeDest;
+        final int n = decodeFloats(size, floats);
+        if ( n == 0 )
+            return null;
+        else
+            return n == size ? floats : Arrays.copyOf(floats, n);
+    }
+
+    /**
+     * Allocation-free reader for a vector of int values.  Decodes all size elements from the stream,
+     * storing the leading non-missing values in dest.
+     *
+     * @param size the number of elements encoded in the stream
+     * @param type the type of the encoded elements, must be an integer type
+     * @param dest destination for the decoded values, must have length &gt;= size
+     * @return the number of leading non-missing values stored in dest (0 if the first value is missing)
+     */
+    public final int decodeInts(final int size, final BCF2Type type, final int[] dest) throws IOException {
+        int nGood = -1;
+        for ( int i = 0; i < size; i++ ) {
+            final int value = decodeInt(type);
+            if ( nGood == -1 ) {
+                if ( value == type.getMissingBytes() )
+                    nGood = i;
+                else
+                    dest[i] = value;
+            }
+        }
+        return nGood == -1 ? size : nGood;
+    }
+
+    /**
+     * Allocation-free reader for a vector of FLOAT values.  Decodes all size elements from the stream,
+     * storing the leading non-missing values in dest.
+     *
+     * @param size the number of elements encoded in the stream
+     * @param dest destination for the decoded values, must have length &gt;= size
+     * @return the number of leading non-missing values stored in dest (0 if the first value is missing)
+     */
+    public final int decodeFloats(final int size, final float[] dest) throws IOException {
+        final int missing = BCF2Type.FLOAT.getMissingBytes();
+        int nGood = -1;
+        for ( int i = 0; i < size; i++ ) {
+            final int value = decodeInt(BCF2Type.FLOAT);
+            if ( nGood == -1 ) {
+                if ( value == missing )
+                    nGood = i;
+                else
+                    dest[i] = Float.intBitsToFloat(value);
+            }
+        }
+        return nGood == -1 ? size : nGood;
+    }
+
     private double rawFloatToFloat(final int rawFloat) {
         return (double)Float.intBitsToFloat(rawFloat);
     }
@@ -357,6 +492,6 @@ public final class BCF2Decoder {
     }
 
     public final byte readTypeDescriptor() throws IOException {
-        return BCF2Utils.readByte(recordStream);
+        return readByte();
     }
 }
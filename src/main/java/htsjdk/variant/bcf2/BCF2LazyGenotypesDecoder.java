@@ -33,15 +33,34 @@ import htsjdk.variant.variantcontext.LazyGenotypesContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Lazy version of genotypes decoder for BCF2 genotypes
  *
+ * If an executor is provided and the record has at least {@link #MIN_SAMPLES_FOR_PARALLEL_DECODE} samples,
+ * the samples are split into contiguous ranges that are decoded in parallel.  This is possible because
+ * every FORMAT field is stored as a column of fixed-width per-sample values, so the offset of any sample's
+ * value can be computed from the field's type descriptor without decoding the preceding samples.
+ *
  * @author Mark DePristo
  * @since 5/12
  */
 public class BCF2LazyGenotypesDecoder implements LazyGenotypesContext.LazyParser {
+    /**
+     * Records with fewer samples than this are always decoded on the calling thread
+     */
+    public static final int MIN_SAMPLES_FOR_PARALLEL_DECODE = 2048;
+
+    /**
+     * The minimum number of samples decoded by a single parallel task
+     */
+    private static final int MIN_SAMPLES_PER_TASK = 512;
+
     // the essential information for us to use to decode the genotypes data
     // initialized when this lazy decoder is created, as we know all of this from the BCF2Codec
     // and its stored here again for code cleanliness
@@ -50,14 +69,21 @@ public class BCF2LazyGenotypesDecoder implements LazyGenotypesContext.LazyParser
     private final int nSamples;
     private final int nFields;
     private final GenotypeBuilder[] builders;
+    private final ExecutorService executor;
 
     BCF2LazyGenotypesDecoder(final BCF2Codec codec, final List<Allele> alleles, final int nSamples,
                              final int nFields, final GenotypeBuilder[] builders) {
+        this(codec, alleles, nSamples, nFields, builders, null);
+    }
+
+    BCF2LazyGenotypesDecoder(final BCF2Codec codec, final List<Allele> alleles, final int nSamples,
+                             final int nFields, final GenotypeBuilder[] builders, final ExecutorService executor) {
         this.codec = codec;
         this.siteAlleles = alleles;
         this.nSamples = nSamples;
         this.nFields = nFields;
         this.builders = builders;
+        this.executor = executor;
     }
 
     @Override
@@ -70,30 +96,113 @@ public class BCF2LazyGenotypesDecoder implements LazyGenotypesContext.LazyParser
             for ( int i = 0; i < nSamples; i++ )
                 builders[i].reset(true);
 
-            for ( int i = 0; i < nFields; i++ ) {
-                // get the field name
-                final int offset = (Integer) decoder.decodeTypedValue();
-                final String field = codec.getDictionaryString(offset);
-
-                // the type of each element
-                final byte typeDescriptor = decoder.readTypeDescriptor();
-                final int numElements = decoder.decodeNumberOfElements(typeDescriptor);
-                final BCF2GenotypeFieldDecoders.Decoder fieldDecoder = codec.getGenotypeFieldDecoder(field);
-                try {
-                    fieldDecoder.decode(siteAlleles, field, decoder, typeDescriptor, numElements, builders);
-                } catch ( ClassCastException e ) {
-                    throw new TribbleException("BUG: expected encoding of field " + field
-                            + " inconsistent with the value observed in the decoded value");
+            final ArrayList<Genotype> genotypes;
+            if ( executor != null && nSamples >= MIN_SAMPLES_FOR_PARALLEL_DECODE )
+                genotypes = parallelDecode(decoder);
+            else {
+                for ( int i = 0; i < nFields; i++ ) {
+                    final FieldColumn column = readFieldColumn(decoder);
+                    decodeColumn(column, decoder, builders);
                 }
-            }
 
-            final ArrayList<Genotype> genotypes = new ArrayList<Genotype>(nSamples);
-            for ( final GenotypeBuilder gb : builders )
-                genotypes.add(gb.make());
+                genotypes = new ArrayList<Genotype>(nSamples);
+                for ( final GenotypeBuilder gb : builders )
+                    genotypes.add(gb.make());
+            }
 
             return new LazyGenotypesContext.LazyData(genotypes, codec.getHeader().getSampleNamesInOrder(), codec.getHeader().getSampleNameToOffset());
         } catch ( IOException e ) {
             throw new TribbleException("Unexpected IOException parsing already read genotypes data block", e);
         }
     }
+
+    /**
+     * Locates the columns of all of the fields in the block, then decodes contiguous ranges of samples
+     * for all fields in parallel, each range with its own decoders over the shared block bytes.
+     */
+    private ArrayList<Genotype> parallelDecode(final BCF2Decoder decoder) throws IOException {
+        final FieldColumn[] columns = new FieldColumn[nFields];
+        for ( int i = 0; i < nFields; i++ ) {
+            columns[i] = readFieldColumn(decoder);
+            decoder.skipBytes(columns[i].bytesPerSample * nSamples);
+        }
+
+        final int nTasks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), nSamples / MIN_SAMPLES_PER_TASK));
+        final int samplesPerTask = (nSamples + nTasks - 1) / nTasks;
+        final byte[] bytes = decoder.getRecordBytes();
+        final Genotype[] genotypes = new Genotype[nSamples];
+
+        final List<Future<?>> futures = new ArrayList<Future<?>>(nTasks);
+        for ( int taskStart = 0; taskStart < nSamples; taskStart += samplesPerTask ) {
+            final int start = taskStart;
+            final int end = Math.min(nSamples, start + samplesPerTask);
+            futures.add(executor.submit(() -> {
+                final GenotypeBuilder[] range = Arrays.copyOfRange(builders, start, end);
+                for ( final FieldColumn column : columns ) {
+                    final int offset = column.offset + start * column.bytesPerSample;
+                    final BCF2Decoder rangeDecoder = new BCF2Decoder(bytes, offset, (end - start) * column.bytesPerSample);
+                    decodeColumn(column, rangeDecoder, range);
+                }
+                for ( int i = start; i < end; i++ )
+                    genotypes[i] = builders[i].make();
+                return null;
+            }));
+        }
+
+        try {
+            for ( final Future<?> future : futures )
+                future.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new TribbleException("Interrupted while decoding BCF2 genotypes", e);
+        } catch ( ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) throw (RuntimeException)e.getCause();
+            throw new TribbleException("Failed to decode BCF2 genotypes", e.getCause());
+        }
+
+        return new ArrayList<Genotype>(Arrays.asList(genotypes));
+    }
+
+    /**
+     * Reads the key and type of the next field, leaving decoder positioned at the first sample's value
+     */
+    private FieldColumn readFieldColumn(final BCF2Decoder decoder) throws IOException {
+        // get the field name
+        final int offset = decoder.decodeInt(decoder.readTypeDescriptor(), -1);
+        final String field = codec.getDictionaryString(offset);
+
+        // the type of each element
+        final byte typeDescriptor = decoder.readTypeDescriptor();
+        final int numElements = decoder.decodeNumberOfElements(typeDescriptor);
+        return new FieldColumn(field, typeDescriptor, numElements, decoder.getPosition());
+    }
+
+    private void decodeColumn(final FieldColumn column, final BCF2Decoder decoder, final GenotypeBuilder[] gbs) throws IOException {
+        final BCF2GenotypeFieldDecoders.Decoder fieldDecoder = codec.getGenotypeFieldDecoder(column.field);
+        try {
+            fieldDecoder.decode(siteAlleles, column.field, decoder, column.typeDescriptor, column.numElements, gbs);
+        } catch ( ClassCastException e ) {
+            throw new TribbleException("BUG: expected encoding of field " + column.field
+                    + " inconsistent with the value observed in the decoded value");
+        }
+    }
+
+    /**
+     * The location and encoding of the per-sample values of a single FORMAT field in the genotypes block
+     */
+    private static final class FieldColumn {
+        final String field;
+        final byte typeDescriptor;
+        final int numElements;
+        final int offset;
+        final int bytesPerSample;
+
+        private FieldColumn(final String field, final byte typeDescriptor, final int numElements, final int offset) {
+            this.field = field;
+            this.typeDescriptor = typeDescriptor;
+            this.numElements = numElements;
+            this.offset = offset;
+            this.bytesPerSample = numElements * BCF2Utils.decodeType(typeDescriptor).getSizeInBytes();
+        }
+    }
 }
@@ -0,0 +1,179 @@
+/*
+* Copyright (c) 2017 The Broad Institute
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package htsjdk.variant.variantcontext;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, thread-safe pool of interned {@link Allele}s, so that decoders can share a single
+ * instance of each REF and ALT allele across all of the VariantContexts they create instead of
+ * allocating a new Allele for every record.  Since shared alleles are usually the same instance,
+ * {@link Allele#equals(Object)} mostly reduces to its identity check.
+ * <p>
+ * Alleles are looked up directly from their bases and reference status, without creating a key object.
+ * Whether an allele is symbolic is determined by its bases, so it is implicitly part of the key.
+ * The pool is a fixed-size open-addressing table: when all slots an allele may occupy are taken, one of them
+ * is overwritten, so memory use is bounded and rarely seen alleles are eventually evicted.  Alleles longer
+ * than {@link #MAX_CACHED_ALLELE_LENGTH} are never pooled.
+ * <p>
+ * Note that pooled alleles share their bases, so callers must not modify the arrays returned by
+ * {@link Allele#getBases()} or {@link Allele#getDisplayBases()}.
+ */
+public final class AlleleCache {
+    /** The number of slots in the shared pool */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /** Alleles with more bases than this are created but never pooled */
+    public static final int MAX_CACHED_ALLELE_LENGTH = 128;
+
+    /** The number of consecutive slots in which an allele may be stored */
+    private static final int MAX_PROBES = 4;
+
+    private static final AlleleCache SHARED = new AlleleCache(DEFAULT_CAPACITY);
+
+    private final AtomicReferenceArray<Allele> table;
+    private final int mask;
+
+    /**
+     * @param capacity the maximum number of pooled alleles, rounded up to a power of 2
+     */
+    public AlleleCache(final int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        final int size = Integer.highestOneBit(Math.max(MAX_PROBES, capacity - 1) << 1);
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the pool shared by the VCF and BCF2 codecs
+     */
+    public static AlleleCache getSharedCache() {
+        return SHARED;
+    }
+
+    /**
+     * Returns an Allele equal to {@code Allele.create(bases, isRef)}, from the pool if possible
+     *
+     * @param bases the bases of the allele
+     * @param isRef should we make this a reference allele?
+     * @throws IllegalArgumentException if bases contains illegal characters or is otherwise malformed
+     */
+    public Allele get(final String bases, final boolean isRef) {
+        final int length = bases.length();
+        if (length <= 1 || length > MAX_CACHED_ALLELE_LENGTH) {
+            return Allele.create(bases, isRef);
+        }
+
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + toUpperCase(bases.charAt(i));
+        }
+        final int start = slot(hash, isRef);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            final Allele candidate = table.get((start + probe) & mask);
+            if (candidate == null) break;
+            if (candidate.isReference() == isRef && matches(candidate, bases)) return candidate;
+        }
+        return insert(start, Allele.create(bases, isRef));
+    }
+
+    /**
+     * Returns an Allele equal to {@code Allele.create(Arrays.copyOfRange(bases, offset, offset + length), isRef)},
+     * from the pool if possible.  The bases array is neither modified nor retained.
+     *
+     * @param bases array containing the bases of the allele
+     * @param offset the offset of the first base of the allele in bases
+     * @param length the number of bases in the allele
+     * @param isRef should we make this a reference allele?
+     * @throws IllegalArgumentException if bases contains illegal characters or is otherwise malformed
+     */
+    public Allele get(final byte[] bases, final int offset, final int length, final boolean isRef) {
+        if (length <= 1 || length > MAX_CACHED_ALLELE_LENGTH) {
+            return Allele.create(Arrays.copyOfRange(bases, offset, offset + length), isRef);
+        }
+
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + toUpperCase((char) bases[offset + i]);
+        }
+        final int start = slot(hash, isRef);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            final Allele candidate = table.get((start + probe) & mask);
+            if (candidate == null) break;
+            if (candidate.isReference() == isRef && matches(candidate, bases, offset, length)) return candidate;
+        }
+        return insert(start, Allele.create(Arrays.copyOfRange(bases, offset, offset + length), isRef));
+    }
+
+    /**
+     * Stores allele in the first free slot of its probe sequence, or over the first slot if they are all taken
+     */
+    private Allele insert(final int start, final Allele allele) {
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            if (table.compareAndSet((start + probe) & mask, null, allele)) return allele;
+        }
+        table.set(start & mask, allele);
+        return allele;
+    }
+
+    private int slot(int hash, final boolean isRef) {
+        if (isRef) hash ^= 0x9E3779B9;
+        hash ^= (hash >>> 16);
+        hash *= 0x85EBCA6B;
+        hash ^= (hash >>> 13);
+        return hash & mask;
+    }
+
+    private static int toUpperCase(final char c) {
+        return (c >= 'a' && c <= 'z') ? c - ('a' - 'A') : c;
+    }
+
+    /**
+     * Symbolic alleles keep their bases as given, all other alleles are stored in upper case
+     */
+    private static boolean matches(final Allele allele, final String bases) {
+        final byte[] alleleBases = allele.getDisplayBases();
+        if (alleleBases.length != bases.length()) return false;
+        final boolean caseSensitive = allele.isSymbolic();
+        for (int i = 0; i < alleleBases.length; i++) {
+            final char c = bases.charAt(i);
+            if (alleleBases[i] != (caseSensitive ? c : toUpperCase(c))) return false;
+        }
+        return true;
+    }
+
+    private static boolean matches(final Allele allele, final byte[] bases, final int offset, final int length) {
+        final byte[] alleleBases = allele.getDisplayBases();
+        if (alleleBases.length != length) return false;
+        final boolean caseSensitive = allele.isSymbolic();
+        for (int i = 0; i < length; i++) {
+            final byte b = bases[offset + i];
+            if (alleleBases[i] != (caseSensitive ? b : toUpperCase((char) b))) return false;
+        }
+        return true;
+    }
+}
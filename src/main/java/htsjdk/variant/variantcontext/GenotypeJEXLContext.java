@@ -16,10 +16,13 @@ import java.util.Map;
 public class GenotypeJEXLContext extends VariantJEXLContext {
     private Genotype g;
 
-    private interface AttributeGetter {
+    interface AttributeGetter {
         public Object get(Genotype g);
     }
 
+    /** returned by {@link #get(Genotype, String, AttributeGetter)} for names that are not genotype variables */
+    static final Object NOT_IN_GENOTYPE = new Object();
+
     private static Map<String, AttributeGetter> attributes = new HashMap<String, AttributeGetter>();
 
     static {
@@ -46,14 +49,32 @@ public class GenotypeJEXLContext extends VariantJEXLContext {
 
     @Override
     public Object get(String name) {
+        final Object result = get(g, name, attributes.get(name));
+        return result == NOT_IN_GENOTYPE ? super.get(name) : result;
+    }
+
+    /**
+     * @return the getter for the built-in genotype variable name, or null if name is not built in
+     */
+    static AttributeGetter getGenotypeAttributeGetter(final String name) {
+        return attributes.get(name);
+    }
+
+    /**
+     * Resolves the variable name against g only
+     *
+     * @param getter the result of {@link #getGenotypeAttributeGetter(String)} for name
+     * @return the value of name, or {@link #NOT_IN_GENOTYPE} if name should be resolved against the variant context
+     */
+    static Object get(final Genotype g, final String name, final AttributeGetter getter) {
         //should matching genotype attributes always supersede vc?
-        if ( attributes.containsKey(name) ) { // dynamic resolution of name -> value via map
-            return attributes.get(name).get(g);
+        if ( getter != null ) { // dynamic resolution of name -> value via map
+            return getter.get(g);
         } else if ( g.hasAnyAttribute(name) ) {
             return g.getAnyAttribute(name);
         } else if ( g.getFilters() != null && g.getFilters().contains(name) ) {
             return true_string;
         } else
-            return super.get(name);
+            return NOT_IN_GENOTYPE;
     }
 }
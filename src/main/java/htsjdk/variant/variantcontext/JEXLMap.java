@@ -176,6 +176,26 @@ class JEXLMap implements Map<JexlVCMatchExp, Boolean> {
      *                                  constructed with the input VC or genotype.
      */
     private boolean evaluateExpression(final JexlVCMatchExp exp) {
+        // most filtering expressions are simple comparisons that can be evaluated without the JEXL interpreter
+        final JEXLPredicate predicate = exp.getPredicate();
+        Boolean value;
+        if (predicate == null) {
+            value = evaluateWithJexl(exp);
+        } else {
+            try {
+                value = predicate.evaluate(vc, g);
+            } catch (final RuntimeException e) {
+                // values JEXL cannot compare; let JEXL evaluate the expression and report the problem its own way
+                value = evaluateWithJexl(exp);
+            }
+        }
+        return value == null ? howToTreatMissingValues.getMissingValueOrExplode() : value;
+    }
+
+    /**
+     * @return the result of evaluating the JEXL expression in {@code exp}, or null if a value was missing
+     */
+    private Boolean evaluateWithJexl(final JexlVCMatchExp exp) {
         // if the context is null, we need to create it to evaluate the JEXL expression
         if (this.jContext == null) {
             jContext = createContext();
@@ -183,11 +203,10 @@ class JEXLMap implements Map<JexlVCMatchExp, Boolean> {
 
         try {
             //TODO figure out of this can ever evaluate to null or if that isn't actually possible
-            final Boolean value = (Boolean) exp.exp.evaluate(jContext);
-            return value == null ? howToTreatMissingValues.getMissingValueOrExplode() : value;
+            return (Boolean) exp.exp.evaluate(jContext);
         } catch (final JexlException.Variable e) {
             //this occurs when the jexl expression contained a literal that didn't match anything in the given context
-            return howToTreatMissingValues.getMissingValueOrExplode();
+            return null;
         } catch (final JexlException e) {
             // todo - might be better if no exception is caught here but let's user decide how to deal with them; note this will propagate to get() and values()
             throw new IllegalArgumentException(String.format("Invalid JEXL expression detected for %s", exp.name), e);
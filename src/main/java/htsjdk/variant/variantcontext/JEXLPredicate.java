@@ -0,0 +1,484 @@
+package htsjdk.variant.variantcontext;
+
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.MapContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A compiled form of the JEXL expressions used to hard-filter variants: comparisons between variables and literals,
+ * combined with {@code &&}, {@code ||}, {@code !} and parentheses, e.g. {@code QD < 2.0 || FS > 60.0}.
+ *
+ * Variables are resolved to their getters once at compile time, so evaluating the predicate against a
+ * {@link VariantContext} (and optionally a {@link Genotype}) does not go through the JEXL interpreter or a
+ * {@link VariantJEXLContext}.  Values are compared with the same {@link JexlArithmetic} rules as JEXL, so the result
+ * is always the same as evaluating the original expression.  {@link #compile(String)} returns null for any expression
+ * outside this subset, which must then be evaluated by JEXL.
+ *
+ * This is package protected, only classes in variantcontext should have access to it.
+ */
+abstract class JEXLPredicate {
+
+    // the arithmetic of VariantContextUtils.engine, which is not lenient
+    private static final JexlArithmetic ARITHMETIC = new JexlArithmetic(false);
+
+    // words that JEXL treats as operators or keywords rather than variable names
+    private static final Set<String> RESERVED_WORDS = new HashSet<>(Arrays.asList(
+            "or", "and", "eq", "ne", "lt", "gt", "le", "ge", "div", "mod", "not", "null", "true", "false",
+            "new", "var", "empty", "size", "function", "return", "if", "else", "for", "while", "foreach", "in"));
+
+    /**
+     * @return Boolean.TRUE or Boolean.FALSE, or null if the expression refers to a variable that has no value,
+     * which JEXL reports as an undefined variable
+     * @throws RuntimeException if the values cannot be compared, in which case JEXL should evaluate the expression
+     */
+    abstract Boolean evaluate(final VariantContext vc, final Genotype g);
+
+    /**
+     * @param expression the source of a JEXL expression
+     * @return the compiled expression, or null if it is not in the supported subset
+     */
+    static JEXLPredicate compile(final String expression) {
+        try {
+            final Parser parser = new Parser(tokenize(expression));
+            final JEXLPredicate predicate = parser.parseOr();
+            return parser.atEnd() ? predicate : null;
+        } catch (final UnsupportedExpressionException e) {
+            return null;
+        }
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////
+    // Predicate tree
+    // ////////////////////////////////////////////////////////////////////////////////////
+
+    private static final class Or extends JEXLPredicate {
+        private final JEXLPredicate left;
+        private final JEXLPredicate right;
+
+        private Or(final JEXLPredicate left, final JEXLPredicate right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Boolean evaluate(final VariantContext vc, final Genotype g) {
+            final Boolean l = left.evaluate(vc, g);
+            return l == null || l ? l : right.evaluate(vc, g);
+        }
+    }
+
+    private static final class And extends JEXLPredicate {
+        private final JEXLPredicate left;
+        private final JEXLPredicate right;
+
+        private And(final JEXLPredicate left, final JEXLPredicate right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Boolean evaluate(final VariantContext vc, final Genotype g) {
+            final Boolean l = left.evaluate(vc, g);
+            return l == null || !l ? l : right.evaluate(vc, g);
+        }
+    }
+
+    private static final class Not extends JEXLPredicate {
+        private final JEXLPredicate operand;
+
+        private Not(final JEXLPredicate operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        Boolean evaluate(final VariantContext vc, final Genotype g) {
+            final Boolean value = operand.evaluate(vc, g);
+            return value == null ? null : !value;
+        }
+    }
+
+    private enum Operator {
+        EQ, NE, LT, LE, GT, GE;
+
+        boolean apply(final Object left, final Object right) {
+            // the common case of two boxed numbers is compared directly, anything else the way JEXL does
+            if (isIntegral(left) && isIntegral(right)) {
+                return test(Long.compare(((Number) left).longValue(), ((Number) right).longValue()));
+            }
+            if ((isFloatingPoint(left) || isFloatingPoint(right)) &&
+                    (isFloatingPoint(left) || isIntegral(left)) && (isFloatingPoint(right) || isIntegral(right))) {
+                return test(compareDoubles(((Number) left).doubleValue(), ((Number) right).doubleValue()));
+            }
+            switch (this) {
+                case EQ: return ARITHMETIC.equals(left, right);
+                case NE: return !ARITHMETIC.equals(left, right);
+                case LT: return ARITHMETIC.lessThan(left, right);
+                case LE: return ARITHMETIC.lessThanOrEqual(left, right);
+                case GT: return ARITHMETIC.greaterThan(left, right);
+                default: return ARITHMETIC.greaterThanOrEqual(left, right);
+            }
+        }
+
+        private boolean test(final int comparison) {
+            switch (this) {
+                case EQ: return comparison == 0;
+                case NE: return comparison != 0;
+                case LT: return comparison < 0;
+                case LE: return comparison <= 0;
+                case GT: return comparison > 0;
+                default: return comparison >= 0;
+            }
+        }
+
+        private static boolean isIntegral(final Object o) {
+            return o instanceof Integer || o instanceof Long || o instanceof Short || o instanceof Byte;
+        }
+
+        private static boolean isFloatingPoint(final Object o) {
+            return o instanceof Double || o instanceof Float;
+        }
+
+        /**
+         * Orders NaN before every other number and equal to itself, unlike the primitive operators, for which any
+         * comparison with NaN is false.  JexlArithmetic.compare, used by its equals and lessThan etc. when either
+         * operand is floating point, does the same in JEXL 2.1.1.
+         */
+        private static int compareDoubles(final double left, final double right) {
+            if (Double.isNaN(left)) {
+                return Double.isNaN(right) ? 0 : -1;
+            } else if (Double.isNaN(right)) {
+                return 1;
+            } else {
+                return left < right ? -1 : (left > right ? 1 : 0);
+            }
+        }
+    }
+
+    private static final class Comparison extends JEXLPredicate {
+        private final Operand left;
+        private final Operator operator;
+        private final Operand right;
+
+        private Comparison(final Operand left, final Operator operator, final Operand right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        Boolean evaluate(final VariantContext vc, final Genotype g) {
+            final Object l = left.get(vc, g);
+            if (l == null && left.isVariable()) {
+                return null;
+            }
+            final Object r = right.get(vc, g);
+            if (r == null && right.isVariable()) {
+                return null;
+            }
+            return operator.apply(l, r);
+        }
+    }
+
+    private interface Operand {
+        Object get(VariantContext vc, Genotype g);
+
+        boolean isVariable();
+    }
+
+    private static final class Literal implements Operand {
+        private final Object value;
+
+        private Literal(final Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object get(final VariantContext vc, final Genotype g) {
+            return value;
+        }
+
+        @Override
+        public boolean isVariable() {
+            return false;
+        }
+    }
+
+    /**
+     * A variable, resolved the same way as by {@link GenotypeJEXLContext} if there is a genotype or
+     * by {@link VariantJEXLContext} otherwise.
+     */
+    private static final class Variable implements Operand {
+        private final String name;
+        private final VariantJEXLContext.AttributeGetter variantGetter;
+        private final GenotypeJEXLContext.AttributeGetter genotypeGetter;
+
+        private Variable(final String name) {
+            this.name = name;
+            this.variantGetter = VariantJEXLContext.getVariantAttributeGetter(name);
+            this.genotypeGetter = GenotypeJEXLContext.getGenotypeAttributeGetter(name);
+        }
+
+        @Override
+        public Object get(final VariantContext vc, final Genotype g) {
+            if (vc == null) {
+                return null;
+            }
+            if (g != null) {
+                final Object value = GenotypeJEXLContext.get(g, name, genotypeGetter);
+                if (value != GenotypeJEXLContext.NOT_IN_GENOTYPE) {
+                    return value;
+                }
+            }
+            return VariantJEXLContext.get(vc, name, variantGetter);
+        }
+
+        @Override
+        public boolean isVariable() {
+            return true;
+        }
+    }
+
+    // ////////////////////////////////////////////////////////////////////////////////////
+    // Parsing
+    // ////////////////////////////////////////////////////////////////////////////////////
+
+    private static final class UnsupportedExpressionException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private UnsupportedExpressionException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final UnsupportedExpressionException UNSUPPORTED = new UnsupportedExpressionException();
+
+    private enum TokenType { IDENTIFIER, LITERAL, OPERATOR, AND, OR, NOT, OPEN, CLOSE }
+
+    private static final class Token {
+        private final TokenType type;
+        private final String text;
+
+        private Token(final TokenType type, final String text) {
+            this.type = type;
+            this.text = text;
+        }
+    }
+
+    private static List<Token> tokenize(final String expression) throws UnsupportedExpressionException {
+        final List<Token> tokens = new ArrayList<>();
+        final int length = expression.length();
+        int i = 0;
+        while (i < length) {
+            final char c = expression.charAt(i);
+            final int start = i;
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            } else if (Character.isLetter(c) || c == '_' || c == '$') {
+                while (i < length && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_' || expression.charAt(i) == '$')) {
+                    i++;
+                }
+                tokens.add(word(expression.substring(start, i)));
+                continue;
+            } else if (Character.isDigit(c) || (c == '-' && i + 1 < length && Character.isDigit(expression.charAt(i + 1)) && isOperandExpected(tokens))) {
+                i++;
+                while (i < length && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.LITERAL, expression.substring(start, i)));
+                continue;
+            } else if (c == '\'' || c == '"') {
+                i++;
+                while (i < length && expression.charAt(i) != c) {
+                    i += expression.charAt(i) == '\\' ? 2 : 1;
+                }
+                if (i >= length) {
+                    throw UNSUPPORTED;
+                }
+                i++;
+                tokens.add(new Token(TokenType.LITERAL, expression.substring(start, i)));
+                continue;
+            }
+
+            final String two = i + 2 <= length ? expression.substring(i, i + 2) : "";
+            switch (two) {
+                case "==": case "!=": case "<=": case ">=":
+                    tokens.add(new Token(TokenType.OPERATOR, two));
+                    i += 2;
+                    continue;
+                case "&&":
+                    tokens.add(new Token(TokenType.AND, two));
+                    i += 2;
+                    continue;
+                case "||":
+                    tokens.add(new Token(TokenType.OR, two));
+                    i += 2;
+                    continue;
+                case "=~": case "!~":
+                    throw UNSUPPORTED;
+            }
+            switch (c) {
+                case '<': case '>':
+                    tokens.add(new Token(TokenType.OPERATOR, String.valueOf(c)));
+                    break;
+                case '!':
+                    tokens.add(new Token(TokenType.NOT, "!"));
+                    break;
+                case '(':
+                    tokens.add(new Token(TokenType.OPEN, "("));
+                    break;
+                case ')':
+                    tokens.add(new Token(TokenType.CLOSE, ")"));
+                    break;
+                default:
+                    throw UNSUPPORTED;
+            }
+            i++;
+        }
+        return tokens;
+    }
+
+    private static boolean isOperandExpected(final List<Token> tokens) {
+        return tokens.isEmpty() || tokens.get(tokens.size() - 1).type != TokenType.IDENTIFIER &&
+                tokens.get(tokens.size() - 1).type != TokenType.LITERAL && tokens.get(tokens.size() - 1).type != TokenType.CLOSE;
+    }
+
+    private static Token word(final String word) throws UnsupportedExpressionException {
+        switch (word) {
+            case "eq": return new Token(TokenType.OPERATOR, "==");
+            case "ne": return new Token(TokenType.OPERATOR, "!=");
+            case "lt": return new Token(TokenType.OPERATOR, "<");
+            case "le": return new Token(TokenType.OPERATOR, "<=");
+            case "gt": return new Token(TokenType.OPERATOR, ">");
+            case "ge": return new Token(TokenType.OPERATOR, ">=");
+            case "and": return new Token(TokenType.AND, word);
+            case "or": return new Token(TokenType.OR, word);
+            case "not": return new Token(TokenType.NOT, word);
+            case "null": case "true": case "false": return new Token(TokenType.LITERAL, word);
+            default:
+                if (RESERVED_WORDS.contains(word)) {
+                    throw UNSUPPORTED;
+                }
+                return new Token(TokenType.IDENTIFIER, word);
+        }
+    }
+
+    /**
+     * Recursive descent parser for
+     * <pre>
+     *   or         := and ( '||' and )*
+     *   and        := unary ( '&&' unary )*
+     *   unary      := '!' negated | '(' or ')' | comparison
+     *   negated    := '!' negated | '(' or ')'
+     *   comparison := operand op operand
+     *   operand    := identifier | literal
+     * </pre>
+     * which has the same precedence as the JEXL grammar for these operators.
+     */
+    private static final class Parser {
+        private final List<Token> tokens;
+        private int next = 0;
+
+        private Parser(final List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        private boolean atEnd() {
+            return next == tokens.size();
+        }
+
+        private Token peek() {
+            return atEnd() ? null : tokens.get(next);
+        }
+
+        private Token expect(final TokenType type) throws UnsupportedExpressionException {
+            final Token token = peek();
+            if (token == null || token.type != type) {
+                throw UNSUPPORTED;
+            }
+            next++;
+            return token;
+        }
+
+        private JEXLPredicate parseOr() throws UnsupportedExpressionException {
+            JEXLPredicate result = parseAnd();
+            while (peek() != null && peek().type == TokenType.OR) {
+                next++;
+                result = new Or(result, parseAnd());
+            }
+            return result;
+        }
+
+        private JEXLPredicate parseAnd() throws UnsupportedExpressionException {
+            JEXLPredicate result = parseUnary(false);
+            while (peek() != null && peek().type == TokenType.AND) {
+                next++;
+                result = new And(result, parseUnary(false));
+            }
+            return result;
+        }
+
+        private JEXLPredicate parseUnary(final boolean negated) throws UnsupportedExpressionException {
+            final Token token = peek();
+            if (token == null) {
+                throw UNSUPPORTED;
+            } else if (token.type == TokenType.NOT) {
+                next++;
+                return new Not(parseUnary(true));
+            } else if (token.type == TokenType.OPEN) {
+                next++;
+                final JEXLPredicate result = parseOr();
+                expect(TokenType.CLOSE);
+                return result;
+            } else if (negated) {
+                // ! binds more tightly than comparisons, so "!a == b" compares !a with b
+                throw UNSUPPORTED;
+            }
+            final Operand left = parseOperand();
+            final Operator operator = parseOperator(expect(TokenType.OPERATOR));
+            final Operand right = parseOperand();
+            return new Comparison(left, operator, right);
+        }
+
+        private Operand parseOperand() throws UnsupportedExpressionException {
+            final Token token = peek();
+            if (token == null) {
+                throw UNSUPPORTED;
+            }
+            next++;
+            switch (token.type) {
+                case IDENTIFIER:
+                    return new Variable(token.text);
+                case LITERAL:
+                    return new Literal(evaluateLiteral(token.text));
+                default:
+                    throw UNSUPPORTED;
+            }
+        }
+
+        private static Operator parseOperator(final Token token) {
+            switch (token.text) {
+                case "==": return Operator.EQ;
+                case "!=": return Operator.NE;
+                case "<": return Operator.LT;
+                case "<=": return Operator.LE;
+                case ">": return Operator.GT;
+                default: return Operator.GE;
+            }
+        }
+
+        /** Let JEXL parse literals so that they have exactly the same type and value */
+        private static Object evaluateLiteral(final String text) throws UnsupportedExpressionException {
+            try {
+                return VariantContextUtils.engine.get().createExpression(text).evaluate(new MapContext());
+            } catch (final RuntimeException e) {
+                throw UNSUPPORTED;
+            }
+        }
+    }
+}
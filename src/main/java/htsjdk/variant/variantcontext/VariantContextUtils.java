@@ -218,6 +218,21 @@ public class VariantContextUtils {
             this.name = name;
             this.exp = exp;
         }
+
+        // the expression last compiled by getPredicate(), which is recompiled if exp is replaced
+        private Expression compiledExp = null;
+        private JEXLPredicate predicate = null;
+
+        /**
+         * @return exp compiled for evaluation without the JEXL interpreter, or null if it must be evaluated by JEXL
+         */
+        synchronized JEXLPredicate getPredicate() {
+            if (compiledExp != exp) {
+                predicate = JEXLPredicate.compile(exp.getExpression());
+                compiledExp = exp;
+            }
+            return predicate;
+        }
     }
 
     /**
@@ -51,7 +51,7 @@ class VariantJEXLContext implements JexlContext {
     static final String true_string = "1";
     static final String false_string = "0";
 
-    private interface AttributeGetter {
+    interface AttributeGetter {
         public Object get(VariantContext vc);
     }
 
@@ -78,9 +78,26 @@ class VariantJEXLContext implements JexlContext {
 
     @Override
     public Object get(String name) {
+        return get(vc, name, attributes.get(name));
+    }
+
+    /**
+     * @return the getter for the built-in variable name, or null if name is not built in
+     */
+    static AttributeGetter getVariantAttributeGetter(final String name) {
+        return attributes.get(name);
+    }
+
+    /**
+     * Resolves the variable name against vc
+     *
+     * @param getter the result of {@link #getVariantAttributeGetter(String)} for name
+     * @return the value of name, or null if vc has no such value
+     */
+    static Object get(final VariantContext vc, final String name, final AttributeGetter getter) {
         Object result = null;
-        if ( attributes.containsKey(name) ) { // dynamic resolution of name -> value via map
-            result = attributes.get(name).get(vc);
+        if ( getter != null ) { // dynamic resolution of name -> value via map
+            result = getter.get(vc);
         } else if ( vc.hasAttribute(name)) {
             result = vc.getAttribute(name);
         } else if ( vc.getFilters().contains(name) ) {
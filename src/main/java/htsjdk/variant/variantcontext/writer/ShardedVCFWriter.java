@@ -0,0 +1,287 @@
+/*
+* Copyright (c) 2017 The Broad Institute
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package htsjdk.variant.variantcontext.writer;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.samtools.util.IOUtil;
+import htsjdk.samtools.util.RuntimeIOException;
+import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.tribble.index.tabix.TabixIndex;
+import htsjdk.tribble.index.tabix.TabixIndexCreator;
+import htsjdk.tribble.index.tabix.TabixIndexMerger;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.vcf.VCFEncoder;
+import htsjdk.variant.vcf.VCFHeader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a block compressed VCF from multiple producer threads.
+ *
+ * Each shard owns a list of contigs.  Records for a shard are encoded and BGZF compressed by the thread that adds them
+ * into a temporary file, with its own tabix index, so producers working on different shards never wait on each other.
+ * Records for the same shard must be added in sorted order, but may come from any thread.  On close the header and
+ * the shards, in the order the shards were given, are concatenated into the output file without recompression, and
+ * the per-shard indices are merged by shifting their virtual file pointers.
+ *
+ * {@link #close()} must only be called once every producer has finished.
+ */
+class ShardedVCFWriter implements VariantContextWriter {
+    private static final int EOF_BLOCK_LENGTH = BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK.length;
+
+    private final File location;
+    private final SAMSequenceDictionary refDict;
+    private final boolean enableOnTheFlyIndexing;
+    private final boolean doNotWriteGenotypes;
+    private final boolean allowMissingFieldsInHeader;
+    private final boolean writeFullFormatField;
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final Map<String, Shard> shardsByContig = new HashMap<>();
+
+    // the header as it is written, and whether it is written to the output at all
+    private volatile VCFHeader mHeader = null;
+    private boolean writeHeaderOnClose = false;
+    private volatile boolean outputHasBeenWritten = false;
+    private boolean closed = false;
+
+    /**
+     * @param location     the block compressed VCF to write.  A tabix index is written next to it if indexing is enabled.
+     * @param refDict      the reference dictionary, used to size the index.  May be null.
+     * @param shardContigs the contigs owned by each shard, in the order the shards are to appear in the output
+     */
+    ShardedVCFWriter(final File location, final SAMSequenceDictionary refDict, final List<? extends List<String>> shardContigs,
+                     final boolean enableOnTheFlyIndexing, final boolean doNotWriteGenotypes,
+                     final boolean allowMissingFieldsInHeader, final boolean writeFullFormatField) {
+        this.location = location;
+        this.refDict = refDict;
+        this.enableOnTheFlyIndexing = enableOnTheFlyIndexing;
+        this.doNotWriteGenotypes = doNotWriteGenotypes;
+        this.allowMissingFieldsInHeader = allowMissingFieldsInHeader;
+        this.writeFullFormatField = writeFullFormatField;
+
+        for (final List<String> contigs : shardContigs) {
+            final Shard shard = new Shard(shards.size());
+            shards.add(shard);
+            for (final String contig : contigs) {
+                if (shardsByContig.put(contig, shard) != null) {
+                    throw new IllegalArgumentException("Contig " + contig + " is owned by more than one shard");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return one shard per sequence of refDict, in dictionary order
+     */
+    static List<List<String>> shardPerSequence(final SAMSequenceDictionary refDict) {
+        final List<List<String>> shardContigs = new ArrayList<>(refDict.size());
+        for (final SAMSequenceRecord sequence : refDict.getSequences()) {
+            shardContigs.add(Collections.singletonList(sequence.getSequenceName()));
+        }
+        return shardContigs;
+    }
+
+    @Override
+    public synchronized void writeHeader(final VCFHeader header) {
+        setHeader(header);
+        writeHeaderOnClose = true;
+    }
+
+    @Override
+    public synchronized void setHeader(final VCFHeader header) {
+        if (outputHasBeenWritten) {
+            throw new IllegalStateException("The header cannot be modified after the header or variants have been written to the output stream.");
+        }
+        this.mHeader = doNotWriteGenotypes ? new VCFHeader(header.getMetaDataInSortedOrder()) : header;
+    }
+
+    @Override
+    public boolean checkError() {
+        return false;
+    }
+
+    /**
+     * Add a record to the shard that owns its contig.  May be called concurrently from multiple threads.
+     */
+    @Override
+    public void add(final VariantContext vc) {
+        final Shard shard = shardsByContig.get(vc.getContig());
+        if (shard == null) {
+            throw new IllegalArgumentException("Contig " + vc.getContig() + " is not owned by any shard of " + location);
+        }
+        if (mHeader == null) {
+            throw new IllegalStateException("Unable to write the VCF: header is missing, " +
+                    "try to call writeHeader or setHeader first.");
+        }
+        outputHasBeenWritten = true;
+        shard.add(doNotWriteGenotypes ? new VariantContextBuilder(vc).noGenotypes().make() : vc);
+    }
+
+    /**
+     * Concatenate the header and the shards into the output file, write its index and delete the shards.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        final TabixIndexMerger indexMerger = enableOnTheFlyIndexing ? new TabixIndexMerger(TabixFormat.VCF) : null;
+        try (final FileOutputStream fileOutputStream = new FileOutputStream(location);
+             final FileChannel output = fileOutputStream.getChannel()) {
+            if (writeHeaderOnClose) {
+                writeFully(output, ByteBuffer.wrap(compressedHeader()));
+            }
+            for (final Shard shard : shards) {
+                final TabixIndex shardIndex = shard.finish();
+                if (shard.file == null) {
+                    continue;
+                }
+                final long partOffset = output.position();
+                try (final FileChannel input = new FileInputStream(shard.file).getChannel()) {
+                    // each shard ends with an EOF marker block, which must not appear in the middle of the output
+                    final long length = input.size() - EOF_BLOCK_LENGTH;
+                    long transferred = 0;
+                    while (transferred < length) {
+                        transferred += input.transferTo(transferred, length - transferred, output);
+                    }
+                }
+                if (indexMerger != null) {
+                    indexMerger.processIndex(shardIndex, partOffset);
+                }
+            }
+            writeFully(output, ByteBuffer.wrap(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK));
+        } catch (final IOException e) {
+            throw new RuntimeIOException("Unable to write " + location, e);
+        } finally {
+            for (final Shard shard : shards) {
+                if (shard.file != null) {
+                    IOUtil.deleteFiles(shard.file);
+                }
+            }
+        }
+
+        if (indexMerger != null) {
+            try {
+                indexMerger.finish().writeBasedOnFeatureFile(location);
+            } catch (final IOException e) {
+                throw new RuntimeIOException("Unable to write index for " + location, e);
+            }
+        }
+    }
+
+    private byte[] compressedHeader() throws IOException {
+        final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        final Writer writer = new OutputStreamWriter(headerBytes, VCFEncoder.VCF_CHARSET);
+        VCFWriter.writeHeader(mHeader, writer, VCFWriter.getVersionLine(), location.getAbsolutePath());
+
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (final BlockCompressedOutputStream bgzf = new BlockCompressedOutputStream(compressed, (File) null)) {
+            headerBytes.writeTo(bgzf);
+        }
+        final byte[] bytes = compressed.toByteArray();
+        return Arrays.copyOf(bytes, bytes.length - EOF_BLOCK_LENGTH);
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * The records of one shard, compressed into a temporary file that is created when the first record is added.
+     */
+    private final class Shard {
+        private final int shardIndex;
+        private File file = null;
+        private BlockCompressedOutputStream outputStream = null;
+        private VCFEncoder vcfEncoder = null;
+        private TabixIndexCreator indexer = null;
+
+        private Shard(final int shardIndex) {
+            this.shardIndex = shardIndex;
+        }
+
+        synchronized void add(final VariantContext vc) {
+            try {
+                if (outputStream == null) {
+                    open();
+                }
+                if (indexer != null) {
+                    indexer.addFeature(vc, outputStream.getFilePointer());
+                }
+                final String line = vcfEncoder.encode(vc) + "\n";
+                outputStream.write(line.getBytes(VCFEncoder.VCF_CHARSET));
+            } catch (final IOException e) {
+                throw new RuntimeIOException("Unable to write shard " + shardIndex + " of " + location, e);
+            }
+        }
+
+        private void open() throws IOException {
+            // next to the output, so that the shards can be concatenated into it without crossing file systems
+            file = IOUtil.newTempFile(location.getName() + ".shard" + shardIndex + ".", ".vcf.gz",
+                    new File[]{location.getAbsoluteFile().getParentFile()});
+            outputStream = new BlockCompressedOutputStream(file);
+            vcfEncoder = new VCFEncoder(mHeader, allowMissingFieldsInHeader, writeFullFormatField);
+            if (enableOnTheFlyIndexing) {
+                indexer = refDict == null ? new TabixIndexCreator(TabixFormat.VCF) : new TabixIndexCreator(refDict, TabixFormat.VCF);
+            }
+        }
+
+        /**
+         * Close the shard's file.
+         * @return the shard's index, relative to the start of the shard, or null if it has no records or no index
+         */
+        synchronized TabixIndex finish() throws IOException {
+            if (outputStream == null) {
+                return null;
+            }
+            final TabixIndex index = indexer == null ? null : (TabixIndex) indexer.finalizeIndex(outputStream.getFilePointer());
+            outputStream.close();
+            return index;
+        }
+    }
+}
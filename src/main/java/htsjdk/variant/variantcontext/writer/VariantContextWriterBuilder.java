@@ -41,6 +41,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.util.EnumSet;
+import java.util.List;
 
 /*
  * Created with IntelliJ IDEA.
@@ -462,6 +463,44 @@ public class VariantContextWriterBuilder {
         return writer;
      }
 
+    /**
+     * Validate and build a block compressed VCF writer whose {@link VariantContextWriter#add} may be called concurrently
+     * by multiple producer threads, with one shard per sequence of the reference dictionary.
+     *
+     * @see #buildSharded(List)
+     * @throws IllegalArgumentException if no reference dictionary is provided.
+     */
+    public VariantContextWriter buildSharded() {
+        if (refDict == null)
+            throw new IllegalArgumentException("A reference dictionary is required to shard by sequence.");
+
+        return buildSharded(ShardedVCFWriter.shardPerSequence(refDict));
+    }
+
+    /**
+     * Validate and build a block compressed VCF writer whose {@link VariantContextWriter#add} may be called concurrently
+     * by multiple producer threads.  Each shard owns a list of contigs and is compressed and indexed independently by
+     * the threads adding its records, which must be in sorted order within the shard.  The shards are concatenated,
+     * in the given order, into the output file when the writer is closed, and their indices merged into a tabix index
+     * if <code>Options.INDEX_ON_THE_FLY</code> is set.
+     *
+     * <code>Options.USE_ASYNC_IO</code>, buffering and MD5 creation do not apply to this writer.
+     *
+     * @param shardContigs the contigs of each shard, in output order.  A contig may belong to only one shard.
+     * @return the <code>VariantContextWriter</code> as specified by previous method calls
+     * @throws IllegalArgumentException if the output is not a block compressed VCF file.
+     */
+    public VariantContextWriter buildSharded(final List<? extends List<String>> shardContigs) {
+        if (outFile == null || outStream != null || outType != OutputType.BLOCK_COMPRESSED_VCF || options.contains(Options.FORCE_BCF))
+            throw new IllegalArgumentException("A sharded writer can only write a block compressed VCF file.");
+
+        return new ShardedVCFWriter(outFile, refDict, shardContigs,
+                options.contains(Options.INDEX_ON_THE_FLY),
+                options.contains(Options.DO_NOT_WRITE_GENOTYPES),
+                options.contains(Options.ALLOW_MISSING_FIELDS_IN_HEADER),
+                options.contains(Options.WRITE_FULL_FORMAT_FIELD));
+    }
+
     /**
      * Attempts to determine the type of file/data to write based on the File path being
      * written to. Will attempt to determine using the logical filename; if that fails it will
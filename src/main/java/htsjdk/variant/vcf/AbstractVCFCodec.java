@@ -30,11 +30,13 @@ import htsjdk.samtools.util.IOUtil;
 import htsjdk.tribble.AsciiFeatureCodec;
 import htsjdk.tribble.Feature;
 import htsjdk.tribble.NameAwareCodec;
+import htsjdk.tribble.SimpleFeature;
 import htsjdk.tribble.TribbleException;
 import htsjdk.tribble.index.tabix.TabixFormat;
 import htsjdk.tribble.util.ParsingUtils;
 import htsjdk.variant.utils.GeneralUtils;
 import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.AlleleCache;
 import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.GenotypeBuilder;
 import htsjdk.variant.variantcontext.GenotypeLikelihoods;
@@ -244,12 +246,68 @@ public abstract class AbstractVCFCodec extends AsciiFeatureCodec<VariantContext>
 	}
 
     /**
-     * the fast decode function
+     * the fast decode function, which only parses the CHROM, POS, REF and INFO END fields of the line
      * @param line the line of text for the record
      * @return a feature, (not guaranteed complete) that has the correct start and stop
      */
+    @Override
     public Feature decodeLoc(String line) {
-        return decodeLine(line, false);
+        // the same line reader is not used for parsing the header and parsing lines, if we see a #, we've seen a header line
+        if (line.startsWith(VCFHeader.HEADER_INDICATOR)) return null;
+
+        // our header cannot be null, we need to know whether there are genotype columns
+        if (header == null) throw new TribbleException("VCF Header cannot be null when decoding a record");
+
+        // find the tabs that end the CHROM through FILTER columns, and the one that ends INFO if there are genotypes
+        final int nColumns = header.hasGenotypingData() ? NUM_STANDARD_FIELDS + 1 : NUM_STANDARD_FIELDS;
+        final int[] tabs = new int[nColumns - 1];
+        int nTabs = 0;
+        for (int tab = line.indexOf(VCFConstants.FIELD_SEPARATOR_CHAR); tab >= 0 && nTabs < nColumns - 1;
+             tab = line.indexOf(VCFConstants.FIELD_SEPARATOR_CHAR, tab + 1)) {
+            tabs[nTabs++] = tab;
+        }
+        if (nTabs != nColumns - 1)
+            throw new TribbleException("Line " + lineNo + ": there aren't enough columns for line " + line + " (we expected " + nColumns +
+                    " tokens, and saw " + (nTabs + 1) + " )");
+
+        lineNo++;
+
+        final String chr = getCachedString(line.substring(0, tabs[0]));
+        int pos = -1;
+        try {
+            pos = Integer.parseInt(line.substring(tabs[0] + 1, tabs[1]));
+        } catch (NumberFormatException e) {
+            generateException(line.substring(tabs[0] + 1, tabs[1]) + " is not a valid start position in the VCF format");
+        }
+
+        final int infoStart = tabs[6] + 1;
+        final int nextTab = line.indexOf(VCFConstants.FIELD_SEPARATOR_CHAR, infoStart);
+        final int infoEnd = nextTab < 0 ? line.length() : nextTab;
+        final int end = parseEnd(line, infoStart, infoEnd);
+        return new SimpleFeature(chr, pos, end == -1 ? pos + (tabs[3] - tabs[2] - 1) - 1 : end);
+    }
+
+    /**
+     * @return the value of the END key of the INFO field between infoStart and infoEnd, or -1 if there is none
+     */
+    private int parseEnd(final String line, final int infoStart, final int infoEnd) {
+        int end = -1;
+        for (int keyStart = infoStart; keyStart < infoEnd; ) {
+            int fieldEnd = line.indexOf(VCFConstants.INFO_FIELD_SEPARATOR_CHAR, keyStart);
+            if (fieldEnd < 0 || fieldEnd > infoEnd) fieldEnd = infoEnd;
+            final int keyLength = VCFConstants.END_KEY.length();
+            if (line.startsWith(VCFConstants.END_KEY, keyStart) &&
+                    (keyStart + keyLength == fieldEnd || line.charAt(keyStart + keyLength) == '=')) {
+                try {
+                    // as when decoding the record, the last END wins
+                    end = Integer.parseInt(line.substring(Math.min(keyStart + keyLength + 1, fieldEnd), fieldEnd));
+                } catch (NumberFormatException e) {
+                    generateException("the END value in the INFO field is not valid");
+                }
+            }
+            keyStart = fieldEnd + 1;
+        }
+        return end;
     }
 
     /**
@@ -536,7 +594,7 @@ public abstract class AbstractVCFCodec extends AsciiFeatureCodec<VariantContext>
         List<Allele> alleles = new ArrayList<Allele>(2); // we are almost always biallelic
         // ref
         checkAllele(ref, true, lineNo);
-        Allele refAllele = Allele.create(ref, true);
+        Allele refAllele = AlleleCache.getSharedCache().get(ref, true);
         alleles.add(refAllele);
 
         if ( alts.indexOf(',') == -1 ) // only 1 alternatives, don't call string split
@@ -615,7 +673,7 @@ public abstract class AbstractVCFCodec extends AsciiFeatureCodec<VariantContext>
     private static void parseSingleAltAllele(List<Allele> alleles, String alt, int lineNo) {
         checkAllele(alt, false, lineNo);
 
-        Allele allele = Allele.create(alt, false);
+        Allele allele = AlleleCache.getSharedCache().get(alt, false);
         if ( ! allele.isNoCall() )
             alleles.add(allele);
     }
@@ -0,0 +1,125 @@
+package htsjdk.samtools;
+
+import htsjdk.HtsjdkTest;
+import htsjdk.samtools.seekablestream.SeekableFileStream;
+import htsjdk.samtools.seekablestream.SeekableStream;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.IOUtil;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BAMRecordBoundaryFinderTest extends HtsjdkTest {
+    private File bam;
+    private SAMFileHeader header;
+    private final List<Long> recordStarts = new ArrayList<>();
+    private final List<Long> blockAddresses = new ArrayList<>();
+    private long endOfRecords;
+
+    @BeforeClass
+    public void writeBam() throws IOException {
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate);
+        final Random random = new Random(5);
+        for (int i = 0; i < 4000; i++) {
+            if (random.nextInt(20) == 0) {
+                builder.addUnmappedFragment("unmapped" + i);
+            } else {
+                builder.addPair("pair" + i, random.nextInt(4), 1 + random.nextInt(1000000), 1 + random.nextInt(1000000));
+            }
+        }
+        header = builder.getHeader();
+        bam = File.createTempFile("BAMRecordBoundaryFinderTest.", BamFileIoUtils.BAM_FILE_EXTENSION);
+        try (final SAMFileWriter writer = new SAMFileWriterFactory().makeBAMWriter(header, true, bam)) {
+            builder.forEach(writer::addAlignment);
+        }
+
+        try (final SamReader reader = SamReaderFactory.makeDefault().enable(SamReaderFactory.Option.INCLUDE_SOURCE_IN_RECORDS).open(bam)) {
+            for (final SAMRecord record : reader) {
+                final Chunk chunk = ((BAMFileSpan) record.getFileSource().getFilePointer()).getSingleChunk();
+                recordStarts.add(chunk.getChunkStart());
+                endOfRecords = chunk.getChunkEnd();
+            }
+        }
+
+        final byte[] bytes = Files.readAllBytes(bam.toPath());
+        for (int address = 0; address < bytes.length; address += ((bytes[address + 16] & 0xff) | (bytes[address + 17] & 0xff) << 8) + 1) {
+            blockAddresses.add((long) address);
+        }
+    }
+
+    @AfterClass
+    public void deleteBam() {
+        IOUtil.deleteFiles(bam);
+    }
+
+    private long expectedNextRecord(final long virtualOffset) {
+        for (final long start : recordStarts) {
+            if (BlockCompressedFilePointerUtil.compare(start, virtualOffset) >= 0) {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void testFindNextRecordFromVirtualOffset() throws IOException {
+        final Random random = new Random(11);
+        try (final SeekableStream stream = new SeekableFileStream(bam)) {
+            for (int i = 0; i < recordStarts.size(); i += 1 + random.nextInt(50)) {
+                final long start = recordStarts.get(i);
+                Assert.assertEquals(BAMFileReader.findVirtualOffsetOfNextRecord(stream, header, start), start);
+
+                // somewhere inside the record, or in the block it starts in if it is the last record
+                final long end = i + 1 < recordStarts.size() ? recordStarts.get(i + 1) : endOfRecords;
+                final long inside;
+                if (BlockCompressedFilePointerUtil.getBlockAddress(end) == BlockCompressedFilePointerUtil.getBlockAddress(start)) {
+                    final int startOffset = BlockCompressedFilePointerUtil.getBlockOffset(start);
+                    final int endOffset = BlockCompressedFilePointerUtil.getBlockOffset(end);
+                    inside = start + 1 + random.nextInt(endOffset - startOffset - 1);
+                } else {
+                    inside = start + 1;
+                }
+                Assert.assertEquals(BAMFileReader.findVirtualOffsetOfNextRecord(stream, header, inside), expectedNextRecord(inside),
+                        BlockCompressedFilePointerUtil.asString(inside));
+            }
+            Assert.assertEquals(BAMFileReader.findVirtualOffsetOfNextRecord(stream, header, endOfRecords), -1L);
+        }
+    }
+
+    @Test
+    public void testFindNextRecordFromFileOffset() throws IOException {
+        final long firstRecordBlock = BlockCompressedFilePointerUtil.getBlockAddress(recordStarts.get(0));
+        final Random random = new Random(17);
+        try (final SeekableStream stream = new SeekableFileStream(bam)) {
+            for (int i = 0; i < 200; i++) {
+                final long fileOffset = firstRecordBlock + 1 + (long) random.nextInt((int) (bam.length() - firstRecordBlock - 1));
+                final long nextBlock = blockAddresses.stream().filter(address -> address >= fileOffset).findFirst().orElse(bam.length());
+                final long expected = nextBlock >= bam.length() ? -1 : expectedNextRecord(BlockCompressedFilePointerUtil.makeFilePointer(nextBlock, 0));
+                Assert.assertEquals(BAMFileReader.findVirtualOffsetOfNextRecordFromFileOffset(stream, header, fileOffset), expected,
+                        "file offset " + fileOffset);
+            }
+            Assert.assertEquals(BAMFileReader.findVirtualOffsetOfNextRecordFromFileOffset(stream, header, bam.length()), -1L);
+        }
+    }
+
+    @Test
+    public void testFindNextBlock() throws IOException {
+        try (final SeekableStream stream = new SeekableFileStream(bam)) {
+            for (int i = 0; i < blockAddresses.size(); i++) {
+                final long address = blockAddresses.get(i);
+                Assert.assertEquals(BAMRecordBoundaryFinder.findNextBlock(stream, address), address);
+                if (i + 1 < blockAddresses.size()) {
+                    Assert.assertEquals(BAMRecordBoundaryFinder.findNextBlock(stream, address + 1), (long) blockAddresses.get(i + 1));
+                }
+            }
+        }
+    }
+}
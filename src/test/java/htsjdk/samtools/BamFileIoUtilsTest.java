@@ -0,0 +1,191 @@
+package htsjdk.samtools;
+
+import htsjdk.HtsjdkTest;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.IOUtil;
+import htsjdk.samtools.util.Md5CalculatingOutputStream;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class BamFileIoUtilsTest extends HtsjdkTest {
+
+    private static List<SAMRecord> makeRecords(final SAMRecordSetBuilder builder) {
+        final Random random = new Random(13);
+        for (int i = 0; i < 6000; i++) {
+            builder.addFrag("read" + i, random.nextInt(3), 1 + random.nextInt(2000000), random.nextBoolean());
+        }
+        for (int i = 0; i < 50; i++) {
+            builder.addUnmappedFragment("unmapped" + i);
+        }
+        return new ArrayList<>(builder.getRecords());
+    }
+
+    private static File writeShard(final SAMFileHeader header, final List<SAMRecord> records, final boolean index) throws IOException {
+        final File shard = File.createTempFile("BamFileIoUtilsTest.shard.", BamFileIoUtils.BAM_FILE_EXTENSION);
+        shard.deleteOnExit();
+        try (final SAMFileWriter writer = new SAMFileWriterFactory().setCreateIndex(index).makeBAMWriter(header, true, shard)) {
+            records.forEach(writer::addAlignment);
+        }
+        final File indexFile = new File(shard.getParentFile(), IOUtil.basename(shard) + BAMIndex.BAMIndexSuffix);
+        indexFile.deleteOnExit();
+        return shard;
+    }
+
+    /**
+     * Recompresses a shard as one stream, so that, unlike in files written by {@link BAMFileWriter}, the end of the
+     * header shares a block with the first records, and reindexes it if it was indexed.
+     */
+    private static void repackShard(final File shard) throws IOException {
+        final ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+        try (final InputStream in = new BlockCompressedInputStream(shard)) {
+            IOUtil.copyStream(in, uncompressed);
+        }
+        try (final BlockCompressedOutputStream out = new BlockCompressedOutputStream(shard)) {
+            out.write(uncompressed.toByteArray());
+        }
+        Assert.assertNotEquals(BlockCompressedFilePointerUtil.getBlockOffset(SAMUtils.findVirtualOffsetOfFirstRecordInBam(shard)), 0);
+
+        final File indexFile = new File(shard.getParentFile(), IOUtil.basename(shard) + BAMIndex.BAMIndexSuffix);
+        if (indexFile.exists()) {
+            try (final SamReader reader = SamReaderFactory.makeDefault().enable(SamReaderFactory.Option.INCLUDE_SOURCE_IN_RECORDS).open(shard)) {
+                BAMIndexer.createIndex(reader, indexFile);
+            }
+        }
+    }
+
+    private static List<String> toStrings(final CloseableIterator<SAMRecord> iterator) {
+        final List<String> strings = new ArrayList<>();
+        while (iterator.hasNext()) {
+            strings.add(iterator.next().getSAMString());
+        }
+        iterator.close();
+        return strings;
+    }
+
+    private void testGather(final boolean indexAllShards, final boolean repackShards) throws IOException {
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate);
+        final List<SAMRecord> records = makeRecords(builder);
+        final SAMFileHeader header = builder.getHeader();
+
+        // the shard boundaries fall within references, as when a sorted file is scattered by interval
+        final List<File> shards = new ArrayList<>();
+        final int[] boundaries = {0, 1500, 3700, 4200, records.size()};
+        for (int i = 0; i + 1 < boundaries.length; i++) {
+            shards.add(writeShard(header, records.subList(boundaries[i], boundaries[i + 1]), indexAllShards || i != 1));
+            if (repackShards) {
+                repackShard(shards.get(i));
+            }
+        }
+
+        final SAMFileHeader newHeader = header.clone();
+        newHeader.addComment("gathered");
+        final File output = File.createTempFile("BamFileIoUtilsTest.gathered.", BamFileIoUtils.BAM_FILE_EXTENSION);
+        final File outputIndex = new File(output.getParentFile(), IOUtil.basename(output) + BAMIndex.BAMIndexSuffix);
+        final File outputMd5 = new File(output.getAbsolutePath() + ".md5");
+        output.deleteOnExit();
+        outputIndex.deleteOnExit();
+        outputMd5.deleteOnExit();
+
+        BamFileIoUtils.gatherWithBlockCopying(shards, output, newHeader, true, true);
+
+        final File expected = writeShard(header, records, true);
+        try (final SamReader gathered = SamReaderFactory.makeDefault().open(output);
+             final SamReader reference = SamReaderFactory.makeDefault().open(expected)) {
+            Assert.assertEquals(gathered.getFileHeader().getComments(), Collections.singletonList("@CO\tgathered"));
+            Assert.assertTrue(gathered.hasIndex());
+            Assert.assertEquals(toStrings(gathered.iterator()), toStrings(reference.iterator()));
+            Assert.assertEquals(toStrings(gathered.queryUnmapped()), toStrings(reference.queryUnmapped()));
+            for (final String contig : new String[]{"chr1", "chr2", "chr3", "chr4"}) {
+                for (int start = 1; start < 2100000; start += 250000) {
+                    Assert.assertEquals(toStrings(gathered.queryOverlapping(contig, start, start + 30000)),
+                            toStrings(reference.queryOverlapping(contig, start, start + 30000)), contig + ":" + start);
+                }
+            }
+            final BAMIndex gatheredIndex = gathered.indexing().getIndex();
+            final BAMIndex referenceIndex = reference.indexing().getIndex();
+            for (int i = 0; i < header.getSequenceDictionary().size(); i++) {
+                Assert.assertEquals(gatheredIndex.getMetaData(i).getAlignedRecordCount(), referenceIndex.getMetaData(i).getAlignedRecordCount());
+                Assert.assertEquals(gatheredIndex.getMetaData(i).getUnalignedRecordCount(), referenceIndex.getMetaData(i).getUnalignedRecordCount());
+            }
+            Assert.assertEquals(((AbstractBAMFileIndex) gatheredIndex).getNoCoordinateCount(), Long.valueOf(50));
+        }
+
+        final Md5CalculatingOutputStream md5 = new Md5CalculatingOutputStream(new OutputStream() {
+            @Override
+            public void write(final int b) {
+            }
+        }, (File) null);
+        md5.write(Files.readAllBytes(output.toPath()));
+        md5.close();
+        Assert.assertEquals(new String(Files.readAllBytes(outputMd5.toPath())).trim(), md5.md5());
+    }
+
+    @Test
+    public void testGatherWithMergedIndexes() throws IOException {
+        testGather(true, false);
+    }
+
+    @Test
+    public void testGatherWithUnindexedShard() throws IOException {
+        testGather(false, false);
+    }
+
+    @Test
+    public void testGatherWithHeaderSharingBlockWithRecords() throws IOException {
+        testGather(true, true);
+    }
+
+    @Test
+    public void testGatherUnindexedWithHeaderSharingBlockWithRecords() throws IOException {
+        testGather(false, true);
+    }
+
+    @Test
+    public void testReheader() throws IOException {
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate);
+        final List<SAMRecord> records = makeRecords(builder);
+        final File input = writeShard(builder.getHeader(), records, true);
+
+        final SAMFileHeader newHeader = builder.getHeader().clone();
+        final List<SAMSequenceRecord> sequences = new ArrayList<>(newHeader.getSequenceDictionary().getSequences());
+        sequences.set(0, new SAMSequenceRecord("renamed", sequences.get(0).getSequenceLength()));
+        newHeader.setSequenceDictionary(new SAMSequenceDictionary(sequences));
+        final File output = File.createTempFile("BamFileIoUtilsTest.reheadered.", BamFileIoUtils.BAM_FILE_EXTENSION);
+        final File outputIndex = new File(output.getParentFile(), IOUtil.basename(output) + BAMIndex.BAMIndexSuffix);
+        output.deleteOnExit();
+        outputIndex.deleteOnExit();
+
+        BamFileIoUtils.gatherWithBlockCopying(Collections.singletonList(input), output, newHeader, true, false);
+
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(output)) {
+            Assert.assertEquals(reader.getFileHeader().getSequence(0).getSequenceName(), "renamed");
+            final long onFirstSequence = records.stream().filter(r -> r.getReferenceIndex() == 0).count();
+            Assert.assertEquals(toStrings(reader.queryOverlapping("renamed", 1, 0)).size(), onFirstSequence);
+        }
+    }
+
+    @Test(expectedExceptions = SAMException.class)
+    public void testIncompatibleDictionary() throws IOException {
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate);
+        final File input = writeShard(builder.getHeader(), makeRecords(builder), false);
+        final SAMFileHeader newHeader = builder.getHeader().clone();
+        newHeader.addSequence(new SAMSequenceRecord("extra", 100));
+        final File output = File.createTempFile("BamFileIoUtilsTest.incompatible.", BamFileIoUtils.BAM_FILE_EXTENSION);
+        output.deleteOnExit();
+        BamFileIoUtils.gatherWithBlockCopying(Collections.singletonList(input), output, newHeader, false, false);
+    }
+}
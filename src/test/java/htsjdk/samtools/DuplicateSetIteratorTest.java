@@ -4,8 +4,15 @@ import htsjdk.HtsjdkTest;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.DelegatingIterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 public class DuplicateSetIteratorTest extends HtsjdkTest {
     protected final static int DEFAULT_BASE_QUALITY = 10;
@@ -61,4 +68,70 @@ public class DuplicateSetIteratorTest extends HtsjdkTest {
         Assert.assertEquals(allSets.size(), 15, "Wrong number of duplicate sets.");
         Assert.assertEquals(allSets.get("READ0").size(), 2, "Should be two reads in the READ0 duplicate set, but there are not.");
     }
+
+    private SAMRecordSetBuilder getRandomRecords(final int numberOfPairs, final int numberOfFrags) {
+        final SAMRecordSetBuilder records = getSAMRecordSetBuilder();
+        final Random random = new Random(42);
+        final String[] cigars = {"50M", "5S45M", "45M5S", "10S40M"};
+        for (int i = 0; i < numberOfPairs; i++) {
+            // few distinct positions so that there are many duplicates, and soft clips at position 1 give negative unclipped starts
+            records.addPair("PAIR" + i, random.nextInt(2), random.nextInt(2), 1 + random.nextInt(10), 1 + random.nextInt(10),
+                    random.nextInt(10) == 0, random.nextInt(10) == 0, cigars[random.nextInt(cigars.length)], cigars[random.nextInt(cigars.length)],
+                    random.nextBoolean(), random.nextBoolean(), random.nextInt(20) == 0, false, random.nextInt(40));
+        }
+        for (int i = 0; i < numberOfFrags; i++) {
+            records.addFrag("FRAG" + i, random.nextInt(2), 1 + random.nextInt(10), random.nextBoolean(), random.nextInt(10) == 0,
+                    cigars[random.nextInt(cigars.length)], null, random.nextInt(40));
+        }
+        return records;
+    }
+
+    @Test
+    public void testSortByDuplicateKeyMatchesComparator() {
+        final SAMRecordSetBuilder records = getRandomRecords(2000, 1000);
+        final SAMRecordDuplicateComparator comparator = new SAMRecordDuplicateComparator(Collections.singletonList(records.getHeader()));
+
+        final List<SAMRecord> expected = new ArrayList<>(records.getRecords());
+        expected.sort(comparator);
+        final SAMRecord[] actual = DuplicateSetIterator.sortByDuplicateKey(new ArrayList<>(records.getRecords()), comparator);
+
+        Assert.assertEquals(actual.length, expected.size());
+        for (int i = 0; i < actual.length; i++) {
+            Assert.assertEquals(comparator.compare(actual[i], expected.get(i)), 0,
+                    "Records differ at " + i + ":\n" + actual[i].getSAMString() + expected.get(i).getSAMString());
+        }
+    }
+
+    @Test
+    public void testSortByDuplicateKeyEmptyAndSingleton() {
+        final SAMRecordSetBuilder records = getSAMRecordSetBuilder();
+        final SAMRecordDuplicateComparator comparator = new SAMRecordDuplicateComparator(Collections.singletonList(records.getHeader()));
+        Assert.assertEquals(DuplicateSetIterator.sortByDuplicateKey(Collections.emptyList(), comparator).length, 0);
+
+        final SAMRecord record = records.addFrag("READ0", 0, 1, false);
+        Assert.assertSame(DuplicateSetIterator.sortByDuplicateKey(Collections.singletonList(record), comparator)[0], record);
+    }
+
+    @Test
+    public void testInMemorySortMatchesPreSorted() {
+        final SAMRecordSetBuilder records = getRandomRecords(2000, 1000);
+        final SAMFileHeader header = records.getHeader();
+        final SAMRecordDuplicateComparator comparator = new SAMRecordDuplicateComparator(Collections.singletonList(header));
+
+        final List<SAMRecord> sorted = new ArrayList<>(records.getRecords());
+        sorted.sort(comparator);
+        final CloseableIterator<SAMRecord> preSortedIterator = new DelegatingIterator<>(sorted.iterator());
+
+        final DuplicateSetIterator expected = new DuplicateSetIterator(preSortedIterator, header, true, comparator);
+        final DuplicateSetIterator actual = new DuplicateSetIterator(records.iterator(), header, false,
+                new SAMRecordDuplicateComparator(Collections.singletonList(header)));
+        while (expected.hasNext()) {
+            Assert.assertTrue(actual.hasNext());
+            final DuplicateSet expectedSet = expected.next();
+            final DuplicateSet actualSet = actual.next();
+            Assert.assertEquals(actualSet.size(), expectedSet.size());
+            Assert.assertEquals(actualSet.getRepresentative().getSAMString(), expectedSet.getRepresentative().getSAMString());
+        }
+        Assert.assertFalse(actual.hasNext());
+    }
 }
@@ -26,13 +26,17 @@ package htsjdk.samtools;
 import htsjdk.HtsjdkTest;
 import htsjdk.samtools.util.SequenceUtil;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Tests for MultiIterator
@@ -310,4 +314,120 @@ public class MergingSamRecordIteratorTest extends HtsjdkTest {
         samReader1.close();
         samReader2.close();
     }
+
+    private static List<SamReader> makeReadersWithCollidingReadGroups(final int numReaders) {
+        final List<SamReader> readers = new ArrayList<>();
+        final Random random = new Random(numReaders);
+        for (int i = 0; i < numReaders; i++) {
+            final SAMRecordSetBuilder builder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate);
+            // same read group id, different samples
+            builder.getHeader().getReadGroups().get(0).setSample("sample" + i);
+            for (int j = 0; j < 200; j++) {
+                builder.addFrag("input" + i + "_read" + j, random.nextInt(3), 1 + random.nextInt(1000), false);
+            }
+            readers.add(builder.getSamReader());
+        }
+        return readers;
+    }
+
+    private static MergingSamRecordIterator makeMergingIterator(final List<SamReader> readers, final ExecutorService executor, final int batchSize) {
+        final List<SAMFileHeader> headers = new ArrayList<>();
+        for (final SamReader reader : readers) {
+            headers.add(reader.getFileHeader());
+        }
+        final SamFileHeaderMerger merger = new SamFileHeaderMerger(SAMFileHeader.SortOrder.coordinate, headers, false);
+        return new MergingSamRecordIterator(merger, readers, false, executor, batchSize);
+    }
+
+    @DataProvider(name = "readAheadData")
+    public Object[][] readAheadData() {
+        return new Object[][]{{1, 1}, {3, 7}, {5, 1000}, {8, 50}};
+    }
+
+    @Test(dataProvider = "readAheadData")
+    public void testReadAheadMatchesSerialMerge(final int numReaders, final int batchSize) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final List<String> serial = new ArrayList<>();
+            try (final MergingSamRecordIterator iterator = makeMergingIterator(makeReadersWithCollidingReadGroups(numReaders), null, 0)) {
+                iterator.forEachRemaining(r -> serial.add(r.getSAMString()));
+            }
+
+            final List<String> readAhead = new ArrayList<>();
+            final SAMRecordCoordinateComparator comparator = new SAMRecordCoordinateComparator();
+            SAMRecord previous = null;
+            try (final MergingSamRecordIterator iterator = makeMergingIterator(makeReadersWithCollidingReadGroups(numReaders), executor, batchSize)) {
+                final SAMFileHeader mergedHeader = iterator.getMergedHeader();
+                Assert.assertEquals(mergedHeader.getReadGroups().size(), numReaders);
+                while (iterator.hasNext()) {
+                    final SAMRecord record = iterator.next();
+                    if (previous != null) {
+                        Assert.assertTrue(comparator.compare(previous, record) <= 0);
+                    }
+                    // the read group of each record was remapped to the one of its input
+                    final String input = record.getReadName().substring("input".length(), record.getReadName().indexOf('_'));
+                    Assert.assertEquals(record.getReadGroup().getSample(), "sample" + input);
+                    readAhead.add(record.getSAMString());
+                    previous = record;
+                }
+            }
+            Assert.assertEquals(readAhead.size(), numReaders * 200);
+            Assert.assertEqualsNoOrder(readAhead.toArray(), serial.toArray());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @DataProvider(name = "undeclaredReadGroupData")
+    public Object[][] undeclaredReadGroupData() {
+        return new Object[][]{{false}, {true}};
+    }
+
+    @Test(dataProvider = "undeclaredReadGroupData")
+    public void testUndeclaredReadGroupIsRemoved(final boolean readAhead) throws Exception {
+        final ExecutorService executor = readAhead ? Executors.newSingleThreadExecutor() : null;
+        try {
+            final List<SamReader> readers = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                final SAMRecordSetBuilder builder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate);
+                builder.getHeader().getReadGroups().get(0).setSample("sample" + i);
+                builder.addFrag("declared" + i, 0, 100 + i, false);
+                builder.addFrag("undeclared" + i, 0, 200 + i, false).setAttribute(SAMTag.RG.name(), "undeclared");
+                readers.add(builder.getSamReader());
+            }
+            int count = 0;
+            try (final MergingSamRecordIterator iterator = makeMergingIterator(readers, executor, 1)) {
+                while (iterator.hasNext()) {
+                    final SAMRecord record = iterator.next();
+                    if (record.getReadName().startsWith("undeclared")) {
+                        Assert.assertNull(record.getAttribute(SAMTag.RG.name()));
+                    } else {
+                        final String input = record.getReadName().substring("declared".length());
+                        Assert.assertEquals(record.getReadGroup().getSample(), "sample" + input);
+                    }
+                    count++;
+                }
+            }
+            Assert.assertEquals(count, 4);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void testReadAheadEmptyInputs() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final List<SamReader> readers = Arrays.asList(
+                    new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate).getSamReader(),
+                    new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate).getSamReader());
+            try (final MergingSamRecordIterator iterator = makeMergingIterator(readers, executor, 10)) {
+                Assert.assertFalse(iterator.hasNext());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
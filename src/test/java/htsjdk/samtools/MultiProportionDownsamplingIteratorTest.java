@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools;
+
+import htsjdk.HtsjdkTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+public class MultiProportionDownsamplingIteratorTest extends HtsjdkTest {
+    private static final double[] PROPORTIONS = {0.5, 0.1, 0.25, 0, 1};
+
+    private static Collection<SAMRecord> getRecords() {
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder();
+        final Random random = new Random(10001);
+        for (int i = 0; i < 20000; i++) {
+            builder.addPair("pair" + random.nextInt(), random.nextInt(24), random.nextInt(1000000), random.nextInt(1000000));
+            builder.addFrag("frag" + random.nextInt(), random.nextInt(24), random.nextInt(1000000), false);
+        }
+        return builder.getRecords();
+    }
+
+    private static List<List<SAMRecord>> downsample(final Collection<SAMRecord> records, final ExecutorService executor, final int batchSize) {
+        final List<List<SAMRecord>> subsamples = new ArrayList<>();
+        for (int i = 0; i < PROPORTIONS.length; i++) subsamples.add(new ArrayList<>());
+        final List<Consumer<SAMRecord>> outputs = subsamples.stream().map(list -> (Consumer<SAMRecord>) list::add).collect(Collectors.toList());
+
+        final MultiProportionDownsamplingIterator iterator =
+                new MultiProportionDownsamplingIterator(records.iterator(), PROPORTIONS, 42, executor, batchSize);
+        iterator.drainTo(outputs);
+        iterator.close();
+
+        Assert.assertEquals(iterator.getSeenCount(), records.size());
+        Assert.assertEquals(iterator.getAcceptedCount(), records.size());
+        for (int i = 0; i < PROPORTIONS.length; i++) {
+            Assert.assertEquals(iterator.getAcceptedCount(i), subsamples.get(i).size());
+        }
+        return subsamples;
+    }
+
+    @Test
+    public void testProportionsAndNesting() {
+        final Collection<SAMRecord> records = getRecords();
+        final List<List<SAMRecord>> subsamples = downsample(records, null, 1000);
+
+        for (int i = 0; i < PROPORTIONS.length; i++) {
+            final double fraction = subsamples.get(i).size() / (double) records.size();
+            Assert.assertEquals(fraction, PROPORTIONS[i], 0.01, "proportion " + PROPORTIONS[i]);
+
+            // templates are kept or discarded together
+            final Set<String> names = subsamples.get(i).stream().map(SAMRecord::getReadName).collect(Collectors.toSet());
+            final long expected = records.stream().filter(r -> names.contains(r.getReadName())).count();
+            Assert.assertEquals(subsamples.get(i).size(), expected);
+        }
+
+        // smaller subsamples are contained in larger ones
+        Assert.assertTrue(new HashSet<>(subsamples.get(2)).containsAll(subsamples.get(1)));
+        Assert.assertTrue(new HashSet<>(subsamples.get(0)).containsAll(subsamples.get(2)));
+        Assert.assertEquals(subsamples.get(4).size(), records.size());
+        Assert.assertTrue(subsamples.get(3).isEmpty());
+    }
+
+    @Test
+    public void testParallelHashingMatchesSerial() {
+        final Collection<SAMRecord> records = getRecords();
+        final List<List<SAMRecord>> serial = downsample(records, null, MultiProportionDownsamplingIterator.DEFAULT_BATCH_SIZE);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (final int batchSize : new int[]{1, 7, 1000, 100000}) {
+                Assert.assertEquals(downsample(records, executor, batchSize), serial, "batch size " + batchSize);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testIteration() {
+        final Collection<SAMRecord> records = getRecords();
+        final double[] proportions = {0.3, 0.1};
+        final MultiProportionDownsamplingIterator iterator = new MultiProportionDownsamplingIterator(records.iterator(), proportions, 42);
+        Assert.assertEquals(iterator.getTargetProportion(), 0.3);
+
+        int returned = 0;
+        int inSmaller = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            returned++;
+            Assert.assertTrue(iterator.isInSubsample(0));
+            if (iterator.isInSubsample(1)) inSmaller++;
+        }
+        Assert.assertEquals(returned, iterator.getAcceptedCount(0));
+        Assert.assertEquals(inSmaller, iterator.getAcceptedCount(1));
+        Assert.assertEquals(iterator.getAcceptedFraction(), 0.3, 0.01);
+        Assert.assertEquals(iterator.getAcceptedFraction(1), 0.1, 0.01);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        final Collection<SAMRecord> records = getRecords();
+        Assert.assertThrows(IllegalArgumentException.class, () -> new MultiProportionDownsamplingIterator(records.iterator(), new double[0], 1));
+        Assert.assertThrows(IllegalArgumentException.class, () -> new MultiProportionDownsamplingIterator(records.iterator(), new double[]{0.5, 1.5}, 1));
+        Assert.assertThrows(IllegalArgumentException.class, () -> new MultiProportionDownsamplingIterator(records.iterator(), new double[65], 1));
+        Assert.assertThrows(IllegalArgumentException.class, () ->
+                new MultiProportionDownsamplingIterator(records.iterator(), new double[]{0.5}, 1).drainTo(Arrays.asList(r -> {}, r -> {})));
+    }
+}
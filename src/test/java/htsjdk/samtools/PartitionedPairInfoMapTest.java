@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools;
+
+import htsjdk.HtsjdkTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PartitionedPairInfoMapTest extends HtsjdkTest {
+    private static final PartitionedPairInfoMap.Codec<String> CODEC = new PartitionedPairInfoMap.Codec<String>() {
+        @Override
+        public void encode(final String record, final DataOutputStream out) throws IOException {
+            out.writeUTF(record);
+        }
+
+        @Override
+        public String decode(final DataInputStream in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    @Test
+    public void testPutAndRemove() {
+        try (final PartitionedPairInfoMap<String> map = new PartitionedPairInfoMap<>(4, 1000, CODEC)) {
+            final long key = PartitionedPairInfoMap.hashReadName("read1");
+            Assert.assertNull(map.remove(key));
+            map.put(key, "first");
+            Assert.assertEquals(map.size(), 1);
+            Assert.assertThrows(IllegalArgumentException.class, () -> map.put(key, "again"));
+            Assert.assertEquals(map.remove(key), "first");
+            Assert.assertNull(map.remove(key));
+            Assert.assertEquals(map.size(), 0);
+            Assert.assertEquals(map.sizeInRam(), 0);
+        }
+    }
+
+    @Test
+    public void testHashReadName() {
+        Assert.assertEquals(PartitionedPairInfoMap.hashReadName("read1"), PartitionedPairInfoMap.hashReadName("read1"));
+        final Set<Long> hashes = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            hashes.add(PartitionedPairInfoMap.hashReadName("HWI-ST1234:8:1101:" + i));
+        }
+        Assert.assertEquals(hashes.size(), 100_000);
+    }
+
+    @DataProvider(name = "randomOperationsData")
+    public Object[][] randomOperationsData() {
+        return new Object[][]{{1, 1_000_000}, {16, 1_000_000}, {1, 50}, {8, 100}};
+    }
+
+    /** Compares random puts and removes against a HashMap, with and without spilling. */
+    @Test(dataProvider = "randomOperationsData")
+    public void testRandomOperations(final int numPartitions, final int maxRecordsInRam) {
+        final Random random = new Random(numPartitions + maxRecordsInRam);
+        final Map<Long, String> expected = new HashMap<>();
+        try (final PartitionedPairInfoMap<String> map = new PartitionedPairInfoMap<>(numPartitions, maxRecordsInRam, CODEC)) {
+            for (int i = 0; i < 20_000; i++) {
+                // a small key space, so that removes often hit
+                final long key = random.nextInt(2_000);
+                if (random.nextBoolean()) {
+                    Assert.assertEquals(map.remove(key), expected.remove(key));
+                } else if (!expected.containsKey(key)) {
+                    map.put(key, "value" + i);
+                    expected.put(key, "value" + i);
+                }
+                Assert.assertTrue(map.sizeInRam() <= maxRecordsInRam);
+            }
+            Assert.assertEquals(map.size(), expected.size());
+
+            final List<String> all = new ArrayList<>();
+            map.forEach(all::add);
+            Assert.assertEqualsNoOrder(all.toArray(), expected.values().toArray());
+
+            for (final Map.Entry<Long, String> entry : expected.entrySet()) {
+                Assert.assertEquals(map.remove(entry.getKey()), entry.getValue());
+            }
+            Assert.assertEquals(map.size(), 0);
+        }
+    }
+
+    /** Removing a spilled record reads only that record, rather than bringing its whole partition back into RAM. */
+    @Test
+    public void testRemoveSpilledRecord() {
+        try (final PartitionedPairInfoMap<String> map = new PartitionedPairInfoMap<>(1, 10, CODEC)) {
+            for (int i = 0; i < 11; i++) {
+                map.put(i, "value" + i);
+            }
+            Assert.assertEquals(map.sizeInRam(), 0);
+            for (int i = 0; i < 11; i++) {
+                Assert.assertEquals(map.remove(i), "value" + i);
+                Assert.assertEquals(map.sizeInRam(), 0);
+                Assert.assertNull(map.remove(i));
+            }
+            Assert.assertEquals(map.size(), 0);
+        }
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        final int threads = 4;
+        final int pairsPerThread = 20_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (final PartitionedPairInfoMap<String> map = new PartitionedPairInfoMap<>(16, 5_000, CODEC)) {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    int matched = 0;
+                    // each thread sees both reads of its own pairs, the second read some time after the first
+                    for (int i = 0; i < pairsPerThread + 100; i++) {
+                        if (i < pairsPerThread) {
+                            map.put(PartitionedPairInfoMap.hashReadName(thread + ":" + i), thread + ":" + i);
+                        }
+                        if (i >= 100) {
+                            final String name = thread + ":" + (i - 100);
+                            if (name.equals(map.remove(PartitionedPairInfoMap.hashReadName(name)))) {
+                                matched++;
+                            }
+                        }
+                    }
+                    return matched;
+                }));
+            }
+            for (final Future<Integer> future : futures) {
+                Assert.assertEquals(future.get().intValue(), pairsPerThread);
+            }
+            Assert.assertEquals(map.size(), 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
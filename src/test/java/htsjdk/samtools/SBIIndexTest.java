@@ -0,0 +1,77 @@
+package htsjdk.samtools;
+
+import htsjdk.HtsjdkTest;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.IOUtil;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SBIIndexTest extends HtsjdkTest {
+
+    @DataProvider(name = "granularities")
+    public Object[][] granularities() {
+        return new Object[][] {{1L}, {100L}, {1000L}, {100000L}};
+    }
+
+    @Test(dataProvider = "granularities")
+    public void testWriteSplittingIndex(final long granularity) throws IOException {
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate);
+        for (int i = 0; i < 3000; i++) {
+            builder.addFrag("read" + i, i % 3, 1 + 37 * i, false);
+        }
+        final File bam = File.createTempFile("SBIIndexTest.", BamFileIoUtils.BAM_FILE_EXTENSION);
+        final File sbi = new File(bam.getAbsolutePath() + SBIIndex.FILE_EXTENSION);
+        try {
+            try (final SAMFileWriter writer = new SAMFileWriterFactory().setSplittingIndexGranularity(granularity)
+                    .makeBAMWriter(builder.getHeader(), true, bam)) {
+                builder.forEach(writer::addAlignment);
+            }
+
+            final List<Long> recordStarts = new ArrayList<>();
+            try (final SamReader reader = SamReaderFactory.makeDefault().enable(SamReaderFactory.Option.INCLUDE_SOURCE_IN_RECORDS).open(bam)) {
+                for (final SAMRecord record : reader) {
+                    final Chunk chunk = ((BAMFileSpan) record.getFileSource().getFilePointer()).getSingleChunk();
+                    recordStarts.add(chunk.getChunkStart());
+                }
+            }
+
+            final SBIIndex index = SBIIndex.load(sbi.toPath());
+            Assert.assertEquals(index.getDataFileLength(), bam.length());
+            Assert.assertEquals(index.getTotalNumberOfRecords(), recordStarts.size());
+            Assert.assertEquals(index.getGranularity(), granularity);
+            final long[] offsets = index.getVirtualOffsets();
+            Assert.assertEquals(offsets.length, (recordStarts.size() + granularity - 1) / granularity + 1);
+            for (int i = 0; i < offsets.length - 1; i++) {
+                Assert.assertEquals(offsets[i], (long) recordStarts.get((int) (i * granularity)));
+            }
+            // the end of the last block of records may equally be addressed as the start of the terminator block
+            try (final BlockCompressedInputStream in = new BlockCompressedInputStream(bam)) {
+                in.seek(offsets[offsets.length - 1]);
+                Assert.assertEquals(in.read(), -1);
+            }
+
+            Assert.assertEquals(index.getVirtualOffsetAtOrAfter(0), offsets[0]);
+            Assert.assertEquals(index.getVirtualOffsetAtOrAfter(bam.length()), offsets[offsets.length - 1]);
+            for (final long offset : offsets) {
+                final long blockAddress = BlockCompressedFilePointerUtil.getBlockAddress(offset);
+                final long found = index.getVirtualOffsetAtOrAfter(blockAddress);
+                Assert.assertEquals(BlockCompressedFilePointerUtil.getBlockAddress(found), blockAddress);
+                Assert.assertTrue(BlockCompressedFilePointerUtil.compare(found, offset) <= 0);
+            }
+        } finally {
+            IOUtil.deleteFiles(bam, sbi);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeGranularity() {
+        new SAMFileWriterFactory().setSplittingIndexGranularity(-1);
+    }
+}
@@ -52,6 +52,11 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Tests almost all error conditions detected by the sam file validator. The
@@ -615,6 +620,128 @@ public class ValidateSamFileTest extends HtsjdkTest {
         Assert.assertEquals(samFileValidator.getNumErrors(), numErrors);
     }
 
+    @DataProvider(name = "parallelValidationFiles")
+    public Object[][] parallelValidationFiles() {
+        return new Object[][]{
+                {"valid.sam"}, {"invalid_coord_sort_order.sam"}, {"invalid_queryname_sort_order.sam"},
+                {"inappropriate_mate_cigar_string.sam"}, {"invalid_mate_cigar_string.sam"}, {"mate_cigar_and_oqs.sam"},
+                {"missing_platform_unit.sam"}, {"not_stored_qualities_more_than_100.sam"}, {"seq_qual_len_mismatch.sam"},
+                {"duplicated_reads.sam"}, {"test_samfile_version_1pt5.bam"}, {"truncated.bam"}
+        };
+    }
+
+    @Test(dataProvider = "parallelValidationFiles")
+    public void testParallelValidationMatchesSerial(final String fileName) throws IOException {
+        final File file = new File(TEST_DATA_DIR, fileName);
+        assertParallelValidationMatchesSerial(() -> SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(file), null);
+    }
+
+    @Test
+    public void testParallelValidationWithReference() throws IOException {
+        final File reference = new File(TEST_DATA_DIR, "nm_tag_validation.fa");
+        assertParallelValidationMatchesSerial(() -> SamReaderFactory.makeDefault()
+                        .validationStringency(ValidationStringency.SILENT)
+                        .referenceSequence(reference)
+                        .open(new File(TEST_DATA_DIR, "nm_tag_validation.cram")),
+                new FastaSequenceFile(reference, true));
+    }
+
+    @DataProvider(name = "parallelMateValidationData")
+    public Object[][] parallelMateValidationData() {
+        return new Object[][]{{SAMFileHeader.SortOrder.coordinate}, {SAMFileHeader.SortOrder.queryname}, {SAMFileHeader.SortOrder.unsorted}};
+    }
+
+    @Test(dataProvider = "parallelMateValidationData")
+    public void testParallelMateValidation(final SAMFileHeader.SortOrder sortOrder) throws IOException {
+        final SAMRecordSetBuilder samBuilder = new SAMRecordSetBuilder(true, sortOrder);
+        for (int i = 0; i < 500; i++) {
+            final List<SAMRecord> pair = samBuilder.addPair("pair" + i, i % 3, 1 + i, 100 + 2 * i, false, false, "36M", "36M", false, true, 30);
+            if (i % 7 == 0) {
+                pair.get(0).setMateAlignmentStart(pair.get(0).getMateAlignmentStart() + 1);
+            }
+            if (i % 11 == 0) {
+                pair.get(1).setMateNegativeStrandFlag(false);
+            }
+        }
+        for (int i = 0; i < 50; i++) {
+            // mate not found
+            final List<SAMRecord> pair = samBuilder.addPair("orphan" + i, 1, 50 + i, 500 + i, false, false, "36M", "36M", false, true, 30);
+            samBuilder.getRecords().remove(pair.get(1));
+        }
+        assertParallelValidationMatchesSerial(samBuilder::getSamReader, null);
+    }
+
+    @DataProvider(name = "truncatedParallelValidationData")
+    public Object[][] truncatedParallelValidationData() {
+        return new Object[][]{{7}, {1000}, {10000}};
+    }
+
+    @Test(dataProvider = "truncatedParallelValidationData")
+    public void testParallelValidationOfTruncatedFileWithRecordErrors(final int batchSize) throws IOException {
+        final SAMRecordSetBuilder samBuilder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate);
+        for (int i = 0; i < 3000; i++) {
+            final List<SAMRecord> pair = samBuilder.addPair("pair" + i, i % 3, 1 + i, 100 + 2 * i, false, false, "36M", "36M", false, true, 30);
+            if (i % 5 == 0) {
+                pair.get(0).setMateAlignmentStart(pair.get(0).getMateAlignmentStart() + 1);
+            }
+        }
+        final File bam = File.createTempFile("truncatedWithErrors", ".bam");
+        bam.deleteOnExit();
+        try (final SAMFileWriter writer = new SAMFileWriterFactory().makeBAMWriter(samBuilder.getHeader(), true, bam)) {
+            samBuilder.forEach(writer::addAlignment);
+        }
+        // errors in records before the truncation point must be reported even if they are in a partially filled batch
+        final File truncated = File.createTempFile("truncatedWithErrors", ".bam");
+        truncated.deleteOnExit();
+        try (final FileChannel in = FileChannel.open(bam.toPath());
+             final FileChannel out = FileChannel.open(truncated.toPath(), StandardOpenOption.WRITE)) {
+            out.transferFrom(in, 0, 2 * in.size() / 3);
+        }
+        assertParallelValidationMatchesSerial(() -> SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(truncated),
+                null, batchSize);
+    }
+
+    private static void assertParallelValidationMatchesSerial(final Supplier<SamReader> samReaders,
+                                                              final ReferenceSequenceFile reference) throws IOException {
+        assertParallelValidationMatchesSerial(samReaders, reference, 7);
+    }
+
+    /**
+     * Validates verbosely with and without an executor, and checks that the same errors are reported in the same
+     * order, except for unmatched mates, which are reported in a different order.
+     */
+    private static void assertParallelValidationMatchesSerial(final Supplier<SamReader> samReaders,
+                                                              final ReferenceSequenceFile reference,
+                                                              final int batchSize) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final StringWriter serialOutput = new StringWriter();
+            final SamFileValidator serialValidator = new SamFileValidator(new PrintWriter(serialOutput), 8000);
+            serialValidator.setVerbose(true, Integer.MAX_VALUE);
+            try (final SamReader samReader = samReaders.get()) {
+                serialValidator.validateSamFileVerbose(samReader, reference);
+            }
+
+            final StringWriter parallelOutput = new StringWriter();
+            final SamFileValidator parallelValidator = new SamFileValidator(new PrintWriter(parallelOutput), 8000);
+            parallelValidator.setVerbose(true, Integer.MAX_VALUE);
+            parallelValidator.setExecutor(executor, batchSize);
+            try (final SamReader samReader = samReaders.get()) {
+                parallelValidator.validateSamFileVerbose(samReader, reference);
+            }
+
+            Assert.assertEquals(parallelValidator.getNumErrors(), serialValidator.getNumErrors());
+            Assert.assertEquals(parallelValidator.getNumWarnings(), serialValidator.getNumWarnings());
+            final List<String> serialLines = Arrays.asList(serialOutput.toString().split("\n"));
+            final List<String> parallelLines = Arrays.asList(parallelOutput.toString().split("\n"));
+            Assert.assertEquals(parallelLines.stream().filter(line -> !line.contains("Mate not found")).collect(Collectors.toList()),
+                    serialLines.stream().filter(line -> !line.contains("Mate not found")).collect(Collectors.toList()));
+            Assert.assertEqualsNoOrder(parallelLines.toArray(), serialLines.toArray());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private Histogram<String> executeValidation(final SamReader samReader, final ReferenceSequenceFile reference,
                                                 final IndexValidationStringency stringency) throws IOException {
         return executeValidationWithErrorIgnoring(samReader, reference, stringency, Collections.EMPTY_LIST, false);
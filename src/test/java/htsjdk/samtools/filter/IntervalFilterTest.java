@@ -5,6 +5,7 @@ import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMRecordSetBuilder;
 import htsjdk.samtools.util.CollectionUtil;
+import htsjdk.samtools.util.ImmutableIntervalIndex;
 import htsjdk.samtools.util.Interval;
 import htsjdk.samtools.util.IntervalList;
 import org.testng.Assert;
@@ -93,4 +94,22 @@ public class IntervalFilterTest extends HtsjdkTest {
         //check that the total number of reads given in the Collection, is the expected number
         Assert.assertEquals(recordCollection.size(), expectedTotal);
     }
+
+    @Test(dataProvider = "testReadsData")
+    public void testReadsInAnyOrderWithIndex(final IntervalList list, final SAMFileHeader fileHeader, final Collection<SAMRecord> recordCollection,
+                                             final int expectedPassing, final int expectedTotal) {
+        final IntervalFilter intervalFilter = new IntervalFilter(ImmutableIntervalIndex.create(list.getIntervals()));
+        final List<SAMRecord> shuffled = new ArrayList<>(recordCollection);
+        Collections.shuffle(shuffled, new Random(42));
+
+        // intervals without bases cannot be overlapped in the index
+        final long expected = shuffled.stream()
+                .filter(r -> list.getIntervals().stream().anyMatch(i -> i.length() > 0 && i.getContig().equals(r.getContig()) &&
+                        i.getStart() <= r.getAlignmentEnd() && r.getAlignmentStart() <= i.getEnd()))
+                .count();
+        final FilteringSamIterator filteringSamIterator = new FilteringSamIterator(shuffled.iterator(), intervalFilter);
+        Assert.assertEquals(filteringSamIterator.stream()
+                .peek(s -> Assert.assertTrue(s.getReadName().contains("intersecting")))
+                .count(), expected);
+    }
 }
@@ -37,7 +37,12 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Tests for the various classes in the metrics package.  Constructs a MetricsFile,
@@ -197,6 +202,117 @@ public class MetricsFileTest extends HtsjdkTest {
         Assert.assertFalse(MetricsFile.areMetricsAndHistogramsEqual(file1, fileModifiedMet));
     }
 
+    /** Builds a metrics file with headers, many metrics and two histograms. */
+    private MetricsFile<TestMetric, Integer> makeLargeMetricsFile(final int numberOfMetrics) {
+        final MetricsFile<TestMetric, Integer> file = new MetricsFile<>();
+        final StringHeader header = new StringHeader();
+        header.setValue("A header");
+        file.addHeader(header);
+
+        for (int i = 0; i < numberOfMetrics; i++) {
+            final TestMetric metric = new TestMetric();
+            metric.STRING_PROP = "row" + i;
+            metric.INTEGER_PROP = i % 3 == 0 ? null : i;
+            metric.DOUBLE_PROP = i / 7.0;
+            metric.ENUM_PROP = TestEnum.values()[i % 3];
+            metric.INT_PRIMITIVE = -i;
+            metric.LONG_PRIMITIVE = (long) i << 33;
+            metric.FLOAT_PRIMITIVE = i / 3.0f;
+            metric.DOUBLE_PRIMITIVE = Math.sqrt(i);
+            metric.BOOLEAN_PRIMITIVE = i % 2 == 0;
+            metric.CHAR_PRIMITIVE = (char) ('a' + i % 26);
+            file.addMetric(metric);
+        }
+
+        final Histogram<Integer> first = new Histogram<>("bin", "first");
+        final Histogram<Integer> second = new Histogram<>("bin", "second");
+        for (int i = 0; i < 100; i++) {
+            first.increment(i, i * 2);
+            second.increment(i, 1.5);
+        }
+        file.addHistogram(first);
+        file.addHistogram(second);
+        return file;
+    }
+
+    private static String writeToString(final MetricsFile<TestMetric, Integer> file) {
+        final StringWriter writer = new StringWriter();
+        file.write(writer);
+        return writer.toString();
+    }
+
+    @Test
+    public void testStreamingWriterMatchesWrite() {
+        final MetricsFile<TestMetric, Integer> file = makeLargeMetricsFile(5000);
+        final String expected = writeToString(file);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (final ExecutorService e : new ExecutorService[]{null, executor}) {
+                for (final int batchSize : new int[]{1, 333, 10000}) {
+                    final StringWriter writer = new StringWriter();
+                    final MetricsFileWriter<TestMetric, Integer> metricsWriter = new MetricsFileWriter<>(writer, e, batchSize);
+                    file.getHeaders().forEach(metricsWriter::addHeader);
+                    metricsWriter.addAllMetrics(file.getMetrics());
+                    file.getAllHistograms().forEach(metricsWriter::addHistogram);
+                    metricsWriter.close();
+                    Assert.assertEquals(writer.toString(), expected, "executor " + e + ", batch size " + batchSize);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // no metrics and no histograms
+        final StringWriter writer = new StringWriter();
+        new MetricsFileWriter<TestMetric, Integer>(writer).close();
+        Assert.assertEquals(writer.toString(), writeToString(new MetricsFile<>()));
+    }
+
+    @Test
+    public void testStreamingWriterRejectsLateHeaders() {
+        final MetricsFileWriter<TestMetric, Integer> writer = new MetricsFileWriter<>(new StringWriter());
+        writer.addMetric(new TestMetric());
+        Assert.assertThrows(IllegalStateException.class, () -> writer.addHeader(new StringHeader()));
+        writer.close();
+    }
+
+    @Test
+    public void testCompressedRoundTrip() throws IOException {
+        final MetricsFile<TestMetric, Integer> file = makeLargeMetricsFile(2000);
+        for (final MetricsFileWriter.Compression compression : MetricsFileWriter.Compression.values()) {
+            final File f = File.createTempFile("test", ".metrics");
+            f.deleteOnExit();
+            try (final MetricsFileWriter<TestMetric, Integer> writer = new MetricsFileWriter<>(f, compression)) {
+                file.getHeaders().forEach(writer::addHeader);
+                writer.addAllMetrics(file.getMetrics());
+                file.getAllHistograms().forEach(writer::addHistogram);
+            }
+
+            try (final MetricsFileReader<TestMetric, Integer> reader = new MetricsFileReader<>(f)) {
+                Assert.assertEquals(reader.getHeaders(), file.getHeaders());
+                final List<TestMetric> metrics = new ArrayList<>();
+                while (reader.hasNext()) {
+                    metrics.add(reader.next());
+                }
+                Assert.assertEquals(metrics, file.getMetrics(), compression.name());
+                Assert.assertEquals(reader.getHistograms(), file.getAllHistograms(), compression.name());
+            }
+        }
+    }
+
+    @Test
+    public void testReaderHistogramsBeforeMetrics() {
+        final MetricsFile<TestMetric, Integer> file = makeLargeMetricsFile(10);
+        try (final MetricsFileReader<TestMetric, Integer> reader = new MetricsFileReader<>(new java.io.StringReader(writeToString(file)))) {
+            Assert.assertTrue(reader.hasNext());
+            reader.next();
+            Assert.assertEquals(reader.getHistograms(), file.getAllHistograms());
+            Assert.assertFalse(reader.hasNext());
+            Assert.assertEquals(reader.getColumnLabels().size(), 17);
+        }
+    }
+
     /** Helper method to persist metrics to file and read them back again. */
     private <METRIC extends MetricBase> MetricsFile<METRIC, Integer> writeThenReadBack(MetricsFile<METRIC,Integer> in) throws IOException {
         File f = File.createTempFile("test", ".metrics");
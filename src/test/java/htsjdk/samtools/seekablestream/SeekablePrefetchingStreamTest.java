@@ -0,0 +1,216 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.seekablestream;
+
+import htsjdk.HtsjdkTest;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SamInputResource;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SeekablePrefetchingStreamTest extends HtsjdkTest {
+    private static final File BAM_FILE = new File("src/test/resources/htsjdk/samtools/BAMFileIndexTest/index_test.bam");
+    private static final File BAM_INDEX_FILE = new File("src/test/resources/htsjdk/samtools/BAMFileIndexTest/index_test.bam.bai");
+
+    /** Counts the reads issued to the wrapped stream. */
+    private static class CountingStream extends ByteArraySeekableStream {
+        private int reads = 0;
+
+        CountingStream(final byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            reads++;
+            return super.read(b, off, len);
+        }
+    }
+
+    private static byte[] makeBytes(final int length) {
+        final byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    @DataProvider(name = "threads")
+    public Object[][] threads() {
+        return new Object[][]{{0}, {2}};
+    }
+
+    @Test(dataProvider = "threads")
+    public void testRandomReadsMatchWrappedStream(final int threads) throws IOException {
+        final ExecutorService executor = threads == 0 ? null : Executors.newFixedThreadPool(threads);
+        final byte[] expected = Files.readAllBytes(BAM_FILE.toPath());
+        try (final SeekablePrefetchingStream stream = new SeekablePrefetchingStream(new SeekableFileStream(BAM_FILE), 1024, 16 * 1024, 3, executor)) {
+            final Random random = new Random(1);
+            final long[] plan = new long[20];
+            for (int i = 0; i < plan.length; i += 2) {
+                plan[i] = random.nextInt(expected.length);
+                plan[i + 1] = Math.min(expected.length, plan[i] + random.nextInt(40_000));
+            }
+            stream.planByteRanges(plan);
+
+            for (int i = 0; i < 500; i++) {
+                final int start = random.nextInt(expected.length);
+                final int length = random.nextInt(70_000);
+                final byte[] buffer = new byte[length];
+                stream.seek(start);
+                final int n = stream.read(buffer, 0, length);
+                final int expectedLength = Math.min(length, expected.length - start);
+                Assert.assertEquals(n, expectedLength == 0 && length > 0 ? -1 : expectedLength);
+                for (int j = 0; j < expectedLength; j++) {
+                    Assert.assertEquals(buffer[j], expected[start + j], "at offset " + (start + j));
+                }
+                Assert.assertEquals(stream.position(), (long) start + Math.max(0, n));
+            }
+
+            stream.seek(expected.length - 1);
+            Assert.assertEquals(stream.read(), expected[expected.length - 1] & 0xff);
+            Assert.assertEquals(stream.read(), -1);
+            Assert.assertTrue(stream.eof());
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void testNearbyRangesAreCoalesced() throws IOException {
+        final byte[] bytes = makeBytes(100_000);
+        final CountingStream wrapped = new CountingStream(bytes);
+        final SeekablePrefetchingStream stream = new SeekablePrefetchingStream(wrapped, 100, 1_000_000, 4, null);
+        stream.planByteRanges(new long[]{5_000, 6_000, 1_000, 2_000, 2_050, 3_000, 3_100, 4_000});
+
+        final byte[] buffer = new byte[900];
+        for (final int start : new int[]{1_000, 2_050, 3_100, 1_000, 5_000}) {
+            stream.seek(start);
+            Assert.assertEquals(stream.read(buffer, 0, buffer.length), buffer.length);
+            Assert.assertEquals(buffer[0], bytes[start]);
+        }
+        // 1000-4000 is read at once, 5000-6000 is too far away
+        Assert.assertEquals(wrapped.reads, 2);
+    }
+
+    @Test
+    public void testLargeRangesAreSplit() throws IOException {
+        final byte[] bytes = makeBytes(100_000);
+        final CountingStream wrapped = new CountingStream(bytes);
+        final SeekablePrefetchingStream stream = new SeekablePrefetchingStream(wrapped, 0, 10_000, 2, null);
+        stream.planByteRanges(new long[]{0, 50_000});
+
+        final byte[] buffer = new byte[50_000];
+        Assert.assertEquals(stream.read(buffer, 0, buffer.length), buffer.length);
+        Assert.assertEquals(wrapped.reads, 5);
+        for (int i = 0; i < buffer.length; i++) {
+            Assert.assertEquals(buffer[i], bytes[i]);
+        }
+    }
+
+    @Test
+    public void testRangesAreCached() throws IOException {
+        final byte[] bytes = makeBytes(10 * SeekableBufferedStream.DEFAULT_BUFFER_SIZE);
+        final CountingStream wrapped = new CountingStream(bytes);
+        final SeekablePrefetchingStream stream = new SeekablePrefetchingStream(wrapped, 0, 1000, 2, null);
+
+        // unplanned reads fall back to buffered reads that are kept in the cache
+        for (int i = 0; i < 10; i++) {
+            stream.seek(i % 2 == 0 ? 10 : 3 * SeekableBufferedStream.DEFAULT_BUFFER_SIZE);
+            Assert.assertTrue(stream.read() >= 0);
+        }
+        Assert.assertEquals(wrapped.reads, 2);
+
+        // a third range evicts the least recently used one
+        stream.seek(6 * SeekableBufferedStream.DEFAULT_BUFFER_SIZE);
+        stream.read();
+        stream.seek(10);
+        stream.read();
+        Assert.assertEquals(wrapped.reads, 4);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        final SeekableStream wrapped = new ByteArraySeekableStream(new byte[10]);
+        Assert.assertThrows(IllegalArgumentException.class, () -> new SeekablePrefetchingStream(wrapped, 0, 10, 1, null));
+        Assert.assertThrows(IllegalArgumentException.class, () -> new SeekablePrefetchingStream(wrapped, 0, 0, 2, null));
+        Assert.assertThrows(IllegalArgumentException.class, () -> new SeekablePrefetchingStream(wrapped).planByteRanges(new long[]{1}));
+        Assert.assertThrows(IllegalArgumentException.class, () -> new SeekablePrefetchingStream(wrapped).planByteRanges(new long[]{5, 2}));
+    }
+
+    @Test(dataProvider = "threads")
+    public void testBamQuery(final int threads) throws IOException {
+        final ExecutorService executor = threads == 0 ? null : Executors.newFixedThreadPool(threads);
+        final CountingStream wrapped = new CountingStream(Files.readAllBytes(BAM_FILE.toPath()));
+        try (final SamReader expectedReader = SamReaderFactory.makeDefault().open(BAM_FILE);
+             final SamReader reader = SamReaderFactory.makeDefault().open(
+                     SamInputResource.of(new SeekablePrefetchingStream(wrapped, executor)).index(BAM_INDEX_FILE))) {
+            for (final String contig : new String[]{"chr1", "chr2", "chrM"}) {
+                final List<String> expected = new ArrayList<>();
+                try (final SAMRecordIterator it = expectedReader.queryOverlapping(contig, 1, 100_000_000)) {
+                    it.forEachRemaining(r -> expected.add(r.getSAMString()));
+                }
+                final List<String> actual = new ArrayList<>();
+                try (final SAMRecordIterator it = reader.queryOverlapping(contig, 1, 100_000_000)) {
+                    it.forEachRemaining(r -> actual.add(r.getSAMString()));
+                }
+                Assert.assertEquals(actual, expected);
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        Assert.assertTrue(wrapped.reads > 0);
+    }
+
+    @Test
+    public void testPlanChunks() throws IOException {
+        final byte[] bytes = makeBytes(200_000);
+        final CountingStream wrapped = new CountingStream(bytes);
+        final SeekablePrefetchingStream stream = new SeekablePrefetchingStream(wrapped, 0, 1_000_000, 2, null);
+        stream.plan(new long[]{
+                BlockCompressedFilePointerUtil.makeFilePointer(1_000, 10),
+                BlockCompressedFilePointerUtil.makeFilePointer(2_000, 5)});
+        // the whole of the last block of the chunk is covered by a single read
+        stream.seek(1_000);
+        final byte[] buffer = new byte[1_000 + 60_000];
+        Assert.assertEquals(stream.read(buffer, 0, buffer.length), buffer.length);
+        Assert.assertEquals(wrapped.reads, 1);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.HtsjdkTest;
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class BinaryIntervalListTest extends HtsjdkTest {
+    private static final File TEST_INTERVAL_LIST = new File("src/test/resources/htsjdk/samtools/intervallist/IntervalListFromVCFTestComp.interval_list");
+
+    private static Path tempBinary() throws IOException {
+        final File file = File.createTempFile("BinaryIntervalListTest.", BinaryIntervalList.FILE_EXTENSION);
+        file.deleteOnExit();
+        return file.toPath();
+    }
+
+    private static void assertSameIntervals(final List<Interval> actual, final List<Interval> expected) {
+        Assert.assertEquals(actual, expected);
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(actual.get(i).getName(), expected.get(i).getName());
+            Assert.assertEquals(actual.get(i).isNegativeStrand(), expected.get(i).isNegativeStrand());
+        }
+    }
+
+    @Test
+    public void testTextRoundTrip() throws IOException {
+        final Path binary = tempBinary();
+        final long checksum = BinaryIntervalList.convertFromText(TEST_INTERVAL_LIST.toPath(), binary);
+        Assert.assertTrue(BinaryIntervalList.isBinaryIntervalList(binary));
+        Assert.assertFalse(BinaryIntervalList.isBinaryIntervalList(TEST_INTERVAL_LIST.toPath()));
+
+        final BinaryIntervalList mapped = BinaryIntervalList.open(binary);
+        Assert.assertEquals(mapped.getChecksum(), checksum);
+        mapped.verifyChecksum();
+
+        final IntervalList expected = IntervalList.fromFile(TEST_INTERVAL_LIST).sorted();
+        Assert.assertEquals(mapped.size(), expected.size());
+        assertSameIntervals(mapped.toIntervalList().getIntervals(), expected.getIntervals());
+        assertSameIntervals(IntervalList.fromPath(binary).getIntervals(), expected.getIntervals());
+        Assert.assertEquals(mapped.getHeader().getSequenceDictionary(), expected.getHeader().getSequenceDictionary());
+
+        final File text = File.createTempFile("BinaryIntervalListTest.", IntervalList.INTERVAL_LIST_FILE_EXTENSION);
+        text.deleteOnExit();
+        BinaryIntervalList.convertToText(binary, text.toPath());
+        assertSameIntervals(IntervalList.fromFile(text).getIntervals(), expected.getIntervals());
+    }
+
+    @Test
+    public void testNamesAndStrands() throws IOException {
+        final SAMSequenceDictionary dictionary = new SAMSequenceDictionary(Arrays.asList(
+                new SAMSequenceRecord("1", 1000), new SAMSequenceRecord("2", 1000), new SAMSequenceRecord("3", 1000)));
+        final IntervalList list = new IntervalList(dictionary);
+        list.add(new Interval("3", 10, 20, true, "été"));
+        list.add(new Interval("1", 5, 5, false, null));
+        list.add(new Interval("1", 1, 100, true, ""));
+        final Path binary = tempBinary();
+        BinaryIntervalList.write(list, binary);
+
+        final BinaryIntervalList mapped = BinaryIntervalList.open(binary);
+        assertSameIntervals(mapped.toIntervalList().getIntervals(), list.sorted().getIntervals());
+        Assert.assertEquals(mapped.getContigIndex(0), 0);
+        Assert.assertEquals(mapped.getContigIndex(2), 2);
+        Assert.assertEquals(mapped.getOverlaps(new Interval("2", 1, 1000)).size(), 0);
+    }
+
+    @Test
+    public void testOverlapsMatchBruteForce() throws IOException {
+        final Random random = new Random(7);
+        final SAMSequenceDictionary dictionary = new SAMSequenceDictionary(Arrays.asList(
+                new SAMSequenceRecord("1", 100_000), new SAMSequenceRecord("2", 100_000), new SAMSequenceRecord("3", 100_000)));
+        final IntervalList list = new IntervalList(new SAMFileHeader(dictionary));
+        for (int i = 0; i < 2000; i++) {
+            final int start = 1 + random.nextInt(90_000);
+            final int length = random.nextInt(20) == 0 ? random.nextInt(5_000) : random.nextInt(100);
+            list.add(new Interval(random.nextBoolean() ? "1" : "3", start, start + length, false, "i" + i));
+        }
+        final Path binary = tempBinary();
+        BinaryIntervalList.write(list, binary);
+        final BinaryIntervalList mapped = BinaryIntervalList.open(binary);
+
+        for (int q = 0; q < 500; q++) {
+            final String contig = Integer.toString(1 + random.nextInt(3));
+            final int start = 1 + random.nextInt(100_000);
+            final Interval query = new Interval(contig, start, start + random.nextInt(1_000));
+            final List<Interval> expected = list.sorted().getIntervals().stream()
+                    .filter(query::overlaps)
+                    .collect(Collectors.toList());
+            Assert.assertEquals(mapped.getOverlaps(query), expected, query.toString());
+            Assert.assertEquals(mapped.overlapsAny(query), !expected.isEmpty());
+        }
+    }
+
+    @Test(expectedExceptions = SAMException.class)
+    public void testCorruptionDetected() throws IOException {
+        final Path binary = tempBinary();
+        BinaryIntervalList.convertFromText(TEST_INTERVAL_LIST.toPath(), binary);
+        try (final RandomAccessFile file = new RandomAccessFile(binary.toFile(), "rw")) {
+            file.seek(file.length() - 20);
+            final int b = file.read();
+            file.seek(file.length() - 20);
+            file.write(b ^ 0xff);
+        }
+        BinaryIntervalList.open(binary).verifyChecksum();
+    }
+
+    @Test(expectedExceptions = SAMException.class)
+    public void testNotBinary() {
+        BinaryIntervalList.open(TEST_INTERVAL_LIST.toPath());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.samtools.SAMRecordSetBuilder;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class ColumnarLocusIteratorTest extends AbstractLocusIteratorTestTemplate {
+
+    private static ColumnarLocusIterator createIterator(final SAMRecordSetBuilder builder, final boolean emitUncoveredLoci,
+                                                        final boolean countsOnly) {
+        final ColumnarLocusIterator iterator = new ColumnarLocusIterator(builder.getSamReader());
+        iterator.setEmitUncoveredLoci(emitUncoveredLoci);
+        iterator.setCountsOnly(countsOnly);
+        return iterator;
+    }
+
+    /** Checks every pileup of the columnar iterator against the LocusInfo at the same locus of a SamLocusIterator. */
+    private static void assertMatchesSamLocusIterator(final SAMRecordSetBuilder builder, final boolean emitUncoveredLoci,
+                                                      final int qualityCutoff) {
+        for (final boolean countsOnly : new boolean[]{false, true}) {
+            final SamLocusIterator expected = new SamLocusIterator(builder.getSamReader());
+            expected.setEmitUncoveredLoci(emitUncoveredLoci);
+            expected.setQualityScoreCutoff(qualityCutoff);
+            final ColumnarLocusIterator actual = createIterator(builder, emitUncoveredLoci, countsOnly);
+            actual.setQualityScoreCutoff(qualityCutoff);
+
+            final Iterator<SamLocusIterator.LocusInfo> expectedIterator = expected.iterator();
+            for (final ColumnarLocusIterator.LocusPileup pileup : actual) {
+                Assert.assertTrue(expectedIterator.hasNext());
+                final SamLocusIterator.LocusInfo info = expectedIterator.next();
+                Assert.assertEquals(pileup.getSequenceIndex(), info.getSequenceIndex());
+                Assert.assertEquals(pileup.getPosition(), info.getPosition());
+                Assert.assertEquals(pileup.size(), info.size(), info.toString());
+
+                final int[] counts = new int[256];
+                for (int i = 0; i < info.size(); i++) {
+                    final SamLocusIterator.RecordAndOffset recordAndOffset = info.getRecordAndOffsets().get(i);
+                    counts[recordAndOffset.getReadBase() + (recordAndOffset.getRecord().getReadNegativeStrandFlag() ? 128 : 0)]++;
+                    if (!countsOnly) {
+                        Assert.assertEquals(pileup.getRecord(i).getReadName(), recordAndOffset.getReadName());
+                        Assert.assertEquals(pileup.getOffset(i), recordAndOffset.getOffset());
+                        Assert.assertEquals(pileup.getBase(i), recordAndOffset.getReadBase());
+                        Assert.assertEquals(pileup.getBaseQuality(i), recordAndOffset.getBaseQuality());
+                        Assert.assertEquals(pileup.isNegativeStrand(i), recordAndOffset.getRecord().getReadNegativeStrandFlag());
+                    }
+                }
+                for (final byte base : new byte[]{'A', 'C', 'G', 'T'}) {
+                    Assert.assertEquals(pileup.getBaseCount(base, false), counts[base]);
+                    Assert.assertEquals(pileup.getBaseCount(base, true), counts[base + 128]);
+                }
+            }
+            Assert.assertFalse(expectedIterator.hasNext());
+        }
+    }
+
+    private static SAMRecordSetBuilder randomReads(final long seed) {
+        final Random random = new Random(seed);
+        final SAMRecordSetBuilder builder = getRecordBuilder();
+        final String[] cigars = {"36M", "10M5N26M", "20M3D16M", "5S31M", "18M2I16M"};
+        for (int i = 0; i < 200; i++) {
+            builder.addFrag("record" + i, 0, 100 + random.nextInt(300), random.nextBoolean(), false,
+                    cigars[random.nextInt(cigars.length)], null, 10 + random.nextInt(30));
+        }
+        return builder;
+    }
+
+    @Override
+    @Test
+    public void testBasicIterator() {
+        final SAMRecordSetBuilder builder = getRecordBuilder();
+        final int startPosition = 165;
+        for (int i = 0; i < coverage; i++) {
+            builder.addFrag("record" + i, 0, startPosition, true, false, "36M", null, 10);
+        }
+        int pos = startPosition;
+        for (final ColumnarLocusIterator.LocusPileup pileup : createIterator(builder, false, false)) {
+            Assert.assertEquals(pileup.getPosition(), pos++);
+            Assert.assertEquals(pileup.size(), coverage);
+            Assert.assertEquals(pileup.getQualityCount(10), coverage);
+            for (int i = 0; i < coverage; i++) {
+                Assert.assertEquals(pileup.getReadIndex(i), i);
+                Assert.assertTrue(pileup.isNegativeStrand(i));
+            }
+        }
+        Assert.assertEquals(pos, startPosition + readLength);
+    }
+
+    @Override
+    @Test
+    public void testEmitUncoveredLoci() {
+        assertMatchesSamLocusIterator(randomReads(1), true, Integer.MIN_VALUE);
+    }
+
+    @Override
+    @Test
+    public void testSimpleGappedAlignment() {
+        final SAMRecordSetBuilder builder = getRecordBuilder();
+        for (int i = 0; i < coverage; i++) {
+            builder.addFrag("record" + i, 0, 165, true, false, "3M3N30M", null, 10);
+        }
+        assertMatchesSamLocusIterator(builder, false, Integer.MIN_VALUE);
+    }
+
+    @Override
+    @Test
+    public void testOverlappingGappedAlignmentsWithoutIndels() {
+        assertMatchesSamLocusIterator(randomReads(2), false, Integer.MIN_VALUE);
+    }
+
+    @Test
+    public void testQualityFilter() {
+        assertMatchesSamLocusIterator(randomReads(3), false, 25);
+    }
+
+    @Test
+    public void testMaxReadsToAccumulate() {
+        final SAMRecordSetBuilder builder = getRecordBuilder();
+        for (int i = 0; i < 10; i++) {
+            builder.addFrag("record" + i, 0, 165, true, false, "36M", null, 10);
+        }
+        final ColumnarLocusIterator iterator = createIterator(builder, false, false);
+        iterator.setMaxReadsToAccumulatePerLocus(4);
+        for (final ColumnarLocusIterator.LocusPileup pileup : iterator) {
+            Assert.assertEquals(pileup.size(), 4);
+        }
+    }
+
+    @Test
+    public void testPileupsAreRecycled() {
+        final ColumnarLocusIterator iterator = createIterator(randomReads(4), false, false);
+        final List<ColumnarLocusIterator.LocusPileup> pileups = new ArrayList<>();
+        while (iterator.hasNext()) {
+            final ColumnarLocusIterator.LocusPileup pileup = iterator.next();
+            pileup.size();
+            pileups.add(pileup);
+        }
+        Assert.assertTrue(pileups.size() > 1);
+        Assert.assertThrows(IllegalStateException.class, () -> pileups.get(0).size());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testCountsOnlyHasNoEntries() {
+        final ColumnarLocusIterator iterator = createIterator(randomReads(5), false, true);
+        Assert.assertTrue(iterator.hasNext());
+        iterator.next().getBase(0);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.HtsjdkTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class ImmutableIntervalIndexTest extends HtsjdkTest {
+
+    @DataProvider(name = "sizes")
+    public Object[][] sizes() {
+        return new Object[][]{{0}, {1}, {2}, {15}, {16}, {17}, {31}, {32}, {33}, {100}, {1000}, {4097}};
+    }
+
+    @Test(dataProvider = "sizes")
+    public void testQueriesMatchBruteForce(final int size) {
+        final Random random = new Random(size);
+        final List<Interval> intervals = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final int start = 1 + random.nextInt(10_000);
+            // mostly short intervals with some long ones, as in real target sets
+            final int length = random.nextInt(10) == 0 ? random.nextInt(5_000) : random.nextInt(200);
+            intervals.add(new Interval(random.nextBoolean() ? "1" : "2", start, start + length, false, "i" + i));
+        }
+        final ImmutableIntervalIndex<Interval> index = ImmutableIntervalIndex.create(intervals);
+        Assert.assertEquals(index.size(), size);
+
+        final Comparator<Interval> byStartThenAddition = Comparator.comparingInt(Interval::getStart)
+                .thenComparingInt(intervals::indexOf);
+        for (int q = 0; q < 500; q++) {
+            final String contig = random.nextInt(10) == 0 ? "3" : random.nextBoolean() ? "1" : "2";
+            final int start = 1 + random.nextInt(16_000);
+            final int end = start + random.nextInt(random.nextBoolean() ? 10 : 1_000);
+            final Interval query = new Interval(contig, start, end);
+
+            final List<Interval> expected = intervals.stream()
+                    .filter(i -> i.overlaps(query))
+                    .sorted(byStartThenAddition)
+                    .collect(Collectors.toList());
+            Assert.assertEquals(index.getOverlaps(query), expected, query.toString());
+            Assert.assertEquals(index.countOverlaps(contig, start, end), expected.size());
+            Assert.assertEquals(index.overlapsAny(query), !expected.isEmpty());
+        }
+    }
+
+    @Test
+    public void testIntervalsWithoutBasesAreDropped() {
+        final ImmutableIntervalIndex<String> index = new ImmutableIntervalIndex.Builder<String>()
+                .add("1", 10, 20, "a")
+                .add("1", 30, 29, "empty")
+                .add("2", 5, 5, "b")
+                .build();
+        Assert.assertEquals(index.size(), 2);
+        Assert.assertFalse(index.overlapsAny("1", 25, 35));
+        Assert.assertEquals(index.getContigs(), new LinkedHashSet<>(Arrays.asList("1", "2")));
+        Assert.assertFalse(index.overlapsAny("1", 15, 14));
+        Assert.assertTrue(index.overlapsAny("1", 20, 20));
+        Assert.assertEquals(index.countOverlaps("2", 1, 100), 1);
+        Assert.assertEquals(index.countOverlaps("3", 1, 100), 0);
+    }
+
+    @Test
+    public void testForEachOverlapVisitsInOrderOfStart() {
+        final ImmutableIntervalIndex.Builder<Integer> builder = new ImmutableIntervalIndex.Builder<>();
+        for (int i = 99; i >= 0; i--) {
+            builder.add("1", i * 10 + 1, i * 10 + 15, i);
+        }
+        final ImmutableIntervalIndex<Integer> index = builder.build();
+        final List<Integer> visited = new ArrayList<>();
+        index.forEachOverlap("1", 1, 1_000, visited::add);
+        final List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(i);
+        }
+        Assert.assertEquals(visited, expected);
+        Assert.assertEquals(index.getOverlaps(new Interval("2", 1, 1_000)), Collections.emptyList());
+    }
+}
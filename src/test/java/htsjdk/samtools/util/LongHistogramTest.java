@@ -0,0 +1,154 @@
+package htsjdk.samtools.util;
+
+import htsjdk.HtsjdkTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class LongHistogramTest extends HtsjdkTest {
+
+    @DataProvider(name = "backings")
+    public Object[][] backings() {
+        return new Object[][] {
+                {new LongHistogram()},
+                {new LongHistogram(0, 100)},
+                {new LongHistogram(-1000, 1000)},
+                {new LongHistogram(Long.MAX_VALUE - 10, Long.MAX_VALUE)}
+        };
+    }
+
+    @Test(dataProvider = "backings")
+    public void testMatchesHistogram(final LongHistogram histogram) {
+        final Histogram<Long> expected = new Histogram<>("BIN", "VALUE");
+        final Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            final long key = random.nextInt(10) == 0 ? random.nextLong() : random.nextInt(400) - 200;
+            histogram.increment(key);
+            expected.increment(key);
+        }
+        histogram.increment(Long.MIN_VALUE, 3);
+        expected.increment(Long.MIN_VALUE, 3);
+        histogram.increment(Long.MAX_VALUE);
+        expected.increment(Long.MAX_VALUE);
+
+        final Histogram<Long> converted = histogram.toHistogram("BIN", "VALUE");
+        Assert.assertEquals(converted, expected);
+        Assert.assertEquals(histogram.size(), expected.size());
+        Assert.assertEquals((double) histogram.getCount(), expected.getCount());
+        for (final long key : expected.keySet()) {
+            Assert.assertEquals((double) histogram.get(key), expected.get(key).getValue());
+        }
+        Assert.assertEquals(histogram.get(12345678901L), 0L);
+
+        final List<Long> keys = new ArrayList<>();
+        histogram.forEach((key, count) -> keys.add(key));
+        Assert.assertEquals(keys, new ArrayList<>(expected.keySet()));
+    }
+
+    @Test
+    public void testEmptyBinsAreNotReported() {
+        final LongHistogram histogram = new LongHistogram(0, 10);
+        histogram.increment(5, 0);
+        histogram.increment(50, 0);
+        Assert.assertTrue(histogram.isEmpty());
+        histogram.increment(5);
+        histogram.increment(50, 2);
+        histogram.increment(50, -2);
+        Assert.assertEquals(histogram.size(), 1);
+        Assert.assertEquals(histogram.toString(), "{5=1}");
+        histogram.clear();
+        Assert.assertTrue(histogram.isEmpty());
+        Assert.assertEquals(histogram.getCount(), 0L);
+    }
+
+    @Test
+    public void testMerge() {
+        final LongHistogram a = new LongHistogram(0, 10);
+        final LongHistogram b = new LongHistogram(0, 10);
+        final LongHistogram c = new LongHistogram();
+        a.increment(1);
+        a.increment(20);
+        b.increment(1, 2);
+        b.increment(20);
+        b.increment(-3);
+        c.increment(1);
+        c.increment(5);
+        a.merge(b);
+        a.merge(c);
+
+        final LongHistogram expected = new LongHistogram();
+        expected.increment(1, 4);
+        expected.increment(5);
+        expected.increment(20, 2);
+        expected.increment(-3);
+        Assert.assertEquals(a, expected);
+        Assert.assertEquals(a.hashCode(), expected.hashCode());
+    }
+
+    @Test
+    public void testToIntegerHistogram() {
+        final LongHistogram histogram = new LongHistogram(0, 10);
+        histogram.increment(3, 7);
+        histogram.increment(-40);
+        final Histogram<Integer> converted = histogram.toIntegerHistogram("insert_size", "count");
+        Assert.assertEquals(converted.getBinLabel(), "insert_size");
+        Assert.assertEquals(converted.getValueLabel(), "count");
+        Assert.assertEquals(converted.get(3).getValue(), 7d);
+        Assert.assertEquals(converted.get(-40).getValue(), 1d);
+        Assert.assertEquals(converted.size(), 2);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testToIntegerHistogramOutOfRange() {
+        final LongHistogram histogram = new LongHistogram();
+        histogram.increment(1L << 40);
+        histogram.toIntegerHistogram("BIN", "VALUE");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvertedDenseRange() {
+        new LongHistogram(10, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testOversizedDenseRange() {
+        new LongHistogram(0, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testConcurrentHistogram() throws Exception {
+        final ConcurrentLongHistogram histogram = new ConcurrentLongHistogram(0, 500);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int task = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100000; i++) {
+                        histogram.increment(i % 1000);
+                    }
+                    histogram.getLocalShard().increment(-task);
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        final LongHistogram combined = histogram.combine();
+        Assert.assertEquals(combined.getCount(), 8 * 100000L + 8);
+        Assert.assertEquals(combined.get(0), 8 * 100L + 1);
+        Assert.assertEquals(combined.get(999), 8 * 100L);
+        Assert.assertEquals(combined.get(-7), 1L);
+        Assert.assertEquals(histogram.toIntegerHistogram("BIN", "VALUE").size(), 1007);
+    }
+}
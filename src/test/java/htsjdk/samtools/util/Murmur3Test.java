@@ -0,0 +1,69 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import htsjdk.HtsjdkTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class Murmur3Test extends HtsjdkTest {
+
+    @DataProvider
+    public Object[][] inputs() {
+        return new Object[][]{
+                {"", 0},
+                {"a", 0},
+                {"read", 42},
+                {"HWI-ST1234:8:1101:1234:5678", 1},
+                {"1234567", 7},
+                {"12345678", 8},
+                {"123456789", 99},
+                {"abcdefghijklmnopq", 12345},
+                {"é中￿", 3}
+        };
+    }
+
+    // seeds are non-negative since Guava sign-extends the seed of the 128-bit hash, whereas the reference zero-extends it
+    @Test(dataProvider = "inputs")
+    public void testHash128MatchesGuava(final String input, final int seed) {
+        final HashCode expected = Hashing.murmur3_128(seed).hashUnencodedChars(input);
+        final long[] hash = new Murmur3(seed).hash128UnencodedChars(input);
+
+        final ByteBuffer expectedBytes = ByteBuffer.wrap(expected.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        Assert.assertEquals(hash[0], expectedBytes.getLong());
+        Assert.assertEquals(hash[1], expectedBytes.getLong());
+        Assert.assertEquals(new Murmur3(seed).hash64UnencodedChars(input), expected.asLong());
+    }
+
+    @Test(dataProvider = "inputs")
+    public void testHash32MatchesGuava(final String input, final int seed) {
+        Assert.assertEquals(new Murmur3(seed).hashUnencodedChars(input), Hashing.murmur3_32(seed).hashUnencodedChars(input).asInt());
+    }
+}
@@ -6,6 +6,7 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class OverlapDetectorTest extends HtsjdkTest {
 
@@ -238,4 +239,28 @@ public class OverlapDetectorTest extends HtsjdkTest {
         Assert.assertEquals(overlaps.size(), 1);
         Assert.assertEquals(overlaps, Collections.singleton(new Interval("1",10,100)));
     }
+
+    @Test
+    public void testRepeatedQueriesAndAdditionAfterQueries() throws Exception {
+        final List<Locatable> input = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            input.add(new Interval("1", 1 + i * 20, 30 + i * 20));
+        }
+        final OverlapDetector<Locatable> detector = OverlapDetector.create(input);
+
+        // enough queries that the detector switches to its flat-array index
+        for (int round = 0; round < 2; round++) {
+            for (int start = 1; start < 1_100; start += 7) {
+                final Interval query = new Interval("1", start, start + 10);
+                final Set<Locatable> expected = input.stream().filter(query::overlaps).collect(Collectors.toSet());
+                Assert.assertEquals(detector.getOverlaps(query), expected);
+                Assert.assertEquals(detector.overlapsAny(query), !expected.isEmpty());
+            }
+            // intervals added after the index was built must be found
+            final Interval added = new Interval("1", 2_000, 2_100);
+            input.add(added);
+            detector.addLhs(added, added);
+            Assert.assertEquals(detector.getOverlaps(new Interval("1", 2_050, 2_050)), Collections.singleton(added));
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.HtsjdkTest;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class PackedIntervalsTest extends HtsjdkTest {
+    private static final SAMSequenceDictionary DICTIONARY = new SAMSequenceDictionary(Arrays.asList(
+            new SAMSequenceRecord("1", 20_000),
+            new SAMSequenceRecord("2", 5_000),
+            new SAMSequenceRecord("3", 1_000)));
+
+    private static IntervalList randomList(final Random random, final int size) {
+        final IntervalList list = new IntervalList(new SAMFileHeader(DICTIONARY));
+        for (int i = 0; i < size; i++) {
+            final String contig = random.nextInt(5) == 0 ? "2" : "1";
+            final int length = DICTIONARY.getSequence(contig).getSequenceLength();
+            final int start = 1 + random.nextInt(length);
+            final int end = Math.min(length, start + random.nextInt(random.nextBoolean() ? 20 : 500));
+            list.add(new Interval(contig, start, end, random.nextBoolean(), "i" + i));
+        }
+        return list;
+    }
+
+    private static List<Interval> intervals(final Iterable<Interval> intervals) {
+        final List<Interval> list = new ArrayList<>();
+        intervals.forEach(list::add);
+        return list;
+    }
+
+    @DataProvider(name = "sizes")
+    public Object[][] sizes() {
+        return new Object[][]{{0, 0}, {0, 10}, {1, 1}, {10, 3}, {100, 100}, {1000, 300}};
+    }
+
+    @Test(dataProvider = "sizes")
+    public void testOperationsMatchIntervalList(final int size1, final int size2) {
+        final Random random = new Random(size1 * 31 + size2);
+        final IntervalList list1 = randomList(random, size1);
+        final IntervalList list2 = randomList(random, size2);
+        final PackedIntervals packed1 = PackedIntervals.of(list1);
+        final PackedIntervals packed2 = PackedIntervals.of(list2);
+
+        Assert.assertEquals(intervals(packed1), list1.uniqued().getIntervals());
+        Assert.assertEquals(packed1.size(), list1.uniqued().size());
+        Assert.assertEquals(packed1.getBaseCount(), list1.uniqued().getBaseCount());
+        Assert.assertEquals(intervals(packed1.union(packed2)), IntervalList.union(list1, list2).getIntervals());
+        Assert.assertEquals(intervals(packed1.intersect(packed2)), IntervalList.intersection(list1, list2).getIntervals());
+        Assert.assertEquals(intervals(packed1.subtract(packed2)), IntervalList.subtract(list1, list2).getIntervals());
+        Assert.assertEquals(intervals(packed1.difference(packed2)),
+                IntervalList.difference(Collections.singletonList(list1), Collections.singletonList(list2)).getIntervals());
+        Assert.assertEquals(intervals(packed1.invert()), intervals(IntervalList.invert(list1)));
+        Assert.assertEquals(intervals(packed1.invert().invert()), intervals(packed1));
+    }
+
+    @Test
+    public void testParallelMatchesSerial() {
+        final Random random = new Random(42);
+        final IntervalList list1 = randomList(random, 2000);
+        final IntervalList list2 = randomList(random, 2000);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final PackedIntervals packed1 = PackedIntervals.of(list1, executor);
+            final PackedIntervals packed2 = PackedIntervals.of(list2, executor);
+            Assert.assertEquals(intervals(packed1), intervals(PackedIntervals.of(list1)));
+            Assert.assertEquals(intervals(packed1.union(packed2, executor)), intervals(packed1.union(packed2)));
+            Assert.assertEquals(intervals(packed1.intersect(packed2, executor)), intervals(packed1.intersect(packed2)));
+            Assert.assertEquals(intervals(packed1.subtract(packed2, executor)), intervals(packed1.subtract(packed2)));
+            Assert.assertEquals(intervals(packed1.difference(packed2, executor)), intervals(packed1.difference(packed2)));
+            Assert.assertEquals(intervals(packed1.invert(executor)), intervals(packed1.invert()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAbuttingMergedAndEmptyDropped() {
+        final IntervalList list = new IntervalList(new SAMFileHeader(DICTIONARY));
+        list.add(new Interval("1", 10, 20));
+        list.add(new Interval("1", 21, 30));
+        list.add(new Interval("1", 100, 99));
+        list.add(new Interval("3", 1, 1_000));
+        final PackedIntervals packed = PackedIntervals.of(list);
+
+        Assert.assertEquals(intervals(packed), Arrays.asList(new Interval("1", 10, 30), new Interval("3", 1, 1_000)));
+        Assert.assertEquals(packed.getBaseCount(), 1_021);
+        Assert.assertEquals(intervals(packed.invert()), Arrays.asList(
+                new Interval("1", 1, 9), new Interval("1", 31, 20_000), new Interval("2", 1, 5_000)));
+
+        final IntervalList asList = packed.toIntervalList();
+        Assert.assertEquals(asList.getHeader().getSortOrder(), SAMFileHeader.SortOrder.coordinate);
+        Assert.assertEquals(asList.getIntervals(), intervals(packed));
+    }
+
+    @Test(expectedExceptions = SequenceUtil.SequenceListsDifferException.class)
+    public void testDifferentDictionaries() {
+        final SAMSequenceDictionary other = new SAMSequenceDictionary(Collections.singletonList(new SAMSequenceRecord("1", 20_000)));
+        PackedIntervals.of(new IntervalList(DICTIONARY)).union(PackedIntervals.of(new IntervalList(other)));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.HtsjdkTest;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordSetBuilder;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+public class ParallelLocusTraversalTest extends HtsjdkTest {
+    private File bam;
+    private IntervalList intervals;
+
+    @BeforeClass
+    public void setup() throws IOException {
+        final Random random = new Random(11);
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate, true, 5_000);
+        final String[] cigars = {"36M", "10M40N26M", "20M3D16M", "5S31M"};
+        for (int i = 0; i < 600; i++) {
+            builder.addFrag("read" + i, random.nextInt(3), 1 + random.nextInt(4_900), random.nextBoolean(), false,
+                    cigars[random.nextInt(cigars.length)], null, 30);
+        }
+
+        bam = File.createTempFile("ParallelLocusTraversalTest.", ".bam");
+        bam.deleteOnExit();
+        new File(bam.getPath().replaceAll("\\.bam$", ".bai")).deleteOnExit();
+        try (final SAMFileWriter writer = new SAMFileWriterFactory().setCreateIndex(true).makeBAMWriter(builder.getHeader(), true, bam)) {
+            for (final SAMRecord record : builder.getRecords()) {
+                writer.addAlignment(record);
+            }
+        }
+
+        intervals = new IntervalList(builder.getHeader());
+        for (int i = 0; i < 40; i++) {
+            final int start = 1 + random.nextInt(4_800);
+            intervals.add(new Interval("chr" + (1 + random.nextInt(3)), start, start + random.nextInt(200)));
+        }
+    }
+
+    private Supplier<SamReader> readers() {
+        return () -> SamReaderFactory.makeDefault().open(bam);
+    }
+
+    private static List<String> addLocus(final List<String> loci, final AbstractLocusInfo<?> locus) {
+        loci.add(locus.toString() + "=" + locus.size());
+        return loci;
+    }
+
+    private static List<String> concatenate(final List<String> a, final List<String> b) {
+        a.addAll(b);
+        return a;
+    }
+
+    private List<String> serialLoci(final IntervalList intervals) throws IOException {
+        final List<String> loci = new ArrayList<>();
+        try (final SamReader reader = readers().get()) {
+            final SamLocusIterator iterator = new SamLocusIterator(reader, intervals, true);
+            for (final SamLocusIterator.LocusInfo locus : iterator) {
+                addLocus(loci, locus);
+            }
+            iterator.close();
+        }
+        return loci;
+    }
+
+    @DataProvider(name = "shardSizes")
+    public Object[][] shardSizes() {
+        return new Object[][]{{1}, {37}, {500}, {ParallelLocusTraversal.DEFAULT_SHARD_SIZE}};
+    }
+
+    @Test(dataProvider = "shardSizes")
+    public void testMatchesSerialTraversal(final int shardSize) throws IOException {
+        final List<String> expected = serialLoci(intervals);
+        final ParallelLocusTraversal<SamLocusIterator.LocusInfo> traversal = new ParallelLocusTraversal<>(readers(), intervals,
+                (reader, shard) -> new SamLocusIterator(reader, shard, true), shardSize);
+
+        Assert.assertEquals(traversal.reduce(ArrayList::new, ParallelLocusTraversalTest::addLocus,
+                ParallelLocusTraversalTest::concatenate, null), expected);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Assert.assertEquals(traversal.reduce(ArrayList::new, ParallelLocusTraversalTest::addLocus,
+                    ParallelLocusTraversalTest::concatenate, executor), expected);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWholeGenomeWithColumnarIterator() throws IOException {
+        final IntervalList wholeGenome = new IntervalList(intervals.getHeader());
+        wholeGenome.add(new Interval("chr1", 1, 5_000));
+        wholeGenome.add(new Interval("chr2", 1, 5_000));
+        wholeGenome.add(new Interval("chr3", 1, 5_000));
+        final long expectedDepth = serialLoci(wholeGenome).stream().mapToLong(s -> Long.parseLong(s.substring(s.indexOf('=') + 1))).sum();
+
+        final ParallelLocusTraversal<ColumnarLocusIterator.LocusPileup> traversal = new ParallelLocusTraversal<>(readers(), null,
+                (reader, shard) -> {
+                    final ColumnarLocusIterator iterator = new ColumnarLocusIterator(reader, shard, true);
+                    iterator.setCountsOnly(true);
+                    return iterator;
+                }, 1_000);
+        // every contig of the dictionary is 5,000 bases long
+        Assert.assertEquals(traversal.getShards().size(), 5 * intervals.getHeader().getSequenceDictionary().size());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Assert.assertEquals(traversal.reduce(() -> 0L, (sum, locus) -> sum + locus.size(), Long::sum, executor).longValue(),
+                    expectedDepth);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testShardsPartitionLoci() {
+        final List<IntervalList> shards = ParallelLocusTraversal.makeShards(intervals, 100);
+        final IntervalList uniqued = intervals.uniqued();
+        Assert.assertEquals(IntervalList.concatenate(shards).getUniqueBaseCount(), uniqued.getBaseCount());
+        Assert.assertEquals(IntervalList.concatenate(shards).getBaseCount(), uniqued.getBaseCount());
+        Assert.assertEquals(IntervalList.union(shards).getIntervals(), uniqued.getIntervals());
+        for (int i = 0; i < shards.size(); i++) {
+            if (i < shards.size() - 1) Assert.assertEquals(shards.get(i).getBaseCount(), 100);
+            else Assert.assertTrue(shards.get(i).getBaseCount() <= 100);
+        }
+    }
+}
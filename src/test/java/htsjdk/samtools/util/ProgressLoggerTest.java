@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.HtsjdkTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ProgressLoggerTest extends HtsjdkTest {
+
+    private static class RecordingProgressLogger extends AbstractProgressLogger {
+        private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+        RecordingProgressLogger(final int n) {
+            super("records", "Processed", n);
+        }
+
+        @Override
+        protected void log(final String... message) {
+            messages.add(String.join("", message));
+        }
+    }
+
+    @Test
+    public void testLogsEveryN() {
+        final RecordingProgressLogger logger = new RecordingProgressLogger(10);
+        for (int i = 1; i <= 25; i++) {
+            Assert.assertEquals(logger.record("chr1", i), i % 10 == 0);
+        }
+        Assert.assertEquals(logger.getCount(), 25);
+        Assert.assertEquals(logger.messages.size(), 2);
+        Assert.assertTrue(logger.messages.get(1).contains("chr1:20"), logger.messages.get(1));
+
+        Assert.assertTrue(logger.log());
+        Assert.assertEquals(logger.messages.size(), 3);
+        Assert.assertTrue(logger.messages.get(2).contains("Time for last 5"), logger.messages.get(2));
+        Assert.assertTrue(logger.messages.get(2).contains("chr1:25"), logger.messages.get(2));
+
+        logger.record(null, 0);
+        logger.record(null, 0);
+        logger.record(null, 0);
+        logger.record(null, 0);
+        logger.record(null, 0);
+        Assert.assertEquals(logger.messages.size(), 4);
+        Assert.assertTrue(logger.messages.get(3).contains("*/*"), logger.messages.get(3));
+        Assert.assertFalse(logger.log());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final RecordingProgressLogger logger = new RecordingProgressLogger(1000);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 25000; i++) {
+                        logger.record("chr1", i);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(logger.getCount(), 100000);
+        Assert.assertEquals(logger.messages.size(), 100);
+    }
+}
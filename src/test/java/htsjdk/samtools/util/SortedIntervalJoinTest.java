@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.HtsjdkTest;
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordSetBuilder;
+import htsjdk.samtools.SAMSequenceDictionary;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class SortedIntervalJoinTest extends HtsjdkTest {
+
+    private static SAMRecordSetBuilder randomRecords(final Random random) {
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder();
+        builder.setReadLength(50);
+        for (int i = 0; i < 2_000; i++) {
+            final boolean unmapped = random.nextInt(50) == 0;
+            builder.addFrag("read" + i, random.nextInt(3), 1 + random.nextInt(20_000), false, unmapped,
+                    unmapped ? null : random.nextInt(5) == 0 ? "20M500N30M" : "50M", null, 30);
+        }
+        builder.addUnmappedFragment("unplaced");
+        return builder;
+    }
+
+    private static List<Interval> randomIntervals(final Random random, final SAMSequenceDictionary dictionary) {
+        final List<Interval> intervals = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // contig 3 has no records, and the intervals overlap and nest
+            final int start = 1 + random.nextInt(20_000);
+            final int length = random.nextInt(10) == 0 ? random.nextInt(3_000) : random.nextInt(100);
+            intervals.add(new Interval(dictionary.getSequence(random.nextInt(4)).getSequenceName(), start, start + length - 1));
+        }
+        intervals.sort((a, b) -> {
+            final int byContig = Integer.compare(dictionary.getSequenceIndex(a.getContig()), dictionary.getSequenceIndex(b.getContig()));
+            return byContig != 0 ? byContig : Integer.compare(a.getStart(), b.getStart());
+        });
+        return intervals;
+    }
+
+    private static List<Interval> bruteForceOverlaps(final SAMRecord record, final List<Interval> intervals) {
+        if (record.getReadUnmappedFlag()) {
+            return Collections.emptyList();
+        }
+        return intervals.stream()
+                .filter(i -> i.getEnd() >= i.getStart() && i.getContig().equals(record.getContig()) &&
+                        i.getStart() <= record.getAlignmentEnd() && record.getAlignmentStart() <= i.getEnd())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testKeepOverlappingMatchesBruteForce() {
+        final Random random = new Random(1);
+        final SAMRecordSetBuilder builder = randomRecords(random);
+        final SAMSequenceDictionary dictionary = builder.getHeader().getSequenceDictionary();
+        final List<Interval> intervals = randomIntervals(random, dictionary);
+
+        final List<SAMRecord> expected = new ArrayList<>();
+        for (final SAMRecord record : builder) {
+            if (!bruteForceOverlaps(record, intervals).isEmpty()) {
+                expected.add(record);
+            }
+        }
+        final List<SAMRecord> actual = new ArrayList<>();
+        SortedIntervalJoin.keepOverlapping(builder.iterator(), intervals.iterator(), dictionary).forEachRemaining(actual::add);
+        Assert.assertEquals(actual, expected);
+        Assert.assertFalse(actual.isEmpty());
+    }
+
+    @Test
+    public void testAnnotateMatchesBruteForce() {
+        final Random random = new Random(2);
+        final SAMRecordSetBuilder builder = randomRecords(random);
+        final SAMSequenceDictionary dictionary = builder.getHeader().getSequenceDictionary();
+        final List<Interval> intervals = randomIntervals(random, dictionary);
+
+        final CloseableIterator<SortedIntervalJoin.AnnotatedRecord<Interval>> annotated =
+                SortedIntervalJoin.annotate(builder.iterator(), intervals.iterator(), dictionary);
+        int count = 0;
+        for (final SAMRecord record : builder) {
+            final SortedIntervalJoin.AnnotatedRecord<Interval> next = annotated.next();
+            Assert.assertSame(next.getRecord(), record);
+            Assert.assertEquals(next.getIntervals(), bruteForceOverlaps(record, intervals), record.getSAMString());
+            count++;
+        }
+        Assert.assertFalse(annotated.hasNext());
+        Assert.assertEquals(count, 2_001);
+        annotated.close();
+    }
+
+    @Test(expectedExceptions = SAMException.class)
+    public void testUnsortedRecords() {
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder();
+        final SortedIntervalJoin<Interval> join = new SortedIntervalJoin<>(
+                Collections.singletonList(new Interval("chr1", 1, 100)).iterator(), builder.getHeader().getSequenceDictionary());
+        join.getOverlaps(0, 50, 60);
+        join.getOverlaps(0, 40, 60);
+    }
+
+    @Test(expectedExceptions = SAMException.class)
+    public void testUnsortedIntervals() {
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder();
+        final SortedIntervalJoin<Interval> join = new SortedIntervalJoin<>(
+                Arrays.asList(new Interval("chr1", 50, 100), new Interval("chr1", 10, 20)).iterator(),
+                builder.getHeader().getSequenceDictionary());
+        join.getOverlaps(0, 1_000, 1_100);
+    }
+}
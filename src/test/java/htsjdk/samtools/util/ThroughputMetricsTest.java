@@ -0,0 +1,203 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.samtools.util;
+
+import htsjdk.HtsjdkTest;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.util.ThroughputMetrics.Counter;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ThroughputMetricsTest extends HtsjdkTest {
+    private static final File BAM = new File("src/test/resources/htsjdk/samtools/compressed.bam");
+
+    @AfterMethod
+    public void clearGlobal() {
+        ThroughputMetrics.setGlobal(null);
+    }
+
+    @Test
+    public void testConcurrentAdds() throws Exception {
+        final ThroughputMetrics metrics = new ThroughputMetrics();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        metrics.increment(Counter.RECORDS_DECODED);
+                        metrics.add(Counter.UNCOMPRESSED_BYTES_READ, 3);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(metrics.get(Counter.RECORDS_DECODED), 40000);
+        Assert.assertEquals(metrics.get(Counter.UNCOMPRESSED_BYTES_READ), 120000);
+        Assert.assertEquals(metrics.get(Counter.BLOCKS_READ), 0);
+
+        metrics.reset();
+        Assert.assertEquals(metrics.get(Counter.RECORDS_DECODED), 0);
+    }
+
+    @Test
+    public void testSnapshots() {
+        final ThroughputMetrics metrics = new ThroughputMetrics();
+        metrics.add(Counter.BLOCKS_READ, 5);
+        final ThroughputMetrics.Snapshot first = metrics.snapshot();
+        metrics.add(Counter.BLOCKS_READ, 7);
+        final ThroughputMetrics.Snapshot second = metrics.snapshot();
+
+        Assert.assertEquals(first.get(Counter.BLOCKS_READ), 5);
+        Assert.assertEquals(second.get(Counter.BLOCKS_READ), 12);
+        final ThroughputMetrics.Snapshot interval = second.minus(first);
+        Assert.assertEquals(interval.get(Counter.BLOCKS_READ), 7);
+        Assert.assertEquals(interval.perSecond(Counter.BLOCKS_READ, TimeUnit.MILLISECONDS.toNanos(500)), 14.0, 1e-9);
+        Assert.assertEquals(interval.perSecond(Counter.BLOCKS_READ, 0), 0.0);
+    }
+
+    @Test
+    public void testReadAndWriteHooks() throws IOException {
+        final ThroughputMetrics metrics = new ThroughputMetrics();
+        ThroughputMetrics.setGlobal(metrics);
+
+        final File output = File.createTempFile("throughputMetrics.", ".bam");
+        output.deleteOnExit();
+        int count = 0;
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(BAM)) {
+            final SAMFileHeader header = reader.getFileHeader();
+            try (final SAMFileWriter writer = new SAMFileWriterFactory().makeBAMWriter(header, true, output)) {
+                for (final SAMRecord record : reader) {
+                    writer.addAlignment(record);
+                    count++;
+                }
+            }
+        }
+        Assert.assertTrue(count > 0);
+        Assert.assertEquals(metrics.get(Counter.RECORDS_DECODED), count);
+        Assert.assertEquals(metrics.get(Counter.RECORDS_ENCODED), count);
+        Assert.assertTrue(metrics.get(Counter.BLOCKS_READ) > 0);
+        Assert.assertTrue(metrics.get(Counter.BLOCKS_WRITTEN) > 0);
+        Assert.assertTrue(metrics.get(Counter.UNCOMPRESSED_BYTES_READ) > 0);
+        Assert.assertTrue(metrics.get(Counter.COMPRESSED_BYTES_WRITTEN) > 0);
+        Assert.assertTrue(metrics.get(Counter.INFLATE_NANOS) > 0);
+        Assert.assertTrue(metrics.get(Counter.DEFLATE_NANOS) > 0);
+
+        // nothing is counted once the global instance is cleared
+        ThroughputMetrics.setGlobal(null);
+        final long decoded = metrics.get(Counter.RECORDS_DECODED);
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(output)) {
+            for (final SAMRecord record : reader) {
+                Assert.assertNotNull(record);
+            }
+        }
+        Assert.assertEquals(metrics.get(Counter.RECORDS_DECODED), decoded);
+    }
+
+    @Test
+    public void testCsvReporter() throws IOException {
+        final ThroughputMetrics metrics = new ThroughputMetrics();
+        final StringWriter writer = new StringWriter();
+        final ThroughputMetricsReporter reporter = new ThroughputMetricsReporter.CsvReporter(metrics, writer);
+        metrics.add(Counter.RECORDS_DECODED, 10);
+        reporter.report();
+        metrics.add(Counter.RECORDS_DECODED, 5);
+        reporter.close();
+
+        final String[] lines = writer.toString().split("\n");
+        Assert.assertEquals(lines.length, 3);
+        Assert.assertTrue(lines[0].startsWith("elapsed_seconds,records_decoded,"));
+        Assert.assertEquals(lines[1].split(",")[1], "10");
+        Assert.assertEquals(lines[2].split(",")[1], "15");
+    }
+
+    @Test
+    public void testScheduledReporting() throws Exception {
+        final ThroughputMetrics metrics = new ThroughputMetrics();
+        final List<Long> reported = new ArrayList<>();
+        final CountDownLatch twoReports = new CountDownLatch(2);
+        final ThroughputMetricsReporter reporter = new ThroughputMetricsReporter(metrics) {
+            @Override
+            protected void report(final ThroughputMetrics.Snapshot total, final ThroughputMetrics.Snapshot interval, final long intervalNanos) {
+                synchronized (reported) {
+                    reported.add(interval.get(Counter.RECORDS_DECODED));
+                }
+                twoReports.countDown();
+            }
+        };
+        metrics.add(Counter.RECORDS_DECODED, 3);
+        reporter.start(10, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(twoReports.await(30, TimeUnit.SECONDS));
+        reporter.close();
+
+        synchronized (reported) {
+            Assert.assertTrue(reported.size() > 1);
+            Assert.assertEquals(reported.stream().mapToLong(Long::longValue).sum(), 3);
+        }
+        Assert.assertThrows(IllegalStateException.class, () -> reporter.start(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testJmxReporter() throws Exception {
+        final ThroughputMetrics metrics = new ThroughputMetrics();
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName("htsjdk:type=ThroughputMetrics,name=test");
+        final ThroughputMetricsReporter reporter = new ThroughputMetricsReporter.JmxReporter(metrics, server, name);
+        try {
+            metrics.add(Counter.CACHE_HITS, 42);
+            Assert.assertEquals(server.getAttribute(name, "CACHE_HITS"), 0L);
+            reporter.report();
+            Assert.assertEquals(server.getAttribute(name, "CACHE_HITS"), 42L);
+            Assert.assertTrue((Double) server.getAttribute(name, "CACHE_HITS_PER_SECOND") > 0);
+            Assert.assertEquals(server.getMBeanInfo(name).getAttributes().length, Counter.values().length * 2);
+        } finally {
+            reporter.close();
+        }
+        Assert.assertFalse(server.isRegistered(name));
+    }
+}
@@ -3,6 +3,8 @@ package htsjdk.tribble;
 import htsjdk.HtsjdkTest;
 import htsjdk.samtools.seekablestream.SeekableFileStream;
 import htsjdk.samtools.util.CloserUtil;
+import htsjdk.samtools.util.Interval;
+import htsjdk.samtools.util.Locatable;
 import htsjdk.samtools.util.LocationAware;
 import htsjdk.tribble.bed.BEDCodec;
 import htsjdk.tribble.example.ExampleBinaryCodec;
@@ -18,9 +20,12 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 public class FeatureReaderTest extends HtsjdkTest {
@@ -97,6 +102,57 @@ public class FeatureReaderTest extends HtsjdkTest {
         reader.close();
     }
 
+    @DataProvider(name = "multiIntervalQueries")
+    public Object[][] multiIntervalQueries() {
+        final List<Object[]> tests = new ArrayList<>();
+        for (final Object[] index : createData1()) {
+            tests.add(new Object[]{index[0], index[1], index[2], Arrays.asList(new Interval("chr1", 1, 500))});
+            tests.add(new Object[]{index[0], index[1], index[2], Arrays.asList(new Interval("chr1", 1, 150), new Interval("chr1", 120, 250))});
+            tests.add(new Object[]{index[0], index[1], index[2], Arrays.asList(
+                    new Interval("chr2", 5, 25), new Interval("chr1", 100005, 100006), new Interval("chr1", 100009, 100030),
+                    new Interval("chr3", 1, 201), new Interval("chr1", 1, 201), new Interval("chr1", 300, 300))});
+            tests.add(new Object[]{index[0], index[1], index[2], Arrays.asList(new Interval("chr1", 500, 600), new Interval("chr2", 15, 16))});
+            tests.add(new Object[]{index[0], index[1], index[2], Arrays.asList()});
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "multiIntervalQueries")
+    public void testMultiIntervalQuery(final File featureFile, final IndexFactory.IndexType indexType,
+                                       final FeatureCodec<Feature, LocationAware> codec, final List<Locatable> intervals) throws IOException {
+        try (final AbstractFeatureReader<Feature, ?> reader = getReader(featureFile, indexType, codec)) {
+            final List<String> expected = new ArrayList<>();
+            for (final Feature f : reader.iterator()) {
+                if (intervals.stream().anyMatch(i -> i.getContig().equals(f.getContig()) && f.getEnd() >= i.getStart() && f.getStart() <= i.getEnd())) {
+                    expected.add(f.getContig() + ":" + f.getStart() + "-" + f.getEnd());
+                }
+            }
+
+            Assert.assertEquals(featureKeys(reader.query(intervals)), expected);
+
+            if (reader instanceof TribbleIndexedFeatureReader) {
+                final ExecutorService executor = Executors.newFixedThreadPool(2);
+                try {
+                    Assert.assertEquals(featureKeys(((TribbleIndexedFeatureReader<Feature, ?>) reader).query(intervals, executor)), expected);
+                } finally {
+                    executor.shutdown();
+                }
+            }
+        }
+    }
+
+    private static List<String> featureKeys(final CloseableTribbleIterator<Feature> iterator) {
+        final List<String> keys = new ArrayList<>();
+        try {
+            for (final Feature f : iterator) {
+                keys.add(f.getContig() + ":" + f.getStart() + "-" + f.getEnd());
+            }
+        } finally {
+            iterator.close();
+        }
+        return keys;
+    }
+
     private void testQuery(final AbstractFeatureReader<Feature, ?> reader, final String chr, final int start, final int stop, final int expectedNumRecords) throws IOException {
         final Iterator<Feature> iter = reader.query(chr, start, stop);
         int count = 0;
@@ -38,4 +38,22 @@ public class TribbleIndexFeatureReaderTest extends HtsjdkTest {
         }
     }
 
+    @Test(dataProvider = "featureFileStrings")
+    public void testLocationIterator(final String testPath, final int expectedCount) throws IOException {
+        try (final TribbleIndexedFeatureReader<VariantContext, LineIterator> featureReader =
+                new TribbleIndexedFeatureReader<>(testPath, new VCFCodec(), false);
+             final CloseableTribbleIterator<VariantContext> records = featureReader.iterator();
+             final CloseableTribbleIterator<Feature> locations = featureReader.locationIterator()) {
+            int count = 0;
+            for (final Feature location : locations) {
+                final VariantContext record = records.next();
+                Assert.assertEquals(location.getContig(), record.getContig());
+                Assert.assertEquals(location.getStart(), record.getStart());
+                Assert.assertEquals(location.getEnd(), record.getEnd());
+                count++;
+            }
+            Assert.assertFalse(records.hasNext());
+            Assert.assertEquals(count, expectedCount);
+        }
+    }
 }
@@ -104,6 +104,40 @@ public class BEDCodecTest extends HtsjdkTest {
         Assert.assertEquals(feature.getEnd(), 3);
     }
 
+    @DataProvider(name = "decodeLocLines")
+    public Object[][] getDecodeLocLines() {
+        return new Object[][]{
+                {"chr1 1"},
+                {"chr1 1 2"},
+                {"chr1\t1\t3\tname\t0.5\t+"},
+                {"chr1   1    3   name"},
+                {"chr1\t1 3\tname"},
+                {"chr1"},
+                {"   "},
+                {"#comment"},
+                {"track name=foo"},
+        };
+    }
+
+    @Test(dataProvider = "decodeLocLines")
+    public void testDecodeLocMatchesDecode(final String line) {
+        final BEDCodec codec = new BEDCodec();
+        final BEDFeature expected = codec.decode(line);
+        final BEDFeature actual = codec.decodeLoc(line);
+        if (expected == null) {
+            Assert.assertNull(actual);
+        } else {
+            Assert.assertEquals(actual.getContig(), expected.getContig());
+            Assert.assertEquals(actual.getStart(), expected.getStart());
+            Assert.assertEquals(actual.getEnd(), expected.getEnd());
+        }
+    }
+
+    @Test(expectedExceptions = NumberFormatException.class)
+    public void testDecodeLocBadStart() {
+        new BEDCodec().decodeLoc("chr1\tx\t3");
+    }
+
     @Test
     public void testFullDecode() {
         BEDCodec codec = new BEDCodec();
@@ -4,9 +4,12 @@ import com.google.common.jimfs.Configuration;
 import com.google.common.jimfs.Jimfs;
 import htsjdk.HtsjdkTest;
 import htsjdk.samtools.util.IOUtil;
+import htsjdk.tribble.AbstractFeatureReader;
 import htsjdk.tribble.FeatureCodec;
 import htsjdk.tribble.TestUtils;
 import htsjdk.tribble.Tribble;
+import htsjdk.tribble.TribbleException;
+import htsjdk.tribble.bed.BEDFeature;
 import htsjdk.tribble.bed.BEDCodec;
 import htsjdk.tribble.index.interval.IntervalTreeIndex;
 import htsjdk.tribble.index.linear.LinearIndex;
@@ -21,8 +24,11 @@ import org.testng.annotations.Test;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.nio.file.FileSystem;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -128,4 +134,80 @@ public class IndexTest extends HtsjdkTest {
         // try to write based on the tmpFolder
         Assert.assertThrows(IOException.class, () -> index.writeBasedOnFeatureFile(tmpFolder));
     }
+
+    @DataProvider(name = "lazyIndexData")
+    public Object[][] lazyIndexData() {
+        return new Object[][]{
+                {new File("src/test/resources/htsjdk/tribble/tabix/testTabixIndex.vcf"), IndexFactory.IndexType.LINEAR, new VCFCodec()},
+                {new File("src/test/resources/htsjdk/tribble/tabix/testTabixIndex.vcf"), IndexFactory.IndexType.INTERVAL_TREE, new VCFCodec()},
+                {new File("src/test/resources/htsjdk/tribble/test.bed"), IndexFactory.IndexType.LINEAR, new BEDCodec()},
+                {new File("src/test/resources/htsjdk/tribble/test.bed"), IndexFactory.IndexType.INTERVAL_TREE, new BEDCodec()}
+        };
+    }
+
+    @Test(dataProvider = "lazyIndexData")
+    public void testChromosomesLoadedOnFirstQuery(final File inputFile, final IndexFactory.IndexType type, final FeatureCodec codec) throws Exception {
+        final File tempIndex = File.createTempFile("index", Tribble.STANDARD_INDEX_EXTENSION);
+        tempIndex.deleteOnExit();
+        final AbstractIndex index = (AbstractIndex) IndexFactory.createIndex(inputFile, codec, type);
+        index.write(tempIndex);
+
+        final AbstractIndex loaded = (AbstractIndex) IndexFactory.loadIndex(tempIndex.getAbsolutePath());
+        Assert.assertEquals(loaded.getSequenceNames(), index.getSequenceNames());
+        for (final String chr : loaded.getSequenceNames()) {
+            Assert.assertTrue(loaded.containsChromosome(chr));
+            Assert.assertNull(loaded.chrIndices.get(chr));
+        }
+
+        final String chr = loaded.getSequenceNames().get(0);
+        Assert.assertEquals(loaded.getBlocks(chr, 1, Integer.MAX_VALUE - 1), index.getBlocks(chr, 1, Integer.MAX_VALUE - 1));
+        Assert.assertNotNull(loaded.chrIndices.get(chr));
+        for (final String other : loaded.getSequenceNames().subList(1, loaded.getSequenceNames().size())) {
+            Assert.assertNull(loaded.chrIndices.get(other));
+        }
+
+        loaded.loadAllChrIndices();
+        if (type == IndexFactory.IndexType.LINEAR) {
+            // interval tree chromosome indices have no value equality
+            Assert.assertTrue(loaded.equalsIgnoreProperties(index));
+        }
+        for (final String name : loaded.getSequenceNames()) {
+            Assert.assertNotNull(loaded.chrIndices.get(name));
+        }
+    }
+
+    @Test(dataProvider = "lazyIndexData", expectedExceptions = TribbleException.CorruptedIndexFile.class)
+    public void testTruncatedIndex(final File inputFile, final IndexFactory.IndexType type, final FeatureCodec codec) throws Exception {
+        final File tempIndex = File.createTempFile("index", Tribble.STANDARD_INDEX_EXTENSION);
+        tempIndex.deleteOnExit();
+        IndexFactory.createIndex(inputFile, codec, type).write(tempIndex);
+        try (final RandomAccessFile file = new RandomAccessFile(tempIndex, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        IndexFactory.loadIndex(tempIndex.getAbsolutePath());
+    }
+
+    @Test
+    public void testIndexCache() throws Exception {
+        final File featureFile = File.createTempFile("IndexTest.", ".bed");
+        featureFile.deleteOnExit();
+        Files.copy(new File("src/test/resources/htsjdk/tribble/test.bed").toPath(), featureFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        final File indexFile = Tribble.indexFile(featureFile);
+        indexFile.deleteOnExit();
+        IndexFactory.createIndex(featureFile, new BEDCodec(), IndexFactory.IndexType.LINEAR).write(indexFile);
+
+        final IndexCache cache = new IndexCache(2);
+        final Index index = cache.getIndex(indexFile.getAbsolutePath());
+        Assert.assertSame(cache.getIndex(indexFile.getAbsolutePath()), index);
+        try (final AbstractFeatureReader<BEDFeature, ?> reader = cache.getFeatureReader(featureFile.getAbsolutePath(), new BEDCodec())) {
+            Assert.assertTrue(reader.query("chr1", 1, Integer.MAX_VALUE - 1).hasNext());
+        }
+
+        // a modified index file is reloaded
+        Assert.assertTrue(indexFile.setLastModified(indexFile.lastModified() + 10_000));
+        Assert.assertNotSame(cache.getIndex(indexFile.getAbsolutePath()), index);
+
+        cache.clear();
+        Assert.assertNotSame(cache.getIndex(indexFile.getAbsolutePath()), index);
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 The Broad Institute
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package htsjdk.tribble.index;
+
+import htsjdk.HtsjdkTest;
+import htsjdk.tribble.AsciiFeatureCodec;
+import htsjdk.tribble.Feature;
+import htsjdk.tribble.TestUtils;
+import htsjdk.tribble.bed.BEDCodec;
+import htsjdk.tribble.index.tabix.TabixIndex;
+import htsjdk.tribble.util.LittleEndianOutputStream;
+import htsjdk.variant.vcf.VCFCodec;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+public class ParallelFeatureIteratorTest extends HtsjdkTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @DataProvider(name = "shardedFiles")
+    public Object[][] shardedFiles() {
+        final File vcf = new File("src/test/resources/htsjdk/variant/HiSeq.10000.vcf");
+        final File bgzippedVcf = new File(TestUtils.DATA_DIR, "tabix/YRI.trio.2010_07.indel.sites.vcf.gz");
+        final File bed = new File(TestUtils.DATA_DIR, "bed/Unigene.sample.bed");
+        final Supplier<AsciiFeatureCodec<?>> vcfCodec = VCFCodec::new;
+        final Supplier<AsciiFeatureCodec<?>> bedCodec = BEDCodec::new;
+        return new Object[][]{
+                {vcf, vcfCodec, 997},
+                {vcf, vcfCodec, 65_536},
+                {vcf, vcfCodec, 100_000},
+                {vcf, vcfCodec, ParallelFeatureIterator.DEFAULT_SHARD_SIZE},
+                {bgzippedVcf, vcfCodec, 1},
+                {bgzippedVcf, vcfCodec, 40_000},
+                {bgzippedVcf, vcfCodec, ParallelFeatureIterator.DEFAULT_SHARD_SIZE},
+                {bed, bedCodec, 7},
+                {bed, bedCodec, 100},
+        };
+    }
+
+    @Test(dataProvider = "shardedFiles")
+    public void testSameFeaturesAndPositionsAsSerial(final File input, final Supplier<AsciiFeatureCodec<?>> codecSupplier, final long shardSize) {
+        final IndexFactory.FeatureIterator<?, ?> serial = new IndexFactory.FeatureIterator<>(input, codecSupplier.get());
+        final ParallelFeatureIterator parallel = new ParallelFeatureIterator(input, codecSupplier, executor, shardSize);
+        int count = 0;
+        while (serial.hasNext()) {
+            Assert.assertTrue(parallel.hasNext());
+            Assert.assertEquals(parallel.getPosition(), serial.getPosition(), "position of feature " + count);
+            final Feature expected = serial.next();
+            final Feature actual = parallel.next();
+            Assert.assertEquals(actual.getContig(), expected.getContig());
+            Assert.assertEquals(actual.getStart(), expected.getStart());
+            Assert.assertEquals(actual.getEnd(), expected.getEnd());
+            count++;
+        }
+        Assert.assertFalse(parallel.hasNext());
+        Assert.assertEquals(parallel.getPosition(), serial.getPosition());
+        Assert.assertTrue(count > 0);
+        serial.close();
+        parallel.close();
+    }
+
+    @Test
+    public void testParallelIndexesEqualSerialIndexes() throws Exception {
+        final File vcf = new File("src/test/resources/htsjdk/variant/HiSeq.10000.vcf");
+        for (final IndexFactory.IndexType type : new IndexFactory.IndexType[]{IndexFactory.IndexType.LINEAR, IndexFactory.IndexType.INTERVAL_TREE}) {
+            final Index serial = IndexFactory.createIndex(vcf, new VCFCodec(), type);
+            final Index parallel = IndexFactory.createIndex(vcf, VCFCodec::new, type, null, executor);
+            Assert.assertEquals(toBytes(parallel), toBytes(serial), type.toString());
+        }
+        final File bgzippedVcf = new File(TestUtils.DATA_DIR, "tabix/YRI.trio.2010_07.indel.sites.vcf.gz");
+        final TabixIndex serial = IndexFactory.createTabixIndex(bgzippedVcf, new VCFCodec(), null);
+        final TabixIndex parallel = (TabixIndex) IndexFactory.createIndex(bgzippedVcf, VCFCodec::new, IndexFactory.IndexType.TABIX, null, executor);
+        Assert.assertEquals(parallel, serial);
+    }
+
+    private static byte[] toBytes(final Index index) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final LittleEndianOutputStream out = new LittleEndianOutputStream(bytes)) {
+            index.write(out);
+        }
+        return bytes.toByteArray();
+    }
+}
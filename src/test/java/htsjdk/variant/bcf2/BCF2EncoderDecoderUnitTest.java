@@ -515,6 +515,62 @@ public class BCF2EncoderDecoderUnitTest extends VariantBaseTest {
         }
     }
 
+    @Test(dataProvider = "IntArrays")
+    public void testPrimitiveArraysIntoDestination(final List<Integer> ints) throws IOException {
+        final List<Double> doubles = new ArrayList<Double>(ints.size());
+        for ( final Integer i : ints )
+            doubles.add(i == null ? null : i / 2.0);
+
+        final BCF2Encoder encoder = new BCF2Encoder();
+        encoder.encodeTyped(ints, BCF2Type.INT32);
+        encoder.encodeTyped(doubles, BCF2Type.FLOAT);
+
+        final BCF2Decoder decoder = new BCF2Decoder(encoder.getRecordBytes());
+
+        final byte intDescriptor = decoder.readTypeDescriptor();
+        final int nInts = decoder.decodeNumberOfElements(intDescriptor);
+        final int[] intDest = new int[nInts];
+        final int nGoodInts = decoder.decodeInts(nInts, BCF2Utils.decodeType(intDescriptor), intDest);
+
+        final byte floatDescriptor = decoder.readTypeDescriptor();
+        final int nFloats = decoder.decodeNumberOfElements(floatDescriptor);
+        final float[] floats = decoder.decodeFloatArray(nFloats, BCF2Utils.decodeType(floatDescriptor), null);
+        Assert.assertTrue(decoder.blockIsFullyDecoded());
+
+        int expectedGood = 0;
+        while ( expectedGood < ints.size() && ints.get(expectedGood) != null ) expectedGood++;
+
+        Assert.assertEquals(nGoodInts, expectedGood);
+        for ( int i = 0; i < nGoodInts; i++ )
+            Assert.assertEquals(intDest[i], (int)ints.get(i));
+
+        if ( expectedGood == 0 )
+            Assert.assertNull(floats);
+        else {
+            Assert.assertEquals(floats.length, expectedGood);
+            for ( int i = 0; i < floats.length; i++ )
+                Assert.assertEquals(floats[i], (float)(ints.get(i) / 2.0));
+        }
+    }
+
+    @Test
+    public void testDecodeSlice() throws IOException {
+        final BCF2Encoder encoder = new BCF2Encoder();
+        encoder.encodeTyped(Arrays.asList(1, 2, 3), BCF2Type.INT16);
+        encoder.encodeTyped(Arrays.asList(4, 5), BCF2Type.INT8);
+        final byte[] bytes = encoder.getRecordBytes();
+
+        final BCF2Decoder decoder = new BCF2Decoder(bytes);
+        decoder.readTypeDescriptor();
+        decoder.skipBytes(3 * BCF2Type.INT16.getSizeInBytes());
+        final int secondValueOffset = decoder.getPosition();
+
+        final BCF2Decoder slice = new BCF2Decoder(bytes, secondValueOffset, bytes.length - secondValueOffset);
+        Assert.assertEquals(slice.decodeTypedValue(), Arrays.asList(4, 5));
+        Assert.assertTrue(slice.blockIsFullyDecoded());
+        Assert.assertEquals(decoder.decodeTypedValue(), Arrays.asList(4, 5));
+    }
+
     // -----------------------------------------------------------------
     //
     // Helper routines
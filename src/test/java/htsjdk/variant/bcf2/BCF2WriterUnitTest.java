@@ -47,6 +47,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -54,6 +55,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * @author amila
@@ -298,6 +301,65 @@ public class BCF2WriterUnitTest extends VariantBaseTest {
         }
     }
 
+    /**
+     * test that genotypes of a wide record decoded in parallel are identical to those decoded serially
+     */
+    @Test
+    public void testParallelGenotypeDecoding() throws IOException {
+        final File bcfOutputFile = File.createTempFile("testParallelGenotypeDecoding.", ".bcf", tempDir);
+        bcfOutputFile.deleteOnExit();
+
+        final Set<String> samples = new HashSet<>();
+        for (int i = 0; i < BCF2LazyGenotypesDecoder.MIN_SAMPLES_FOR_PARALLEL_DECODE + 1001; i++) {
+            samples.add(String.format("S%05d", i));
+        }
+        final VCFHeader header = new VCFHeader(new HashSet<>(), samples);
+        header.addMetaDataLine(new VCFFormatHeaderLine("GT", 1, VCFHeaderLineType.String, "x"));
+        header.addMetaDataLine(new VCFFormatHeaderLine("GQ", 1, VCFHeaderLineType.Integer, "x"));
+        header.addMetaDataLine(new VCFFormatHeaderLine("AD", VCFHeaderLineCount.R, VCFHeaderLineType.Integer, "x"));
+        header.addMetaDataLine(new VCFFormatHeaderLine("XF", 1, VCFHeaderLineType.Float, "x"));
+        header.addMetaDataLine(new VCFFormatHeaderLine("BB", 1, VCFHeaderLineType.String, "x"));
+        header.setSequenceDictionary(createArtificialSequenceDictionary());
+
+        final List<Allele> alleles = new ArrayList<>();
+        alleles.add(Allele.create("A", true));
+        alleles.add(Allele.create("ACC", false));
+        alleles.add(Allele.create("T", false));
+
+        try (final VariantContextWriter writer = new VariantContextWriterBuilder()
+                .setOutputFile(bcfOutputFile).setReferenceDictionary(header.getSequenceDictionary())
+                .unsetOption(Options.INDEX_ON_THE_FLY)
+                .build()) {
+            writer.writeHeader(header);
+            for (int site = 0; site < 3; site++) {
+                final GenotypesContext genotypes = GenotypesContext.create(samples.size());
+                int i = 0;
+                for (final String name : header.getGenotypeSamples()) {
+                    final GenotypeBuilder gb = new GenotypeBuilder(name);
+                    if ((i + site) % 7 != 0) {
+                        gb.alleles(Arrays.asList(alleles.get(i % 3), alleles.get((i + site) % 3)))
+                                .GQ(i % 99).AD(new int[]{i, site, i % 5})
+                                .attribute("XF", i / 3.0).attribute("BB", "v" + (i % 11));
+                    }
+                    genotypes.add(gb.make());
+                    i++;
+                }
+                writer.add(new VariantContextBuilder("RANDOM", "1", site + 1, site + 1, alleles).genotypes(genotypes).make());
+            }
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final BCF2Codec parallelCodec = new BCF2Codec();
+            parallelCodec.setGenotypeDecodingExecutor(executor);
+            VariantContextTestProvider.assertEquals(
+                    VariantContextTestProvider.readAllVCs(bcfOutputFile, parallelCodec).getVCs(),
+                    VariantContextTestProvider.readAllVCs(bcfOutputFile, new BCF2Codec()).getVCs());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     /**
      * create a fake VCF record
      *
@@ -0,0 +1,136 @@
+/*
+* Copyright (c) 2017 The Broad Institute
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package htsjdk.variant.variantcontext;
+
+import htsjdk.variant.VariantBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class AlleleCacheUnitTest extends VariantBaseTest {
+
+    @DataProvider(name = "alleles")
+    public Object[][] alleles() {
+        return new Object[][]{
+                {"A", true}, {"T", false}, {".", false}, {"*", false},
+                {"AC", true}, {"AC", false}, {"acgt", true}, {"ACGTN", false},
+                {"<NON_REF>", false}, {"<DEL>", false}, {"<del>", false}, {"A[1:100[", false},
+        };
+    }
+
+    @Test(dataProvider = "alleles")
+    public void testSameAsCreate(final String bases, final boolean isRef) {
+        final AlleleCache cache = new AlleleCache(16);
+        final Allele expected = Allele.create(bases, isRef);
+
+        final Allele fromString = cache.get(bases, isRef);
+        Assert.assertEquals(fromString, expected);
+        Assert.assertEquals(fromString.isReference(), expected.isReference());
+        Assert.assertEquals(fromString.isSymbolic(), expected.isSymbolic());
+        Assert.assertEquals(fromString.getDisplayString(), expected.getDisplayString());
+
+        final byte[] padded = ("xx" + bases + "yy").getBytes();
+        final Allele fromBytes = cache.get(padded, 2, bases.length(), isRef);
+        Assert.assertSame(fromBytes, fromString);
+        Assert.assertEquals(new String(padded), "xx" + bases + "yy", "the input bytes must not be modified");
+    }
+
+    @Test
+    public void testInterning() {
+        final AlleleCache cache = new AlleleCache(1024);
+        final Allele ac = cache.get("AC", false);
+        Assert.assertSame(cache.get("AC", false), ac);
+        Assert.assertSame(cache.get("ac", false), ac);
+        Assert.assertSame(cache.get("GAC".getBytes(), 1, 2, false), ac);
+
+        final Allele acRef = cache.get("AC", true);
+        Assert.assertNotSame(acRef, ac);
+        Assert.assertTrue(acRef.isReference());
+
+        // symbolic alleles are not upper cased, so differently cased symbolic alleles are different alleles
+        Assert.assertNotEquals(cache.get("<del>", false), cache.get("<DEL>", false));
+    }
+
+    @Test
+    public void testBounded() {
+        final AlleleCache cache = new AlleleCache(8);
+        final List<Allele> alleles = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final String bases = Integer.toBinaryString(i + 2).replace('0', 'A').replace('1', 'C');
+            final Allele allele = cache.get(bases, false);
+            Assert.assertEquals(allele, Allele.create(bases, false));
+            alleles.add(allele);
+        }
+        // the most recently inserted allele is always retrievable
+        Assert.assertSame(cache.get(alleles.get(999).getBaseString(), false), alleles.get(999));
+    }
+
+    @Test
+    public void testLongAllelesNotCached() {
+        final AlleleCache cache = new AlleleCache(16);
+        final StringBuilder bases = new StringBuilder();
+        for (int i = 0; i <= AlleleCache.MAX_CACHED_ALLELE_LENGTH; i++) bases.append('G');
+        final Allele first = cache.get(bases.toString(), false);
+        Assert.assertEquals(cache.get(bases.toString(), false), first);
+        Assert.assertNotSame(cache.get(bases.toString(), false), first);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidBases() {
+        new AlleleCache(16).get("AXC", true);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final AlleleCache cache = new AlleleCache(64);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        final String bases = "AC" + "GT".substring(0, i % 3);
+                        final boolean isRef = i % 2 == 0;
+                        final Allele allele = cache.get(bases, isRef);
+                        Assert.assertEquals(allele.getBaseString(), bases);
+                        Assert.assertEquals(allele.isReference(), isRef);
+                    }
+                }));
+            }
+            for (final Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+* Copyright (c) 2017 The Broad Institute
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package htsjdk.variant.variantcontext;
+
+import htsjdk.variant.VariantBaseTest;
+import org.apache.commons.jexl2.JexlContext;
+import org.apache.commons.jexl2.JexlException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class JEXLPredicateUnitTest extends VariantBaseTest {
+
+    private static final Allele Aref = Allele.create("A", true);
+    private static final Allele Talt = Allele.create("T");
+
+    private static final String[] COMPILED_EXPRESSIONS = {
+            "QUAL > 30", "QUAL >= 30.0", "QUAL < 30", "QUAL <= 30.0f", "QUAL == 30", "QUAL != 30",
+            "QD < 2.0", "QD lt 2.0", "FS > 60.0 || QD < 2.0", "QD < 2.0 || FS > 60.0", "QD < 2.0 && FS > 60.0",
+            "FS > 60.0 and QD < 2.0", "!(QD < 2.0)", "not (QD < 2.0 or FS > 60.0)", "!!(QD < 2.0)",
+            "DP > 10", "DP == 20", "DP >= -5", "DP<-5", "10 < DP", "DP == DP", "DP > QD",
+            "CHROM == 'chr1'", "CHROM != \"chr2\"", "TYPE == 'SNP'", "POS > 100", "N_ALLELES == 2",
+            "FILTER == 1", "FILTER == '0'", "lowQual == 1", "hetCount > 0 && homVarCount == 0",
+            "NAME == 'abc'", "NAME > 'abb'", "NAME == null", "Z == 10", "Z == 10 || DP > 0", "DP > 0 || Z == 10",
+            "((QD < 2.0) || (FS > 60.0)) && DP > 10", "isHet == 1", "GQ > 20", "GQ < 20 && isHomVar == 1",
+            "FT == 'PASS'", "WA == 'whatEver'", "lowDP == 1", "NaN > 1", "NaN <= 1", "NaN == NaN",
+            "LIST == 1", "1 == 1", "true == true"
+    };
+
+    private static final String[] FALLBACK_EXPRESSIONS = {
+            "vc.isSNP()", "QD < 2.0 ? true : false", "QD * 2 > 3", "QD", "!QD", "!QD == 1", "(QD) > 1",
+            "(QD < 1) == true", "QD < 1 < 2", "NAME =~ 'a.*'", "empty(NAME)", "size(LIST) > 1", "QD - 1 > 2",
+            "QD < 1e3", "QD < 2.0 &", "(QD < 2.0", "QD < 2.0)", "QD =="
+    };
+
+    private static List<VariantContext> createVariants() {
+        final VariantContextBuilder builder = new VariantContextBuilder("test", "chr1", 150, 150, Arrays.asList(Aref, Talt));
+        final List<VariantContext> variants = new ArrayList<>();
+        variants.add(builder.make());
+        variants.add(builder.log10PError(-3.0).attribute("QD", "1.5").attribute("FS", "70.1").attribute("DP", "20")
+                .attribute("NAME", "abc").attribute("NaN", "NaN").make());
+        variants.add(builder.log10PError(-2.0).attribute("QD", 3.5).attribute("FS", 10.0).attribute("DP", 5).filter("lowQual").make());
+        variants.add(builder.attribute("QD", 1).attribute("DP", -10).attribute("Z", 10).attribute("NaN", Double.NaN)
+                .attribute("LIST", Arrays.asList(1, 2)).make());
+        variants.add(builder.attribute("DP", "x").attribute("NAME", 3).unfiltered().passFilters().make());
+        return variants;
+    }
+
+    private static List<Genotype> createGenotypes() {
+        return Arrays.asList(
+                new GenotypeBuilder("het", Arrays.asList(Aref, Talt)).GQ(30).DP(2).filter("lowDP").attribute("WA", "whatEver").make(),
+                new GenotypeBuilder("homVar", Arrays.asList(Talt, Talt)).GQ(10).attribute("QD", "0.5").make(),
+                new GenotypeBuilder("noCall", Arrays.asList(Allele.NO_CALL, Allele.NO_CALL)).make());
+    }
+
+    private static final Object ERROR = new Object();
+
+    private static Object evaluateWithJexl(final String expression, final VariantContext vc, final Genotype g) {
+        final JexlContext context = g == null ? new VariantJEXLContext(vc) : new GenotypeJEXLContext(vc, g);
+        try {
+            return VariantContextUtils.engine.get().createExpression(expression).evaluate(context);
+        } catch (final JexlException.Variable e) {
+            return null;
+        } catch (final RuntimeException e) {
+            return ERROR;
+        }
+    }
+
+    private static Object evaluateCompiled(final JEXLPredicate predicate, final VariantContext vc, final Genotype g) {
+        try {
+            return predicate.evaluate(vc, g);
+        } catch (final RuntimeException e) {
+            return ERROR;
+        }
+    }
+
+    @DataProvider
+    public Object[][] compiledExpressions() {
+        final List<Object[]> data = new ArrayList<>();
+        for (final String expression : COMPILED_EXPRESSIONS) {
+            data.add(new Object[]{expression});
+        }
+        return data.toArray(new Object[data.size()][]);
+    }
+
+    @Test(dataProvider = "compiledExpressions")
+    public void testSameResultAsJexl(final String expression) {
+        final JEXLPredicate predicate = JEXLPredicate.compile(expression);
+        Assert.assertNotNull(predicate, expression);
+        for (final VariantContext vc : createVariants()) {
+            Assert.assertEquals(evaluateCompiled(predicate, vc, null), evaluateWithJexl(expression, vc, null), expression + " " + vc);
+            for (final Genotype g : createGenotypes()) {
+                Assert.assertEquals(evaluateCompiled(predicate, vc, g), evaluateWithJexl(expression, vc, g), expression + " " + vc + " " + g);
+            }
+        }
+    }
+
+    @DataProvider
+    public Object[][] fallbackExpressions() {
+        final List<Object[]> data = new ArrayList<>();
+        for (final String expression : FALLBACK_EXPRESSIONS) {
+            data.add(new Object[]{expression});
+        }
+        return data.toArray(new Object[data.size()][]);
+    }
+
+    @Test(dataProvider = "fallbackExpressions")
+    public void testUnsupportedExpressions(final String expression) {
+        Assert.assertNull(JEXLPredicate.compile(expression), expression);
+    }
+
+    @Test
+    public void testMatchRecompilesReplacedExpression() {
+        final VariantContext vc = new VariantContextBuilder("test", "chr1", 150, 150, Arrays.asList(Aref, Talt)).attribute("DP", "20").make();
+        final VariantContextUtils.JexlVCMatchExp exp = new VariantContextUtils.JexlVCMatchExp("DP", VariantContextUtils.engine.get().createExpression("DP > 10"));
+        Assert.assertTrue(VariantContextUtils.match(vc, exp));
+        exp.exp = VariantContextUtils.engine.get().createExpression("DP > 30");
+        Assert.assertFalse(VariantContextUtils.match(vc, exp));
+
+        // values that cannot be compared are reported by JEXL
+        exp.exp = VariantContextUtils.engine.get().createExpression("DP > 1");
+        Assert.assertThrows(RuntimeException.class, () -> VariantContextUtils.match(
+                new VariantContextBuilder(vc).attribute("DP", "x").make(), exp));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+* Copyright (c) 2017 The Broad Institute
+* 
+* Permission is hereby granted, free of charge, to any person
+* obtaining a copy of this software and associated documentation
+* files (the "Software"), to deal in the Software without
+* restriction, including without limitation the rights to use,
+* copy, modify, merge, publish, distribute, sublicense, and/or sell
+* copies of the Software, and to permit persons to whom the
+* Software is furnished to do so, subject to the following
+* conditions:
+* 
+* The above copyright notice and this permission notice shall be
+* included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+* EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+* OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+* NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+* HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+* WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+* FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR
+* THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package htsjdk.variant.variantcontext.writer;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.IOUtil;
+import htsjdk.tribble.AbstractFeatureReader;
+import htsjdk.tribble.FeatureReader;
+import htsjdk.tribble.Tribble;
+import htsjdk.variant.VariantBaseTest;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderLine;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ShardedVCFWriterUnitTest extends VariantBaseTest {
+    private static final List<String> CONTIGS = Arrays.asList("chr1", "chr2", "chr3", "chr4", "chr5");
+    private static final int RECORDS_PER_CONTIG = 5000;
+
+    private static VCFHeader createHeader() {
+        final SAMSequenceDictionary dictionary = new SAMSequenceDictionary();
+        for (final String contig : CONTIGS) {
+            dictionary.addSequence(new SAMSequenceRecord(contig, 10 * RECORDS_PER_CONTIG + 100));
+        }
+        final VCFHeader header = new VCFHeader(new HashSet<VCFHeaderLine>(), Collections.<String>emptyList());
+        header.setSequenceDictionary(dictionary);
+        return header;
+    }
+
+    private static List<VariantContext> createRecords(final String contig) {
+        final List<VariantContext> records = new ArrayList<>(RECORDS_PER_CONTIG);
+        for (int i = 0; i < RECORDS_PER_CONTIG; i++) {
+            final int start = 10 * i + 1;
+            records.add(new VariantContextBuilder("test", contig, start, start,
+                    Arrays.asList(Allele.create("A", true), Allele.create("C"))).id(contig + "_" + i).make());
+        }
+        return records;
+    }
+
+    private static List<VariantContext> readAll(final FeatureReader<VariantContext> reader) throws Exception {
+        final List<VariantContext> records = new ArrayList<>();
+        for (final VariantContext vc : reader.iterator()) {
+            records.add(vc);
+        }
+        return records;
+    }
+
+    @Test
+    public void testConcurrentShards() throws Exception {
+        final VCFHeader header = createHeader();
+        final File output = File.createTempFile("ShardedVCFWriterUnitTest.", IOUtil.COMPRESSED_VCF_FILE_EXTENSION);
+        final File index = Tribble.tabixIndexFile(output);
+        output.deleteOnExit();
+        index.deleteOnExit();
+
+        // chr3 and chr4 share a shard and chr5 has no records
+        final List<List<String>> shards = Arrays.asList(Collections.singletonList("chr1"), Collections.singletonList("chr2"),
+                Arrays.asList("chr3", "chr4"), Collections.singletonList("chr5"));
+        final VariantContextWriter writer = new VariantContextWriterBuilder()
+                .setOutputFile(output)
+                .setReferenceDictionary(header.getSequenceDictionary())
+                .setOptions(EnumSet.of(Options.INDEX_ON_THE_FLY))
+                .buildSharded(shards);
+        writer.writeHeader(header);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (final List<String> shard : shards.subList(0, 3)) {
+                futures.add(executor.submit(() -> {
+                    for (final String contig : shard) {
+                        createRecords(contig).forEach(writer::add);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        writer.close();
+
+        try (final FeatureReader<VariantContext> reader = AbstractFeatureReader.getFeatureReader(output.getAbsolutePath(), new VCFCodec(), true)) {
+            final List<VariantContext> records = readAll(reader);
+            Assert.assertEquals(records.size(), 4 * RECORDS_PER_CONTIG);
+            for (int i = 0; i < 4; i++) {
+                final List<VariantContext> expected = createRecords(CONTIGS.get(i));
+                for (int j = 0; j < RECORDS_PER_CONTIG; j++) {
+                    final VariantContext actual = records.get(i * RECORDS_PER_CONTIG + j);
+                    Assert.assertEquals(actual.getContig(), expected.get(j).getContig());
+                    Assert.assertEquals(actual.getStart(), expected.get(j).getStart());
+                    Assert.assertEquals(actual.getID(), expected.get(j).getID());
+                }
+            }
+
+            Assert.assertEquals(new HashSet<>(reader.getSequenceNames()), new HashSet<>(CONTIGS.subList(0, 4)));
+            for (int i = 0; i < 4; i++) {
+                final List<VariantContext> queried = new ArrayList<>();
+                for (final VariantContext vc : reader.query(CONTIGS.get(i), 20001, 20100)) {
+                    queried.add(vc);
+                }
+                Assert.assertEquals(queried.size(), 10);
+                Assert.assertEquals(queried.get(0).getID(), CONTIGS.get(i) + "_2000");
+            }
+            Assert.assertFalse(reader.query("chr5", 1, 100).hasNext());
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testContigWithoutShard() throws Exception {
+        final VCFHeader header = createHeader();
+        final File output = File.createTempFile("ShardedVCFWriterUnitTest.", IOUtil.COMPRESSED_VCF_FILE_EXTENSION);
+        output.deleteOnExit();
+        final VariantContextWriter writer = new VariantContextWriterBuilder()
+                .setOutputFile(output)
+                .unsetOption(Options.INDEX_ON_THE_FLY)
+                .buildSharded(Collections.singletonList(Collections.singletonList("chr1")));
+        writer.writeHeader(header);
+        try {
+            writer.add(createRecords("chr2").get(0));
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUncompressedOutput() throws Exception {
+        final File output = File.createTempFile("ShardedVCFWriterUnitTest.", IOUtil.VCF_FILE_EXTENSION);
+        output.deleteOnExit();
+        new VariantContextWriterBuilder().setOutputFile(output).buildSharded(Collections.singletonList(CONTIGS));
+    }
+}
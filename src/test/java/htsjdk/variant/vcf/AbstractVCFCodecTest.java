@@ -1,7 +1,10 @@
 package htsjdk.variant.vcf;
 
+import htsjdk.tribble.Feature;
 import htsjdk.tribble.TribbleException;
 import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.tribble.readers.AsciiLineReader;
+import htsjdk.tribble.readers.AsciiLineReaderIterator;
 import htsjdk.variant.VariantBaseTest;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
@@ -10,6 +13,8 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.List;
 
 
@@ -57,4 +62,62 @@ public class AbstractVCFCodecTest extends VariantBaseTest {
 		Assert.assertEquals(new VCFCodec().getTabixFormat(), TabixFormat.VCF);
 		Assert.assertEquals(new VCF3Codec().getTabixFormat(), TabixFormat.VCF);
 	}
+
+	@DataProvider(name = "decodeLocFiles")
+	public Object[][] getDecodeLocFiles() {
+		return new Object[][] {
+				{new File(variantTestDataRoot + "HiSeq.10000.vcf")},
+				{new File(variantTestDataRoot + "structuralvariants.vcf")},
+				{new File(variantTestDataRoot + "diagnosis_targets_testfile.vcf")},
+				{new File(variantTestDataRoot + "breakpoint.vcf")},
+				{new File("src/test/resources/htsjdk/tribble/tabix/testTabixIndex.vcf")}
+		};
+	}
+
+	@Test(dataProvider = "decodeLocFiles")
+	public void testDecodeLocMatchesDecode(final File vcf) throws IOException {
+		final VCFCodec codec = new VCFCodec();
+		try (final AsciiLineReaderIterator lines = new AsciiLineReaderIterator(AsciiLineReader.from(new FileInputStream(vcf)))) {
+			codec.readActualHeader(lines);
+			int count = 0;
+			while (lines.hasNext()) {
+				final String line = lines.next();
+				final Feature expected = codec.decode(line);
+				final Feature actual = codec.decodeLoc(line);
+				Assert.assertEquals(actual.getContig(), expected.getContig());
+				Assert.assertEquals(actual.getStart(), expected.getStart());
+				Assert.assertEquals(actual.getEnd(), expected.getEnd(), line);
+				count++;
+			}
+			Assert.assertTrue(count > 0);
+		}
+	}
+
+	@DataProvider(name = "badDecodeLocLines")
+	public Object[][] getBadDecodeLocLines() {
+		return new Object[][] {
+				{"1\t100\t.\tA\tC\t.\tPASS"},
+				{"1\tx\t.\tA\tC\t.\tPASS\t."},
+				{"1\t100\t.\tA\tC\t.\tPASS\tEND=x"},
+				{"1\t100\t.\tA\tC\t.\tPASS\tDP=3;END"}
+		};
+	}
+
+	@Test(dataProvider = "badDecodeLocLines", expectedExceptions = TribbleException.class)
+	public void testDecodeLocMalformedLine(final String line) {
+		final VCFCodec codec = new VCFCodec();
+		codec.setVCFHeader(new VCFHeader(), VCFHeaderVersion.VCF4_2);
+		codec.decodeLoc(line);
+	}
+
+	@Test
+	public void testDecodeLocUsesInfoEnd() {
+		final VCFCodec codec = new VCFCodec();
+		codec.setVCFHeader(new VCFHeader(), VCFHeaderVersion.VCF4_2);
+		final Feature feature = codec.decodeLoc("1\t100\t.\tAC\t<DEL>\t.\tPASS\tSVTYPE=DEL;END=250;ENDPOINT=7");
+		Assert.assertEquals(feature.getContig(), "1");
+		Assert.assertEquals(feature.getStart(), 100);
+		Assert.assertEquals(feature.getEnd(), 250);
+		Assert.assertEquals(codec.decodeLoc("1\t100\t.\tAC\tA\t.\tPASS\tENDPOINT=7").getEnd(), 101);
+	}
 }